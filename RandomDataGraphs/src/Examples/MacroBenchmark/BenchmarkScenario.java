@@ -0,0 +1,152 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MacroBenchmark;
+
+import SolutionConfig.Consts;
+
+/**
+ * The generation scenarios run by the MacroBenchmarkRunner. Each scenario holds the NL generator file it is based on
+ * (together with its sampler-function and type-properties files), the schema it uses and the types which are
+ * counted after the generation (see ExpLogger). A scenario without an NL generator file is generated through the Java
+ * API (see LubmJavaGenerator).
+ * The paths are relative to the RandomDataGraphs directory, as in the other examples.
+ */
+public enum BenchmarkScenario {
+
+    // The LUBM university benchmark, scaled by the number of universities
+    LUBM(
+            UniPaths.INPUT_PATH + "NLGeneratorUsage0.txt",
+            UniPaths.INPUT_PATH + "SamplerFunctionInput.txt",
+            UniPaths.INPUT_PATH + "TypePropertyMappingsInput.txt",
+            UniPaths.DATA_PATH + "UniBenchRdfSchema.rdf",
+            "http://www.cs.huji.ac.il/~danieb12/UniBenchRdfSchema.rdf#",
+            new String[]{"ub:University", "ub:Department", "ub:Faculty", "ub:Student", "ub:Course", "ub:Publication"}),
+
+    // The LUBM university benchmark generated through the Java API, scaled by the number of universities
+    LUBM_JAVA(
+            null,
+            null,
+            null,
+            UniPaths.DATA_PATH + "UniBenchRdfSchema.rdf",
+            "http://www.cs.huji.ac.il/~danieb12/UniBenchRdfSchema.rdf#",
+            new String[]{"ub:University", "ub:Department", "ub:Faculty", "ub:Student", "ub:Course", "ub:Publication"}),
+
+    // The FOAF social network benchmark, scaled by the number of persons
+    FOAF(
+            FoafPaths.INPUT_PATH + "Generator.txt",
+            FoafPaths.INPUT_PATH + "SamplerFunctionInput.txt",
+            FoafPaths.INPUT_PATH + "TypePropertyMappingsInput.txt",
+            FoafPaths.DATA_PATH + "FoafSchema.rdf",
+            "http://xmlns.com/foaf/0.1/",
+            new String[]{"foaf:Person", "foaf:Project"});
+
+    /**
+     * Class Members
+     */
+    private String _nlGeneratorFile;
+    private String _sFunctionFile;
+    private String _typePropsFile;
+    private String _schemaFile;
+    private String _namespace;
+    private String[] _countedTypes;
+
+    /**
+     * Constructor
+     * @param nlGeneratorFile - The NL generator file of the scenario (its namespace definition is replaced by the
+     * scenario's namespace, and its first create command is scaled), or null if the scenario is generated through the
+     * Java API
+     * @param sFunctionFile - The sampler-function file of the scenario (null if it's generated through the Java API)
+     * @param typePropsFile - The type-properties file of the scenario (null if it's generated through the Java API)
+     * @param schemaFile - A local copy of the schema of the scenario's namespace
+     * @param namespace - The namespace of the schema
+     * @param countedTypes - The types which are counted after the generation
+     */
+    private BenchmarkScenario(
+            String nlGeneratorFile,
+            String sFunctionFile,
+            String typePropsFile,
+            String schemaFile,
+            String namespace,
+            String[] countedTypes) {
+        _nlGeneratorFile = nlGeneratorFile;
+        _sFunctionFile = sFunctionFile;
+        _typePropsFile = typePropsFile;
+        _schemaFile = schemaFile;
+        _namespace = namespace;
+        _countedTypes = countedTypes;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    public String getNlGeneratorFile() {
+        return _nlGeneratorFile;
+    }
+
+    public String getSFunctionFile() {
+        return _sFunctionFile;
+    }
+
+    public String getTypePropsFile() {
+        return _typePropsFile;
+    }
+
+    public String getSchemaFile() {
+        return _schemaFile;
+    }
+
+    public String getNamespace() {
+        return _namespace;
+    }
+
+    public String[] getCountedTypes() {
+        return _countedTypes;
+    }
+
+    /**
+     * Returns true iff the scenario is generated through the Java API instead of by an NL generator file
+     * @return - True iff the scenario is generated through the Java API
+     */
+    public boolean isJavaGenerated() {
+        return _nlGeneratorFile == null;
+    }
+
+    /**
+     * Private classes
+     */
+
+    // Enum constants can't refer to static fields of the enum itself
+    private static class UniPaths {
+        private static final String INPUT_PATH = "." + Consts.pathSep + "src" + Consts.pathSep + "Examples" + Consts.pathSep + "UniBenchmark" + Consts.pathSep + "ViaNl" + Consts.pathSep + "InputFiles" + Consts.pathSep;
+        private static final String DATA_PATH = "." + Consts.pathSep + "src" + Consts.pathSep + "Examples" + Consts.pathSep + "UniBenchmark" + Consts.pathSep + "Data" + Consts.pathSep;
+    }
+
+    private static class FoafPaths {
+        private static final String INPUT_PATH = "." + Consts.pathSep + "src" + Consts.pathSep + "Examples" + Consts.pathSep + "FoafBenchmark" + Consts.pathSep + "ViaNl" + Consts.pathSep + "InputFiles" + Consts.pathSep;
+        private static final String DATA_PATH = "." + Consts.pathSep + "src" + Consts.pathSep + "Examples" + Consts.pathSep + "FoafBenchmark" + Consts.pathSep + "Data" + Consts.pathSep;
+    }
+}
@@ -0,0 +1,483 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MacroBenchmark;
+
+import Examples.UniBenchmark.ViaJava.LubmJavaGenerator;
+import Examples.Utils.ExpLogger;
+import JavaApi.RandomDataGraph.Metrics.GenerationMetrics;
+import JavaApi.RandomDataGraph.Metrics.LevelMetrics;
+import JavaApi.RandomDataGraph.RandomGraphAPI;
+import NaturalLanguageApi.NLParser;
+import RdfApi.QueryOptimizationMode;
+import RdfApi.RdfBasedRandomGraphAPI;
+import SolutionConfig.Consts;
+import StorageWrappers.TDBWrapper;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.util.FileManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Main that runs the generation scenarios (see BenchmarkScenario) headless - each scenario is run with each of the
+ * given scale factors under all of the query optimization modes and the given reasoning modes (see ReasoningMode),
+ * and each run is preceded by warm-up runs whose results aren't reported.
+ * The inputs of each scenario are prepared in a work directory: its schema is copied there and resolved locally
+ * (instead of by its namespace), its NL generator file is rewritten with the scenario's namespace and with its
+ * first create command scaled by the scale factor, and the graph is generated into a TDB in the work directory.
+ * A scenario generated through the Java API (see LubmJavaGenerator) is scaled by its number of universities.
+ *
+ * Usage: MacroBenchmarkRunner scenarios scale-factors output-file [iterations] [warmup-iterations] [work-dir]
+ * [reasoning-modes]
+ * - scenarios: comma separated list of scenarios (e.g. LUBM,FOAF,LUBM_JAVA)
+ * - scale-factors: comma separated list of scale factors (e.g. 1,2.5)
+ * - output-file: the results are appended to this file (see RUN_HEADER, CONSTRUCT_HEADER and LEVEL_HEADER)
+ * - iterations: the number of reported runs of each scenario, scale and mode (default: 3)
+ * - warmup-iterations: the number of runs before the reported ones (default: 1)
+ * - work-dir: the directory in which the inputs and the TDB are created (default: a directory in the temp dir)
+ * - reasoning-modes: comma separated list of reasoning modes (default: SCHEMA_CLOSURE,INFERENCE)
+ *
+ * The output file holds two types of lines, identified by their first field:
+ * - run: the totals of a single run - triples/sec is computed by the number of statements in the graph after
+ *   the run (including the schema), the peak heap is the sum of the peaks of the heap memory pools, and the cache
+ *   hit rate is the rate of query samplers initialized from the cache
+ * - construct: the time and cache counters of a single construction command of a run
+ * - level: the query metrics of a single recursion level of all of the construction commands of a run (see
+ *   GenerationMetrics)
+ */
+public class MacroBenchmarkRunner {
+
+    /**
+     * Consts
+     */
+    public static final String SEPARATOR = "|";
+    public static final String RUN_HEADER = "run|scenario|scale|mode|reasoning|iteration|elapsedMs|triples|triplesPerSec|peakHeapMb|gcMs|gcCount|cacheHits|queryExecutions|cacheHitRate";
+    public static final String CONSTRUCT_HEADER = "construct|scenario|scale|mode|reasoning|iteration|index|elapsedMs|cacheHits|queryExecutions";
+    public static final String LEVEL_HEADER = "level|scenario|scale|mode|reasoning|iteration|level|queryExecutions|queryMs|resultRows|avgResultRows|cacheHits|cacheMisses";
+
+    private static final int DEFAULT_ITERATIONS = 3;
+    private static final int DEFAULT_WARMUP_ITERATIONS = 1;
+    private static final long SEED = 42L;
+    private static final String LIST_SEPARATOR = ",";
+    private static final String DEFAULT_WORK_DIR = "grrMacroBenchmark";
+    private static final String NL_GENERATOR_FILE = "NLGenerator.txt";
+    private static final String RDF_GENERATOR_FILE = "RdfGenerator.rdf";
+    private static final String TDB_CONFIG_FILE = "tdbConfig.xml";
+    private static final String TDB_DIR = "TDB";
+    private static final String COMMENT_PREFIX = "//";
+    private static final long BYTES_IN_MB = 1024 * 1024;
+    private static final double NANOS_IN_MILLI = 1000000.0;
+
+    private static final Pattern NAMESPACE_LINE = Pattern.compile("^\\s*namespace\\s+(\\S+:)\\s*<[^>]*>.*$");
+    private static final Pattern CREATE_LINE = Pattern.compile("^(\\s*create\\s+)(\\d+)(\\s.*)$");
+    private static final Pattern XML_BASE = Pattern.compile("xml:base\\s*=\\s*\"[^\"]*\"");
+
+    /**
+     * Public static methods
+     */
+
+    /**
+     * @param args - scenarios scale-factors output-file [iterations] [warmup-iterations] [work-dir] [reasoning-modes]
+     * (see class documentation)
+     * @throws Exception - In case one of the runs failed
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 3)
+            throw new IllegalArgumentException("Usage: MacroBenchmarkRunner scenarios scale-factors output-file [iterations] [warmup-iterations] [work-dir] [reasoning-modes]");
+
+        ArrayList<BenchmarkScenario> scenarios = new ArrayList<BenchmarkScenario>();
+        for (String name : args[0].split(LIST_SEPARATOR))
+            scenarios.add(BenchmarkScenario.valueOf(name.trim().toUpperCase()));
+        ArrayList<Double> scales = new ArrayList<Double>();
+        for (String scale : args[1].split(LIST_SEPARATOR)) {
+            double scaleFactor = Double.parseDouble(scale.trim());
+            if (scaleFactor <= 0)
+                throw new IllegalArgumentException("The scale factors must be positive: " + scale);
+            scales.add(scaleFactor);
+        }
+        String outputFile = args[2];
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ITERATIONS;
+        int warmupIterations = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_WARMUP_ITERATIONS;
+        File workDir = args.length > 5 ? new File(args[5]) : new File(System.getProperty("java.io.tmpdir"), DEFAULT_WORK_DIR);
+        ArrayList<ReasoningMode> reasoningModes = new ArrayList<ReasoningMode>();
+        if (args.length > 6) {
+            for (String name : args[6].split(LIST_SEPARATOR))
+                reasoningModes.add(ReasoningMode.valueOf(name.trim().toUpperCase()));
+        }
+        else {
+            for (ReasoningMode reasoning : ReasoningMode.values())
+                reasoningModes.add(reasoning);
+        }
+
+        if (!workDir.isDirectory() && !workDir.mkdirs())
+            throw new IllegalStateException("Failed to create the work directory: " + workDir);
+        String tdbConfigFile = writeTdbConfig(workDir);
+
+        boolean newFile = !new File(outputFile).exists();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outputFile, true)));
+        try {
+            if (newFile) {
+                out.println(RUN_HEADER);
+                out.println(CONSTRUCT_HEADER);
+                out.println(LEVEL_HEADER);
+            }
+
+            for (BenchmarkScenario scenario : scenarios) {
+                for (double scale : scales) {
+                    String rdfGeneratorFile = prepareScenario(scenario, scale, workDir);
+                    for (QueryOptimizationMode mode : QueryOptimizationMode.values()) {
+                        for (ReasoningMode reasoning : reasoningModes) {
+                            for (int i = 0; i < warmupIterations; i++)
+                                runGeneration(scenario, scale, rdfGeneratorFile, tdbConfigFile, mode, reasoning, workDir);
+                            for (int i = 0; i < iterations; i++) {
+                                String runKey = scenario + SEPARATOR + scale + SEPARATOR + mode + SEPARATOR + reasoning + SEPARATOR + i;
+                                RunResult result = runGeneration(scenario, scale, rdfGeneratorFile, tdbConfigFile, mode, reasoning, workDir);
+                                String runLine = result.toRunLine(runKey);
+                                System.out.println(runLine);
+                                out.println(runLine);
+                                for (ExpLogger.ConstructionLog log : result._expLogger.getConstructionLogs())
+                                    out.println("construct" + SEPARATOR + runKey + SEPARATOR + log.getIndex() + SEPARATOR +
+                                            format(log.getElapsedNanos() / NANOS_IN_MILLI) + SEPARATOR +
+                                            log.getCacheHits() + SEPARATOR + log.getQueryExecutions());
+                                for (LevelMetrics level : result._metrics.getLevels())
+                                    out.println("level" + SEPARATOR + runKey + SEPARATOR + level);
+                                out.flush();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Prepares the inputs of the given scenario with the given scale factor in the work directory (see class
+     * documentation), and parses its NL generator file into an RDF generator file
+     * @param scenario - The prepared scenario
+     * @param scale - The scale factor of the scenario
+     * @param workDir - The work directory
+     * @return - The path of the RDF generator file of the scenario, or null if it's generated through the Java API
+     * @throws IOException - In case of a failure while reading or writing the inputs
+     */
+    private static String prepareScenario(BenchmarkScenario scenario, double scale, File workDir) throws IOException {
+        File scenarioDir = new File(workDir, scenario + "_" + scale);
+        if (!scenarioDir.isDirectory() && !scenarioDir.mkdirs())
+            throw new IllegalStateException("Failed to create the scenario directory: " + scenarioDir);
+
+        // The schema is loaded by its namespace (without the last char, see RdfBasedRandomGraphAPI) - map it to a local
+        // copy whose base is the namespace, so the IRIs of the schema match the namespace
+        String namespace = scenario.getNamespace();
+        File schemaFile = new File(scenarioDir, new File(scenario.getSchemaFile()).getName());
+        ArrayList<String> schemaLines = readLines(scenario.getSchemaFile());
+        for (int i = 0; i < schemaLines.size(); i++) {
+            Matcher m = XML_BASE.matcher(schemaLines.get(i));
+            schemaLines.set(i, m.replaceAll("xml:base = \"" + namespace.substring(0, namespace.length() - 1) + "\""));
+        }
+        writeLines(schemaFile.getPath(), schemaLines);
+        FileManager.get().getLocationMapper().addAltEntry(namespace.substring(0, namespace.length() - 1), schemaFile.getAbsolutePath());
+        if (scenario.isJavaGenerated())
+            return null;
+
+        // Rewrite the namespace definitions and scale the first create command
+        ArrayList<String> nlLines = readLines(scenario.getNlGeneratorFile());
+        boolean scaled = false;
+        for (int i = 0; i < nlLines.size(); i++) {
+            String line = nlLines.get(i);
+            if (line.trim().startsWith(COMMENT_PREFIX))
+                continue;
+            Matcher nsMatcher = NAMESPACE_LINE.matcher(line);
+            Matcher createMatcher = CREATE_LINE.matcher(line);
+            if (nsMatcher.matches())
+                nlLines.set(i, "namespace " + nsMatcher.group(1) + " <" + namespace + ">");
+            else if (!scaled && createMatcher.matches()) {
+                long count = Math.max(1, Math.round(Long.parseLong(createMatcher.group(2)) * scale));
+                nlLines.set(i, createMatcher.group(1) + count + createMatcher.group(3));
+                scaled = true;
+            }
+        }
+        if (!scaled)
+            throw new IllegalStateException("The NL generator file of the scenario doesn't have a create command to scale: " + scenario);
+        String nlGeneratorFile = new File(scenarioDir, NL_GENERATOR_FILE).getPath();
+        writeLines(nlGeneratorFile, nlLines);
+
+        // The NL parser writes the queries under its input path
+        NLParser nlParser = NLParser.create(scenarioDir.getPath() + Consts.pathSep);
+        nlParser.parseNLGeneratorFiles(scenario.getSFunctionFile(), scenario.getTypePropsFile(), nlGeneratorFile);
+        String rdfGeneratorFile = new File(scenarioDir, RDF_GENERATOR_FILE).getPath();
+        nlParser.generateRdfGeneratorFile(rdfGeneratorFile);
+        return rdfGeneratorFile;
+    }
+
+    /**
+     * Runs a single generation of the given scenario, and measures it
+     * @param scenario - The generated scenario
+     * @param scale - The scale factor of the scenario
+     * @param rdfGeneratorFile - The RDF generator file of the scenario (null if it's generated through the Java API)
+     * @param tdbConfigFile - The configuration file of the TDB in which the graph is generated
+     * @param mode - The query optimization mode of the generation
+     * @param reasoning - The reasoning mode of the generation
+     * @param workDir - The work directory
+     * @return - The measurements of the run
+     * @throws Exception - In case the generation failed
+     */
+    private static RunResult runGeneration(
+            BenchmarkScenario scenario,
+            double scale,
+            String rdfGeneratorFile,
+            String tdbConfigFile,
+            QueryOptimizationMode mode,
+            ReasoningMode reasoning,
+            File workDir) throws Exception {
+
+        boolean useSchemaClosure = reasoning == ReasoningMode.SCHEMA_CLOSURE;
+        ExpLogger expLogger = new ExpLogger(scenario.getCountedTypes(), workDir.getPath() + Consts.pathSep, mode);
+        expLogger.setLogCacheSize(false);
+        GenerationMetrics metrics = new GenerationMetrics();
+        RdfBasedRandomGraphAPI rdfGrrApi = null;
+        RandomGraphAPI randGraphApi = null;
+        if (scenario.isJavaGenerated()) {
+            randGraphApi = new RandomGraphAPI();
+            randGraphApi.setSeed(SEED);
+            randGraphApi.setMetrics(metrics);
+        }
+        else {
+            rdfGrrApi = new RdfBasedRandomGraphAPI();
+            rdfGrrApi.setTdbConfigFile(tdbConfigFile);
+            rdfGrrApi.setUseSchemaClosure(useSchemaClosure);
+            rdfGrrApi.setSeed(SEED);
+            rdfGrrApi.setMetrics(metrics);
+        }
+
+        // Start each run from a clean heap, and measure the peak of this run only
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+        long gcTime = getGcTime();
+        long gcCount = getGcCount();
+
+        if (scenario.isJavaGenerated())
+            generateViaJava(randGraphApi, scenario, scale, tdbConfigFile, mode, useSchemaClosure, expLogger);
+        else
+            rdfGrrApi.generateGraph(rdfGeneratorFile, null, mode, expLogger, false);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peakHeap += pool.getPeakUsage().getUsed();
+
+        if (rdfGrrApi != null)
+            rdfGrrApi.setMetrics(null);
+        return new RunResult(expLogger, metrics, peakHeap, getGcTime() - gcTime, getGcCount() - gcCount);
+    }
+
+    /**
+     * Generates the given scenario through the Java API into an empty TDB (see LubmJavaGenerator)
+     * @param randGraphApi - The API which runs the construction commands
+     * @param scenario - The generated scenario
+     * @param scale - The scale factor of the scenario, which sets its number of universities
+     * @param tdbConfigFile - The configuration file of the TDB in which the graph is generated
+     * @param mode - The query optimization mode of the generation
+     * @param useSchemaClosure - True iff the schema closure is used instead of an inference model
+     * @param expLogger - The logger of the generation
+     * @throws IOException - In case of a failure while initializing the TDB
+     */
+    private static void generateViaJava(
+            RandomGraphAPI randGraphApi,
+            BenchmarkScenario scenario,
+            double scale,
+            String tdbConfigFile,
+            QueryOptimizationMode mode,
+            boolean useSchemaClosure,
+            ExpLogger expLogger) throws IOException {
+
+        TDBWrapper dbw = new TDBWrapper();
+        dbw.init(tdbConfigFile);
+        Model graphModel = dbw.getEmptyDbBasedModel();
+        // The schema is resolved to its local copy (see prepareScenario())
+        String namespace = scenario.getNamespace();
+        Model schema = FileManager.get().loadModel(namespace.substring(0, namespace.length() - 1));
+        try {
+            int universities = (int) Math.max(1, Math.round(scale));
+            LubmJavaGenerator.generate(randGraphApi, graphModel, schema, useSchemaClosure, universities, mode, expLogger);
+        }
+        finally {
+            randGraphApi.setMetrics(null);
+            graphModel.close();
+            schema.close();
+            dbw.close();
+        }
+    }
+
+    /**
+     * Returns the total time (in milli-seconds) spent by all of the garbage collectors
+     * @return - The total time spent by all of the garbage collectors
+     */
+    private static long getGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    /**
+     * Returns the total number of collections of all of the garbage collectors
+     * @return - The total number of collections of all of the garbage collectors
+     */
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    /**
+     * Writes the configuration file of a TDB located in the work directory
+     * @param workDir - The work directory
+     * @return - The path of the configuration file
+     * @throws IOException - In case of a failure while writing the file
+     */
+    private static String writeTdbConfig(File workDir) throws IOException {
+        File tdbDir = new File(workDir, TDB_DIR);
+        ArrayList<String> lines = new ArrayList<String>();
+        lines.add("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        lines.add("<TdbConfig>");
+        lines.add("\t<TdbPath>" + tdbDir.getAbsolutePath() + "</TdbPath>");
+        lines.add("</TdbConfig>");
+        String configFile = new File(workDir, TDB_CONFIG_FILE).getPath();
+        writeLines(configFile, lines);
+        return configFile;
+    }
+
+    /**
+     * Returns the lines of the given file
+     * @param fileName - The read file
+     * @return - The lines of the given file
+     * @throws IOException - In case of a failure while reading the file
+     */
+    private static ArrayList<String> readLines(String fileName) throws IOException {
+        ArrayList<String> lines = new ArrayList<String>();
+        BufferedReader br = new BufferedReader(new FileReader(fileName));
+        try {
+            String line;
+            while ((line = br.readLine()) != null)
+                lines.add(line);
+        }
+        finally {
+            br.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the given lines into the given file (overwriting it)
+     * @param fileName - The written file
+     * @param lines - The lines to be written
+     * @throws IOException - In case of a failure while writing the file
+     */
+    private static void writeLines(String fileName, ArrayList<String> lines) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Formats the given number with a fixed precision
+     * @param value - The formatted number
+     * @return - The formatted number
+     */
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * The measurements of a single run
+     */
+    private static class RunResult {
+
+        private ExpLogger _expLogger;
+        private GenerationMetrics _metrics;
+        private long _peakHeap;
+        private long _gcTime;
+        private long _gcCount;
+
+        public RunResult(ExpLogger expLogger, GenerationMetrics metrics, long peakHeap, long gcTime, long gcCount) {
+            _expLogger = expLogger;
+            _metrics = metrics;
+            _peakHeap = peakHeap;
+            _gcTime = gcTime;
+            _gcCount = gcCount;
+        }
+
+        /**
+         * Returns the run line of this result (see RUN_HEADER)
+         * @param runKey - The scenario, scale, mode and iteration of the run
+         * @return - The run line of this result
+         */
+        public String toRunLine(String runKey) {
+            long elapsed = _expLogger.getElapsedTime();
+            long triples = _expLogger.getTotalStatements();
+            int hits = _expLogger.getTotalCacheHits();
+            int executions = _expLogger.getTotalQueryExecutions();
+            double triplesPerSec = elapsed > 0 ? triples * 1000.0 / elapsed : 0;
+            double hitRate = (hits + executions) > 0 ? (double) hits / (hits + executions) : 0;
+            return "run" + SEPARATOR + runKey + SEPARATOR + elapsed + SEPARATOR + triples + SEPARATOR +
+                    format(triplesPerSec) + SEPARATOR + format((double) _peakHeap / BYTES_IN_MB) + SEPARATOR +
+                    _gcTime + SEPARATOR + _gcCount + SEPARATOR + hits + SEPARATOR + executions + SEPARATOR +
+                    format(hitRate);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MacroBenchmark;
+
+/**
+ * The ways in which the RDFS entailments of the schema are taken into account by the queries of a benchmark run
+ */
+public enum ReasoningMode {
+
+    // The queries are rewritten by the closure of the schema and run on the graph model (see SchemaClosure)
+    SCHEMA_CLOSURE,
+
+    // The queries run on an RDFS inference model over the graph model
+    INFERENCE
+}
@@ -0,0 +1,339 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+import JavaApi.RandomDataGraph.GraphBuildingBlocks.Edge;
+import JavaApi.RandomDataGraph.GraphBuildingBlocks.Node;
+import JavaApi.RandomDataGraph.Matchers.StdMatcher;
+import JavaApi.RandomDataGraph.Patterns.ConstructionPattern;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
+import JavaApi.Samplers.DictionarySamplers.CounterDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.StdDictionarySampler;
+import JavaApi.Samplers.QuerySamplers.IQuerySampler;
+import JavaApi.Samplers.QuerySamplers.QueryWrapper;
+import JavaApi.Samplers.QuerySamplers.StdQuerySamplerFactory;
+import JavaApi.Samplers.SamplerFunctions.SamplerFunction;
+import JavaApi.Samplers.SamplerFunctions.TypePropertiesFunction;
+import JavaApi.Samplers.SamplingMode;
+import RdfApi.QueryOptimizationMode;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Micro-benchmarks of the primitives of a construction command: mapping the query results to the pattern's nodes
+ * (StdMatcher), applying the construction pattern on a model (ConstructionPattern) and sampling the query results
+ * (StdQuerySampler).
+ * The size parameter is the number of mapped nodes for the matcher, the number of pattern applications on a new
+ * model for the construction pattern and the number of query results for the query sampler.
+ */
+public class ConstructionBenchmarks {
+
+    /**
+     * Consts
+     */
+    private static final String NS_ALIAS = "ex";
+    private static final String NS = "http://grr.example.org/bench#";
+    private static final String ITEM_TYPE = "Item";
+    private static final String GROUP_TYPE = "Group";
+    private static final String NAME_PROPERTY = NS_ALIAS + ":name";
+    private static final String PART_OF_EDGE = NS_ALIAS + ":partOf";
+    private static final String HAS_PART_EDGE = NS_ALIAS + ":hasPart";
+    private static final String QUERY_VAR = "?x";
+    private static final String ITEMS_QUERY =
+            "PREFIX " + NS_ALIAS + ": <" + NS + "> " +
+            "SELECT " + QUERY_VAR + " WHERE { " + QUERY_VAR + " a " + NS_ALIAS + ":" + ITEM_TYPE + " . }";
+    // The number of solutions the mapped nodes are spread over (when mapping the results of several queries)
+    private static final int MATCHER_SOLUTIONS = 8;
+    private static final int NAME_LABELS = 1000;
+
+    /**
+     * Constructor - Private since this class has static methods only
+     */
+    private ConstructionBenchmarks() {
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns all of the construction benchmarks
+     * @return - All of the construction benchmarks
+     */
+    public static ArrayList<MicroBenchmark> createBenchmarks() {
+        ArrayList<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+
+        benchmarks.add(new MatcherBenchmark(false));
+        benchmarks.add(new MatcherBenchmark(true));
+        benchmarks.add(new ConstructionPatternBenchmark());
+        benchmarks.add(new QuerySamplerInitBenchmark(false));
+        benchmarks.add(new QuerySamplerInitBenchmark(true));
+        for (SamplingMode mode : SamplingMode.values())
+            benchmarks.add(new QuerySamplerMatchingBenchmark(mode));
+
+        return benchmarks;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Creates a model holding the given number of resources of the benchmark's item type
+     * @param size - The number of resources
+     * @return - A model holding the given number of resources of the benchmark's item type
+     */
+    private static Model createItemsModel(int size) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix(NS_ALIAS, NS);
+        Resource itemType = model.createResource(NS + ITEM_TYPE);
+        for (int i = 0; i < size; i++)
+            model.createResource(NS + ITEM_TYPE + "/" + i).addProperty(RDF.type, itemType);
+        return model;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Maps query solutions to the old nodes of a pattern (either a single solution holding all of the nodes, or
+     * several solutions as returned by several queries), one operation is a single mapped node
+     */
+    private static class MatcherBenchmark extends MicroBenchmark {
+
+        private boolean _severalSolutions;
+        private StdMatcher _matcher;
+        private HashMap<Integer, Node> _oldNodes;
+        private QuerySolutionMap _solution;
+        private ArrayList<QuerySolution> _solutions;
+        private int _size;
+
+        public MatcherBenchmark(boolean severalSolutions) {
+            super("StdMatcher.setNodesMapping" + (severalSolutions ? "[solutions]" : ""));
+            _severalSolutions = severalSolutions;
+        }
+
+        @Override
+        public void setUp(int size) {
+            _size = size;
+            Model model = createItemsModel(0);
+            _matcher = new StdMatcher();
+            _oldNodes = new HashMap<Integer, Node>();
+            _solution = new QuerySolutionMap();
+            _solutions = new ArrayList<QuerySolution>();
+            for (int i = 0; i < MATCHER_SOLUTIONS; i++)
+                _solutions.add(new QuerySolutionMap());
+
+            for (int id = 0; id < size; id++) {
+                String var = QUERY_VAR + id;
+                _matcher.addMapping(id, var);
+                _oldNodes.put(id, new Node(null, NS_ALIAS + ":" + ITEM_TYPE, id, null));
+                Resource r = model.createResource(NS + ITEM_TYPE + "/" + id);
+                _solution.add(var, r);
+                ((QuerySolutionMap) _solutions.get(id % MATCHER_SOLUTIONS)).add(var, r);
+            }
+        }
+
+        @Override
+        public long runBatch() {
+            if (_severalSolutions)
+                _matcher.setNodesMapping(_solutions, _oldNodes);
+            else
+                _matcher.setNodesMapping(_solution, _oldNodes);
+            consume(_oldNodes.get(_size - 1).getRDFNode());
+            return _size;
+        }
+
+        @Override
+        public void tearDown() {
+            _oldNodes = null;
+            _solution = null;
+            _solutions = null;
+        }
+    }
+
+    /**
+     * Applies a construction pattern on a new model, the pattern creates a new item with a name property which is
+     * connected to an existing group (and the group is connected back to the item). One operation is a single
+     * application of the pattern
+     */
+    private static class ConstructionPatternBenchmark extends MicroBenchmark {
+
+        private ConstructionPattern _cPattern;
+        private Resource _group;
+        private int _size;
+
+        public ConstructionPatternBenchmark() {
+            super("ConstructionPattern.applyPatternOnModel");
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            _size = size;
+
+            // The d-samplers of the new item and its name
+            SamplerFunction sFunction = new SamplerFunction();
+            CounterDictionarySampler itemSampler = new CounterDictionarySampler();
+            itemSampler.init(ITEM_TYPE);
+            sFunction.addValue(NS_ALIAS + ":" + ITEM_TYPE, itemSampler);
+            ArrayList<String> names = new ArrayList<String>(NAME_LABELS);
+            for (int i = 0; i < NAME_LABELS; i++)
+                names.add("name" + i);
+            StdDictionarySampler nameSampler = new StdDictionarySampler();
+            nameSampler.setSamplingMode(SamplingMode.RANDOM_REPEATABLE);
+            nameSampler.init(names);
+            sFunction.addValue(NAME_PROPERTY, nameSampler);
+            TypePropertiesFunction typePropsFunction = new TypePropertiesFunction();
+            typePropsFunction.addValue(NS_ALIAS + ":" + ITEM_TYPE, new String[] { NAME_PROPERTY });
+
+            // The pattern: group(0) <--> item(1)
+            int groupId = 0;
+            int itemId = 1;
+            ArrayList<Edge> itemEdges = new ArrayList<Edge>();
+            itemEdges.add(new Edge(PART_OF_EDGE, 2, groupId));
+            ArrayList<Edge> groupEdges = new ArrayList<Edge>();
+            groupEdges.add(new Edge(HAS_PART_EDGE, 3, itemId));
+            HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
+            newNodes.put(itemId, new Node(null, NS_ALIAS + ":" + ITEM_TYPE, itemId, itemEdges));
+            HashMap<Integer, Node> oldNodes = new HashMap<Integer, Node>();
+            Node groupNode = new Node(null, NS_ALIAS + ":" + GROUP_TYPE, groupId, groupEdges);
+            oldNodes.put(groupId, groupNode);
+            _cPattern = new ConstructionPattern(oldNodes, newNodes, sFunction, typePropsFunction);
+
+            _group = ModelFactory.createDefaultModel().createResource(NS + GROUP_TYPE + "/0");
+            groupNode.setRDFNode(_group);
+        }
+
+        @Override
+        public long runBatch() throws IOException {
+            Model model = ModelFactory.createDefaultModel();
+            model.setNsPrefix(NS_ALIAS, NS);
+            model.add(_group, RDF.type, model.createResource(NS + GROUP_TYPE));
+            for (int i = 0; i < _size; i++)
+                _cPattern.applyPatternOnModel(model);
+            consume(model.size());
+            return _size;
+        }
+
+        @Override
+        public void tearDown() {
+            _cPattern = null;
+        }
+    }
+
+    /**
+     * Initializes a query sampler, which executes the query (or fetches its results from the query cache)
+     */
+    private static class QuerySamplerInitBenchmark extends MicroBenchmark {
+
+        private boolean _cached;
+        private Model _model;
+        private IQuerySampler _qSampler;
+        private QueryCache _qCache;
+
+        public QuerySamplerInitBenchmark(boolean cached) {
+            super("StdQuerySampler.init" + (cached ? "[cached]" : ""));
+            _cached = cached;
+        }
+
+        @Override
+        public void setUp(int size) {
+            _model = createItemsModel(size);
+            _qSampler = StdQuerySamplerFactory.getStdQuerySampler(new QueryWrapper(ITEMS_QUERY, SamplingMode.RANDOM_REPEATABLE));
+            _qCache = new QueryCache(QueryOptimizationMode.ALWAYS_CACHE);
+        }
+
+        @Override
+        public long runBatch() {
+            if (_cached)
+                _qSampler.init(_model, _qCache, true);
+            else
+                _qSampler.init(_model);
+            consume(_qSampler.getNumberOfSolutions());
+            return 1;
+        }
+
+        @Override
+        public void tearDown() {
+            _model.close();
+            _model = null;
+            _qSampler = null;
+            _qCache = null;
+        }
+    }
+
+    /**
+     * Draws the query results of a query sampler in the given sampling mode, after initializing the sampler from the
+     * query cache (as done for each cached query while generating). One operation is a single drawn result
+     */
+    private static class QuerySamplerMatchingBenchmark extends MicroBenchmark {
+
+        private SamplingMode _mode;
+        private Model _model;
+        private IQuerySampler _qSampler;
+        private QueryCache _qCache;
+        private int _size;
+
+        public QuerySamplerMatchingBenchmark(SamplingMode mode) {
+            super("StdQuerySampler.getNextMatching[" + mode + "]");
+            _mode = mode;
+        }
+
+        @Override
+        public void setUp(int size) {
+            _size = size;
+            _model = createItemsModel(size);
+            _qSampler = StdQuerySamplerFactory.getStdQuerySampler(new QueryWrapper(ITEMS_QUERY, _mode));
+            _qCache = new QueryCache(QueryOptimizationMode.ALWAYS_CACHE);
+            _qSampler.init(_model, _qCache, true);
+        }
+
+        @Override
+        public long runBatch() {
+            _qSampler.init(_model, _qCache, true);
+            while (_qSampler.hasNext())
+                consume(_qSampler.getNextMatching());
+            return _size;
+        }
+
+        @Override
+        public void tearDown() {
+            _model.close();
+            _model = null;
+            _qSampler = null;
+            _qCache = null;
+        }
+    }
+}
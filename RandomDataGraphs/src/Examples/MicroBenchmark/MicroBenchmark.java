@@ -0,0 +1,113 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+/**
+ * A base class for a micro-benchmark which is run by the MicroBenchmarkHarness.
+ * A benchmark is set up once for each size it is run with, and then its runBatch() method is invoked repeatedly
+ * (first for warming up the JVM and then for measuring). Each batch returns the number of operations it executed,
+ * so the harness can report the time per single operation.
+ * Values that are computed by a batch should be passed to consume(), otherwise the JIT might remove the code that
+ * computes them.
+ */
+public abstract class MicroBenchmark {
+
+    /**
+     * Class Members
+     */
+    private String _name;
+    // Accumulates the consumed values
+    private long _sink;
+
+    /**
+     * Constructor
+     * @param name - The name of the benchmark (used in the reports of the harness)
+     */
+    protected MicroBenchmark(String name) {
+        _name = name;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the name of the benchmark
+     * @return - The name of the benchmark
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Prepares the benchmark for running with the given size (invoked before the first batch of each size)
+     * @param size - The size parameter of the run, its meaning depends on the specific benchmark
+     * @throws Exception - In case of a failure while preparing the benchmark
+     */
+    public abstract void setUp(int size) throws Exception;
+
+    /**
+     * Runs a single batch of the measured operation
+     * @return - The number of operations that were executed by the batch
+     * @throws Exception - In case of a failure while running the batch
+     */
+    public abstract long runBatch() throws Exception;
+
+    /**
+     * Releases the resources of the benchmark (invoked after the last batch of each size)
+     * @throws Exception - In case of a failure while releasing the resources
+     */
+    public void tearDown() throws Exception {
+    }
+
+    /**
+     * Returns the accumulated value of all the consumed values
+     * @return - The accumulated value of all the consumed values
+     */
+    public long getSink() {
+        return _sink;
+    }
+
+    /**
+     * Protected Methods
+     */
+
+    /**
+     * Consumes the given value so its computation can't be eliminated
+     * @param value - The consumed value
+     */
+    protected void consume(long value) {
+        _sink = _sink * 31 + value;
+    }
+
+    /**
+     * Consumes the given object so its computation can't be eliminated
+     * @param o - The consumed object (might be null)
+     */
+    protected void consume(Object o) {
+        consume(o == null ? 0 : o.hashCode());
+    }
+}
@@ -0,0 +1,145 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+/**
+ * Runs micro-benchmarks (see MicroBenchmark) in the following way: for each size, the benchmark is set up and
+ * then runs a number of warm-up iterations (which aren't measured, and let the JIT compile the measured code)
+ * followed by a number of measured iterations. Each iteration runs batches of the benchmark until the iteration's
+ * time is over, and its result is the average time of a single operation.
+ * Since all of the benchmarks are run by the same JVM, their results are more comparable when they are run
+ * separately (see MicroBenchmarkRunner).
+ */
+public class MicroBenchmarkHarness {
+
+    /**
+     * Consts
+     */
+    public static final int DEFAULT_WARMUP_ITERATIONS = 3;
+    public static final int DEFAULT_MEASURED_ITERATIONS = 5;
+    public static final long DEFAULT_ITERATION_MILLIS = 500;
+
+    private static final long NANOS_IN_MILLI = 1000000L;
+
+    /**
+     * Class Members
+     */
+    private int _warmupIterations;
+    private int _measuredIterations;
+    private long _iterationNanos;
+    // Written after each run so the consumed values of the benchmarks are never dead
+    private volatile long _sink;
+
+    /**
+     * Constructor - uses the default number of iterations and iteration time
+     */
+    public MicroBenchmarkHarness() {
+        this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASURED_ITERATIONS, DEFAULT_ITERATION_MILLIS);
+    }
+
+    /**
+     * Constructor
+     * @param warmupIterations - The number of iterations that are run before measuring
+     * @param measuredIterations - The number of measured iterations
+     * @param iterationMillis - The minimal time of each iteration in milli-seconds
+     * @throws IllegalArgumentException - If the number of measured iterations or the iteration time isn't positive,
+     * or if the number of warm-up iterations is negative
+     */
+    public MicroBenchmarkHarness(int warmupIterations, int measuredIterations, long iterationMillis)
+            throws IllegalArgumentException {
+        if (warmupIterations < 0)
+            throw new IllegalArgumentException("Negative number of warm-up iterations: " + warmupIterations);
+        if (measuredIterations <= 0)
+            throw new IllegalArgumentException("The number of measured iterations must be positive: " + measuredIterations);
+        if (iterationMillis <= 0)
+            throw new IllegalArgumentException("The iteration time must be positive: " + iterationMillis);
+        _warmupIterations = warmupIterations;
+        _measuredIterations = measuredIterations;
+        _iterationNanos = iterationMillis * NANOS_IN_MILLI;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Runs the given benchmark with the given size
+     * @param benchmark - The benchmark to be run
+     * @param size - The size parameter of the run
+     * @return - The measurements of the run
+     * @throws Exception - In case the benchmark failed
+     */
+    public MicroBenchmarkResult run(MicroBenchmark benchmark, int size) throws Exception {
+
+        // Don't let garbage of previous runs be collected while measuring this one
+        System.gc();
+
+        benchmark.setUp(size);
+        try {
+            for (int i = 0; i < _warmupIterations; i++)
+                runIteration(benchmark, new long[1]);
+
+            long[] ops = new long[1];
+            double[] nsPerOp = new double[_measuredIterations];
+            long totalOps = 0;
+            for (int i = 0; i < _measuredIterations; i++) {
+                long elapsed = runIteration(benchmark, ops);
+                nsPerOp[i] = (double) elapsed / ops[0];
+                totalOps += ops[0];
+            }
+            return new MicroBenchmarkResult(benchmark.getName(), size, totalOps, nsPerOp);
+        }
+        finally {
+            _sink += benchmark.getSink();
+            benchmark.tearDown();
+        }
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Runs batches of the given benchmark until the iteration's time is over
+     * @param benchmark - The benchmark to be run
+     * @param ops - An array of size 1 into which the number of executed operations is written
+     * @return - The elapsed time of the iteration (in nano-seconds)
+     * @throws Exception - In case the benchmark failed
+     */
+    private long runIteration(MicroBenchmark benchmark, long[] ops) throws Exception {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            count += benchmark.runBatch();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < _iterationNanos);
+        if (count <= 0)
+            throw new IllegalStateException("The benchmark didn't execute any operation: " + benchmark.getName());
+        ops[0] = count;
+        return elapsed;
+    }
+}
@@ -0,0 +1,158 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+/**
+ * Holds the measurements of a single micro-benchmark run (one benchmark with one size)
+ */
+public class MicroBenchmarkResult {
+
+    /**
+     * Consts
+     */
+    public static final String SEPARATOR = "|";
+    public static final String HEADER =
+            "benchmark" + SEPARATOR + "size" + SEPARATOR + "iterations" + SEPARATOR + "ops" + SEPARATOR +
+            "meanNsPerOp" + SEPARATOR + "minNsPerOp" + SEPARATOR + "maxNsPerOp" + SEPARATOR + "stdDevNsPerOp";
+
+    /**
+     * Class Members
+     */
+    private String _name;
+    private int _size;
+    private long _totalOps;
+    private double[] _nsPerOp;
+
+    /**
+     * Constructor
+     * @param name - The name of the benchmark
+     * @param size - The size the benchmark was run with
+     * @param totalOps - The total number of operations executed by all of the measured iterations
+     * @param nsPerOp - The time (in nano-seconds) of a single operation, for each measured iteration
+     */
+    public MicroBenchmarkResult(String name, int size, long totalOps, double[] nsPerOp) {
+        _name = name;
+        _size = size;
+        _totalOps = totalOps;
+        _nsPerOp = nsPerOp;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the name of the benchmark
+     * @return - The name of the benchmark
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Returns the size the benchmark was run with
+     * @return - The size the benchmark was run with
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Returns the total number of operations executed by all of the measured iterations
+     * @return - The total number of operations executed by all of the measured iterations
+     */
+    public long getTotalOps() {
+        return _totalOps;
+    }
+
+    /**
+     * Returns the mean time (in nano-seconds) of a single operation over all of the measured iterations
+     * @return - The mean time (in nano-seconds) of a single operation
+     */
+    public double getMeanNsPerOp() {
+        double sum = 0;
+        for (double ns : _nsPerOp)
+            sum += ns;
+        return sum / _nsPerOp.length;
+    }
+
+    /**
+     * Returns the time (in nano-seconds) of a single operation in the fastest measured iteration
+     * @return - The time (in nano-seconds) of a single operation in the fastest measured iteration
+     */
+    public double getMinNsPerOp() {
+        double min = Double.MAX_VALUE;
+        for (double ns : _nsPerOp)
+            min = Math.min(min, ns);
+        return min;
+    }
+
+    /**
+     * Returns the time (in nano-seconds) of a single operation in the slowest measured iteration
+     * @return - The time (in nano-seconds) of a single operation in the slowest measured iteration
+     */
+    public double getMaxNsPerOp() {
+        double max = 0;
+        for (double ns : _nsPerOp)
+            max = Math.max(max, ns);
+        return max;
+    }
+
+    /**
+     * Returns the standard deviation of the time of a single operation over all of the measured iterations
+     * @return - The standard deviation (in nano-seconds) of the time of a single operation
+     */
+    public double getStdDevNsPerOp() {
+        double mean = getMeanNsPerOp();
+        double sum = 0;
+        for (double ns : _nsPerOp)
+            sum += (ns - mean) * (ns - mean);
+        return Math.sqrt(sum / _nsPerOp.length);
+    }
+
+    /**
+     * Returns a single line representation of this result (the fields are ordered as in the HEADER)
+     * @return - A single line representation of this result
+     */
+    public String toLogLine() {
+        return _name + SEPARATOR + _size + SEPARATOR + _nsPerOp.length + SEPARATOR + _totalOps + SEPARATOR +
+                format(getMeanNsPerOp()) + SEPARATOR + format(getMinNsPerOp()) + SEPARATOR +
+                format(getMaxNsPerOp()) + SEPARATOR + format(getStdDevNsPerOp());
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Formats the given time with a fixed precision
+     * @param ns - The formatted time
+     * @return - The formatted time
+     */
+    private static String format(double ns) {
+        return String.format("%.2f", ns);
+    }
+}
@@ -0,0 +1,135 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Main that runs the micro-benchmarks of the samplers and of the construction primitives (see SamplerBenchmarks
+ * and ConstructionBenchmarks) with each of the given sizes, and prints one line per benchmark and size (see
+ * MicroBenchmarkResult).
+ * Usage: MicroBenchmarkRunner [sizes] [filter] [output-file]
+ * - sizes: comma separated list of sizes (default: 1000,100000)
+ * - filter: only benchmarks whose name contains the filter are run (default: all of the benchmarks)
+ * - output-file: the result lines are also appended to this file, so runs of different versions can be compared
+ */
+public class MicroBenchmarkRunner {
+
+    /**
+     * Consts
+     */
+    private static final String DEFAULT_SIZES = "1000,100000";
+    private static final String SIZES_SEPARATOR = ",";
+
+    /**
+     * Public static methods
+     */
+
+    /**
+     * @param args - [sizes] [filter] [output-file] (see class documentation)
+     * @throws Exception - In case one of the benchmarks failed
+     */
+    public static void main(String[] args) throws Exception {
+
+        int[] sizes = parseSizes(args.length > 0 ? args[0] : DEFAULT_SIZES);
+        String filter = args.length > 1 ? args[1] : null;
+        String outputFile = args.length > 2 ? args[2] : null;
+
+        ArrayList<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+        benchmarks.addAll(SamplerBenchmarks.createBenchmarks());
+        benchmarks.addAll(ConstructionBenchmarks.createBenchmarks());
+
+        MicroBenchmarkHarness harness = new MicroBenchmarkHarness();
+        ArrayList<MicroBenchmarkResult> results = new ArrayList<MicroBenchmarkResult>();
+        System.out.println(MicroBenchmarkResult.HEADER);
+        for (MicroBenchmark benchmark : benchmarks) {
+            if (filter != null && !benchmark.getName().contains(filter))
+                continue;
+            for (int size : sizes) {
+                MicroBenchmarkResult result = harness.run(benchmark, size);
+                System.out.println(result.toLogLine());
+                results.add(result);
+            }
+        }
+
+        if (outputFile != null)
+            appendToLog(outputFile, results);
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Parses the given list of sizes
+     * @param sizesStr - A comma separated list of sizes
+     * @return - The parsed sizes
+     * @throws IllegalArgumentException - If one of the sizes isn't a positive number
+     */
+    private static int[] parseSizes(String sizesStr) throws IllegalArgumentException {
+        String[] parts = sizesStr.split(SIZES_SEPARATOR);
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                sizes[i] = Integer.parseInt(parts[i].trim());
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Illegal size: " + parts[i]);
+            }
+            if (sizes[i] <= 0)
+                throw new IllegalArgumentException("The sizes must be positive: " + sizes[i]);
+        }
+        return sizes;
+    }
+
+    /**
+     * Appends the given results to the given file (the header is written only when the file is created)
+     * @param fileName - The file the results are appended to
+     * @param results - The appended results
+     * @throws IOException - In case of a failure while writing the file
+     */
+    private static void appendToLog(String fileName, ArrayList<MicroBenchmarkResult> results) throws IOException {
+        boolean newFile = !new File(fileName).exists();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true));
+        try {
+            if (newFile) {
+                writer.write(MicroBenchmarkResult.HEADER);
+                writer.newLine();
+            }
+            for (MicroBenchmarkResult result : results) {
+                writer.write(result.toLogLine());
+                writer.newLine();
+            }
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package Examples.MicroBenchmark;
+
+import JavaApi.Samplers.DictionarySamplers.ConstDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.CounterDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.CustomDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.ExternalConstDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.IDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.StdDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.WeightedDictionarySampler;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.NoRepetitionMode;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.NumberSamplerNoRep;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.NumberSamplerNoRepFactory;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.StdNaturalNumberSampler;
+import JavaApi.Samplers.SamplingMode;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Micro-benchmarks of the number samplers and of the dictionary samplers (d-samplers).
+ * The size parameter is the range of the number samplers, and the number of labels in the dictionary of the
+ * d-samplers (the custom d-sampler supports at most 100 labels, and the constant/counter d-samplers don't depend
+ * on it).
+ */
+public class SamplerBenchmarks {
+
+    /**
+     * Consts
+     */
+    // The number of draws in a single batch of the benchmarks which don't depend on the size
+    private static final int DRAWS_PER_BATCH = 1000;
+    // The custom d-sampler holds its labels in percentages
+    private static final int MAX_CUSTOM_LABELS = 100;
+    private static final String LABEL_PREFIX = "label";
+    private static final String DICTIONARY_FILE_SUFFIX = ".txt";
+
+    /**
+     * Constructor - Private since this class has static methods only
+     */
+    private SamplerBenchmarks() {
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns all of the sampler benchmarks
+     * @return - All of the sampler benchmarks
+     */
+    public static ArrayList<MicroBenchmark> createBenchmarks() {
+        ArrayList<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+
+        for (NoRepetitionMode mode : NoRepetitionMode.values())
+            benchmarks.add(new NoRepSamplerBenchmark(mode));
+        benchmarks.add(new StdNaturalNumberBenchmark());
+
+        benchmarks.add(new DictionaryInitBenchmark(false));
+        benchmarks.add(new DictionaryInitBenchmark(true));
+        benchmarks.add(new StdDictionaryBenchmark(false));
+        benchmarks.add(new StdDictionaryBenchmark(true));
+        benchmarks.add(new WeightedDictionaryBenchmark());
+        benchmarks.add(new CustomDictionaryBenchmark());
+        benchmarks.add(new FixedDictionaryBenchmark("CounterDictionarySampler.getRandomLabel", new CounterDictionarySampler()));
+        benchmarks.add(new FixedDictionaryBenchmark("ConstDictionarySampler.getRandomLabel", new ConstDictionarySampler()));
+        benchmarks.add(new FixedDictionaryBenchmark("ExternalConstDictionarySampler.getRandomLabel", new ExternalConstDictionarySampler()));
+
+        return benchmarks;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Writes a dictionary file into a temporary file (which is deleted on exit)
+     * @param lines - The lines of the file
+     * @return - The name of the created file
+     * @throws IOException - In case of a failure while writing the file
+     */
+    private static String writeDictionaryFile(ArrayList<String> lines) throws IOException {
+        File file = File.createTempFile("grrBench", DICTIONARY_FILE_SUFFIX);
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        finally {
+            writer.close();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Returns the given number of distinct labels
+     * @param size - The number of labels
+     * @return - The given number of distinct labels
+     */
+    private static ArrayList<String> createLabels(int size) {
+        ArrayList<String> labels = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++)
+            labels.add(LABEL_PREFIX + i);
+        return labels;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Draws the whole range of a number sampler without repetitions (including its initialization, as done for each
+     * sampled range while generating), one operation is a single drawn number
+     */
+    private static class NoRepSamplerBenchmark extends MicroBenchmark {
+
+        private NoRepetitionMode _mode;
+        private NumberSamplerNoRep _nSampler;
+        private int _size;
+
+        public NoRepSamplerBenchmark(NoRepetitionMode mode) {
+            super("NumberSamplerNoRep.getNextNatural[" + mode + "]");
+            _mode = mode;
+        }
+
+        @Override
+        public void setUp(int size) {
+            _size = size;
+            _nSampler = NumberSamplerNoRepFactory.getNoRepNumberSampler(_mode);
+            _nSampler.setMaxValue(size - 1);
+        }
+
+        @Override
+        public long runBatch() {
+            _nSampler.init();
+            long sum = 0;
+            while (_nSampler.hasNextNumber())
+                sum += _nSampler.getNextNatural();
+            consume(sum);
+            return _size;
+        }
+
+        @Override
+        public void tearDown() {
+            _nSampler = null;
+        }
+    }
+
+    /**
+     * Draws numbers (with repetitions) from the range of a StdNaturalNumberSampler
+     */
+    private static class StdNaturalNumberBenchmark extends MicroBenchmark {
+
+        private StdNaturalNumberSampler _nSampler;
+
+        public StdNaturalNumberBenchmark() {
+            super("StdNaturalNumberSampler.getNextNatural");
+        }
+
+        @Override
+        public void setUp(int size) {
+            _nSampler = new StdNaturalNumberSampler();
+            _nSampler.setMaxValue(size - 1);
+        }
+
+        @Override
+        public long runBatch() {
+            long sum = 0;
+            for (int i = 0; i < DRAWS_PER_BATCH; i++)
+                sum += _nSampler.getNextNatural();
+            consume(sum);
+            return DRAWS_PER_BATCH;
+        }
+    }
+
+    /**
+     * Initializes a StdDictionarySampler from a dictionary file (either loaded into the heap or memory-mapped)
+     */
+    private static class DictionaryInitBenchmark extends MicroBenchmark {
+
+        private boolean _memoryMapped;
+        private String _fileName;
+
+        public DictionaryInitBenchmark(boolean memoryMapped) {
+            super("StdDictionarySampler.init" + (memoryMapped ? "[mapped]" : ""));
+            _memoryMapped = memoryMapped;
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            _fileName = writeDictionaryFile(createLabels(size));
+        }
+
+        @Override
+        public long runBatch() throws IOException {
+            StdDictionarySampler dSampler = new StdDictionarySampler();
+            dSampler.setMemoryMapped(_memoryMapped);
+            dSampler.init(_fileName);
+            consume(dSampler.hasNext());
+            return 1;
+        }
+
+        @Override
+        public void tearDown() {
+            new File(_fileName).delete();
+        }
+    }
+
+    /**
+     * Draws labels (with repetitions) from a StdDictionarySampler (either loaded into the heap or memory-mapped)
+     */
+    private static class StdDictionaryBenchmark extends MicroBenchmark {
+
+        private boolean _memoryMapped;
+        private String _fileName;
+        private StdDictionarySampler _dSampler;
+
+        public StdDictionaryBenchmark(boolean memoryMapped) {
+            super("StdDictionarySampler.getRandomLabel" + (memoryMapped ? "[mapped]" : ""));
+            _memoryMapped = memoryMapped;
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            _fileName = writeDictionaryFile(createLabels(size));
+            _dSampler = new StdDictionarySampler();
+            _dSampler.setMemoryMapped(_memoryMapped);
+            _dSampler.setSamplingMode(SamplingMode.RANDOM_REPEATABLE);
+            _dSampler.init(_fileName);
+        }
+
+        @Override
+        public long runBatch() {
+            for (int i = 0; i < DRAWS_PER_BATCH; i++)
+                consume(_dSampler.getRandomLabel());
+            return DRAWS_PER_BATCH;
+        }
+
+        @Override
+        public void tearDown() {
+            _dSampler = null;
+            new File(_fileName).delete();
+        }
+    }
+
+    /**
+     * Draws labels from a WeightedDictionarySampler whose labels have different weights
+     */
+    private static class WeightedDictionaryBenchmark extends MicroBenchmark {
+
+        private String _fileName;
+        private WeightedDictionarySampler _dSampler;
+
+        public WeightedDictionaryBenchmark() {
+            super("WeightedDictionarySampler.getRandomLabel");
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            ArrayList<String> lines = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++)
+                lines.add(LABEL_PREFIX + i + " ; " + (i % 10 + 1));
+            _fileName = writeDictionaryFile(lines);
+            _dSampler = new WeightedDictionarySampler();
+            _dSampler.init(_fileName);
+        }
+
+        @Override
+        public long runBatch() {
+            for (int i = 0; i < DRAWS_PER_BATCH; i++)
+                consume(_dSampler.getRandomLabel());
+            return DRAWS_PER_BATCH;
+        }
+
+        @Override
+        public void tearDown() {
+            _dSampler = null;
+            new File(_fileName).delete();
+        }
+    }
+
+    /**
+     * Draws labels from a CustomDictionarySampler whose labels share the 100% evenly (the remainder is given to the
+     * first label)
+     */
+    private static class CustomDictionaryBenchmark extends MicroBenchmark {
+
+        private String _fileName;
+        private CustomDictionarySampler _dSampler;
+
+        public CustomDictionaryBenchmark() {
+            super("CustomDictionarySampler.getRandomLabel");
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            int labelCount = Math.min(size, MAX_CUSTOM_LABELS);
+            int share = MAX_CUSTOM_LABELS / labelCount;
+            ArrayList<String> lines = new ArrayList<String>(labelCount);
+            for (int i = 0; i < labelCount; i++) {
+                int prct = (i == 0) ? MAX_CUSTOM_LABELS - share * (labelCount - 1) : share;
+                lines.add(LABEL_PREFIX + i + " ; " + prct + "%");
+            }
+            _fileName = writeDictionaryFile(lines);
+            _dSampler = new CustomDictionarySampler();
+            _dSampler.init(_fileName);
+        }
+
+        @Override
+        public long runBatch() {
+            for (int i = 0; i < DRAWS_PER_BATCH; i++)
+                consume(_dSampler.getRandomLabel());
+            return DRAWS_PER_BATCH;
+        }
+
+        @Override
+        public void tearDown() {
+            _dSampler = null;
+            new File(_fileName).delete();
+        }
+    }
+
+    /**
+     * Draws labels from a d-sampler which is initialized by a single label (its cost doesn't depend on the size)
+     */
+    private static class FixedDictionaryBenchmark extends MicroBenchmark {
+
+        private IDictionarySampler _dSampler;
+
+        public FixedDictionaryBenchmark(String name, IDictionarySampler dSampler) {
+            super(name);
+            _dSampler = dSampler;
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            _dSampler.init(LABEL_PREFIX);
+        }
+
+        @Override
+        public long runBatch() {
+            for (int i = 0; i < DRAWS_PER_BATCH; i++)
+                consume(_dSampler.getRandomLabel());
+            return DRAWS_PER_BATCH;
+        }
+    }
+}
@@ -25,11 +25,13 @@
 
 package Examples.UniBenchmark.ViaJava;
 
+import Examples.Utils.ExpLogger;
 import JavaApi.RandomDataGraph.GraphBuildingBlocks.Edge;
 import JavaApi.RandomDataGraph.GraphBuildingBlocks.Node;
 import JavaApi.RandomDataGraph.Matchers.IMatcher;
 import JavaApi.RandomDataGraph.Matchers.StdMatcher;
 import JavaApi.RandomDataGraph.Patterns.ConstructionPattern;
+import JavaApi.RandomDataGraph.QueryOptimization.SchemaClosure;
 import JavaApi.RandomDataGraph.RandomGraphAPI;
 import JavaApi.Samplers.DictionarySamplers.CounterDictionarySampler;
 import JavaApi.Samplers.DictionarySamplers.IDictionarySampler;
@@ -83,6 +85,10 @@ public class LubmJavaGenerator {
 
     // NSs
     private static final String UB_NS = WEB_UNI_SCHEMA_PATH + "#";
+    // The alias of the Uni namespace in the types of the construction patterns (see ConstructionPattern)
+    private static final String UB_PREFIX = "ns:";
+    // The alias of the Uni namespace in the types counted by the logger (see generate())
+    private static final String UB_ALIAS = "ub:";
 
     // Specific rdf:type values
     public static final String RDF_TYPE_UNI = "University";
@@ -157,10 +163,16 @@ public class LubmJavaGenerator {
      */
     private static Model _graphModel;
     private static InfModel _infModel;
-    private static RandomGraphAPI _randGraphApi = new RandomGraphAPI();
-    private static SamplerFunction _sFunction = new SamplerFunction();
-    private static TypePropertiesFunction _typePropFunction = new TypePropertiesFunction();
-    private static CyclicCounterNumberSampler _idSampler = new CyclicCounterNumberSampler();
+    // The model queried by the construction commands - the inference model, or the graph model itself when the schema
+    // closure is used
+    private static Model _queryModel;
+    private static QueryOptimizationMode _mode;
+    private static ExpLogger _expLogger;
+    private static RandomGraphAPI _randGraphApi;
+    private static SamplerFunction _sFunction;
+    private static TypePropertiesFunction _typePropFunction;
+    private static CyclicCounterNumberSampler _idSampler;
+    private static int _universities;
 
     /**
      * Public static methods
@@ -174,22 +186,82 @@ public class LubmJavaGenerator {
         // ---------------------------------------------------------------------
         // First we want to create a TDB based model
         // ---------------------------------------------------------------------
+        Model graphModel = TDBFactory.createModel();
         try {
             String configFile = TDB_CONFIG_PATH;
             IDBWrapper _dbw = new TDBWrapper();
-            _graphModel = TDBFactory.createModel();
             _dbw.init(configFile);
-
-            Model _schema = FileManager.get().loadModel(WEB_UNI_SCHEMA_PATH);
-            _infModel = ModelFactory.createRDFSModel(_schema, _graphModel);
-            _infModel.setNsPrefix("ns", UB_NS);
-            _graphModel.setNsPrefix("ns", UB_NS);
-
         }
         catch (IOException ioe) {
             System.out.println("Failed to load the configuration file for the TDB");
         }
 
+        Model schema = FileManager.get().loadModel(WEB_UNI_SCHEMA_PATH);
+        generate(new RandomGraphAPI(), graphModel, schema, false, 1, QueryOptimizationMode.SMART_CACHE, null);
+
+        // Print the graph
+        graphModel.write(System.out, RdfFormat.RDF_XML_FORMAT.toString());
+        // Save it into a file
+        IFileWrapper fw = new StdFileWrapper();
+        try {
+            fw.storeModel(graphModel, OUT_FILE_PATH, RdfFormat.RDF_XML_FORMAT);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Output file wasn't found!");
+        }
+    }
+
+    /**
+     * Generates the Uni structure into the given model. Each construction command is logged by the given logger, and
+     * once the generation ends the logger collects the number of triples and of the counted types (see ExpLogger)
+     * @param randGraphApi - The API which runs the construction commands (its seed, metrics etc. are set by the caller)
+     * @param graphModel - The model into which the structure is generated
+     * @param schema - The Uni schema
+     * @param useSchemaClosure - True for querying the graph model directly while rewriting the queries by the closure
+     * of the schema (the schema is added to the graph model, see SchemaClosure), false for querying an RDFS inference
+     * model over the graph model
+     * @param universities - The number of created universities
+     * @param mode - The query optimization mode of the construction commands
+     * @param expLogger - The logger of the generation, or null
+     */
+    public static void generate(
+            RandomGraphAPI randGraphApi,
+            Model graphModel,
+            Model schema,
+            boolean useSchemaClosure,
+            int universities,
+            QueryOptimizationMode mode,
+            ExpLogger expLogger) {
+
+        // Each generation starts with new samplers, as the samplers of a previous generation might be exhausted
+        _randGraphApi = randGraphApi;
+        _sFunction = new SamplerFunction();
+        _typePropFunction = new TypePropertiesFunction();
+        _idSampler = new CyclicCounterNumberSampler();
+        _graphModel = graphModel;
+        _universities = universities;
+        _mode = mode;
+        _expLogger = expLogger;
+
+        _graphModel.setNsPrefix("ns", UB_NS);
+        if (useSchemaClosure) {
+            SchemaClosure closure = new SchemaClosure();
+            closure.addSchema(schema);
+            _graphModel.add(schema);
+            closure.applyTo(_graphModel);
+            _infModel = null;
+            _queryModel = _graphModel;
+        }
+        else {
+            _infModel = ModelFactory.createRDFSModel(schema, _graphModel);
+            _infModel.setNsPrefix("ns", UB_NS);
+            _queryModel = _infModel;
+        }
+
+        if (_expLogger != null)
+            _expLogger.startLogging();
+        long start = System.nanoTime();
+
         // ---------------------------------------------------------------------
         // Now we'll start generating the graph while each private method usually
         // represents one line in the LUBM example:
@@ -198,39 +270,53 @@ public class LubmJavaGenerator {
 
         // Add University
         addUniversity();
+        start = logConstruction(start);
 
         // Add departments which are connected to the university
         addDepartments();
+        start = logConstruction(start);
 
         // Add Full-Professor
         addFullProfessor();
+        start = logConstruction(start);
         // Add Assistant-Professor
         addAssistantProfessor();
+        start = logConstruction(start);
         // Add Associate-Professor
         addAssociateProfessor();
+        start = logConstruction(start);
         // Add lecturers
         addLecturer();
+        start = logConstruction(start);
 
         // Add the head of each department
         addHeadOfDepartment();
+        start = logConstruction(start);
 
         //add courses
         addCourses();
+        start = logConstruction(start);
         //add graduate courses
         addGradCourses();
+        start = logConstruction(start);
 
         // Add research Groups
         addResearchGroup();
+        start = logConstruction(start);
 
         // Add Undergraduate-Students + Set member-of property
         addUnderStudents();
+        start = logConstruction(start);
         // Add GraduateStudent + Set member-of property
         addGradStudents();
+        start = logConstruction(start);
 
 
         // Set that 1/5 of the Undergraduate-Students have a professor as an advisor
         addAdvisorProertyForUnderStud();
+        start = logConstruction(start);
         addAdvisorPropertyForGradStud();
+        start = logConstruction(start);
 
         // Add the courses each student takes
         // TODO check hang problem
@@ -239,28 +325,36 @@ public class LubmJavaGenerator {
 
         // Add publications
         addFullProfPub();
+        start = logConstruction(start);
         addAssoProfPub();
+        start = logConstruction(start);
         addAssiProfPub();
+        start = logConstruction(start);
         addLecturerPub();
+        start = logConstruction(start);
 
         // Add all of the degrees
         addDegrees();
+        start = logConstruction(start);
 
         // Add Grad-Student's degree
         addGradDegree();
+        logConstruction(start);
 
-
-
-        // Print the graph
-        _graphModel.write(System.out, RdfFormat.RDF_XML_FORMAT.toString());
-        // Save it into a file
-        IFileWrapper fw = new StdFileWrapper();
-        try {
-            fw.storeModel(_graphModel, OUT_FILE_PATH, RdfFormat.RDF_XML_FORMAT);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            throw new IllegalStateException("Output file wasn't found!");
+        if (_expLogger != null) {
+            _expLogger.endLogging();
+            HashMap<String, String> nsMap = new HashMap<String, String>();
+            nsMap.put(UB_ALIAS, UB_NS);
+            _expLogger.collectData(_queryModel, nsMap);
         }
+
+        if (useSchemaClosure)
+            SchemaClosure.release(_graphModel);
+        else
+            _infModel.close();
+        _infModel = null;
+        _queryModel = null;
+        _expLogger = null;
     }
 
     /**
@@ -272,6 +366,18 @@ public class LubmJavaGenerator {
      * Private Methods
      */
 
+    /**
+     * Logs the construction command which started at the given time, if a logger is used
+     * @param start - The time (see System.nanoTime()) in which the construction command started
+     * @return - The time in which the construction command ended
+     */
+    private static long logConstruction(long start) {
+        long end = System.nanoTime();
+        if (_expLogger != null)
+            _expLogger.logConstruction(end - start);
+        return end;
+    }
+
     /**
      * Creates a University node in the model
      */
@@ -279,32 +385,33 @@ public class LubmJavaGenerator {
         try {
 
             // Create the number sampler
-            INaturalNumberSampler uniNSampler = new ConstantNumberSampler(); // Default is to return 1
+            ConstantNumberSampler uniNSampler = new ConstantNumberSampler();
+            uniNSampler.setNaturalNumber(_universities);
 
             // Create the uni d-sampler
             IDictionarySampler dSampler = new CounterDictionarySampler();
             dSampler.init(RDF_TYPE_UNI);
 
             // Update the Sampler Function
-            _sFunction.addValue(RDF_TYPE_UNI, dSampler);
+            _sFunction.addValue(UB_PREFIX + RDF_TYPE_UNI, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
             int id = _idSampler.getNextNatural();
 
-            Node baseNode = new Node(null, RDF_TYPE_UNI, id, null);
+            Node baseNode = new Node(null, UB_PREFIX + RDF_TYPE_UNI, id, null);
             newNodes.put(id, baseNode);
             ConstructionPattern uniCPattern = new ConstructionPattern(null, newNodes, _sFunction, _typePropFunction);
 
             // Invoke the construction command
             _randGraphApi.construct(
-                   _infModel,
+                    _queryModel,
                     null,
                     uniNSampler,
                     uniCPattern,
                     null,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -331,7 +438,7 @@ public class LubmJavaGenerator {
             dSampler.init(RDF_TYPE_DEP);
 
             // Update the Sampler Function
-            _sFunction.addValue(RDF_TYPE_DEP, dSampler);
+            _sFunction.addValue(UB_PREFIX + RDF_TYPE_DEP, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -341,16 +448,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Uni) and the new node (dep)
-            Edge edge = new Edge(RDF_TYPE_SUB_ORG, edgeId, id);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_SUB_ORG, edgeId, id);
 
             // The new format of the dep node
             ArrayList<Edge> depEdges = new ArrayList<Edge>();
             depEdges.add(edge);
-            Node depNode = new Node(null, RDF_TYPE_DEP, depId, depEdges);
+            Node depNode = new Node(null, UB_PREFIX + RDF_TYPE_DEP, depId, depEdges);
             newNodes.put(depId, depNode);
 
             // The old node (Uni)
-            Node baseNode = new Node(null, RDF_TYPE_UNI, id, null);
+            Node baseNode = new Node(null, UB_PREFIX + RDF_TYPE_UNI, id, null);
             oldNodes.put(id, baseNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -373,13 +480,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     depCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -457,7 +564,7 @@ public class LubmJavaGenerator {
             dSampler.init(label); 
 
             // Update the Sampler Function
-            _sFunction.addValue(rdfType, dSampler);
+            _sFunction.addValue(UB_PREFIX + rdfType, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -467,16 +574,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Dep) and the new node (FullProf)
-            Edge edge = new Edge(RDF_TYPE_WORKS_FOR, edgeId, depId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_WORKS_FOR, edgeId, depId);
 
             // The new format of the fullProfessor node
             ArrayList<Edge> fullProfEdges = new ArrayList<Edge>();
             fullProfEdges.add(edge);
-            Node fullProfNode = new Node(null, rdfType, profId, fullProfEdges);
+            Node fullProfNode = new Node(null, UB_PREFIX + rdfType, profId, fullProfEdges);
             newNodes.put(profId, fullProfNode);
 
             // The old node (Dep)
-            Node depNode = new Node(null, RDF_TYPE_DEP, depId, null);
+            Node depNode = new Node(null, UB_PREFIX + RDF_TYPE_DEP, depId, null);
             oldNodes.put(depId, depNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -498,13 +605,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     depCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE, 
-                    null);
+                    _mode, 
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -531,16 +638,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Prof) and the child-node (Dep)
-            Edge edge = new Edge(RDF_TYPE_HEAD_OF, edgeId, depId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_HEAD_OF, edgeId, depId);
 
             //  The new edge that we wish to add for each chosen full-proffesor
             ArrayList<Edge> fullProfEdges = new ArrayList<Edge>();
             fullProfEdges.add(edge);
 
             // The old nodes (Prof and Under-Stud)
-            Node depNode = new Node(null, RDF_TYPE_DEP, depId, null);
+            Node depNode = new Node(null, UB_PREFIX + RDF_TYPE_DEP, depId, null);
             oldNodes.put(depId, depNode);
-            Node profNode = new Node(null, RDF_TYPE_FULL_PROF, profId, fullProfEdges);
+            Node profNode = new Node(null, UB_PREFIX + RDF_TYPE_FULL_PROF, profId, fullProfEdges);
             oldNodes.put(profId, profNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -581,14 +688,14 @@ public class LubmJavaGenerator {
             queryWrappers.add(queryWrapper1);
             queryWrappers.add(queryWrapper2);
             _randGraphApi.constructDynamic(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     queryAttributeVariableMap,
                     nSampler,
                     cPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (Exception e) {
@@ -643,7 +750,7 @@ public class LubmJavaGenerator {
             dSampler.init(label); 
             
             // Update the Sampler Function
-            _sFunction.addValue(rdfType, dSampler);
+            _sFunction.addValue(UB_PREFIX + rdfType, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -653,16 +760,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Uni) and the new node (dep)
-            Edge edge = new Edge(RDF_TYPE_TEACHER_OF, edgeId, courseId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_TEACHER_OF, edgeId, courseId);
 
             // The new format of the course node
-            Node courseNode = new Node(null, rdfType, courseId, null);
+            Node courseNode = new Node(null, UB_PREFIX + rdfType, courseId, null);
             newNodes.put(courseId, courseNode);
 
             // The old node (Faculty-Member)
             ArrayList<Edge> facEdges = new ArrayList<Edge>();
             facEdges.add(edge);
-            Node facNode = new Node(null, RDF_TYPE_FACULTY, facId, facEdges);
+            Node facNode = new Node(null, UB_PREFIX + RDF_TYPE_FACULTY, facId, facEdges);
             oldNodes.put(facId, facNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -685,13 +792,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     courseCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -748,7 +855,7 @@ public class LubmJavaGenerator {
             dSampler.init(label); 
 
             // Update the Sampler Function
-            _sFunction.addValue(rdfType, dSampler);
+            _sFunction.addValue(UB_PREFIX + rdfType, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -759,18 +866,18 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Uni) and the new node (dep)
-            Edge edge = new Edge(RDF_TYPE_MEMBER_OF, edgeId, depId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_MEMBER_OF, edgeId, depId);
 
             // The new format of the stud node
             ArrayList<Edge> studEdges = new ArrayList<Edge>();
             studEdges.add(edge);
-            Node studNode = new Node(null, rdfType, studId, studEdges);
+            Node studNode = new Node(null, UB_PREFIX + rdfType, studId, studEdges);
             newNodes.put(studId, studNode);
 
             // The old nodes (Faculty-Member and department)
-            Node depNode = new Node(null, RDF_TYPE_DEP, depId, null);
+            Node depNode = new Node(null, UB_PREFIX + RDF_TYPE_DEP, depId, null);
             oldNodes.put(depId, depNode);
-            Node facNode = new Node(null, RDF_TYPE_FACULTY, facId, null);
+            Node facNode = new Node(null, UB_PREFIX + RDF_TYPE_FACULTY, facId, null);
             oldNodes.put(facId, facNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -800,13 +907,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     studCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -831,7 +938,7 @@ public class LubmJavaGenerator {
             dSampler.init(RDF_TYPE_RES_GROUP); 
 
             // Update the Sampler Function
-            _sFunction.addValue(RDF_TYPE_RES_GROUP, dSampler);
+            _sFunction.addValue(UB_PREFIX + RDF_TYPE_RES_GROUP, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -841,16 +948,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Dep) and the new node (Res-Group)
-            Edge edge = new Edge(RDF_TYPE_SUB_ORG, edgeId, depId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_SUB_ORG, edgeId, depId);
 
             // The new format of the res-group node
             ArrayList<Edge> resEdges = new ArrayList<Edge>();
             resEdges.add(edge);
-            Node resNode = new Node(null, RDF_TYPE_RES_GROUP, resId, resEdges);
+            Node resNode = new Node(null, UB_PREFIX + RDF_TYPE_RES_GROUP, resId, resEdges);
             newNodes.put(resId, resNode);
 
             // The old node (Dep)
-            Node depNode = new Node(null, RDF_TYPE_DEP, depId, null);
+            Node depNode = new Node(null, UB_PREFIX + RDF_TYPE_DEP, depId, null);
             oldNodes.put(depId, depNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -872,13 +979,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     resCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -905,16 +1012,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Prof) and the child-node (Under-Stud)
-            Edge edge = new Edge(RDF_TYPE_ADVISOR, edgeId, profId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_ADVISOR, edgeId, profId);
 
             //  The new edge that we wish to add for each undergraduate-student
             ArrayList<Edge> underStudEdges = new ArrayList<Edge>();
             underStudEdges.add(edge);
 
             // The old nodes (Prof and Under-Stud)
-            Node profNode = new Node(null, RDF_TYPE_PROFESSOR, profId, null);
+            Node profNode = new Node(null, UB_PREFIX + RDF_TYPE_PROFESSOR, profId, null);
             oldNodes.put(profId, profNode);
-            Node underStudNode = new Node(null, RDF_TYPE_UNDER_STUD, underStudId, underStudEdges);
+            Node underStudNode = new Node(null, UB_PREFIX + RDF_TYPE_UNDER_STUD, underStudId, underStudEdges);
             oldNodes.put(underStudId, underStudNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -956,13 +1063,13 @@ public class LubmJavaGenerator {
             queryWrappers.add(queryWrapper1);
             queryWrappers.add(queryWrapper2);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     cPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (Exception e) {
@@ -987,16 +1094,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (Prof) and the child-node (Under-Stud)
-            Edge edge = new Edge(RDF_TYPE_ADVISOR, edgeId, profId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_ADVISOR, edgeId, profId);
 
             //  The new edge that we wish to add for each undergraduate-student
             ArrayList<Edge> gradStudEdges = new ArrayList<Edge>();
             gradStudEdges.add(edge);
 
             // The old nodes (Prof and Under-Stud)
-            Node profNode = new Node(null, RDF_TYPE_PROFESSOR, profId, null);
+            Node profNode = new Node(null, UB_PREFIX + RDF_TYPE_PROFESSOR, profId, null);
             oldNodes.put(profId, profNode);
-            Node gradStudNode = new Node(null, RDF_TYPE_GRAD_STUD, gradStudId, gradStudEdges);
+            Node gradStudNode = new Node(null, UB_PREFIX + RDF_TYPE_GRAD_STUD, gradStudId, gradStudEdges);
             oldNodes.put(gradStudId, gradStudNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -1031,13 +1138,13 @@ public class LubmJavaGenerator {
             queryWrappers.add(queryWrapper1);
             queryWrappers.add(queryWrapper2);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     cPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (Exception e) {
@@ -1124,7 +1231,7 @@ public class LubmJavaGenerator {
 
             // Invoke the construction command
             _randGraphApi.completeConstruction(
-                    _infModel,
+                     _queryModel,
                     queryModePair1,
                     nSampler,
                     queryModePair2,
@@ -1203,7 +1310,7 @@ public class LubmJavaGenerator {
             dSampler.init(label);
 
             // Update the Sampler Function
-            _sFunction.addValue(RDF_TYPE_PUB, dSampler);
+            _sFunction.addValue(UB_PREFIX + RDF_TYPE_PUB, dSampler);
 
             // Create the construction pattern
             HashMap<Integer, Node> newNodes = new HashMap<Integer, Node>();
@@ -1213,16 +1320,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the base (faculty) and the new node (publication)
-            Edge edge = new Edge(RDF_TYPE_PUB_AUTHOR, edgeId, pubId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_PUB_AUTHOR, edgeId, pubId);
 
             // The new format of the pub node
-            Node pubNode = new Node(null, RDF_TYPE_PUB, pubId, null);
+            Node pubNode = new Node(null, UB_PREFIX + RDF_TYPE_PUB, pubId, null);
             newNodes.put(pubId, pubNode);
 
             // The old node (Faculty-Member)
             ArrayList<Edge> facEdges = new ArrayList<Edge>();
             facEdges.add(edge);
-            Node facNode = new Node(null, rdfType, facId, facEdges);
+            Node facNode = new Node(null, UB_PREFIX + rdfType, facId, facEdges);
             oldNodes.put(facId, facNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -1245,13 +1352,13 @@ public class LubmJavaGenerator {
             ArrayList<QueryWrapper> queryWrappers = new ArrayList<QueryWrapper>();
             queryWrappers.add(queryWrapper);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     courseCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (IOException e) {
@@ -1280,12 +1387,12 @@ public class LubmJavaGenerator {
             int edgeId3 = _idSampler.getNextNatural();
 
             // The new edge that will connect the Dep and the Uni
-            Edge edge1 = new Edge(RDF_TYPE_UND_DEG_FROM, edgeId1, uniId);
-            Edge edge2 = new Edge(RDF_TYPE_MAS_DEG_FROM, edgeId2, uniId);
-            Edge edge3 = new Edge(RDF_TYPE_DOC_DEG_FROM, edgeId3, uniId);
+            Edge edge1 = new Edge(UB_PREFIX + RDF_TYPE_UND_DEG_FROM, edgeId1, uniId);
+            Edge edge2 = new Edge(UB_PREFIX + RDF_TYPE_MAS_DEG_FROM, edgeId2, uniId);
+            Edge edge3 = new Edge(UB_PREFIX + RDF_TYPE_DOC_DEG_FROM, edgeId3, uniId);
 
             // The Uni node
-           Node uniNode = new Node(null, RDF_TYPE_UNI, uniId, null);
+           Node uniNode = new Node(null, UB_PREFIX + RDF_TYPE_UNI, uniId, null);
             oldNodes.put(uniId, uniNode);
 
             // The Faculty-Member node
@@ -1293,7 +1400,7 @@ public class LubmJavaGenerator {
             facEdges.add(edge1);
             facEdges.add(edge2);
             facEdges.add(edge3);
-            Node facNode = new Node(null, RDF_TYPE_FACULTY, facId, facEdges);
+            Node facNode = new Node(null, UB_PREFIX + RDF_TYPE_FACULTY, facId, facEdges);
             oldNodes.put(facId, facNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -1327,13 +1434,13 @@ public class LubmJavaGenerator {
             queryWrappers.add(queryWrapper1);
             queryWrappers.add(queryWrapper2);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     studCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (Exception e) {
@@ -1358,16 +1465,16 @@ public class LubmJavaGenerator {
             int edgeId = _idSampler.getNextNatural();
 
             // The new edge that will connect the Dep and the Uni
-            Edge edge = new Edge(RDF_TYPE_UND_DEG_FROM, edgeId, uniId);
+            Edge edge = new Edge(UB_PREFIX + RDF_TYPE_UND_DEG_FROM, edgeId, uniId);
 
             // The Uni node
-           Node uniNode = new Node(null, RDF_TYPE_UNI, uniId, null);
+           Node uniNode = new Node(null, UB_PREFIX + RDF_TYPE_UNI, uniId, null);
             oldNodes.put(uniId, uniNode);
 
             // The Grad-Student node
             ArrayList<Edge> gradEdges = new ArrayList<Edge>();
             gradEdges.add(edge);
-            Node gradNode = new Node(null, RDF_TYPE_GRAD_STUD, gradId, gradEdges);
+            Node gradNode = new Node(null, UB_PREFIX + RDF_TYPE_GRAD_STUD, gradId, gradEdges);
             oldNodes.put(gradId, gradNode);
 
             // Matcher that maps the old nodes to the query attributes
@@ -1401,13 +1508,13 @@ public class LubmJavaGenerator {
             queryWrappers.add(queryWrapper1);
             queryWrappers.add(queryWrapper2);
             _randGraphApi.construct(
-                    _infModel,
+                     _queryModel,
                     queryWrappers,
                     nSampler,
                     studCPattern,
                     matcher,
-                    QueryOptimizationMode.SMART_CACHE,
-                    null);
+                    _mode,
+                    _expLogger);
 
         }
         catch (Exception e) {
@@ -27,12 +27,9 @@ package Examples.Utils;
 
 import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
 import RdfApi.QueryOptimizationMode;
-import com.hp.hpl.jena.query.Query;
-import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Model;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -54,10 +51,14 @@ public class ExpLogger {
     private int _totalQueryExecutions;
     private long _totalStatements;
     private HashMap<String, Integer> _typeCountMap;
+    // Logging the cache size appends to a file for each construction command, so it can be disabled when measuring time
+    private boolean _logCacheSize = true;
+    private ArrayList<ConstructionLog> _constructionLogs = new ArrayList<ConstructionLog>();
+    private int _loggedCacheHits;
+    private int _loggedQueryExecutions;
 
     private static final String LOG_FILE_NAME = "log.txt";
     private static final String CACHE_FILE_NAME = "cacheSizeLog.txt";
-    private static final String CACHE_TEMP_FILE_NAME = "cache.txt";
 
     public ExpLogger(String[] types, String outputPath, QueryOptimizationMode optMode) {
         _types = types;
@@ -103,33 +104,16 @@ public class ExpLogger {
         out.close();
     }
 
+    /**
+     * Appends the estimated size (in bytes) of the given cache to the cache-size log (see QueryCache.getEstimatedSize())
+     * @param qCache - The cache whose size is logged
+     * @throws IOException - Thrown in case of a failure while writing into the log
+     */
     public void logCacheSize(QueryCache qCache) throws IOException {
+        if (!_logCacheSize)
+            return;
         String fileName = _outputPath + CACHE_FILE_NAME;
-        String tmpFileName = _outputPath + CACHE_TEMP_FILE_NAME;
-        // Serialize the cache into a file
-        HashMap<Query, ArrayList<QuerySolution>> map = qCache.getQueryResultsCache();
-        FileWriter out = new FileWriter(tmpFileName);
-        BufferedWriter writer = new BufferedWriter(out);
-        for (Query query : map.keySet())
-        {
-            writer.write(query.toString());
-            ArrayList<QuerySolution> solutions = map.get(query);
-            for (QuerySolution sol : solutions)
-            {
-                writer.write(sol.toString());
-            }
-           writer.write("\n");
-        }
-
-
-        
-        writer.close();
-        out.close();
-
-        File file = new File(tmpFileName);
-        long size = file.length();
-
-        file.delete();
+        long size = qCache.getEstimatedSize();
 
         FileWriter outlog = new FileWriter(fileName, true);
         BufferedWriter writerlog = new BufferedWriter(outlog);
@@ -137,8 +121,6 @@ public class ExpLogger {
 
         writerlog.close();
         outlog.close();
-
-
     }
 
     public void logModeIteration(QueryOptimizationMode mode, int iteration) throws IOException {
@@ -154,4 +136,81 @@ public class ExpLogger {
 
     }
 
+    /**
+     * Sets whether logCacheSize() writes the size of the cache into the cache-size log (true by default)
+     * @param logCacheSize - False for skipping the cache-size log
+     */
+    public void setLogCacheSize(boolean logCacheSize) {
+        _logCacheSize = logCacheSize;
+    }
+
+    /**
+     * Logs the time of a single construction command, together with the cache hits and query executions that were
+     * added since the previous logged command
+     * @param elapsedNanos - The time it took to apply the construction command
+     */
+    public void logConstruction(long elapsedNanos) {
+        _constructionLogs.add(new ConstructionLog(
+                _constructionLogs.size(),
+                elapsedNanos,
+                _totalCacheHits - _loggedCacheHits,
+                _totalQueryExecutions - _loggedQueryExecutions));
+        _loggedCacheHits = _totalCacheHits;
+        _loggedQueryExecutions = _totalQueryExecutions;
+    }
+
+    public ArrayList<ConstructionLog> getConstructionLogs() {
+        return _constructionLogs;
+    }
+
+    public long getElapsedTime() {
+        return _endTime - _startTime;
+    }
+
+    public int getTotalCacheHits() {
+        return _totalCacheHits;
+    }
+
+    public int getTotalQueryExecutions() {
+        return _totalQueryExecutions;
+    }
+
+    public long getTotalStatements() {
+        return _totalStatements;
+    }
+
+    /**
+     * The logged data of a single construction command (see logConstruction())
+     */
+    public static class ConstructionLog {
+
+        private int _index;
+        private long _elapsedNanos;
+        private int _cacheHits;
+        private int _queryExecutions;
+
+        public ConstructionLog(int index, long elapsedNanos, int cacheHits, int queryExecutions) {
+            _index = index;
+            _elapsedNanos = elapsedNanos;
+            _cacheHits = cacheHits;
+            _queryExecutions = queryExecutions;
+        }
+
+        public int getIndex() {
+            return _index;
+        }
+
+        public long getElapsedNanos() {
+            return _elapsedNanos;
+        }
+
+        public int getCacheHits() {
+            return _cacheHits;
+        }
+
+        public int getQueryExecutions() {
+            return _queryExecutions;
+        }
+    }
+
 }
@@ -25,6 +25,7 @@
 
 package Examples.Utils;
 
+import JavaApi.RandomDataGraph.QueryOptimization.SchemaClosure;
 import com.hp.hpl.jena.query.*;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.sparql.resultset.ResultSetMem;
@@ -43,7 +44,7 @@ public class ExpUtils {
 
         for (String type : types) {
             String queryStr = createQuery(nsMap, type);
-            Query query = QueryFactory.create(queryStr);
+            Query query = SchemaClosure.rewrite(model, QueryFactory.create(queryStr));
             QueryExecution qe = QueryExecutionFactory.create(query, model);
             ResultSet resultSet = qe.execSelect();
             ResultSetMem rsm = new ResultSetMem(resultSet);
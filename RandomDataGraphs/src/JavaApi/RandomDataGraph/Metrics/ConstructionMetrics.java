@@ -0,0 +1,237 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metrics of a single construction command: the query metrics of each recursion level (see LevelMetrics), the
+ * number of pattern applications and created triples, the time it took and the estimated memory of its query cache.
+ * An instance is owned by the query cache of the command (see QueryCache.getMetrics()) and isn't thread-safe - when
+ * a command is split between several workers, each worker records into the metrics of its own cache and they are
+ * merged when the command ends
+ */
+public class ConstructionMetrics {
+
+    /**
+     * Class Members
+     */
+    // The metrics of each recursion level (index 0 holds level 1)
+    private ArrayList<LevelMetrics> _levels;
+    private long _patternApplications;
+    private long _triplesEmitted;
+    private long _elapsedNanos;
+    private long _estimatedCacheBytes;
+
+    /**
+     * Constructor
+     */
+    public ConstructionMetrics() {
+        _levels = new ArrayList<LevelMetrics>();
+        _patternApplications = 0;
+        _triplesEmitted = 0;
+        _elapsedNanos = 0;
+        _estimatedCacheBytes = 0;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the metrics of the given recursion level (created if the level wasn't measured yet)
+     * @param level - The recursion level (1 for the first query of the command)
+     * @return - The metrics of the given recursion level
+     * @throws IllegalArgumentException - If the given level isn't positive
+     */
+    public LevelMetrics getLevel(int level) throws IllegalArgumentException {
+        if (level < 1)
+            throw new IllegalArgumentException("The recursion level must be positive: " + level);
+        while (_levels.size() < level)
+            _levels.add(new LevelMetrics(_levels.size() + 1));
+        return _levels.get(level - 1);
+    }
+
+    /**
+     * Returns the metrics of all of the measured recursion levels, ordered by their level
+     * @return - The metrics of all of the measured recursion levels
+     */
+    public List<LevelMetrics> getLevels() {
+        return _levels;
+    }
+
+    /**
+     * Records applications of the construction pattern
+     * @param count - The number of pattern applications
+     * @param triples - The number of triples created by these applications
+     */
+    public void recordPatternApplications(long count, long triples) {
+        _patternApplications += count;
+        _triplesEmitted += triples;
+    }
+
+    /**
+     * Sets the time it took to apply the construction command
+     * @param elapsedNanos - The time (in nanoseconds) it took to apply the command
+     */
+    public void setElapsedNanos(long elapsedNanos) {
+        _elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Sets the estimated number of bytes held by the query cache of the command when it ended
+     * @param estimatedCacheBytes - The estimated number of bytes held by the query cache
+     */
+    public void setEstimatedCacheBytes(long estimatedCacheBytes) {
+        _estimatedCacheBytes = estimatedCacheBytes;
+    }
+
+    /**
+     * Adds the metrics of the given instance to the metrics of this instance (the elapsed time is kept, and the
+     * estimated cache sizes are summed since the caches are held at the same time)
+     * @param other - The added metrics
+     */
+    public void merge(ConstructionMetrics other) {
+        for (LevelMetrics level : other._levels)
+            getLevel(level.getLevel()).merge(level);
+        _patternApplications += other._patternApplications;
+        _triplesEmitted += other._triplesEmitted;
+        _estimatedCacheBytes += other._estimatedCacheBytes;
+    }
+
+    /**
+     * Returns the number of pattern applications
+     * @return - The number of pattern applications
+     */
+    public long getPatternApplications() {
+        return _patternApplications;
+    }
+
+    /**
+     * Returns the number of triples created by the pattern applications (triples which were already held by the
+     * target of the triple-sink aren't counted)
+     * @return - The number of created triples
+     */
+    public long getTriplesEmitted() {
+        return _triplesEmitted;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) it took to apply the construction command
+     * @return - The time it took to apply the construction command
+     */
+    public long getElapsedNanos() {
+        return _elapsedNanos;
+    }
+
+    /**
+     * Returns the estimated number of bytes held by the query cache of the command when it ended
+     * @return - The estimated number of bytes held by the query cache
+     */
+    public long getEstimatedCacheBytes() {
+        return _estimatedCacheBytes;
+    }
+
+    /**
+     * Returns the number of query executions of all levels
+     * @return - The number of query executions of all levels
+     */
+    public long getQueryExecutions() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getQueryExecutions();
+        return total;
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) spent on executing the queries of all levels
+     * @return - The total time spent on executing the queries of all levels
+     */
+    public long getQueryNanos() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getQueryNanos();
+        return total;
+    }
+
+    /**
+     * Returns the total number of results returned by the executed queries of all levels
+     * @return - The total number of results returned by the executed queries of all levels
+     */
+    public long getResultRows() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getResultRows();
+        return total;
+    }
+
+    /**
+     * Returns the number of cache hits of all levels
+     * @return - The number of cache hits of all levels
+     */
+    public long getCacheHits() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getCacheHits();
+        return total;
+    }
+
+    /**
+     * Returns the number of cache misses of all levels
+     * @return - The number of cache misses of all levels
+     */
+    public long getCacheMisses() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getCacheMisses();
+        return total;
+    }
+
+    /**
+     * Returns the number of batch serves of all levels
+     * @return - The number of batch serves of all levels
+     */
+    public long getBatchServes() {
+        long total = 0;
+        for (LevelMetrics level : _levels)
+            total += level.getBatchServes();
+        return total;
+    }
+
+    /**
+     * Returns a pipe-separated summary of the command:
+     * elapsedMs|executions|queryMs|rows|hits|misses|batchServes|patternApplications|triples|cacheBytes
+     * @return - A pipe-separated summary of the command
+     */
+    @Override
+    public String toString() {
+        return (_elapsedNanos / 1000000) + "|" + getQueryExecutions() + "|" + (getQueryNanos() / 1000000) + "|"
+                + getResultRows() + "|" + getCacheHits() + "|" + getCacheMisses() + "|" + getBatchServes() + "|"
+                + _patternApplications + "|"
+                + _triplesEmitted + "|" + _estimatedCacheBytes;
+    }
+}
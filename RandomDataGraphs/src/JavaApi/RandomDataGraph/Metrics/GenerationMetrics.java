@@ -0,0 +1,220 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.Metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A registry of the metrics of the construction commands applied during a generation (see ConstructionMetrics). The
+ * metrics of each command are recorded when the command ends, and the registry aggregates them both per command and
+ * per recursion level. The registry can be exposed through JMX (see register()), so the generation can be monitored
+ * while it runs (e.g. with jconsole). All of the methods are thread-safe
+ */
+public class GenerationMetrics implements GenerationMetricsMBean {
+
+    /**
+     * Consts
+     */
+    public static final String JMX_DOMAIN = "GRR";
+
+    /**
+     * Class Members
+     */
+    private ArrayList<ConstructionMetrics> _constructions;
+    // The metrics of all of the recorded commands merged together
+    private ConstructionMetrics _totals;
+    private long _peakCacheBytes;
+    private ObjectName _objectName;
+
+    /**
+     * Constructor
+     */
+    public GenerationMetrics() {
+        _constructions = new ArrayList<ConstructionMetrics>();
+        _totals = new ConstructionMetrics();
+        _peakCacheBytes = 0;
+        _objectName = null;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Records the metrics of a construction command that ended
+     * @param metrics - The metrics of the command (shouldn't be updated afterwards)
+     */
+    public synchronized void record(ConstructionMetrics metrics) {
+        _constructions.add(metrics);
+        _totals.merge(metrics);
+        _totals.setElapsedNanos(_totals.getElapsedNanos() + metrics.getElapsedNanos());
+        _peakCacheBytes = Math.max(_peakCacheBytes, metrics.getEstimatedCacheBytes());
+    }
+
+    /**
+     * Registers this registry in the platform MBean server under the name GRR:type=GenerationMetrics,name=[name]
+     * @param name - The name of this registry
+     * @throws IllegalStateException - If the registry couldn't be registered (e.g. the name is already used)
+     */
+    public synchronized void register(String name) throws IllegalStateException {
+        if (_objectName != null)
+            throw new IllegalStateException("The metrics are already registered as: " + _objectName);
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=GenerationMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            _objectName = objectName;
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Failed to register the metrics: " + name, e);
+        }
+    }
+
+    /**
+     * Removes this registry from the platform MBean server (does nothing if it isn't registered)
+     * @throws IllegalStateException - If the registry couldn't be removed
+     */
+    public synchronized void unregister() throws IllegalStateException {
+        if (_objectName == null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(_objectName))
+                server.unregisterMBean(_objectName);
+            _objectName = null;
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister the metrics: " + _objectName, e);
+        }
+    }
+
+    /**
+     * Returns the metrics of the recorded commands, ordered by the time they ended
+     * @return - A copy of the list of the recorded metrics
+     */
+    public synchronized List<ConstructionMetrics> getConstructions() {
+        return new ArrayList<ConstructionMetrics>(_constructions);
+    }
+
+    /**
+     * Returns the metrics of each recursion level of all of the recorded commands, ordered by their level
+     * @return - A copy of the list of the aggregated metrics of each level
+     */
+    public synchronized List<LevelMetrics> getLevels() {
+        ArrayList<LevelMetrics> levels = new ArrayList<LevelMetrics>();
+        for (LevelMetrics level : _totals.getLevels()) {
+            LevelMetrics copy = new LevelMetrics(level.getLevel());
+            copy.merge(level);
+            levels.add(copy);
+        }
+        return levels;
+    }
+
+    @Override
+    public synchronized int getConstructionCount() {
+        return _constructions.size();
+    }
+
+    @Override
+    public synchronized long getQueryExecutions() {
+        return _totals.getQueryExecutions();
+    }
+
+    @Override
+    public synchronized long getQueryTimeMillis() {
+        return _totals.getQueryNanos() / 1000000;
+    }
+
+    @Override
+    public synchronized long getResultRows() {
+        return _totals.getResultRows();
+    }
+
+    @Override
+    public synchronized long getCacheHits() {
+        return _totals.getCacheHits();
+    }
+
+    @Override
+    public synchronized long getCacheMisses() {
+        return _totals.getCacheMisses();
+    }
+
+    @Override
+    public synchronized long getBatchServes() {
+        return _totals.getBatchServes();
+    }
+
+    @Override
+    public synchronized double getCacheHitRate() {
+        long hits = _totals.getCacheHits();
+        long initializations = hits + _totals.getQueryExecutions();
+        return (initializations == 0) ? 0 : (double) hits / initializations;
+    }
+
+    @Override
+    public synchronized long getPatternApplications() {
+        return _totals.getPatternApplications();
+    }
+
+    @Override
+    public synchronized long getTriplesEmitted() {
+        return _totals.getTriplesEmitted();
+    }
+
+    @Override
+    public synchronized long getPeakCacheBytes() {
+        return _peakCacheBytes;
+    }
+
+    @Override
+    public synchronized String[] getLevelSummaries() {
+        List<LevelMetrics> levels = _totals.getLevels();
+        String[] summaries = new String[levels.size()];
+        for (int i = 0; i < summaries.length; i++)
+            summaries[i] = levels.get(i).toString();
+        return summaries;
+    }
+
+    @Override
+    public synchronized String[] getConstructionSummaries() {
+        String[] summaries = new String[_constructions.size()];
+        for (int i = 0; i < summaries.length; i++)
+            summaries[i] = i + "|" + _constructions.get(i).toString();
+        return summaries;
+    }
+
+    @Override
+    public synchronized void reset() {
+        _constructions.clear();
+        _totals = new ConstructionMetrics();
+        _peakCacheBytes = 0;
+    }
+}
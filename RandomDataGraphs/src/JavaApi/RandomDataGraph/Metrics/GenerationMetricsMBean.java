@@ -0,0 +1,118 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.Metrics;
+
+/**
+ * The JMX management interface of GenerationMetrics (the name follows the standard MBean naming convention)
+ */
+public interface GenerationMetricsMBean {
+
+    /**
+     * Returns the number of recorded construction commands
+     * @return - The number of recorded construction commands
+     */
+    public int getConstructionCount();
+
+    /**
+     * Returns the number of query executions of all of the recorded commands
+     * @return - The number of query executions
+     */
+    public long getQueryExecutions();
+
+    /**
+     * Returns the total time (in milliseconds) spent on executing queries by all of the recorded commands
+     * @return - The total query execution time
+     */
+    public long getQueryTimeMillis();
+
+    /**
+     * Returns the total number of results returned by the queries of all of the recorded commands
+     * @return - The total number of query results
+     */
+    public long getResultRows();
+
+    /**
+     * Returns the number of cache hits of all of the recorded commands
+     * @return - The number of cache hits
+     */
+    public long getCacheHits();
+
+    /**
+     * Returns the number of cache misses of all of the recorded commands
+     * @return - The number of cache misses
+     */
+    public long getCacheMisses();
+
+    /**
+     * Returns the number of query initializations of all of the recorded commands whose results were taken from the
+     * results of their batch (these aren't counted as cache hits)
+     * @return - The number of batch serves
+     */
+    public long getBatchServes();
+
+    /**
+     * Returns the ratio of query initializations whose results were taken from the cache
+     * @return - The cache hit rate (0 if no query was initialized)
+     */
+    public double getCacheHitRate();
+
+    /**
+     * Returns the number of pattern applications of all of the recorded commands
+     * @return - The number of pattern applications
+     */
+    public long getPatternApplications();
+
+    /**
+     * Returns the number of triples created by all of the recorded commands
+     * @return - The number of created triples
+     */
+    public long getTriplesEmitted();
+
+    /**
+     * Returns the largest estimated size (in bytes) of the query cache of a recorded command
+     * @return - The largest estimated size of a query cache
+     */
+    public long getPeakCacheBytes();
+
+    /**
+     * Returns a pipe-separated summary of each recursion level of all of the recorded commands (see
+     * LevelMetrics.toString())
+     * @return - A summary of each recursion level
+     */
+    public String[] getLevelSummaries();
+
+    /**
+     * Returns a pipe-separated summary of each of the recorded commands, prefixed by its index (see
+     * ConstructionMetrics.toString())
+     * @return - A summary of each of the recorded commands
+     */
+    public String[] getConstructionSummaries();
+
+    /**
+     * Discards all of the recorded metrics
+     */
+    public void reset();
+}
@@ -0,0 +1,179 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.Metrics;
+
+/**
+ * The metrics of the queries executed at a single recursion level of a construction command (level 1 is the first
+ * query of the command, level 2 is the query executed for each of its matchings and so on)
+ */
+public class LevelMetrics {
+
+    /**
+     * Class Members
+     */
+    private int _level;
+    private long _queryExecutions;
+    private long _queryNanos;
+    private long _resultRows;
+    private long _cacheHits;
+    private long _cacheMisses;
+    private long _batchServes;
+
+    /**
+     * Constructor
+     * @param level - The recursion level of the measured queries
+     */
+    public LevelMetrics(int level) {
+        _level = level;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Records a single execution of a query at this level
+     * @param elapsedNanos - The time it took to execute the query and read its results
+     * @param rows - The number of results returned by the query
+     */
+    public void recordQueryExecution(long elapsedNanos, int rows) {
+        _queryExecutions++;
+        _queryNanos += elapsedNanos;
+        _resultRows += rows;
+    }
+
+    /**
+     * Records a single initialization of a query at this level whose results were taken from the cache
+     */
+    public void recordCacheHit() {
+        _cacheHits++;
+    }
+
+    /**
+     * Records a single lookup of a query at this level that wasn't found in the cache
+     */
+    public void recordCacheMiss() {
+        _cacheMisses++;
+    }
+
+    /**
+     * Records a single initialization of a query at this level whose results were taken from the results of its
+     * batch (see StdQuerySampler.initBatch())
+     */
+    public void recordBatchServe() {
+        _batchServes++;
+    }
+
+    /**
+     * Adds the metrics of the given level to the metrics of this instance
+     * @param other - The added metrics (of the same level)
+     */
+    public void merge(LevelMetrics other) {
+        _queryExecutions += other._queryExecutions;
+        _queryNanos += other._queryNanos;
+        _resultRows += other._resultRows;
+        _cacheHits += other._cacheHits;
+        _cacheMisses += other._cacheMisses;
+        _batchServes += other._batchServes;
+    }
+
+    /**
+     * Returns the recursion level of the measured queries
+     * @return - The recursion level of the measured queries
+     */
+    public int getLevel() {
+        return _level;
+    }
+
+    /**
+     * Returns the number of query executions at this level
+     * @return - The number of query executions at this level
+     */
+    public long getQueryExecutions() {
+        return _queryExecutions;
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) spent on executing the queries of this level
+     * @return - The total time spent on executing the queries of this level
+     */
+    public long getQueryNanos() {
+        return _queryNanos;
+    }
+
+    /**
+     * Returns the total number of results returned by the executed queries of this level
+     * @return - The total number of results returned by the executed queries of this level
+     */
+    public long getResultRows() {
+        return _resultRows;
+    }
+
+    /**
+     * Returns the number of query initializations at this level whose results were taken from the cache
+     * @return - The number of cache hits at this level
+     */
+    public long getCacheHits() {
+        return _cacheHits;
+    }
+
+    /**
+     * Returns the number of lookups of queries at this level that weren't found in the cache
+     * @return - The number of cache misses at this level
+     */
+    public long getCacheMisses() {
+        return _cacheMisses;
+    }
+
+    /**
+     * Returns the number of query initializations at this level whose results were taken from the results of their
+     * batch
+     * @return - The number of batch serves at this level
+     */
+    public long getBatchServes() {
+        return _batchServes;
+    }
+
+    /**
+     * Returns the average number of results returned by an executed query of this level
+     * @return - The average result cardinality (0 if no query was executed)
+     */
+    public double getAverageCardinality() {
+        return (_queryExecutions == 0) ? 0 : (double) _resultRows / _queryExecutions;
+    }
+
+    /**
+     * Returns a pipe-separated summary of this level: level|executions|queryMs|rows|avgRows|hits|misses|
+     * batchServes
+     * @return - A pipe-separated summary of this level
+     */
+    @Override
+    public String toString() {
+        return _level + "|" + _queryExecutions + "|" + (_queryNanos / 1000000) + "|" + _resultRows + "|"
+                + String.format("%.2f", getAverageCardinality()) + "|" + _cacheHits + "|" + _cacheMisses
+                + "|" + _batchServes;
+    }
+}
@@ -27,6 +27,7 @@ package JavaApi.RandomDataGraph.Patterns;
 
 import JavaApi.RandomDataGraph.GraphBuildingBlocks.Edge;
 import JavaApi.RandomDataGraph.GraphBuildingBlocks.Node;
+import JavaApi.RandomDataGraph.TripleSinks.ITripleSink;
 import JavaApi.Samplers.DictionarySamplers.ExternalConstDictionarySampler;
 import JavaApi.Samplers.DictionarySamplers.IDictionarySampler;
 import JavaApi.Samplers.SamplerFunctions.SamplerFunction;
@@ -63,6 +64,12 @@ public class ConstructionPattern {
     private HashMap<Integer, Node> _newNodes;
     private SamplerFunction _samplerFunction;
     private TypePropertiesFunction _typePropsFunction;
+    // The model for which the resolved types/properties below were created (resolving depends on the model's prefixes)
+    private Model _resolvedModel;
+    private HashMap<String, ResolvedType> _resolvedTypes;
+    private HashMap<String, Property> _resolvedEdgeProperties;
+    // Reused for building the IRIs of the new nodes
+    private StringBuilder _iriBuilder;
 
     /**
      * Constructor
@@ -85,6 +92,9 @@ public class ConstructionPattern {
         _newNodes = newNodes;
         _samplerFunction = sFunction;
         _typePropsFunction = typePropsFunction;
+        _resolvedTypes = new HashMap<String, ResolvedType>();
+        _resolvedEdgeProperties = new HashMap<String, Property>();
+        _iriBuilder = new StringBuilder();
     }
 
     /**
@@ -103,6 +113,13 @@ public class ConstructionPattern {
      */
     public void applyPatternOnModel(Model model) throws IOException {
 
+        // The resolved namespaces are only valid for the model they were resolved against
+        if (model != _resolvedModel) {
+            _resolvedTypes.clear();
+            _resolvedEdgeProperties.clear();
+            _resolvedModel = model;
+        }
+
         // Add the new nodes and assign them a dSampler (by the sampler-function) and give them a label
         // We don't set the new edges yet since we need to create all nodes first
 
@@ -114,26 +131,22 @@ public class ConstructionPattern {
             IDictionarySampler sampler = _samplerFunction.getDSampler(rdfType);
             // Generate a random label
             String randVal = sampler.getRandomLabel();
-            String[] typeParts = rdfType.split(":");
-            if (typeParts.length!=2)
-                throw new IllegalArgumentException("The node's type has illegal format: " + rdfType + " while expecting the following format: <alias-namespace:type>");
-            String rdfNs = model.getNsPrefixURI(typeParts[0]);
-            if (rdfNs == null)
-                throw new IllegalArgumentException("The node's alias namespace wasn't loaded into the model:" + typeParts[0]);
-            String nodeType = typeParts[1];
+            ResolvedType resolvedType = resolveType(model, rdfType);
 
             // Create the new node
-            Resource r = model.createResource(rdfNs + nodeType + "/" + randVal);
+            _iriBuilder.setLength(0);
+            _iriBuilder.append(resolvedType._iriPrefix).append(randVal);
+            Resource r = model.createResource(_iriBuilder.toString());
             // Add some basic properties
-            r.addProperty(RDF.type, new ResourceImpl(rdfNs + nodeType));
+            r.addProperty(RDF.type, resolvedType._typeResource);
             // Get the list of auto-generated properties from the mapping and add them
             String[] props = _typePropsFunction.getProperties(rdfType);
             for (String property : props) {
                 IDictionarySampler propSampler = _samplerFunction.getDSampler(property);
                 if (propSampler.getClass()== ExternalConstDictionarySampler.class)
                     propSampler.init(randVal);
-                String[] propParts = property.split(":");
-                r.addLiteral(new PropertyImpl(rdfNs + propParts[1]), propSampler.getRandomLabel());
+                String propVal = propSampler.getRandomLabel();
+                r.addLiteral(resolvedType.getProperty(property), propVal);
             }
             // Connect the node to the actual resource that was created
             node.setRDFNode(r);           
@@ -170,6 +183,19 @@ public class ConstructionPattern {
             }
     }
 
+    /**
+     * Applies this pattern on the model of the given triple-sink (see applyPatternOnModel()), and then marks a
+     * checkpoint in the sink, so it may flush the triples created so far to its target. The created triples are
+     * counted by the sink (see ITripleSink.getAddedTriples())
+     * @param sink - The triple-sink into which the created triples will be written
+     * @throws IOException - Depending on the different dictionary sampler used for creating the labels for
+     * the new nodes, some read the labels from files (which might result in IOException)
+     */
+    public void applyPatternOnSink(ITripleSink sink) throws IOException {
+        applyPatternOnModel(sink.getModel());
+        sink.checkpoint();
+    }
+
     /**
      * Returns the hash-map holding the mapping of node-ids to nodes for the 'old-nodes'
      * which are the nodes that exist in the graph
@@ -179,10 +205,98 @@ public class ConstructionPattern {
         return _oldNodes;
     }
 
+    /**
+     * Returns the sampler-function used by this pattern for labeling the new nodes
+     * @return - The sampler-function used by this pattern
+     */
+    public SamplerFunction getSamplerFunction() {
+        return _samplerFunction;
+    }
+
+    /**
+     * Returns a copy of this pattern which has its own old/new nodes (so the mapping of nodes to resources can be
+     * updated independently) and uses the given sampler-function, while sharing the type-properties function with
+     * this instance.
+     * Used when the pattern is applied concurrently by several workers - each worker should get its own partition of
+     * the sampler-function of this pattern (see SamplerFunction.partition()), since the d-samplers aren't thread-safe
+     * @param sFunction - The sampler-function used by the copy
+     * @return - A copy of this pattern with its own nodes
+     */
+    public ConstructionPattern copy(SamplerFunction sFunction) {
+        return new ConstructionPattern(copyNodes(_oldNodes), copyNodes(_newNodes), sFunction, _typePropsFunction);
+    }
+
     /**
      * Private methods
      */
 
+    /**
+     * Returns a copy of the given id-node mapping in which each node is a new instance (the edge lists are shared
+     * since they are never updated while applying the pattern)
+     * @param nodes - The mapping to be copied (might be null)
+     * @return - A copy of the given mapping or null if the given mapping is null
+     */
+    private static HashMap<Integer, Node> copyNodes(HashMap<Integer, Node> nodes) {
+        if (nodes == null)
+            return null;
+        HashMap<Integer, Node> copy = new HashMap<Integer, Node>();
+        for (Integer id : nodes.keySet()) {
+            Node node = nodes.get(id);
+            copy.put(id, new Node(node.getRDFNode(), node.getRdfType(), node.getNodeId(), node.getEdgeList()));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the resolved form of the given node type (which is created on first use)
+     * @param model - The model whose prefixes are used for resolving the type's namespace
+     * @param rdfType - The node's type in the following format: <alias-namespace:type>
+     * @return - The resolved form of the given node type
+     * @throws IllegalArgumentException - If the type has an illegal format or if its namespace isn't loaded into
+     * the model
+     */
+    private ResolvedType resolveType(Model model, String rdfType) throws IllegalArgumentException {
+        ResolvedType resolvedType = _resolvedTypes.get(rdfType);
+        if (resolvedType != null)
+            return resolvedType;
+
+        String[] typeParts = rdfType.split(":");
+        if (typeParts.length!=2)
+            throw new IllegalArgumentException("The node's type has illegal format: " + rdfType + " while expecting the following format: <alias-namespace:type>");
+        String rdfNs = model.getNsPrefixURI(typeParts[0]);
+        if (rdfNs == null)
+            throw new IllegalArgumentException("The node's alias namespace wasn't loaded into the model:" + typeParts[0]);
+        resolvedType = new ResolvedType(rdfNs, typeParts[1]);
+        _resolvedTypes.put(rdfType, resolvedType);
+        return resolvedType;
+    }
+
+    /**
+     * Returns the property of the given edge type (which is created on first use)
+     * @param model - The model in which the property is created
+     * @param fullType - The edge's type in the following format: <alias-namespace:type>
+     * @return - The property of the given edge type
+     * @throws IllegalArgumentException - If the type has an illegal format or if its namespace isn't loaded into
+     * the model
+     */
+    private Property resolveEdgeProperty(Model model, String fullType) throws IllegalArgumentException {
+        Property p = _resolvedEdgeProperties.get(fullType);
+        if (p != null)
+            return p;
+
+        String[] typeParts = fullType.split(":");
+        if (typeParts.length!=2)
+            throw new IllegalArgumentException("The edge's type has illegal format: " + fullType + " while expecting the following format: <alias-namespace:type>");
+        String edgeNs = model.getNsPrefixURI(typeParts[0]);
+        if (edgeNs == null)
+            throw new IllegalArgumentException("The node's alias namespace wasn't loaded into the model:" + typeParts[0]);
+        String edgeType = typeParts[1];
+        // This creates the property in the given model
+        p = model.createProperty(edgeNs + edgeType);
+        _resolvedEdgeProperties.put(fullType, p);
+        return p;
+    }
+
     /**
      * A methods that adds a list of properties to a given resource in the given model
      * @param model - The model in which the each property will be created
@@ -203,17 +317,8 @@ public class ConstructionPattern {
                 throw new IllegalStateException("Both old and new lists of nodes don't contain the given node ID: " + toNodeId);
             RDFNode rdfNode = toNode.getRDFNode();
 
-            // Create the new property
-            String fullType = edge.getRdfType();
-            String[] typeParts = fullType.split(":");
-            if (typeParts.length!=2)
-                throw new IllegalArgumentException("The edge's type has illegal format: " + fullType + " while expecting the following format: <alias-namespace:type>");
-            String edgeNs = model.getNsPrefixURI(typeParts[0]);
-            if (edgeNs == null)
-                throw new IllegalArgumentException("The node's alias namespace wasn't loaded into the model:" + typeParts[0]);
-            String edgeType = typeParts[1];
-            // This creates the property in the given model
-            Property p = model.createProperty(edgeNs + edgeType); 
+            // Get the property of the edge (resolved once per edge type)
+            Property p = resolveEdgeProperty(model, edge.getRdfType());
 
             // Add the edge to the given resource as a literal or property according to
             // the to-node of this edge
@@ -223,4 +328,43 @@ public class ConstructionPattern {
                 r.addProperty(p, rdfNode);
         }
     }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Holds the parts of a node type that are needed for creating the nodes of that type, so the type's string
+     * doesn't have to be split and concatenated again for every new node
+     */
+    private static class ResolvedType {
+
+        private String _namespace;
+        private String _iriPrefix;
+        private Resource _typeResource;
+        private HashMap<String, Property> _properties;
+
+        public ResolvedType(String namespace, String nodeType) {
+            _namespace = namespace;
+            _iriPrefix = namespace + nodeType + "/";
+            _typeResource = new ResourceImpl(namespace + nodeType);
+            _properties = new HashMap<String, Property>();
+        }
+
+        /**
+         * Returns the auto-generated property of this type with the given name (the property is created in the
+         * type's namespace on first use)
+         * @param property - The property in the following format: <alias-namespace:property>
+         * @return - The property of this type with the given name
+         */
+        public Property getProperty(String property) {
+            Property p = _properties.get(property);
+            if (p == null) {
+                String[] propParts = property.split(":");
+                p = new PropertyImpl(_namespace + propParts[1]);
+                _properties.put(property, p);
+            }
+            return p;
+        }
+    }
 }
@@ -0,0 +1,299 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.GraphStatisticsHandler;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase;
+import com.hp.hpl.jena.sparql.algebra.OpWalker;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpPath;
+import com.hp.hpl.jena.sparql.algebra.op.OpPropFunc;
+import com.hp.hpl.jena.sparql.algebra.op.OpTriple;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Estimates the number of results of queries on a model, without executing them.
+ * The number of triples matching each triple pattern of the query is taken from the index of the model if it's
+ * indexed (see TripleIndex), otherwise from the statistics of its graph (e.g. the type counts of an in-memory graph),
+ * and otherwise the matching triples are counted (up to COUNT_LIMIT). When the model has a schema closure (see
+ * SchemaClosure), the triples of the subclasses and subproperties of a pattern are counted as well.
+ * The patterns are joined under the containment assumption: the values of a variable shared by several patterns are
+ * the values of the pattern with the fewest triples, so the estimate is the product of the pattern counts divided
+ * by the count of that pattern for each additional occurrence of the variable. Filters, DISTINCT and optional
+ * patterns are ignored, so the estimate is rough - it's meant for comparing queries rather than sizing results.
+ */
+public class CardinalityEstimator {
+
+    /**
+     * Consts
+     */
+    // The max number of triples counted for a single pattern (used when there are no statistics for the pattern)
+    public static final long COUNT_LIMIT = 100000;
+
+    /**
+     * Class Members
+     */
+    private Model _model;
+    private TripleIndex _index;
+    private GraphStatisticsHandler _statistics;
+    private boolean _hasClosure;
+    // The counts of the patterns estimated so far
+    private HashMap<Triple, Long> _patternCounts;
+
+    /**
+     * Constructor
+     * @param model - The model on which the estimated queries are executed
+     */
+    public CardinalityEstimator(Model model) {
+        _model = model;
+        _index = TripleIndex.getIndex(model);
+        _statistics = model.getGraph().getStatisticsHandler();
+        _hasClosure = SchemaClosure.getClosure(model) != null;
+        _patternCounts = new HashMap<Triple, Long>();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the estimated number of results of the given query on the model of this estimator
+     * @param query - The estimated query
+     * @return - The estimated number of results (not rounded)
+     */
+    public double estimateResults(Query query) {
+        PatternCollector collector = new PatternCollector();
+        OpWalker.walk(Algebra.compile(query), collector);
+
+        double estimate = 1;
+        // The fewest triples of a pattern of each variable, and the number of patterns of each variable
+        HashMap<Node, Long> domains = new HashMap<Node, Long>();
+        HashMap<Node, Integer> occurrences = new HashMap<Node, Integer>();
+        for (Triple pattern : collector._patterns) {
+            long count = countPattern(pattern);
+            if (count == 0)
+                return 0;
+            estimate *= count;
+            for (Node node : new Node[] {pattern.getSubject(), pattern.getPredicate(), pattern.getObject()}) {
+                if (!node.isVariable())
+                    continue;
+                Long domain = domains.get(node);
+                domains.put(node, (domain == null) ? count : Math.min(domain, count));
+                Integer occurrence = occurrences.get(node);
+                occurrences.put(node, (occurrence == null) ? 1 : occurrence + 1);
+            }
+        }
+        // A pattern this estimator can't count (e.g. a property path) might match any triple
+        for (int i = 0; i < collector._unknownPatterns; i++)
+            estimate *= COUNT_LIMIT;
+        for (Node var : domains.keySet())
+            estimate /= Math.pow(domains.get(var), occurrences.get(var) - 1);
+
+        if (query.hasLimit())
+            estimate = Math.min(estimate, query.getLimit());
+        return estimate;
+    }
+
+    /**
+     * Returns the number of triples that match the given triple pattern (its variables match any node)
+     * @param pattern - The triple pattern
+     * @return - The number of matching triples (at most COUNT_LIMIT if they had to be counted)
+     */
+    public long countPattern(Triple pattern) {
+        Long count = _patternCounts.get(pattern);
+        if (count == null) {
+            Node s = toMatchNode(pattern.getSubject());
+            Node p = toMatchNode(pattern.getPredicate());
+            Node o = toMatchNode(pattern.getObject());
+            // The closure materializes the hierarchy (each class is a subclass of itself), so a class is matched
+            // through all of its subclasses
+            if (_hasClosure && RDF.type.asNode().equals(p) && o.isConcrete())
+                count = countThroughHierarchy(s, p, o, RDFS.subClassOf, false);
+            else if (_hasClosure && p.isConcrete() && !RDF.type.asNode().equals(p))
+                count = countThroughHierarchy(s, p, o, RDFS.subPropertyOf, true);
+            else
+                count = countTriples(s, p, o);
+            _patternCounts.put(pattern, count);
+        }
+        return count;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Returns the number of triples that match the given pattern or one of the patterns in which the class (or the
+     * property) is replaced by one of its subclasses (subproperties) in the schema closure
+     * @param s - The subject of the pattern (Node.ANY for any node)
+     * @param p - The predicate of the pattern
+     * @param o - The object of the pattern (Node.ANY for any node)
+     * @param hierarchy - The property of the hierarchy (rdfs:subClassOf or rdfs:subPropertyOf)
+     * @param byPredicate - True iff the predicate is replaced (otherwise the object is)
+     * @return - The number of matching triples
+     */
+    private long countThroughHierarchy(Node s, Node p, Node o, Property hierarchy, boolean byPredicate) {
+        Node ancestor = byPredicate ? p : o;
+        ArrayList<Node> descendants = new ArrayList<Node>();
+        StmtIterator iter = _model.listStatements(null, hierarchy, _model.asRDFNode(ancestor));
+        try {
+            while (iter.hasNext()) {
+                Statement statement = iter.nextStatement();
+                descendants.add(statement.getSubject().asNode());
+            }
+        }
+        finally {
+            iter.close();
+        }
+        // The node isn't part of the schema
+        if (descendants.isEmpty())
+            return countTriples(s, p, o);
+
+        long count = 0;
+        for (Node descendant : descendants)
+            count += byPredicate ? countTriples(s, descendant, o) : countTriples(s, p, descendant);
+        return count;
+    }
+
+    /**
+     * Returns the number of triples of the model that match the given pattern
+     * @param s - The subject of the pattern (Node.ANY for any node)
+     * @param p - The predicate of the pattern (Node.ANY for any node)
+     * @param o - The object of the pattern (Node.ANY for any node)
+     * @return - The number of matching triples (at most COUNT_LIMIT if they had to be counted)
+     */
+    private long countTriples(Node s, Node p, Node o) {
+        if (_index != null && p.isConcrete())
+            return countIndexedTriples(s, p, o);
+        if (_statistics != null) {
+            long statistic = _statistics.getStatistic(s, p, o);
+            if (statistic >= 0)
+                return statistic;
+        }
+        Graph graph = _model.getGraph();
+        ExtendedIterator<Triple> iter = graph.find(s, p, o);
+        long count = 0;
+        try {
+            while (count < COUNT_LIMIT && iter.hasNext()) {
+                iter.next();
+                count++;
+            }
+        }
+        finally {
+            iter.close();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of triples of the index that match the given pattern
+     * @param s - The subject of the pattern (Node.ANY for any node)
+     * @param p - The predicate of the pattern
+     * @param o - The object of the pattern (Node.ANY for any node)
+     * @return - The number of matching triples
+     */
+    private long countIndexedTriples(Node s, Node p, Node o) {
+        _index.beginRead();
+        try {
+            int predicate = _index.getCode(p);
+            if (predicate == TripleIndex.NO_CODE)
+                return 0;
+            int subject = s.isConcrete() ? _index.getCode(s) : TripleIndex.NO_CODE;
+            int object = o.isConcrete() ? _index.getCode(o) : TripleIndex.NO_CODE;
+            if ((s.isConcrete() && subject == TripleIndex.NO_CODE) || (o.isConcrete() && object == TripleIndex.NO_CODE))
+                return 0;
+            if (s.isConcrete() && o.isConcrete())
+                return _index.contains(subject, predicate, object) ? 1 : 0;
+            TripleIndex.IntList list;
+            if (s.isConcrete())
+                list = _index.getObjects(predicate, subject);
+            else if (o.isConcrete())
+                list = _index.getSubjects(predicate, object);
+            else
+                return _index.getPredicateCount(predicate);
+            return (list == null) ? 0 : list.size();
+        }
+        finally {
+            _index.endRead();
+        }
+    }
+
+    /**
+     * Returns the node by which the triples are matched for the given term of a pattern
+     * @param node - The term of the pattern
+     * @return - Node.ANY for a variable, otherwise the term itself
+     */
+    private static Node toMatchNode(Node node) {
+        return node.isConcrete() ? node : Node.ANY;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Collects the triple patterns of a query
+     */
+    private static class PatternCollector extends OpVisitorBase {
+
+        private ArrayList<Triple> _patterns = new ArrayList<Triple>();
+        private int _unknownPatterns = 0;
+
+        @Override
+        public void visit(OpBGP opBGP) {
+            _patterns.addAll(opBGP.getPattern().getList());
+        }
+
+        @Override
+        public void visit(OpTriple opTriple) {
+            _patterns.add(opTriple.getTriple());
+        }
+
+        @Override
+        public void visit(OpPath opPath) {
+            _unknownPatterns++;
+        }
+
+        @Override
+        public void visit(OpPropFunc opPropFunc) {
+            _unknownPatterns++;
+        }
+    }
+}
@@ -0,0 +1,664 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_NotEquals;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException;
+import com.hp.hpl.jena.sparql.expr.ExprFunction2;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
+import com.hp.hpl.jena.sparql.syntax.ElementTriplesBlock;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A query that can be evaluated directly on a triple index (see TripleIndex) instead of being executed by ARQ.
+ * Supported queries are the simple SELECT queries created by the GRR parser: a basic graph pattern whose predicates
+ * are constant, and filters that compare variables or constants by '=' and '!=' (optionally combined by '&&'),
+ * with an optional DISTINCT. Queries with any other construct (e.g. OPTIONAL, UNION, ORDER BY, LIMIT) aren't
+ * supported and should be executed by ARQ.
+ * The pattern is evaluated by nested-loop joins over the index, while matching the triples with the most bound
+ * terms (and the fewest candidates) first.
+ * If the queried model has a schema closure (see SchemaClosure), a triple pattern of a class (property) matches the
+ * triples of its subclasses (subproperties) as well. As in an inference model, the entailed triple is matched once,
+ * even if it's entailed by several triples of the subclasses (subproperties).
+ */
+public class IndexedQuery {
+
+    /**
+     * Class Members
+     */
+
+    // The variable index of a constant term
+    private static final int CONSTANT = -1;
+    // The code of a variable which isn't bound yet
+    private static final int UNBOUND = -1;
+    // The code of a variable which is bound to a node that isn't part of the index
+    private static final int NOT_INDEXED = -2;
+
+    // The compiled queries (a query which can't be compiled is mapped to UNSUPPORTED)
+    private static final Map<Query, IndexedQuery> _compiledQueries = new WeakHashMap<Query, IndexedQuery>();
+    private static final IndexedQuery UNSUPPORTED = new IndexedQuery();
+
+    private ArrayList<String> _vars;
+    private ArrayList<Triple> _triples;
+    private ArrayList<Comparison> _comparisons;
+    private String[] _resultVars;
+    private int[] _resultIndexes;
+    private boolean _isDistinct;
+
+    /**
+     * Constructor
+     */
+    private IndexedQuery() {
+        _vars = new ArrayList<String>();
+        _triples = new ArrayList<Triple>();
+        _comparisons = new ArrayList<Comparison>();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the compiled form of the given query (queries are compiled once)
+     * @param query - The query to be compiled
+     * @return - The compiled query, or null if the query can't be evaluated on a triple index
+     */
+    public static IndexedQuery compile(Query query) {
+        synchronized (_compiledQueries) {
+            IndexedQuery compiled = _compiledQueries.get(query);
+            if (compiled == null) {
+                compiled = new IndexedQuery();
+                if (!compiled.parse(query))
+                    compiled = UNSUPPORTED;
+                _compiledQueries.put(query, compiled);
+            }
+            return (compiled == UNSUPPORTED) ? null : compiled;
+        }
+    }
+
+    /**
+     * Evaluates the query on the given index
+     * @param index - The index of the queried model
+     * @param model - The queried model (used for creating the returned nodes)
+     * @param binding - The values bound to the variables of the query (null if none)
+     * @param dictionary - The dictionary used for encoding the nodes of the results
+     * @param closure - The schema closure of the queried model (null if it has none)
+     * @return - A table holding all of the results of the query
+     */
+    public QueryResultTable execute(TripleIndex index, Model model, QuerySolution binding, NodeDictionary dictionary,
+                                    SchemaClosure closure) {
+        QueryResultTable table = new QueryResultTable(Arrays.asList(_resultVars), dictionary);
+        index.beginRead();
+        try {
+            new Evaluation(index, model, table, closure).run(binding);
+        }
+        finally {
+            index.endRead();
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Reads the given query into this instance
+     * @param query - The query to be compiled
+     * @return - True iff the query is supported
+     */
+    private boolean parse(Query query) {
+        if (!query.isSelectType() || query.hasLimit() || query.hasOffset() || query.hasOrderBy()
+                || query.hasGroupBy() || query.hasHaving() || query.hasAggregators() || query.hasBindings()
+                || query.hasDatasetDescription() || query.getProject().getExprs().size() > 0)
+            return false;
+        if (!(query.getQueryPattern() instanceof ElementGroup))
+            return false;
+
+        for (Element element : ((ElementGroup) query.getQueryPattern()).getElements()) {
+            if (element instanceof ElementPathBlock) {
+                for (TriplePath path : ((ElementPathBlock) element).getPattern().getList()) {
+                    if (!path.isTriple() || !addTriple(path.asTriple()))
+                        return false;
+                }
+            }
+            else if (element instanceof ElementTriplesBlock) {
+                for (Triple triple : ((ElementTriplesBlock) element).getPattern().getList())
+                    if (!addTriple(triple))
+                        return false;
+            }
+            else if (element instanceof ElementFilter) {
+                if (!addFilter(((ElementFilter) element).getExpr()))
+                    return false;
+            }
+            else
+                return false;
+        }
+
+        List<String> resultVars = query.getResultVars();
+        _resultVars = resultVars.toArray(new String[resultVars.size()]);
+        _resultIndexes = new int[_resultVars.length];
+        for (int col = 0; col < _resultVars.length; col++)
+            _resultIndexes[col] = varIndex(_resultVars[col]);
+        _isDistinct = query.isDistinct() || query.isReduced();
+        return true;
+    }
+
+    /**
+     * Adds the given triple to the pattern of this query
+     * @param triple - The triple of the query pattern
+     * @return - True iff the triple is supported (its predicate is constant, and it has no literal constants, which are
+     * matched by their values rather than their terms)
+     */
+    private boolean addTriple(Triple triple) {
+        if (!triple.getPredicate().isURI())
+            return false;
+        for (Node node : new Node[] {triple.getSubject(), triple.getObject()}) {
+            if (node.isVariable())
+                varIndex(node.getName());
+            else if (!node.isURI())
+                return false;
+        }
+        _triples.add(triple);
+        return true;
+    }
+
+    /**
+     * Adds the given filter expression to this query
+     * @param expr - The filter expression
+     * @return - True iff the expression is supported
+     */
+    private boolean addFilter(Expr expr) {
+        if (expr instanceof E_LogicalAnd)
+            return addFilter(((E_LogicalAnd) expr).getArg1()) && addFilter(((E_LogicalAnd) expr).getArg2());
+        if (!(expr instanceof E_Equals) && !(expr instanceof E_NotEquals))
+            return false;
+        ExprFunction2 function = (ExprFunction2) expr;
+        Comparison comparison = new Comparison(expr instanceof E_Equals);
+        Expr[] args = {function.getArg1(), function.getArg2()};
+        for (int i = 0; i < 2; i++) {
+            if (args[i].isVariable())
+                comparison._vars[i] = varIndex(args[i].getVarName());
+            else if (args[i].isConstant())
+                comparison._consts[i] = args[i].getConstant().asNode();
+            else
+                return false;
+        }
+        _comparisons.add(comparison);
+        return true;
+    }
+
+    /**
+     * Returns the index of the given variable, while adding it to the variables of the query if needed
+     * @param var - The name of the variable
+     * @return - The index of the given variable
+     */
+    private int varIndex(String var) {
+        int index = _vars.indexOf(var);
+        if (index < 0) {
+            index = _vars.size();
+            _vars.add(var);
+        }
+        return index;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * A comparison of two terms (variables or constants) by '=' or '!='
+     */
+    private static class Comparison {
+
+        private final boolean _isEquals;
+        private final int[] _vars = {CONSTANT, CONSTANT};
+        private final Node[] _consts = new Node[2];
+
+        private Comparison(boolean isEquals) {
+            _isEquals = isEquals;
+        }
+    }
+
+    /**
+     * A single evaluation of the query, which holds the codes bound to the variables of the query
+     */
+    private class Evaluation {
+
+        private final TripleIndex _index;
+        private final Model _model;
+        private final QueryResultTable _table;
+        private final SchemaClosure _closure;
+        // The code bound to each variable
+        private final int[] _codes;
+        // The nodes bound by the given binding which aren't part of the index
+        private final Node[] _nodes;
+        // The triples by their evaluation order, as [subjects, predicates, objects] where a variable is a single
+        // negative value (-1 - varIndex) and a constant term is the codes of its alternatives (the term and its
+        // subclasses or subproperties, see SchemaClosure)
+        private int[][][] _steps;
+        // The comparisons that are checked after each step (index 0 holds the ones checked before the first step)
+        private ArrayList<ArrayList<Comparison>> _checks;
+        private HashSet<List<Integer>> _distinctRows;
+
+        private Evaluation(TripleIndex index, Model model, QueryResultTable table, SchemaClosure closure) {
+            _index = index;
+            _model = model;
+            _table = table;
+            _closure = closure;
+            _codes = new int[_vars.size()];
+            Arrays.fill(_codes, UNBOUND);
+            _nodes = new Node[_vars.size()];
+            _distinctRows = _isDistinct ? new HashSet<List<Integer>>() : null;
+        }
+
+        /**
+         * Evaluates the query while adding its results to the table
+         * @param binding - The values bound to the variables of the query (null if none)
+         */
+        private void run(QuerySolution binding) {
+            if (binding != null) {
+                Iterator<String> names = binding.varNames();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    int var = _vars.indexOf(name);
+                    if (var < 0)
+                        continue;
+                    Node node = binding.get(name).asNode();
+                    _codes[var] = _index.getCode(node);
+                    if (_codes[var] == TripleIndex.NO_CODE) {
+                        _codes[var] = NOT_INDEXED;
+                        _nodes[var] = node;
+                    }
+                }
+            }
+            if (!plan())
+                return;
+            if (check(0))
+                join(0);
+        }
+
+        /**
+         * Orders the triples of the pattern and schedules the comparisons
+         * @return - False iff the query has no results (a constant or bound node isn't part of the index)
+         */
+        private boolean plan() {
+            int count = _triples.size();
+            boolean[] isBound = new boolean[_vars.size()];
+            int[] bindingStep = new int[_vars.size()];
+            for (int var = 0; var < isBound.length; var++) {
+                isBound[var] = _codes[var] != UNBOUND;
+                bindingStep[var] = isBound[var] ? 0 : Integer.MAX_VALUE;
+            }
+
+            // Encode the triples
+            int[][][] encoded = new int[count][3][];
+            for (int i = 0; i < count; i++) {
+                Triple triple = _triples.get(i);
+                Node[] terms = {triple.getSubject(), triple.getPredicate(), triple.getObject()};
+                int expanded = getExpandedTerm(triple);
+                for (int j = 0; j < 3; j++) {
+                    if (terms[j].isVariable()) {
+                        int var = _vars.indexOf(terms[j].getName());
+                        if (_codes[var] == NOT_INDEXED)
+                            return false;
+                        encoded[i][j] = new int[] {-1 - var};
+                    }
+                    else {
+                        Set<Node> alternatives = (j != expanded) ? Collections.singleton(terms[j])
+                                : (j == 1) ? _closure.getSubProperties(terms[j]) : _closure.getSubClasses(terms[j]);
+                        ArrayList<Integer> codes = new ArrayList<Integer>();
+                        for (Node alternative : alternatives) {
+                            int code = _index.getCode(alternative);
+                            if (code != TripleIndex.NO_CODE)
+                                codes.add(code);
+                        }
+                        if (codes.isEmpty())
+                            return false;
+                        encoded[i][j] = new int[codes.size()];
+                        for (int k = 0; k < codes.size(); k++)
+                            encoded[i][j][k] = codes.get(k);
+                    }
+                }
+            }
+
+            // Greedily pick the triple with the most bound terms, and then the fewest candidates
+            _steps = new int[count][][];
+            boolean[] isPlanned = new boolean[count];
+            for (int step = 0; step < count; step++) {
+                int best = -1;
+                long bestCost = Long.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    if (isPlanned[i])
+                        continue;
+                    long cost = estimate(encoded[i], isBound);
+                    if (cost < bestCost) {
+                        best = i;
+                        bestCost = cost;
+                    }
+                }
+                isPlanned[best] = true;
+                _steps[step] = encoded[best];
+                for (int j = 0; j < 3; j += 2)
+                    if (encoded[best][j][0] < 0 && !isBound[-1 - encoded[best][j][0]]) {
+                        isBound[-1 - encoded[best][j][0]] = true;
+                        bindingStep[-1 - encoded[best][j][0]] = step + 1;
+                    }
+            }
+
+            // Check each comparison as soon as its variables are bound (an unbound variable fails the filter)
+            _checks = new ArrayList<ArrayList<Comparison>>();
+            for (int step = 0; step <= count; step++)
+                _checks.add(new ArrayList<Comparison>());
+            for (Comparison comparison : _comparisons) {
+                int step = 0;
+                for (int var : comparison._vars)
+                    if (var != CONSTANT)
+                        step = Math.max(step, bindingStep[var]);
+                if (step == Integer.MAX_VALUE)
+                    return false;
+                _checks.get(step).add(comparison);
+            }
+            return true;
+        }
+
+        /**
+         * Returns the term of the given triple which is matched by its subclasses or subproperties as well (see
+         * SchemaClosure.rewrite())
+         * @param triple - The triple of the query pattern
+         * @return - 2 for the object of a type triple, 1 for the predicate of a property triple, or -1 if no term
+         * of the triple is expanded
+         */
+        private int getExpandedTerm(Triple triple) {
+            if (_closure == null)
+                return -1;
+            if (triple.getPredicate().equals(RDF.type.asNode()) && triple.getObject().isURI()
+                    && _closure.getSubClasses(triple.getObject()).size() > 1)
+                return 2;
+            return (_closure.getSubProperties(triple.getPredicate()).size() > 1) ? 1 : -1;
+        }
+
+        /**
+         * Returns the estimated number of candidates of the given triple, where triples with more bound terms are
+         * always cheaper
+         * @param triple - The encoded triple
+         * @param isBound - The variables that are bound before the triple is matched
+         * @return - The estimated cost of matching the triple
+         */
+        private long estimate(int[][] triple, boolean[] isBound) {
+            boolean subjectBound = triple[0][0] >= 0 || isBound[-1 - triple[0][0]];
+            boolean objectBound = triple[2][0] >= 0 || isBound[-1 - triple[2][0]];
+            if (subjectBound && objectBound)
+                return 0;
+            long total = 0;
+            long candidates = 0;
+            int subjects = 0;
+            for (int predicate : triple[1]) {
+                total += _index.getPredicateCount(predicate);
+                subjects += _index.getSubjectObjects(predicate).size();
+                if (subjectBound && triple[0][0] >= 0)
+                    candidates += size(_index.getObjects(predicate, triple[0][0]));
+                else if (!subjectBound && objectBound && triple[2][0] >= 0)
+                    for (int object : triple[2])
+                        candidates += size(_index.getSubjects(predicate, object));
+            }
+            if (subjectBound)
+                candidates = (triple[0][0] >= 0) ? candidates : total / Math.max(1, subjects);
+            else if (objectBound)
+                candidates = (triple[2][0] >= 0) ? candidates : total;
+            else
+                return (1L << 40) + total;
+            return (1L << 20) + candidates;
+        }
+
+        /**
+         * Matches the triple of the given step, and continues to the next step for each match
+         * @param step - The current step
+         */
+        private void join(int step) {
+            if (step == _steps.length) {
+                addRow();
+                return;
+            }
+            int[][] triple = _steps[step];
+            if (triple[1].length > 1 || triple[2].length > 1) {
+                joinAlternatives(step, triple);
+                return;
+            }
+            int predicate = triple[1][0];
+            int subjectVar = (triple[0][0] < 0) ? -1 - triple[0][0] : CONSTANT;
+            int objectVar = (triple[2][0] < 0) ? -1 - triple[2][0] : CONSTANT;
+            int subject = (subjectVar == CONSTANT) ? triple[0][0] : _codes[subjectVar];
+            int object = (objectVar == CONSTANT) ? triple[2][0] : _codes[objectVar];
+
+            if (subject != UNBOUND && object != UNBOUND) {
+                if (_index.contains(subject, predicate, object) && check(step + 1))
+                    join(step + 1);
+            }
+            else if (subject != UNBOUND) {
+                TripleIndex.IntList objects = _index.getObjects(predicate, subject);
+                for (int i = 0; objects != null && i < objects.size(); i++)
+                    bindAndJoin(step, objectVar, objects.get(i));
+                _codes[objectVar] = UNBOUND;
+            }
+            else if (object != UNBOUND) {
+                TripleIndex.IntList subjects = _index.getSubjects(predicate, object);
+                for (int i = 0; subjects != null && i < subjects.size(); i++)
+                    bindAndJoin(step, subjectVar, subjects.get(i));
+                _codes[subjectVar] = UNBOUND;
+            }
+            else {
+                for (Map.Entry<Integer, TripleIndex.IntList> entry : _index.getSubjectObjects(predicate).entrySet()) {
+                    TripleIndex.IntList objects = entry.getValue();
+                    for (int i = 0; i < objects.size(); i++) {
+                        // The same variable might be both the subject and the object
+                        if (subjectVar == objectVar && entry.getKey() != objects.get(i))
+                            continue;
+                        _codes[subjectVar] = entry.getKey();
+                        bindAndJoin(step, objectVar, objects.get(i));
+                    }
+                }
+                _codes[subjectVar] = UNBOUND;
+                _codes[objectVar] = UNBOUND;
+            }
+        }
+
+        /**
+         * Matches a triple whose predicate or object has several alternatives (see SchemaClosure), and continues to the
+         * next step once for each distinct binding of its variables
+         * @param step - The current step
+         * @param triple - The encoded triple of the step
+         */
+        private void joinAlternatives(int step, int[][] triple) {
+            int subjectVar = (triple[0][0] < 0) ? -1 - triple[0][0] : CONSTANT;
+            int objectVar = (triple[2][0] < 0) ? -1 - triple[2][0] : CONSTANT;
+            int subject = (subjectVar == CONSTANT) ? triple[0][0] : _codes[subjectVar];
+            int[] objects = (objectVar == CONSTANT) ? triple[2] : new int[] {_codes[objectVar]};
+            boolean bindsSubject = subject == UNBOUND;
+            boolean bindsObject = objects[0] == UNBOUND;
+
+            // The distinct bindings of the unbound variables, each as (subject << 32 | object)
+            LinkedHashSet<Long> matches = new LinkedHashSet<Long>();
+            for (int predicate : triple[1]) {
+                if (!bindsSubject && !bindsObject) {
+                    for (int object : objects)
+                        if (_index.contains(subject, predicate, object))
+                            matches.add(0L);
+                }
+                else if (!bindsSubject) {
+                    TripleIndex.IntList found = _index.getObjects(predicate, subject);
+                    for (int i = 0; found != null && i < found.size(); i++)
+                        matches.add((long) found.get(i));
+                }
+                else if (!bindsObject) {
+                    for (int object : objects) {
+                        TripleIndex.IntList found = _index.getSubjects(predicate, object);
+                        for (int i = 0; found != null && i < found.size(); i++)
+                            matches.add((long) found.get(i) << 32);
+                    }
+                }
+                else {
+                    for (Map.Entry<Integer, TripleIndex.IntList> entry : _index.getSubjectObjects(predicate).entrySet()) {
+                        TripleIndex.IntList found = entry.getValue();
+                        for (int i = 0; i < found.size(); i++)
+                            // The same variable might be both the subject and the object
+                            if (subjectVar != objectVar || entry.getKey() == found.get(i))
+                                matches.add(((long) entry.getKey() << 32) | found.get(i));
+                    }
+                }
+            }
+
+            for (long match : matches) {
+                if (bindsSubject)
+                    _codes[subjectVar] = (int) (match >>> 32);
+                if (bindsObject)
+                    _codes[objectVar] = (int) match;
+                if (check(step + 1))
+                    join(step + 1);
+            }
+            if (bindsSubject)
+                _codes[subjectVar] = UNBOUND;
+            if (bindsObject)
+                _codes[objectVar] = UNBOUND;
+        }
+
+        /**
+         * Binds the given variable and continues to the next step if the comparisons of this step hold
+         * @param step - The current step
+         * @param var - The bound variable
+         * @param code - The code bound to the variable
+         */
+        private void bindAndJoin(int step, int var, int code) {
+            _codes[var] = code;
+            if (check(step + 1))
+                join(step + 1);
+        }
+
+        /**
+         * Returns true iff all of the comparisons that are scheduled after the given step hold
+         * @param step - The step (0 for the comparisons that are checked before the first step)
+         * @return - True iff all of the comparisons hold
+         */
+        private boolean check(int step) {
+            for (Comparison comparison : _checks.get(step)) {
+                int var1 = comparison._vars[0];
+                int var2 = comparison._vars[1];
+                Boolean isEqual;
+                // Identical codes are identical terms, otherwise the nodes are compared
+                if (var1 != CONSTANT && var2 != CONSTANT && _codes[var1] >= 0 && _codes[var1] == _codes[var2])
+                    isEqual = Boolean.TRUE;
+                else
+                    isEqual = equal(
+                            (var1 == CONSTANT) ? comparison._consts[0] : getNode(var1),
+                            (var2 == CONSTANT) ? comparison._consts[1] : getNode(var2));
+                // A comparison that can't be evaluated fails the filter (as in SPARQL)
+                if (isEqual == null || isEqual != comparison._isEquals)
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Compares the given nodes as the SPARQL '=' operator
+         * @param a - The first node
+         * @param b - The second node
+         * @return - True iff the nodes are equal, or null if they can't be compared
+         */
+        private Boolean equal(Node a, Node b) {
+            if (a.equals(b))
+                return Boolean.TRUE;
+            if (!a.isLiteral() || !b.isLiteral())
+                return Boolean.FALSE;
+            try {
+                return NodeValue.sameAs(NodeValue.makeNode(a), NodeValue.makeNode(b));
+            }
+            catch (ExprEvalException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Adds the current bindings of the result variables as a row of the table
+         */
+        private void addRow() {
+            if (_distinctRows != null) {
+                List<Integer> key = new ArrayList<Integer>(_resultVars.length);
+                for (int var : _resultIndexes)
+                    key.add(_codes[var]);
+                if (!_distinctRows.add(key))
+                    return;
+            }
+            RDFNode[] row = new RDFNode[_resultVars.length];
+            for (int col = 0; col < _resultVars.length; col++) {
+                Node node = getNode(_resultIndexes[col]);
+                row[col] = (node == null) ? null : _model.asRDFNode(node);
+            }
+            _table.addRow(row);
+        }
+
+        /**
+         * Returns the node bound to the given variable
+         * @param var - The index of the variable
+         * @return - The node bound to the given variable (null if it's unbound)
+         */
+        private Node getNode(int var) {
+            if (_codes[var] == NOT_INDEXED)
+                return _nodes[var];
+            return (_codes[var] == UNBOUND) ? null : _index.getNode(_codes[var]);
+        }
+
+        private int size(TripleIndex.IntList list) {
+            return (list == null) ? 0 : list.size();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.rdf.model.RDFNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A dictionary which encodes RDF nodes as int codes, so each distinct node is held only once no matter how many
+ * query results refer to it (see QueryResultTable)
+ */
+public class NodeDictionary {
+
+    /**
+     * Class members
+     */
+    // The code used for variables which aren't bound in a query result
+    public static final int UNBOUND = -1;
+    // A rough estimate of the bytes used per node (the node itself, its hash-map entry and boxed code)
+    private static final long ESTIMATED_ENTRY_SIZE = 128;
+
+    private HashMap<RDFNode, Integer> _codes;
+    private ArrayList<RDFNode> _nodes;
+
+    /**
+     * Constructor
+     */
+    public NodeDictionary() {
+        _codes = new HashMap<RDFNode, Integer>();
+        _nodes = new ArrayList<RDFNode>();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the code of the given node (adding it to the dictionary if needed)
+     * @param node - The encoded node (might be null)
+     * @return - The code of the given node (UNBOUND if the given node is null)
+     */
+    public int encode(RDFNode node) {
+        if (node == null)
+            return UNBOUND;
+        Integer code = _codes.get(node);
+        if (code == null) {
+            code = _nodes.size();
+            _nodes.add(node);
+            _codes.put(node, code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the node of the given code
+     * @param code - The code of the node
+     * @return - The node of the given code (null if the code is UNBOUND)
+     * @throws IllegalArgumentException - If the given code isn't part of this dictionary
+     */
+    public RDFNode decode(int code) throws IllegalArgumentException {
+        if (code == UNBOUND)
+            return null;
+        if (code < 0 || code >= _nodes.size())
+            throw new IllegalArgumentException("The code: " + code + " isn't part of the dictionary");
+        return _nodes.get(code);
+    }
+
+    /**
+     * Returns the number of distinct nodes held by this dictionary
+     * @return - The number of distinct nodes held by this dictionary
+     */
+    public int size() {
+        return _nodes.size();
+    }
+
+    /**
+     * Returns an estimate of the number of bytes used by this dictionary
+     * @return - An estimate of the number of bytes used by this dictionary
+     */
+    public long getEstimatedSize() {
+        return ESTIMATED_ENTRY_SIZE * _nodes.size();
+    }
+}
@@ -25,18 +25,18 @@
 
 package JavaApi.RandomDataGraph.QueryOptimization;
 
+import JavaApi.RandomDataGraph.Metrics.ConstructionMetrics;
 import RdfApi.QueryOptimizationMode;
 import JavaApi.Samplers.QuerySamplers.IQuerySampler;
 import JavaApi.Samplers.SamplingMode;
 import com.hp.hpl.jena.query.Query;
-import com.hp.hpl.jena.query.QueryFactory;
-import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.syntax.Element;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Class for handling all of the query caching mechanism
@@ -46,13 +46,37 @@ public class QueryCache {
     /**
      * Class members
      */
+    // The default memory budget (in bytes) of the BOUNDED_CACHE mode
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // A rough estimate of the bytes used by a cache entry regardless of its results (the query, the entry etc.)
+    private static final long ESTIMATED_ENTRY_OVERHEAD = 1024;
+
     private QueryModeParamsWrapper[] _modeParamsArray;
+    // The plan of the queries of a command without dynamic queries (null if it wasn't planned)
+    private QueryPlan _plan;
     private QueryOptimizationMode _mode;
-    private HashMap<Query, ArrayList<QuerySolution>> _queryResultsCache;
+    private HashMap<QueryKey, QueryResultTable> _queryResultsCache;
+    // The dictionary shared by all of the cached result tables
+    private NodeDictionary _nodeDictionary;
+
+    // Members of the BOUNDED_CACHE mode only
+    private long _memoryBudget;
+    private long _usedMemory;
+    private HashMap<QueryKey, CacheEntry> _entries;
+    private TreeSet<CacheEntry> _evictionQueue;
+    // The value of the last evicted entry, which ages all of the entries that weren't used since (see CacheEntry)
+    private double _inflation;
+    private long _entrySequence;
 
     // Members for caching analysis only
     private int _hitCount;
+    private int _batchServeCount;
     private int _queryCount;
+    private int _missCount;
+    private int _evictionCount;
+    // The metrics of the queries that use this cache, and the recursion level of the queries initialized next
+    private ConstructionMetrics _metrics;
+    private int _level;
 
     /**
      * Constructors
@@ -72,12 +96,40 @@ public class QueryCache {
      * @param modeParamsArray - The array of QueryModeParamsWrapper (see class documentation)
      */
     public QueryCache(QueryOptimizationMode mode, QueryModeParamsWrapper[] modeParamsArray) {
+        this(mode, modeParamsArray, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Constructor that sets the caching mode, array of QueryModeParamsWrapper and the memory budget
+     * @param mode - The caching mode to be used
+     * @param modeParamsArray - The array of QueryModeParamsWrapper (see class documentation)
+     * @param memoryBudget - The max number of bytes (estimated) used by the cached results in BOUNDED_CACHE mode
+     * @throws IllegalArgumentException - If the given memory budget isn't positive
+     */
+    public QueryCache(QueryOptimizationMode mode, QueryModeParamsWrapper[] modeParamsArray, long memoryBudget)
+            throws IllegalArgumentException {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
         _modeParamsArray = modeParamsArray;
+        _plan = null;
         _mode = mode;
-        _queryResultsCache = new HashMap<Query, ArrayList<QuerySolution>>();
+        _queryResultsCache = new HashMap<QueryKey, QueryResultTable>();
+        _nodeDictionary = new NodeDictionary();
+        // For bounded caching
+        _memoryBudget = memoryBudget;
+        _usedMemory = 0;
+        _entries = new HashMap<QueryKey, CacheEntry>();
+        _evictionQueue = new TreeSet<CacheEntry>();
+        _inflation = 0;
+        _entrySequence = 0;
         // For caching analysis
         _hitCount = 0;
+        _batchServeCount = 0;
         _queryCount = 0;
+        _missCount = 0;
+        _evictionCount = 0;
+        _metrics = new ConstructionMetrics();
+        _level = 1;
     }
 
     /**
@@ -89,14 +141,19 @@ public class QueryCache {
      * according to the mode and other parameters
      * @param index - The depth in which we are running this query (for more details consult
      * algorithm's documentation or the GRR paper). In general a construction command can have
-     * multiple queries, each might refer to previous query results. 
+     * multiple queries, each might refer to previous query results. For a planned command (see setQueryPlan()) this
+     * is the level of the query (1 for the outer query)
      * @return - True if the results of this query should be cached
      */
     public boolean shouldCache(int index) {
         if (_mode == QueryOptimizationMode.NO_CACHE)
             return false;
-        if (_mode == QueryOptimizationMode.ALWAYS_CACHE)
+        if (_mode == QueryOptimizationMode.ALWAYS_CACHE || _mode == QueryOptimizationMode.BOUNDED_CACHE)
             return true;
+        // The cache is used by a single command, so the results are looked up again only if the query is initialized
+        // again in this command
+        if (_plan != null)
+            return _plan.getEstimatedInitializations(index) > 1;
         // This means we are using smart caching - non dynamic
         if (_modeParamsArray == null)
             return index != 0;
@@ -139,32 +196,105 @@ public class QueryCache {
 
     }
 
+    /**
+     * Sets the plan of the queries of a construction command without dynamic queries. In SMART_CACHE mode the results
+     * of a query are then cached only if the plan estimates that the query is initialized more than once (see
+     * QueryPlan.getEstimatedInitializations())
+     * @param plan - The plan of the queries (null for deciding by the levels of the queries only)
+     */
+    public void setQueryPlan(QueryPlan plan) {
+        _plan = plan;
+    }
+
+    /**
+     * Returns the plan of the queries set for this cache (see setQueryPlan())
+     * @return - The plan of the queries (null if none was set)
+     */
+    public QueryPlan getQueryPlan() {
+        return _plan;
+    }
+
     /**
      * Returns true if query can be found in the cache 
-     * @param query - The searched query
+     * @param query - The key of the searched query
      * @return - True if query can be found in the cache, otherwise False
      */
-    public boolean cacheHasQuery(Query query) {
-        return _queryResultsCache.containsKey(query);
+    public boolean cacheHasQuery(QueryKey query) {
+        boolean hasQuery = _queryResultsCache.containsKey(query);
+        if (!hasQuery) {
+            _missCount += 1;
+            _metrics.getLevel(_level).recordCacheMiss();
+        }
+        return hasQuery;
     }
 
     /**
      * Returns the cached results of the given query
-     * @param query - The query that we wish to get its cached results
+     * @param query - The key of the query that we wish to get its cached results
      * @return - The cached results of the given query 
      */
-    public ArrayList<QuerySolution> getCachedResults(Query query) {
+    public QueryResultTable getCachedResults(QueryKey query) {
+        if (_mode == QueryOptimizationMode.BOUNDED_CACHE) {
+            CacheEntry entry = _entries.get(query);
+            if (entry != null) {
+                // Update the value of the entry (re-insert it since its order is changed)
+                _evictionQueue.remove(entry);
+                entry._frequency++;
+                entry.updateValue(_inflation);
+                _evictionQueue.add(entry);
+            }
+        }
         return _queryResultsCache.get(query);
     }
 
     /**
      * Adds an pair of query and its results to the cache
-     * @param query - The added query
-     * @param solutions - The cached results
+     * In BOUNDED_CACHE mode, entries are evicted until the results fit into the memory budget. Results that are
+     * larger than the whole budget aren't cached at all
+     * @param query - The key of the added query
+     * @param results - The cached results (should be encoded by a dictionary of this cache, see getNodeDictionary())
+     * @param cost - The cost of re-computing the results (e.g. the execution time of the query in nanoseconds)
      */
-    public void addCachedResults(Query query, ArrayList<QuerySolution> solutions)
+    public void addCachedResults(QueryKey query, QueryResultTable results, long cost)
     {
-        _queryResultsCache.put(query, solutions);
+        if (_mode != QueryOptimizationMode.BOUNDED_CACHE) {
+            _queryResultsCache.put(query, results);
+            return;
+        }
+
+        // Replace an existing entry of the same query
+        CacheEntry existing = _entries.get(query);
+        if (existing != null)
+            removeEntry(existing);
+
+        long size = ESTIMATED_ENTRY_OVERHEAD + results.getEncodedSize() + results.getDictionary().getEstimatedSize();
+        if (size > _memoryBudget)
+            return;
+        while (_usedMemory + size > _memoryBudget) {
+            CacheEntry victim = _evictionQueue.first();
+            _inflation = victim._value;
+            removeEntry(victim);
+            _evictionCount += 1;
+        }
+
+        CacheEntry entry = new CacheEntry(query, size, Math.max(cost, 1), _entrySequence++);
+        entry.updateValue(_inflation);
+        _entries.put(query, entry);
+        _evictionQueue.add(entry);
+        _queryResultsCache.put(query, results);
+        _usedMemory += size;
+    }
+
+    /**
+     * Returns the dictionary to be used for encoding the nodes of results that will be cached. All of the cached
+     * results share the same dictionary, except in BOUNDED_CACHE mode in which each of the results gets its own
+     * dictionary (so its memory is released once the results are evicted)
+     * @return - The dictionary to be used for encoding the nodes of results that will be cached
+     */
+    public NodeDictionary getNodeDictionary() {
+        if (_mode == QueryOptimizationMode.BOUNDED_CACHE)
+            return new NodeDictionary();
+        return _nodeDictionary;
     }
 
     /**
@@ -177,8 +307,7 @@ public class QueryCache {
      */
     public void updateQueryParams(int index, IQuerySampler qSampler, ArrayList<String> dynamicParams) {
         QueryModeParamsWrapper qModeParamsWrapper = _modeParamsArray[index];
-        String queryStr = qSampler.getQueryWrapper().getQuery();
-        Query query = QueryFactory.create(queryStr);
+        Query query = qSampler.getQuery();
         // Update the out parameters
         ArrayList<String> qOutParams = (ArrayList<String>) query.getResultVars();
         qModeParamsWrapper.setQOutParams(qOutParams);
@@ -198,7 +327,7 @@ public class QueryCache {
      * Returns the hash-map containing the mapping between queries and the actual results
      * @return - The hash-map containing the mapping between queries and the actual results
      */
-    public HashMap<Query, ArrayList<QuerySolution>> getQueryResultsCache() {
+    public HashMap<QueryKey, QueryResultTable> getQueryResultsCache() {
         return _queryResultsCache;
     }
 
@@ -212,13 +341,67 @@ public class QueryCache {
     public void addToHitCount()
     {
         _hitCount += 1;
+        _metrics.getLevel(_level).recordCacheHit();
+    }
+
+    /**
+     * Method that increments the batch serve counter by 1 - a query whose results were taken from the results of its
+     * batch (see StdQuerySampler.initBatch()) isn't a cache hit, since the batch was executed for it
+     */
+    public void addToBatchServeCount()
+    {
+        _batchServeCount += 1;
+        _metrics.getLevel(_level).recordBatchServe();
     }
 
     /**
      * Method that increments the query counter by 1
      */
     public void addToQueryCount() {
+        addToQueryCount(0, 0);
+    }
+
+    /**
+     * Method that increments the query counter by 1, and records the execution in the metrics of the current
+     * recursion level (see setLevel())
+     * @param elapsedNanos - The time it took to execute the query and read its results
+     * @param rows - The number of results returned by the query
+     */
+    public void addToQueryCount(long elapsedNanos, int rows) {
         _queryCount += 1;
+        _metrics.getLevel(_level).recordQueryExecution(elapsedNanos, rows);
+    }
+
+    /**
+     * Sets the recursion level of the queries that are initialized next (1 for the first query of the construction
+     * command), by which their executions, hits and misses are recorded in the metrics of this cache
+     * @param level - The recursion level of the queries that are initialized next
+     */
+    public void setLevel(int level) {
+        _level = level;
+    }
+
+    /**
+     * Returns the metrics of the queries that use this cache (see ConstructionMetrics)
+     * @return - The metrics of the queries that use this cache
+     */
+    public ConstructionMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Method that adds the hit and query counters and the metrics of the given cache to the counters of this instance
+     * (used when a construction command is split between several workers that each use their own cache)
+     * @param qCache - The cache whose counters will be added
+     */
+    public void mergeCounters(QueryCache qCache) {
+        _hitCount += qCache.getHitCount();
+        _batchServeCount += qCache.getBatchServeCount();
+        _queryCount += qCache.getQueryCount();
+        _missCount += qCache.getMissCount();
+        _evictionCount += qCache.getEvictionCount();
+        qCache.getMetrics().setEstimatedCacheBytes(qCache.getEstimatedSize());
+        _metrics.merge(qCache.getMetrics());
     }
 
     /**
@@ -229,6 +412,14 @@ public class QueryCache {
         return _hitCount;
     }
 
+    /**
+     * Method that returns the batch serve counter
+     * @return - The batch serve counter
+     */
+    public int getBatchServeCount() {
+        return _batchServeCount;
+    }
+
     /**
      * Methods that returns the query counter
      * @return - The query counter
@@ -237,5 +428,126 @@ public class QueryCache {
         return _queryCount;
     }
 
+    /**
+     * Methods that returns the cache miss counter (the number of times a query wasn't found in the cache)
+     * @return - The cache miss counter
+     */
+    public int getMissCount() {
+        return _missCount;
+    }
+
+    /**
+     * Methods that returns the cache eviction counter (BOUNDED_CACHE mode only)
+     * @return - The cache eviction counter
+     */
+    public int getEvictionCount() {
+        return _evictionCount;
+    }
+
+    /**
+     * Returns the estimated number of bytes used by the cached results (BOUNDED_CACHE mode only)
+     * @return - The estimated number of bytes used by the cached results
+     */
+    public long getUsedMemory() {
+        return _usedMemory;
+    }
+
+    /**
+     * Returns the estimated number of bytes held by the cached results and their dictionary in any mode. It's
+     * computed from the sizes of the encoded result tables (see QueryResultTable.getEncodedSize()), so it doesn't
+     * require serializing the cache
+     * @return - The estimated number of bytes held by the cache
+     */
+    public long getEstimatedSize() {
+        if (_mode == QueryOptimizationMode.BOUNDED_CACHE)
+            return _usedMemory;
+        long size = _nodeDictionary.getEstimatedSize();
+        for (QueryResultTable results : _queryResultsCache.values())
+            size += ESTIMATED_ENTRY_OVERHEAD + results.getEncodedSize();
+        return size;
+    }
+
+    /**
+     * Returns the max number of bytes (estimated) used by the cached results in BOUNDED_CACHE mode
+     * @return - The memory budget of the cache
+     */
+    public long getMemoryBudget() {
+        return _memoryBudget;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Removes the given entry and its results from the cache
+     * @param entry - The removed entry
+     */
+    private void removeEntry(CacheEntry entry) {
+        _evictionQueue.remove(entry);
+        _entries.remove(entry._query);
+        _queryResultsCache.remove(entry._query);
+        _usedMemory -= entry._size;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * An entry of the BOUNDED_CACHE mode. The value of an entry is computed as in the Greedy-Dual-Size-Frequency
+     * policy: inflation + frequency * cost / size, so results that are hit often and are expensive to re-compute (per
+     * byte) are kept. The inflation is the value of the last evicted entry, hence entries that weren't hit recently
+     * lose their value relatively to new and recently hit entries (similar to LRU). The entry with the lowest value is
+     * evicted first
+     */
+    private static class CacheEntry implements Comparable<CacheEntry> {
+
+        /**
+         * Class members
+         */
+        private QueryKey _query;
+        private long _size;
+        private long _cost;
+        private int _frequency;
+        private double _value;
+        private long _sequence;
+
+        /**
+         * Constructor
+         * @param query - The key of the cached query
+         * @param size - The estimated number of bytes used by the cached results
+         * @param cost - The cost of re-computing the results
+         * @param sequence - The insertion order of this entry (used for breaking ties between entries)
+         */
+        CacheEntry(QueryKey query, long size, long cost, long sequence) {
+            _query = query;
+            _size = size;
+            _cost = cost;
+            _frequency = 1;
+            _sequence = sequence;
+        }
+
+        /**
+         * Updates the value of this entry according to its current frequency
+         * @param inflation - The current inflation value of the cache
+         */
+        void updateValue(double inflation) {
+            _value = inflation + ((double) _frequency * _cost) / _size;
+        }
+
+        /**
+         * Compares the entries by their values (and insertion order for equal values)
+         * @param other - The compared entry
+         * @return - A negative number if this entry should be evicted before the other, otherwise a positive number
+         */
+        @Override
+        public int compareTo(CacheEntry other) {
+            if (_value != other._value)
+                return (_value < other._value) ? -1 : 1;
+            return (_sequence < other._sequence) ? -1 : ((_sequence == other._sequence) ? 0 : 1);
+        }
+    }
+
 
 }
@@ -0,0 +1,243 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import JavaApi.Samplers.QuerySamplers.QueryWrapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase;
+import com.hp.hpl.jena.sparql.algebra.OpWalker;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin;
+import com.hp.hpl.jena.sparql.algebra.op.OpPath;
+import com.hp.hpl.jena.sparql.algebra.op.OpPropFunc;
+import com.hp.hpl.jena.sparql.algebra.op.OpTriple;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.ExprVisitorBase;
+import com.hp.hpl.jena.sparql.expr.ExprWalker;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The triples that a set of queries might match - the predicates of their triple patterns and the classes of their
+ * rdf:type patterns. Used for keeping only the triples needed by the queries of the next construction commands,
+ * while the rest of the created triples are only written to the output (see FileTripleSink).
+ * When a schema closure is given, a triple also matches if its predicate (class) is a subproperty (subclass) of a
+ * queried one, as the queries rewritten by the closure would match it (see SchemaClosure).
+ * Queries whose triples can't be determined (a variable predicate, a property path, or a dynamic query which can't be
+ * parsed before it's executed) match all of the triples.
+ */
+public class QueryFootprint {
+
+    /**
+     * Class Members
+     */
+    private SchemaClosure _closure;
+    private HashSet<Node> _predicates;
+    private HashSet<Node> _types;
+    private boolean _matchesAllTypes;
+    private boolean _matchesAll;
+
+    /**
+     * Constructor of an empty footprint (which matches no triple)
+     * @param closure - The schema closure by which the queries are rewritten (null if they aren't)
+     */
+    public QueryFootprint(SchemaClosure closure) {
+        _closure = closure;
+        _predicates = new HashSet<Node>();
+        _types = new HashSet<Node>();
+        _matchesAllTypes = false;
+        _matchesAll = false;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds the triples that the given queries might match to this footprint
+     * @param qWrappers - The query-wrappers (might be null)
+     */
+    public void addQueries(Collection<QueryWrapper> qWrappers) {
+        if (qWrappers == null)
+            return;
+        for (QueryWrapper qWrapper : qWrappers)
+            addQuery(qWrapper);
+    }
+
+    /**
+     * Adds the triples that the given query might match to this footprint
+     * @param qWrapper - The query-wrapper
+     */
+    public void addQuery(QueryWrapper qWrapper) {
+        if (qWrapper.isDynamic())
+            matchAll();
+        else
+            addOp(Algebra.compile(qWrapper.getParsedQuery()));
+    }
+
+    /**
+     * Makes this footprint match all of the triples
+     */
+    public void matchAll() {
+        _matchesAll = true;
+    }
+
+    /**
+     * Returns true iff this footprint matches all of the triples
+     * @return - True iff this footprint matches all of the triples
+     */
+    public boolean matchesAll() {
+        return _matchesAll;
+    }
+
+    /**
+     * Returns true iff the given triple might be matched by one of the queries of this footprint
+     * @param triple - The triple
+     * @return - True iff the given triple might be matched by one of the queries
+     */
+    public boolean matches(Triple triple) {
+        if (_matchesAll)
+            return true;
+        Node predicate = triple.getPredicate();
+        if (predicate.equals(RDF.type.asNode())) {
+            if (_matchesAllTypes)
+                return true;
+            if (_types.isEmpty())
+                return false;
+            return (_closure == null) ? _types.contains(triple.getObject()) : containsAny(_types, _closure.getSuperClasses(triple.getObject()));
+        }
+        if (_predicates.isEmpty())
+            return false;
+        return (_closure == null) ? _predicates.contains(predicate) : containsAny(_predicates, _closure.getSuperProperties(predicate));
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Adds the triple patterns of the given algebra expression (including the ones of EXISTS filters)
+     * @param op - The algebra expression of a query
+     */
+    private void addOp(Op op) {
+        OpWalker.walk(op, new FootprintVisitor());
+    }
+
+    /**
+     * Adds the given triple pattern
+     * @param triple - The triple pattern
+     */
+    private void addPattern(Triple triple) {
+        Node predicate = triple.getPredicate();
+        if (!predicate.isConcrete())
+            matchAll();
+        else if (!predicate.equals(RDF.type.asNode()))
+            _predicates.add(predicate);
+        else if (triple.getObject().isConcrete())
+            _types.add(triple.getObject());
+        else
+            _matchesAllTypes = true;
+    }
+
+    /**
+     * Adds the graph patterns nested in the given expressions (EXISTS and NOT EXISTS)
+     * @param exprs - The expressions (might be null)
+     */
+    private void addExprs(ExprList exprs) {
+        if (exprs == null)
+            return;
+        for (Expr expr : exprs.getList())
+            ExprWalker.walk(new ExprVisitorBase() {
+                @Override
+                public void visit(ExprFunctionOp funcOp) {
+                    addOp(funcOp.getGraphPattern());
+                }
+            }, expr);
+    }
+
+    /**
+     * Returns true iff the given set contains one of the given nodes
+     * @param set - The set
+     * @param nodes - The nodes
+     * @return - True iff the set contains one of the nodes
+     */
+    private static boolean containsAny(Set<Node> set, Set<Node> nodes) {
+        for (Node node : nodes)
+            if (set.contains(node))
+                return true;
+        return false;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Visits the operators of a query and adds their triple patterns to the footprint
+     */
+    private class FootprintVisitor extends OpVisitorBase {
+
+        @Override
+        public void visit(OpBGP opBGP) {
+            for (Triple triple : opBGP.getPattern().getList())
+                addPattern(triple);
+        }
+
+        @Override
+        public void visit(OpTriple opTriple) {
+            addPattern(opTriple.getTriple());
+        }
+
+        @Override
+        public void visit(OpPath opPath) {
+            matchAll();
+        }
+
+        @Override
+        public void visit(OpPropFunc opPropFunc) {
+            matchAll();
+        }
+
+        @Override
+        public void visit(OpFilter opFilter) {
+            addExprs(opFilter.getExprs());
+        }
+
+        @Override
+        public void visit(OpLeftJoin opLeftJoin) {
+            addExprs(opLeftJoin.getExprs());
+        }
+    }
+}
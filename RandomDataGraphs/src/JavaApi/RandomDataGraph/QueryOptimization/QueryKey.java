@@ -0,0 +1,109 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.query.Query;
+
+import java.util.Arrays;
+
+/**
+ * The key of cached query results - a parsed query and (for dynamic queries) the values bound to its dynamic
+ * variables. A dynamic query is parsed only once into a template, so its results are cached by the bound values
+ * rather than by a rewritten query
+ */
+public class QueryKey {
+
+    /**
+     * Class members
+     */
+    private Query _query;
+    private String[] _boundValues;
+    private int _hashCode;
+
+    /**
+     * Constructor of a key of a non-dynamic query
+     * @param query - The parsed query
+     */
+    public QueryKey(Query query) {
+        this(query, null);
+    }
+
+    /**
+     * Constructor of a key of a query whose dynamic variables are bound to the given values
+     * @param query - The parsed query (the query template in case of a dynamic query)
+     * @param boundValues - The values bound to the dynamic variables of the query, by their order in the template
+     * (null for a non-dynamic query)
+     */
+    public QueryKey(Query query, String[] boundValues) {
+        _query = query;
+        _boundValues = boundValues;
+        _hashCode = 31 * query.hashCode() + Arrays.hashCode(boundValues);
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the parsed query of this key
+     * @return - The parsed query of this key
+     */
+    public Query getQuery() {
+        return _query;
+    }
+
+    /**
+     * Returns the values bound to the dynamic variables of the query
+     * @return - The values bound to the dynamic variables of the query (null for a non-dynamic query)
+     */
+    public String[] getBoundValues() {
+        return _boundValues;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof QueryKey))
+            return false;
+        QueryKey other = (QueryKey) o;
+        return _hashCode == other._hashCode
+                && Arrays.equals(_boundValues, other._boundValues)
+                && (_query == other._query || _query.equals(other._query));
+    }
+
+    @Override
+    public int hashCode() {
+        return _hashCode;
+    }
+
+    @Override
+    public String toString() {
+        if (_boundValues == null)
+            return _query.toString();
+        return _query.toString() + Arrays.toString(_boundValues);
+    }
+}
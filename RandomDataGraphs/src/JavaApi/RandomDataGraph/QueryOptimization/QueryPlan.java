@@ -0,0 +1,324 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.ConstantRealSampler;
+import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.IRealNumberSampler;
+import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.RangeRealNumberSampler;
+import JavaApi.Samplers.QuerySamplers.QueryWrapper;
+import JavaApi.Samplers.SamplingMode;
+import com.hp.hpl.jena.rdf.model.Model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The execution plan of the queries of a construction command without dynamic queries: the order in which they are
+ * nested.
+ * The plan is based on the estimated number of results of each query (see CardinalityEstimator), from which it
+ * estimates the number of matchings drawn from each query for each matching of its outer queries, and the number of
+ * times each query is initialized - a query in RANDOM_LOCAL_DISTINCT mode is initialized again for each matching of
+ * its outer queries, the others are initialized once. Each query is executed once, and its sampler is restarted on
+ * the following initializations (see IQuerySampler.restart()). The cost of an order is estimated as the sum of the
+ * executed queries (a fixed overhead plus their results), the restarts and the drawn matchings.
+ * The queries are independent, so each of them returns the same results wherever it's nested, but the matchings drawn
+ * from a query depend on its position: an outer query is sampled once, while an inner one is sampled again for each
+ * matching of its outer queries (or shares its results between them in RANDOM_GLOBAL_DISTINCT mode). Only a query in
+ * RANDOM_LOCAL_DISTINCT mode without a real-number sampler ("for each") draws all of its results wherever it's nested,
+ * so only such queries are reordered - the applied matchings are then the cross product of their results in any
+ * order. The other queries keep their position, and the queries between them are reordered separately. Queries that
+ * share a projected variable aren't reordered either, since the matcher takes the value of a variable from the first
+ * query that has it.
+ */
+public class QueryPlan {
+
+    /**
+     * Consts
+     */
+    // The max number of queries between two fixed queries whose orders are all compared
+    public static final int MAX_REORDERED_QUERIES = 6;
+    // The estimated costs (relatively to producing a single result by a query execution)
+    private static final double EXECUTION_COST = 100;
+    private static final double RESTARTED_RESULT_COST = 0.1;
+    private static final double DRAW_COST = 1;
+
+    /**
+     * Class Members
+     */
+    private SamplingMode[] _modes;
+    // True for each query that draws all of its results wherever it's nested (by original index)
+    private boolean[] _movable;
+    // The estimates of each query (by its original index)
+    private double[] _results;
+    private double[] _draws;
+    // _order[i] is the original index of the query nested at level i+1
+    private int[] _order;
+    // The estimated number of initializations of the query at each level (index 0 holds level 1)
+    private double[] _initializations;
+
+    /**
+     * Constructor
+     * @param modes - The sampling mode of each query
+     * @param movable - True for each query that draws all of its results wherever it's nested
+     * @param results - The estimated number of results of each query
+     * @param draws - The estimated number of matchings drawn from each query for each matching of its outer queries
+     */
+    private QueryPlan(SamplingMode[] modes, boolean[] movable, double[] results, double[] draws) {
+        _modes = modes;
+        _movable = movable;
+        _results = results;
+        _draws = draws;
+        _order = new int[modes.length];
+        for (int i = 0; i < _order.length; i++)
+            _order[i] = i;
+        _initializations = new double[modes.length];
+        estimateCost(_order, _initializations);
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Creates the plan of the given queries of a construction command (without dynamic queries)
+     * @param model - The model on which the queries are executed
+     * @param qWrappers - The ordered query-wrappers of the construction command
+     * @param reorder - True iff the queries may be reordered, otherwise they are kept in the given order
+     * @return - The plan of the given queries
+     * @throws IllegalArgumentException - If one of the queries is dynamic
+     */
+    public static QueryPlan create(Model model, List<QueryWrapper> qWrappers, boolean reorder)
+            throws IllegalArgumentException {
+        int count = qWrappers.size();
+        SamplingMode[] modes = new SamplingMode[count];
+        boolean[] movable = new boolean[count];
+        double[] results = new double[count];
+        double[] draws = new double[count];
+        // A single query is initialized once wherever it is, so there's nothing to estimate
+        CardinalityEstimator estimator = (count > 1) ? new CardinalityEstimator(model) : null;
+        for (int i = 0; i < count; i++) {
+            QueryWrapper qWrapper = qWrappers.get(i);
+            if (qWrapper.isDynamic())
+                throw new IllegalArgumentException("Can't plan a dynamic query: " + qWrapper.getQuery());
+            modes[i] = qWrapper.getMode();
+            movable[i] = modes[i] == SamplingMode.RANDOM_LOCAL_DISTINCT && qWrapper.getRealNumberSampler() == null;
+            if (estimator != null) {
+                results[i] = estimator.estimateResults(qWrapper.getParsedQuery());
+                draws[i] = estimateDraws(qWrapper, results[i]);
+            }
+        }
+
+        QueryPlan plan = new QueryPlan(modes, movable, results, draws);
+        if (reorder && count > 1)
+            plan.reorder(qWrappers);
+        return plan;
+    }
+
+    /**
+     * Returns the given queries ordered by this plan
+     * @param qWrappers - The query-wrappers by their original order (the ones this plan was created for)
+     * @return - The query-wrappers ordered by this plan
+     */
+    public ArrayList<QueryWrapper> getOrderedQueries(List<QueryWrapper> qWrappers) {
+        ArrayList<QueryWrapper> ordered = new ArrayList<QueryWrapper>();
+        for (int index : _order)
+            ordered.add(qWrappers.get(index));
+        return ordered;
+    }
+
+    /**
+     * Returns the original index of the query nested at the given level
+     * @param level - The level of the query (1 for the outer query)
+     * @return - The original index of the query (0 for the first given query)
+     */
+    public int getQueryIndex(int level) {
+        return _order[level - 1];
+    }
+
+    /**
+     * Returns the estimated number of times the query nested at the given level is initialized
+     * @param level - The level of the query (1 for the outer query)
+     * @return - The estimated number of initializations of the query
+     */
+    public double getEstimatedInitializations(int level) {
+        return _initializations[level - 1];
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Orders the queries by their lowest estimated cost. The queries between each two fixed queries (see class
+     * documentation) are ordered separately, by comparing all of their orders (if there are at most
+     * MAX_REORDERED_QUERIES of them)
+     * @param qWrappers - The query-wrappers by their original order
+     */
+    private void reorder(List<QueryWrapper> qWrappers) {
+        int from = 0;
+        while (from < _order.length) {
+            if (!_movable[from]) {
+                from++;
+                continue;
+            }
+            int to = from;
+            while (to < _order.length && _movable[to])
+                to++;
+            if (to - from > 1 && to - from <= MAX_REORDERED_QUERIES && haveDistinctResultVars(qWrappers, from, to))
+                reorderRange(from, to);
+            from = to;
+        }
+        estimateCost(_order, _initializations);
+    }
+
+    /**
+     * Sets the order of the queries at the given range of levels to their order of the lowest estimated cost (the
+     * current order is kept unless another order is cheaper)
+     * @param from - The first level of the range (inclusive, 0 for level 1)
+     * @param to - The last level of the range (exclusive)
+     */
+    private void reorderRange(int from, int to) {
+        int[] candidate = _order.clone();
+        int[] best = _order.clone();
+        double bestCost = estimateCost(best, null);
+        while (nextPermutation(candidate, from, to)) {
+            double cost = estimateCost(candidate, null);
+            // The costs of equivalent orders may differ by rounding errors only
+            if (cost < bestCost * (1 - 1e-9)) {
+                bestCost = cost;
+                best = candidate.clone();
+            }
+        }
+        _order = best;
+    }
+
+    /**
+     * Returns the estimated cost of the given order of the queries (see class documentation)
+     * @param order - The original indexes of the queries by their levels
+     * @param initializations - An array into which the estimated initializations of each level are written (null
+     * if not needed)
+     * @return - The estimated cost of the given order
+     */
+    private double estimateCost(int[] order, double[] initializations) {
+        double cost = 0;
+        // The estimated number of matchings of all of the outer queries
+        double outerMatchings = 1;
+        for (int level = 0; level < order.length; level++) {
+            int query = order[level];
+            double inits;
+            if (level == 0)
+                inits = 1;
+            else if (_modes[query] == SamplingMode.RANDOM_LOCAL_DISTINCT)
+                inits = outerMatchings;
+            else
+                inits = Math.min(outerMatchings, 1);
+            if (initializations != null)
+                initializations[level] = inits;
+
+            double executions = Math.min(inits, 1);
+            cost += executions * (EXECUTION_COST + _results[query]);
+            cost += (inits - executions) * RESTARTED_RESULT_COST * _results[query];
+
+            outerMatchings *= _draws[query];
+            cost += outerMatchings * DRAW_COST;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns true iff the queries at the given range of levels don't share a projected variable
+     * @param qWrappers - The query-wrappers by their original order
+     * @param from - The first level of the range (inclusive, 0 for level 1)
+     * @param to - The last level of the range (exclusive)
+     * @return - True iff the queries at the given range don't share a projected variable
+     */
+    private boolean haveDistinctResultVars(List<QueryWrapper> qWrappers, int from, int to) {
+        HashSet<String> vars = new HashSet<String>();
+        for (int level = from; level < to; level++)
+            for (String var : qWrappers.get(_order[level]).getParsedQuery().getResultVars())
+                if (!vars.add(var))
+                    return false;
+        return true;
+    }
+
+    /**
+     * Returns the estimated number of matchings drawn from the given query for each matching of its outer queries
+     * (the number of results of the query, unless it's limited by its real-number sampler)
+     * @param qWrapper - The query-wrapper
+     * @param results - The estimated number of results of the query
+     * @return - The estimated number of drawn matchings
+     */
+    private static double estimateDraws(QueryWrapper qWrapper, double results) {
+        IRealNumberSampler realNumSampler = qWrapper.getRealNumberSampler();
+        if (realNumSampler == null || results == 0)
+            return results;
+        double mean = Math.min((realNumSampler.getMinVal() + realNumSampler.getMaxVal()) / 2, Integer.MAX_VALUE);
+        // A constant (or range) limits the number of matchings, other samplers give the ratio of the results
+        if (realNumSampler.getClass() == ConstantRealSampler.class || realNumSampler.getClass() == RangeRealNumberSampler.class)
+            return (qWrapper.getMode() == SamplingMode.RANDOM_REPEATABLE) ? mean : Math.min(mean, results);
+        return mean * results;
+    }
+
+    /**
+     * Replaces the given range of the given array by its next permutation in lexicographic order
+     * @param array - The array
+     * @param from - The first index of the range (inclusive)
+     * @param to - The last index of the range (exclusive)
+     * @return - False iff the range was the last permutation (it's then reset to the first one)
+     */
+    private static boolean nextPermutation(int[] array, int from, int to) {
+        int i = to - 2;
+        while (i >= from && array[i] >= array[i + 1])
+            i--;
+        if (i < from) {
+            reverse(array, from, to - 1);
+            return false;
+        }
+        int j = to - 1;
+        while (array[j] <= array[i])
+            j--;
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+        reverse(array, i + 1, to - 1);
+        return true;
+    }
+
+    /**
+     * Reverses the given range of the given array
+     * @param array - The array
+     * @param from - The first index of the range (inclusive)
+     * @param to - The last index of the range (inclusive)
+     */
+    private static void reverse(int[] array, int from, int to) {
+        while (from < to) {
+            int temp = array[from];
+            array[from++] = array[to];
+            array[to--] = temp;
+        }
+    }
+}
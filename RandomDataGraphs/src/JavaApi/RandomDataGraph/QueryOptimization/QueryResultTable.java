@@ -0,0 +1,189 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact table holding the results of a query. Each projected variable is a column, and each node is stored as
+ * its int code in a node dictionary (see NodeDictionary), which may be shared between several tables.
+ * A row is decoded into a QuerySolution only when it's requested (see getSolution()), so the results are sampled by
+ * their row index without creating a QuerySolution per result.
+ */
+public class QueryResultTable {
+
+    /**
+     * Class members
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] _vars;
+    private int[][] _columns;
+    private int _rowCount;
+    private NodeDictionary _dictionary;
+
+    /**
+     * Constructor of an empty table
+     * @param vars - The projected variables of the query (the columns of the table)
+     * @param dictionary - The dictionary used for encoding the nodes
+     */
+    public QueryResultTable(List<String> vars, NodeDictionary dictionary) {
+        _vars = vars.toArray(new String[vars.size()]);
+        _columns = new int[_vars.length][INITIAL_CAPACITY];
+        _rowCount = 0;
+        _dictionary = dictionary;
+    }
+
+    /**
+     * Creates a table holding all of the results of the given result-set (the result-set is consumed)
+     * @param resultSet - The result-set to be read
+     * @param dictionary - The dictionary used for encoding the nodes
+     * @return - A table holding all of the results of the given result-set
+     */
+    public static QueryResultTable fromResultSet(ResultSet resultSet, NodeDictionary dictionary) {
+        QueryResultTable table = new QueryResultTable(resultSet.getResultVars(), dictionary);
+        while (resultSet.hasNext())
+            table.addSolution(resultSet.next());
+        table.trimToSize();
+        return table;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds the given solution as the last row of the table (only the projected variables are kept)
+     * @param solution - The added solution
+     */
+    public void addSolution(QuerySolution solution) {
+        ensureCapacity();
+        for (int col = 0; col < _vars.length; col++)
+            _columns[col][_rowCount] = _dictionary.encode(solution.get(_vars[col]));
+        _rowCount++;
+    }
+
+    /**
+     * Adds the given nodes as the last row of the table
+     * @param row - The node of each variable of the table by the order of getVars() (null for an unbound variable)
+     */
+    public void addRow(RDFNode[] row) {
+        ensureCapacity();
+        for (int col = 0; col < _vars.length; col++)
+            _columns[col][_rowCount] = _dictionary.encode(row[col]);
+        _rowCount++;
+    }
+
+    /**
+     * Returns the solution held in the given row
+     * @param row - The index of the row
+     * @return - The solution held in the given row
+     * @throws IndexOutOfBoundsException - If the given row isn't part of the table
+     */
+    public QuerySolution getSolution(int row) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= _rowCount)
+            throw new IndexOutOfBoundsException("The row: " + row + " isn't part of the table (size: " + _rowCount + ")");
+        QuerySolutionMap solution = new QuerySolutionMap();
+        for (int col = 0; col < _vars.length; col++) {
+            RDFNode node = _dictionary.decode(_columns[col][row]);
+            if (node != null)
+                solution.add(_vars[col], node);
+        }
+        return solution;
+    }
+
+    /**
+     * Returns the number of rows in this table
+     * @return - The number of rows in this table
+     */
+    public int getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * Returns the variables of this table (its columns)
+     * @return - The variables of this table
+     */
+    public String[] getVars() {
+        return _vars;
+    }
+
+    /**
+     * Returns the dictionary used for encoding the nodes of this table
+     * @return - The dictionary used for encoding the nodes of this table
+     */
+    public NodeDictionary getDictionary() {
+        return _dictionary;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes used by the columns of this table (not including the dictionary,
+     * which may be shared)
+     * @return - An estimate of the number of bytes used by the columns of this table
+     */
+    public long getEncodedSize() {
+        return 4L * _vars.length * capacity();
+    }
+
+    /**
+     * Shrinks the columns of this table to its number of rows
+     */
+    public void trimToSize() {
+        if (_rowCount == capacity())
+            return;
+        for (int col = 0; col < _vars.length; col++)
+            _columns[col] = Arrays.copyOf(_columns[col], _rowCount);
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Grows the columns of this table if they can't hold another row
+     */
+    private void ensureCapacity() {
+        if (_rowCount == capacity()) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, capacity() * 2);
+            for (int col = 0; col < _vars.length; col++)
+                _columns[col] = Arrays.copyOf(_columns[col], newCapacity);
+        }
+    }
+
+    /**
+     * Returns the number of rows that can be held without growing the columns
+     * @return - The number of rows that can be held without growing the columns
+     */
+    private int capacity() {
+        return (_vars.length == 0) ? Integer.MAX_VALUE : _columns[0].length;
+    }
+}
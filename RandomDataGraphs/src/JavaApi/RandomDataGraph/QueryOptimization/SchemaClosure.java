@@ -0,0 +1,448 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementOptional;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
+import com.hp.hpl.jena.sparql.syntax.ElementSubQuery;
+import com.hp.hpl.jena.sparql.syntax.ElementTriplesBlock;
+import com.hp.hpl.jena.sparql.syntax.ElementUnion;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The subclass and subproperty closure of one or more RDFS schemas, which replaces an RDFS inference model.
+ * Instead of inferring the types of each resource while querying, the closure is materialized once into the queried
+ * model (each class is a subclass of all of its ancestors and of itself, and the same for properties), and each query
+ * pattern whose class or property has subclasses (subproperties) is rewritten to match them through the closure:
+ *      ?x rdf:type C       ==>     ?x rdf:type ?t . ?t rdfs:subClassOf C
+ *      ?x p ?y             ==>     ?x ?q ?y . ?q rdfs:subPropertyOf p
+ * A resource with several types of the same hierarchy (or two resources related by several subproperties) matches the
+ * rewritten pattern once per type, while the inference model matches the entailed triple once. Hence each rewritten
+ * basic graph pattern is evaluated as a DISTINCT sub-select of the variables of the original pattern:
+ *      { ?x rdf:type C . ?x p ?y }     ==>     { SELECT DISTINCT ?x ?y WHERE { ?x rdf:type ?t . ?t rdfs:subClassOf C .
+ *                                                                             ?x ?q ?y . ?q rdfs:subPropertyOf p } }
+ * which matches exactly the solutions of the original pattern on the inference model, so the results of the query
+ * (including their multiplicity) are the same as the ones of the inference model. An index can't evaluate the
+ * sub-select, so a query evaluated on an index (see IndexedQuery) isn't rewritten, and the index matches the
+ * subclasses and subproperties of its patterns by the closure instead (see getSubClasses() and getSubProperties()).
+ * Entailments of rdfs:domain and rdfs:range aren't part of the closure.
+ */
+public class SchemaClosure {
+
+    /**
+     * Class Members
+     */
+
+    // The prefix of the variables added by the rewriting
+    private static final String CLOSURE_VAR_PREFIX = "grrClosureVar";
+
+    // The closures used by the queried models, each closure is kept as long as its model is referenced
+    private static final Map<Model, SchemaClosure> _closures = new WeakHashMap<Model, SchemaClosure>();
+
+    // class -> its superclasses (including itself), and the same for properties
+    private HashMap<Node, Set<Node>> _superClasses;
+    private HashMap<Node, Set<Node>> _superProperties;
+    // class -> its subclasses (including itself), and the same for properties
+    private HashMap<Node, Set<Node>> _subClasses;
+    private HashMap<Node, Set<Node>> _subProperties;
+    // The classes and properties that have strict subclasses (subproperties)
+    private HashSet<Node> _extendedClasses;
+    private HashSet<Node> _extendedProperties;
+    // The rewritten queries (a query that doesn't have to be rewritten is mapped to itself)
+    private final Map<Query, Query> _rewrittenQueries;
+
+    /**
+     * Constructor of an empty closure
+     */
+    public SchemaClosure() {
+        _superClasses = new HashMap<Node, Set<Node>>();
+        _superProperties = new HashMap<Node, Set<Node>>();
+        _subClasses = new HashMap<Node, Set<Node>>();
+        _subProperties = new HashMap<Node, Set<Node>>();
+        _extendedClasses = new HashSet<Node>();
+        _extendedProperties = new HashSet<Node>();
+        _rewrittenQueries = new WeakHashMap<Query, Query>();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Adds the subclass and subproperty hierarchies of the given schema to this closure
+     * @param schema - The schema model
+     */
+    public synchronized void addSchema(Model schema) {
+        addHierarchy(schema, RDFS.subClassOf, _superClasses, _subClasses, _extendedClasses);
+        addHierarchy(schema, RDFS.subPropertyOf, _superProperties, _subProperties, _extendedProperties);
+        _rewrittenQueries.clear();
+    }
+
+    /**
+     * Adds the closure into the given model and registers it as the closure of the model, so the queries executed on
+     * the model are rewritten by it (see rewrite())
+     * @param model - The queried model
+     */
+    public void applyTo(Model model) {
+        ArrayList<Statement> statements = new ArrayList<Statement>();
+        addClosureStatements(model, RDFS.subClassOf, _superClasses, statements);
+        addClosureStatements(model, RDFS.subPropertyOf, _superProperties, statements);
+        model.add(statements);
+        synchronized (_closures) {
+            _closures.put(model, this);
+        }
+    }
+
+    /**
+     * Stops rewriting the queries executed on the given model (the materialized closure is kept in the model)
+     * @param model - The queried model
+     */
+    public static void release(Model model) {
+        synchronized (_closures) {
+            _closures.remove(model);
+        }
+    }
+
+    /**
+     * Returns the closure registered as the closure of the given model (see applyTo())
+     * @param model - The queried model
+     * @return - The closure of the given model, or null if it has none
+     */
+    public static SchemaClosure getClosure(Model model) {
+        synchronized (_closures) {
+            return _closures.get(model);
+        }
+    }
+
+    /**
+     * Returns the given query rewritten by the closure of the given model (see class documentation)
+     * @param model - The queried model
+     * @param query - The query to be executed on the model
+     * @return - The rewritten query, or the given query if the model has no closure or if no pattern of the query
+     * has to be rewritten
+     */
+    public static Query rewrite(Model model, Query query) {
+        SchemaClosure closure;
+        synchronized (_closures) {
+            closure = _closures.get(model);
+        }
+        return (closure == null) ? query : closure.rewrite(query);
+    }
+
+    /**
+     * Returns the given query rewritten by this closure (see class documentation)
+     * @param query - The query to be rewritten
+     * @return - The rewritten query, or the given query if no pattern of the query has to be rewritten
+     */
+    public synchronized Query rewrite(Query query) {
+        Query rewritten = _rewrittenQueries.get(query);
+        if (rewritten == null) {
+            rewritten = createRewrittenQuery(query);
+            _rewrittenQueries.put(query, rewritten);
+        }
+        return rewritten;
+    }
+
+    /**
+     * Returns the superclasses of the given class (see getAncestors())
+     * @param cls - The class
+     * @return - The superclasses of the given class, including itself
+     */
+    public synchronized Set<Node> getSuperClasses(Node cls) {
+        return getAncestors(_superClasses, cls);
+    }
+
+    /**
+     * Returns the superproperties of the given property (see getAncestors())
+     * @param property - The property
+     * @return - The superproperties of the given property, including itself
+     */
+    public synchronized Set<Node> getSuperProperties(Node property) {
+        return getAncestors(_superProperties, property);
+    }
+
+    /**
+     * Returns the subclasses of the given class, which are matched by a pattern of the class (see class documentation)
+     * @param cls - The class
+     * @return - The subclasses of the given class, including itself
+     */
+    public synchronized Set<Node> getSubClasses(Node cls) {
+        return getAncestors(_subClasses, cls);
+    }
+
+    /**
+     * Returns the subproperties of the given property, which are matched by a pattern of the property (see class
+     * documentation)
+     * @param property - The property
+     * @return - The subproperties of the given property, including itself
+     */
+    public synchronized Set<Node> getSubProperties(Node property) {
+        return getAncestors(_subProperties, property);
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Returns the ancestors of the given node in the given closure
+     * @param closure - The closure which maps each node to its ancestors (including itself)
+     * @param node - The node
+     * @return - The ancestors of the given node, or only the node itself if it isn't part of the hierarchy
+     */
+    private static Set<Node> getAncestors(HashMap<Node, Set<Node>> closure, Node node) {
+        Set<Node> ancestors = closure.get(node);
+        return (ancestors == null) ? Collections.singleton(node) : Collections.unmodifiableSet(ancestors);
+    }
+
+    /**
+     * Adds the transitive closure of the given hierarchy property to the given closure
+     * @param schema - The schema model
+     * @param property - The hierarchy property (rdfs:subClassOf or rdfs:subPropertyOf)
+     * @param closure - The closure which maps each node to its ancestors (including itself)
+     * @param descendants - The closure which maps each node to its descendants (including itself)
+     * @param extended - The nodes that have strict descendants
+     */
+    private static void addHierarchy(Model schema, Property property, HashMap<Node, Set<Node>> closure,
+                                     HashMap<Node, Set<Node>> descendants, HashSet<Node> extended) {
+        // Collect the direct parents of each node (restrictions and other anonymous classes are skipped)
+        HashMap<Node, Set<Node>> parents = new HashMap<Node, Set<Node>>();
+        for (Map.Entry<Node, Set<Node>> entry : closure.entrySet())
+            parents.put(entry.getKey(), new HashSet<Node>(entry.getValue()));
+        StmtIterator iter = schema.listStatements(null, property, (RDFNode) null);
+        try {
+            while (iter.hasNext()) {
+                Triple triple = iter.nextStatement().asTriple();
+                if (!triple.getSubject().isURI() || !triple.getObject().isURI())
+                    continue;
+                addTo(parents, triple.getSubject(), triple.getObject());
+                addTo(parents, triple.getObject(), triple.getObject());
+            }
+        }
+        finally {
+            iter.close();
+        }
+
+        // The ancestors of each node are the nodes reachable by its parents
+        for (Node node : parents.keySet()) {
+            Set<Node> ancestors = new HashSet<Node>();
+            ArrayList<Node> stack = new ArrayList<Node>();
+            stack.add(node);
+            while (!stack.isEmpty()) {
+                Node current = stack.remove(stack.size() - 1);
+                if (!ancestors.add(current))
+                    continue;
+                Set<Node> currentParents = parents.get(current);
+                if (currentParents != null)
+                    stack.addAll(currentParents);
+            }
+            closure.put(node, ancestors);
+            for (Node ancestor : ancestors)
+                if (!ancestor.equals(node))
+                    extended.add(ancestor);
+        }
+
+        // The descendants are the inverse of the ancestors
+        descendants.clear();
+        for (Map.Entry<Node, Set<Node>> entry : closure.entrySet())
+            for (Node ancestor : entry.getValue())
+                addTo(descendants, ancestor, entry.getKey());
+    }
+
+    /**
+     * Adds the given value to the set of the given key
+     * @param map - The map of sets
+     * @param key - The key
+     * @param value - The added value
+     */
+    private static void addTo(HashMap<Node, Set<Node>> map, Node key, Node value) {
+        Set<Node> values = map.get(key);
+        if (values == null) {
+            values = new HashSet<Node>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Adds a statement for each pair of a node and one of its ancestors (including itself) in the given closure
+     * @param model - The model used for creating the statements
+     * @param property - The hierarchy property (rdfs:subClassOf or rdfs:subPropertyOf)
+     * @param closure - The closure which maps each node to its ancestors
+     * @param statements - The list to which the statements are added
+     */
+    private static void addClosureStatements(Model model, Property property, HashMap<Node, Set<Node>> closure, List<Statement> statements) {
+        for (Map.Entry<Node, Set<Node>> entry : closure.entrySet())
+            for (Node ancestor : entry.getValue())
+                statements.add(model.createStatement(
+                        model.createResource(entry.getKey().getURI()),
+                        property,
+                        model.createResource(ancestor.getURI())));
+    }
+
+    /**
+     * Creates the rewritten form of the given query (see class documentation)
+     * @param query - The query to be rewritten
+     * @return - The rewritten query, or the given query if no pattern of the query has to be rewritten
+     */
+    private Query createRewrittenQuery(Query query) {
+        if (query.getQueryPattern() == null)
+            return query;
+        List<String> resultVars = query.getResultVars();
+        int[] varCount = {0};
+        Element pattern = rewriteElement(query.getQueryPattern(), varCount);
+        if (varCount[0] == 0)
+            return query;
+
+        Query rewritten = query.cloneQuery();
+        rewritten.setQueryPattern(pattern);
+        // The added variables mustn't be projected
+        if (rewritten.isQueryResultStar()) {
+            rewritten.setQueryResultStar(false);
+            for (String var : resultVars)
+                rewritten.addResultVar(var);
+        }
+        return rewritten;
+    }
+
+    /**
+     * Returns the given element in which each triple pattern that has to be rewritten is replaced (see class
+     * documentation). Elements other than groups, triple blocks, optionals and unions are kept as is
+     * @param element - The element to be rewritten
+     * @param varCount - The number of variables added so far (updated by this method)
+     * @return - The rewritten element (a new instance, the given element isn't modified)
+     */
+    private Element rewriteElement(Element element, int[] varCount) {
+        if (element instanceof ElementGroup) {
+            ElementGroup group = new ElementGroup();
+            for (Element child : ((ElementGroup) element).getElements())
+                group.addElement(rewriteElement(child, varCount));
+            return group;
+        }
+        if (element instanceof ElementOptional)
+            return new ElementOptional(rewriteElement(((ElementOptional) element).getOptionalElement(), varCount));
+        if (element instanceof ElementUnion) {
+            ElementUnion union = new ElementUnion();
+            for (Element child : ((ElementUnion) element).getElements())
+                union.addElement(rewriteElement(child, varCount));
+            return union;
+        }
+        int blockVarCount = varCount[0];
+        if (element instanceof ElementPathBlock) {
+            ElementPathBlock block = new ElementPathBlock();
+            for (TriplePath path : ((ElementPathBlock) element).getPattern().getList()) {
+                if (path.isTriple())
+                    for (Triple triple : rewriteTriple(path.asTriple(), varCount))
+                        block.addTriple(triple);
+                else
+                    block.addTriplePath(path);
+            }
+            return (varCount[0] == blockVarCount) ? element : createDistinctBlock(element, block);
+        }
+        if (element instanceof ElementTriplesBlock) {
+            ElementTriplesBlock block = new ElementTriplesBlock();
+            for (Triple triple : ((ElementTriplesBlock) element).getPattern().getList())
+                for (Triple rewritten : rewriteTriple(triple, varCount))
+                    block.addTriple(rewritten);
+            return (varCount[0] == blockVarCount) ? element : createDistinctBlock(element, block);
+        }
+        return element;
+    }
+
+    /**
+     * Returns a sub-select which matches the solutions of the given original block, by projecting the variables of
+     * the original block from the solutions of the rewritten one (see class documentation)
+     * @param original - The original basic graph pattern
+     * @param rewritten - The rewritten basic graph pattern
+     * @return - The sub-select that replaces the original block
+     */
+    private static Element createDistinctBlock(Element original, Element rewritten) {
+        ElementGroup pattern = new ElementGroup();
+        pattern.addElement(rewritten);
+        Query subQuery = new Query();
+        subQuery.setQuerySelectType();
+        subQuery.setQueryPattern(pattern);
+        for (Var var : PatternVars.vars(original))
+            if (var.isNamedVar())
+                subQuery.addResultVar(var);
+        if (subQuery.getProjectVars().isEmpty()) {
+            // A pattern without variables has a single (empty) solution iff it's matched
+            subQuery.setQueryResultStar(true);
+            subQuery.setLimit(1);
+        }
+        else
+            subQuery.setDistinct(true);
+        return new ElementSubQuery(subQuery);
+    }
+
+    /**
+     * Returns the triples that replace the given triple pattern (see class documentation)
+     * @param triple - The triple pattern
+     * @param varCount - The number of variables added so far (updated by this method)
+     * @return - The triples that replace the given triple (only the given triple if it isn't rewritten)
+     */
+    private List<Triple> rewriteTriple(Triple triple, int[] varCount) {
+        ArrayList<Triple> triples = new ArrayList<Triple>();
+        Node predicate = triple.getPredicate();
+        Node object = triple.getObject();
+        if (predicate.equals(RDF.type.asNode()) && _extendedClasses.contains(object)) {
+            Var type = Var.alloc(CLOSURE_VAR_PREFIX + varCount[0]++);
+            triples.add(new Triple(triple.getSubject(), predicate, type));
+            triples.add(new Triple(type, RDFS.subClassOf.asNode(), object));
+        }
+        else if (_extendedProperties.contains(predicate)) {
+            Var property = Var.alloc(CLOSURE_VAR_PREFIX + varCount[0]++);
+            triples.add(new Triple(triple.getSubject(), property, object));
+            triples.add(new Triple(property, RDFS.subPropertyOf.asNode(), predicate));
+        }
+        else
+            triples.add(triple);
+        return triples;
+    }
+}
@@ -0,0 +1,449 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.QueryOptimization;
+
+import com.hp.hpl.jena.graph.GraphEvents;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.InfModel;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of the triples of a model, which is used for evaluating simple queries (see IndexedQuery)
+ * without executing them by ARQ.
+ * Each node is encoded by an int code, and the triples are held as int adjacency lists that are partitioned by their
+ * predicate: for each predicate, the objects of each subject (subject-object) and the subjects of each object
+ * (object-subject). For the rdf:type predicate the object-subject lists are the lists of subjects of each type.
+ * The index registers itself as a listener of the model, so it's updated incrementally whenever triples are added to
+ * the model (or removed from it).
+ * Inference models aren't indexed, since their entailed triples are never added to the model.
+ */
+public class TripleIndex {
+
+    /**
+     * Class Members
+     */
+
+    // The code of a node that isn't part of the index
+    public static final int NO_CODE = -1;
+
+    // The indexes of the models, each index is kept as long as its model is referenced
+    private static final Map<Model, TripleIndex> _indexes = new WeakHashMap<Model, TripleIndex>();
+
+    private HashMap<Node, Integer> _codes;
+    private ArrayList<Node> _nodes;
+    // predicate -> subject -> objects
+    private HashMap<Integer, HashMap<Integer, IntList>> _subjectObjects;
+    // predicate -> object -> subjects
+    private HashMap<Integer, HashMap<Integer, IntList>> _objectSubjects;
+    // predicate -> number of triples
+    private HashMap<Integer, Integer> _predicateCounts;
+    private long _tripleCount;
+    // True iff the index is out of sync with its model (e.g. after all of the triples were removed at once)
+    private volatile boolean _isStale;
+    private final ReadWriteLock _lock;
+    private final IndexListener _listener;
+
+    /**
+     * Constructor of an empty index
+     */
+    private TripleIndex() {
+        _lock = new ReentrantReadWriteLock();
+        _listener = new IndexListener();
+        clear();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the index of the given model, while creating (and registering) it if the model isn't indexed yet
+     * @param model - The indexed model
+     * @return - The index of the given model, or null if the model is an inference model (which isn't indexed)
+     */
+    public static TripleIndex forModel(Model model) {
+        if (model instanceof InfModel)
+            return null;
+        synchronized (_indexes) {
+            TripleIndex index = _indexes.get(model);
+            if (index == null) {
+                index = new TripleIndex();
+                model.register(index._listener);
+                index.build(model);
+                _indexes.put(model, index);
+            }
+            else if (index._isStale)
+                index.build(model);
+            return index;
+        }
+    }
+
+    /**
+     * Returns the index of the given model if it was created (see forModel())
+     * @param model - The indexed model
+     * @return - The index of the given model, or null if the model isn't indexed
+     */
+    public static TripleIndex getIndex(Model model) {
+        synchronized (_indexes) {
+            TripleIndex index = _indexes.get(model);
+            if (index != null && index._isStale)
+                index.build(model);
+            return index;
+        }
+    }
+
+    /**
+     * Stops indexing the given model (if it's indexed)
+     * @param model - The indexed model
+     */
+    public static void release(Model model) {
+        synchronized (_indexes) {
+            TripleIndex index = _indexes.remove(model);
+            if (index != null)
+                model.unregister(index._listener);
+        }
+    }
+
+    /**
+     * Acquires the read lock of the index. The index isn't updated while it's held, so the lists returned by this
+     * index can be iterated. Must be followed by a call to endRead()
+     */
+    public void beginRead() {
+        _lock.readLock().lock();
+    }
+
+    /**
+     * Releases the read lock of the index (see beginRead())
+     */
+    public void endRead() {
+        _lock.readLock().unlock();
+    }
+
+    /**
+     * Returns the code of the given node
+     * @param node - The node
+     * @return - The code of the given node, or NO_CODE if the node isn't part of any indexed triple
+     */
+    public int getCode(Node node) {
+        Integer code = _codes.get(node);
+        return (code == null) ? NO_CODE : code;
+    }
+
+    /**
+     * Returns the node of the given code
+     * @param code - The code of the node
+     * @return - The node of the given code
+     */
+    public Node getNode(int code) {
+        return _nodes.get(code);
+    }
+
+    /**
+     * Returns the objects of the triples with the given predicate and subject
+     * @param predicate - The code of the predicate
+     * @param subject - The code of the subject
+     * @return - The objects of the triples with the given predicate and subject (null if there are none)
+     */
+    public IntList getObjects(int predicate, int subject) {
+        HashMap<Integer, IntList> adjacency = _subjectObjects.get(predicate);
+        return (adjacency == null) ? null : adjacency.get(subject);
+    }
+
+    /**
+     * Returns the subjects of the triples with the given predicate and object (e.g. the subjects of a type)
+     * @param predicate - The code of the predicate
+     * @param object - The code of the object
+     * @return - The subjects of the triples with the given predicate and object (null if there are none)
+     */
+    public IntList getSubjects(int predicate, int object) {
+        HashMap<Integer, IntList> adjacency = _objectSubjects.get(predicate);
+        return (adjacency == null) ? null : adjacency.get(object);
+    }
+
+    /**
+     * Returns the mapping of each subject to its objects, for the triples with the given predicate
+     * @param predicate - The code of the predicate
+     * @return - The mapping of each subject to its objects (an empty mapping if there are no such triples)
+     */
+    public Map<Integer, IntList> getSubjectObjects(int predicate) {
+        HashMap<Integer, IntList> adjacency = _subjectObjects.get(predicate);
+        return (adjacency == null) ? Collections.<Integer, IntList>emptyMap() : adjacency;
+    }
+
+    /**
+     * Returns true iff the index holds the given triple
+     * @param subject - The code of the subject
+     * @param predicate - The code of the predicate
+     * @param object - The code of the object
+     * @return - True iff the index holds the given triple
+     */
+    public boolean contains(int subject, int predicate, int object) {
+        IntList objects = getObjects(predicate, subject);
+        return objects != null && objects.contains(object);
+    }
+
+    /**
+     * Returns the number of triples with the given predicate
+     * @param predicate - The code of the predicate
+     * @return - The number of triples with the given predicate
+     */
+    public int getPredicateCount(int predicate) {
+        Integer count = _predicateCounts.get(predicate);
+        return (count == null) ? 0 : count;
+    }
+
+    /**
+     * Returns the number of triples held by this index
+     * @return - The number of triples held by this index
+     */
+    public long getTripleCount() {
+        return _tripleCount;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Clears the index and adds all of the triples of the given model
+     * @param model - The indexed model
+     */
+    private void build(Model model) {
+        _lock.writeLock().lock();
+        try {
+            clear();
+            StmtIterator iter = model.listStatements();
+            try {
+                while (iter.hasNext())
+                    add(iter.nextStatement().asTriple());
+            }
+            finally {
+                iter.close();
+            }
+            _isStale = false;
+        }
+        finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all of the triples (and nodes) of the index
+     */
+    private void clear() {
+        _codes = new HashMap<Node, Integer>();
+        _nodes = new ArrayList<Node>();
+        _subjectObjects = new HashMap<Integer, HashMap<Integer, IntList>>();
+        _objectSubjects = new HashMap<Integer, HashMap<Integer, IntList>>();
+        _predicateCounts = new HashMap<Integer, Integer>();
+        _tripleCount = 0;
+    }
+
+    /**
+     * Adds the given triple to the index (unless it's already held by it). The write lock must be held
+     * @param triple - The added triple
+     */
+    private void add(Triple triple) {
+        int s = encode(triple.getSubject());
+        int p = encode(triple.getPredicate());
+        int o = encode(triple.getObject());
+        // The model notifies its listeners even when an existing triple is added again
+        if (!getList(_subjectObjects, p, s, true).addIfAbsent(o))
+            return;
+        getList(_objectSubjects, p, o, true).add(s);
+        _predicateCounts.put(p, getPredicateCount(p) + 1);
+        _tripleCount++;
+    }
+
+    /**
+     * Removes the given triple from the index (if it's held by it). The write lock must be held
+     * @param triple - The removed triple
+     */
+    private void remove(Triple triple) {
+        int s = getCode(triple.getSubject());
+        int p = getCode(triple.getPredicate());
+        int o = getCode(triple.getObject());
+        if (s == NO_CODE || p == NO_CODE || o == NO_CODE)
+            return;
+        IntList objects = getList(_subjectObjects, p, s, false);
+        if (objects == null || !objects.remove(o))
+            return;
+        getList(_objectSubjects, p, o, false).remove(s);
+        _predicateCounts.put(p, getPredicateCount(p) - 1);
+        _tripleCount--;
+    }
+
+    /**
+     * Returns the code of the given node, while adding it to the index if needed
+     * @param node - The node
+     * @return - The code of the given node
+     */
+    private int encode(Node node) {
+        Integer code = _codes.get(node);
+        if (code == null) {
+            code = _nodes.size();
+            _codes.put(node, code);
+            _nodes.add(node);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the adjacency list of the given key in the given predicate-partitioned adjacency
+     * @param adjacency - The predicate-partitioned adjacency (subject-object or object-subject)
+     * @param predicate - The code of the predicate
+     * @param key - The code of the node whose list is returned
+     * @param create - True iff a missing list should be created
+     * @return - The adjacency list of the given key (null if it's missing and shouldn't be created)
+     */
+    private static IntList getList(HashMap<Integer, HashMap<Integer, IntList>> adjacency, int predicate, int key, boolean create) {
+        HashMap<Integer, IntList> lists = adjacency.get(predicate);
+        if (lists == null) {
+            if (!create)
+                return null;
+            lists = new HashMap<Integer, IntList>();
+            adjacency.put(predicate, lists);
+        }
+        IntList list = lists.get(key);
+        if (list == null && create) {
+            list = new IntList();
+            lists.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * Inner classes
+     */
+
+    /**
+     * A growable list of ints (node codes)
+     */
+    public static class IntList {
+
+        private int[] _values = new int[2];
+        private int _size = 0;
+
+        /**
+         * Returns the number of values in the list
+         * @return - The number of values in the list
+         */
+        public int size() {
+            return _size;
+        }
+
+        /**
+         * Returns the value at the given position
+         * @param i - The position of the value
+         * @return - The value at the given position
+         */
+        public int get(int i) {
+            return _values[i];
+        }
+
+        /**
+         * Returns true iff the list holds the given value
+         * @param value - The value
+         * @return - True iff the list holds the given value
+         */
+        public boolean contains(int value) {
+            for (int i = 0; i < _size; i++)
+                if (_values[i] == value)
+                    return true;
+            return false;
+        }
+
+        private void add(int value) {
+            if (_size == _values.length)
+                _values = Arrays.copyOf(_values, _size * 2);
+            _values[_size++] = value;
+        }
+
+        private boolean addIfAbsent(int value) {
+            if (contains(value))
+                return false;
+            add(value);
+            return true;
+        }
+
+        private boolean remove(int value) {
+            for (int i = 0; i < _size; i++)
+                if (_values[i] == value) {
+                    _values[i] = _values[--_size];
+                    return true;
+                }
+            return false;
+        }
+    }
+
+    /**
+     * Keeps the index updated with the changes of its model
+     */
+    private class IndexListener extends StatementListener {
+
+        @Override
+        public void addedStatement(Statement s) {
+            _lock.writeLock().lock();
+            try {
+                add(s.asTriple());
+            }
+            finally {
+                _lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void removedStatement(Statement s) {
+            _lock.writeLock().lock();
+            try {
+                remove(s.asTriple());
+            }
+            finally {
+                _lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void notifyEvent(Model m, Object event) {
+            // Bulk removals (e.g. removeAll()) aren't notified per statement, so the index is rebuilt when it's used
+            if (event instanceof GraphEvents && !GraphEvents.startRead.equals(event) && !GraphEvents.finishRead.equals(event))
+                _isStale = true;
+        }
+    }
+}
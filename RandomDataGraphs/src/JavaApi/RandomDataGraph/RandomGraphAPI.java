@@ -27,18 +27,35 @@ package JavaApi.RandomDataGraph;
 
 import Examples.Utils.ExpLogger;
 import JavaApi.RandomDataGraph.Matchers.IMatcher;
+import JavaApi.RandomDataGraph.Metrics.ConstructionMetrics;
+import JavaApi.RandomDataGraph.Metrics.GenerationMetrics;
 import JavaApi.RandomDataGraph.Patterns.ConstructionPattern;
 import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryFootprint;
 import JavaApi.RandomDataGraph.QueryOptimization.QueryModeParamsWrapper;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryPlan;
+import JavaApi.RandomDataGraph.QueryOptimization.TripleIndex;
 import JavaApi.RandomDataGraph.RandomDataGraphExceptions.RdfNodeExistsInModelException;
+import JavaApi.RandomDataGraph.TripleSinks.BatchedTripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.BulkLoadTripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.FileTripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.ITripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.ModelTripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.ShardTripleSink;
+import JavaApi.RandomDataGraph.TripleSinks.SyncingTripleSink;
 import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.INaturalNumberSampler;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.PartitionedNumberSampler;
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+import JavaApi.Samplers.NumberSamplers.SplitMixRandom;
 import JavaApi.Samplers.QuerySamplers.IQuerySampler;
 import JavaApi.Samplers.QuerySamplers.QueryWrapper;
 import JavaApi.Samplers.QuerySamplers.StdQuerySamplerFactory;
+import JavaApi.Samplers.SamplerFunctions.SamplerFunction;
 import JavaApi.Samplers.SamplingMode;
 import RdfApi.QueryOptimizationMode;
+import StorageWrappers.IDBWrapper;
+import StorageWrappers.NTriplesWriter;
 import com.hp.hpl.jena.query.Query;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -48,17 +65,451 @@ import com.hp.hpl.jena.sparql.syntax.Element;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Java API that implements the logic and algorithm of the GRR system (see relevant paper and documentation)
  */
 public class RandomGraphAPI {
 
+    /**
+     * Class Members
+     */
+
+    // A dynamic batch size which means that each dynamic query is executed for each outer matching separately
+    public static final int NO_DYNAMIC_BATCHING = 0;
+    // A number of pipeline consumers which means that construction commands aren't pipelined
+    public static final int NO_PIPELINING = 0;
+    // The default number of matchings that the producer of a pipelined command queues ahead of its consumers
+    public static final int DEFAULT_PIPELINE_QUEUE_SIZE = 1024;
+    // The time (in milliseconds) the producer of a pipelined command waits on a full queue before checking whether
+    // its consumers failed
+    private static final long PIPELINE_POLL_MILLIS = 100;
+
+    // The number of workers that apply a construction command (1 means that the command is applied sequentially)
+    private int _parallelism;
+    // The number of consumers that apply the construction pattern of a pipelined command (NO_PIPELINING means that
+    // the commands aren't pipelined)
+    private int _pipelineConsumers;
+    // The max number of matchings queued between the producer and the consumers of a pipelined command
+    private int _pipelineQueueSize;
+    // The number of created triples after which they are flushed into the model (BatchedTripleSink.UNBOUNDED means
+    // that they are added to the model only when the construction command ends)
+    private int _sinkBatchSize;
+    // The max number of results of the first query held while streaming them (StdQuerySamplerFactory.NO_STREAMING
+    // means that all of the results are held)
+    private int _streamingWindowSize;
+    // The memory budget (in bytes) of the query cache of each construction command in BOUNDED_CACHE mode
+    private long _cacheMemoryBudget;
+    // The number of outer matchings for which a dynamic inner query is executed at once (NO_DYNAMIC_BATCHING means
+    // that it's executed for each matching separately)
+    private int _dynamicBatchSize;
+    // True iff the queried models are indexed, so simple queries are evaluated on the index instead of by ARQ
+    private boolean _nativeIndexing;
+    // True iff the queries of construction commands without dynamic queries are reordered by their estimated cost
+    private boolean _queryReordering;
+    // When set, the triples of each construction command are flushed into this DB through its bulk-loading path
+    private IDBWrapper _bulkLoader;
+    // When set, this DB is synced while the construction commands write into it and whenever a command ends
+    private IDBWrapper _syncedDB;
+    // When set, each batch of created triples is recorded in this DB before it's stored (see setJournal())
+    private IDBWrapper _journal;
+    // When set, the created triples are written into this output instead of the models (see setOutputWriter())
+    private NTriplesWriter _outputWriter;
+    // The footprint of the triples that are kept in the models while writing into the output (null for all)
+    private QueryFootprint _keptFootprint;
+    // When set, the metrics of each construction command are recorded into this registry when the command ends
+    private GenerationMetrics _metrics;
+
+    /**
+     * Constructors
+     */
+
+    /**
+     * Default constructor - construction commands are applied sequentially
+     */
+    public RandomGraphAPI() {
+        this(1);
+    }
+
+    /**
+     * Constructor that sets the number of workers used for applying each construction command
+     * @param parallelism - The number of workers (see setParallelism())
+     */
+    public RandomGraphAPI(int parallelism) {
+        setParallelism(parallelism);
+        _pipelineConsumers = NO_PIPELINING;
+        _pipelineQueueSize = DEFAULT_PIPELINE_QUEUE_SIZE;
+        _sinkBatchSize = BatchedTripleSink.UNBOUNDED;
+        _streamingWindowSize = StdQuerySamplerFactory.NO_STREAMING;
+        _cacheMemoryBudget = QueryCache.DEFAULT_MEMORY_BUDGET;
+        _dynamicBatchSize = NO_DYNAMIC_BATCHING;
+        _nativeIndexing = false;
+        _queryReordering = false;
+        _bulkLoader = null;
+        _syncedDB = null;
+        _journal = null;
+        _outputWriter = null;
+        _keptFootprint = null;
+        _metrics = null;
+    }
+
     /**
      * Public Methods - API
      */
 
+    /**
+     * Sets the number of workers used for applying a construction command (without dynamic queries).
+     * When bigger than 1, the matchings of the first (outer) query are split between the workers, each applying the
+     * rest of the command with its own inner q-samplers, and flushing its triples into the triple-sink in batches
+     * (see ShardTripleSink). Each worker draws from its own partition of the d-samplers and n-sampler (see
+     * SamplerFunction.partition()), so their sampling mode (e.g. global-distinct) is kept across all workers, and
+     * the created triples are reproducible for a seed and a number of workers (see setSeed()).
+     * Commands with an inner query in global-distinct mode are always applied sequentially, since such a query shares
+     * its results between all of the outer matchings.
+     * @param parallelism - The number of workers (1 means sequential construction)
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    public void setParallelism(int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be a positive number: " + parallelism);
+        _parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of workers used for applying a construction command
+     * @return - The number of workers used for applying a construction command
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * Sets the number of consumers used for pipelining a construction command (without dynamic queries), so the
+     * execution of its queries overlaps with the application of its construction pattern.
+     * When set, the calling thread is the producer - it runs and samples the q-samplers and queues each matching of
+     * all of the queries (with the number of times to apply the pattern on it), while the consumers take the queued
+     * matchings and apply their own copy of the construction pattern into their own shard of the command's triple-sink
+     * (see ShardTripleSink). Each shard flushes its triples into the triple-sink in batches of the sink batch size (see
+     * setSinkBatchSize()) while the command runs, so the memory held by a consumer is bounded and nothing is merged
+     * when the command ends. The producer queries the model only while no batch is being flushed. Since the producer
+     * runs all of the queries, any sampling mode is supported. A pipelined command isn't split between workers (see
+     * setParallelism()).
+     * Each consumer draws from its own partition of the d-samplers (see SamplerFunction.partition()), so their sampling
+     * mode is kept across all of the consumers. The matchings are taken by the consumers in scheduling order, so with
+     * more than one consumer the labels given to the new nodes of a matching aren't reproducible for a seed (see
+     * setSeed())
+     * @param consumers - The number of consumers (NO_PIPELINING for applying the commands without a pipeline)
+     * @throws IllegalArgumentException - If the given number is negative
+     */
+    public void setPipelineConsumers(int consumers) throws IllegalArgumentException {
+        if (consumers < 0)
+            throw new IllegalArgumentException("Negative number of consumers: " + consumers + " is not valid");
+        _pipelineConsumers = consumers;
+    }
+
+    /**
+     * Returns the number of consumers used for pipelining a construction command
+     * @return - The number of consumers (NO_PIPELINING if the commands aren't pipelined)
+     */
+    public int getPipelineConsumers() {
+        return _pipelineConsumers;
+    }
+
+    /**
+     * Sets the max number of matchings queued between the producer and the consumers of a pipelined command (see
+     * setPipelineConsumers()). The producer waits while the queue is full, which bounds the memory held by matchings
+     * that weren't applied yet
+     * @param queueSize - The max number of queued matchings
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    public void setPipelineQueueSize(int queueSize) throws IllegalArgumentException {
+        if (queueSize < 1)
+            throw new IllegalArgumentException("The queue size must be a positive number: " + queueSize);
+        _pipelineQueueSize = queueSize;
+    }
+
+    /**
+     * Returns the max number of matchings queued between the producer and the consumers of a pipelined command
+     * @return - The max number of queued matchings
+     */
+    public int getPipelineQueueSize() {
+        return _pipelineQueueSize;
+    }
+
+    /**
+     * Sets the number of created triples after which they are flushed into the model while a construction command
+     * is applied, which keeps the memory used by the command bounded. By default (BatchedTripleSink.UNBOUNDED) all of
+     * the created triples are held until the command ends and only then added to the model.
+     * The triples are flushed during the command only if none of its queries is executed again after the first
+     * triples were created (a command without dynamic queries, whose inner queries are restarted rather than executed
+     * again), since such a query must not see the changes of the command itself. Otherwise the command falls back to
+     * holding all of its triples.
+     * @param batchSize - The number of triples after which they are flushed (BatchedTripleSink.UNBOUNDED to disable)
+     * @throws IllegalArgumentException - If the given number is negative
+     */
+    public void setSinkBatchSize(int batchSize) throws IllegalArgumentException {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Negative batch size: " + batchSize + " is not valid");
+        _sinkBatchSize = batchSize;
+    }
+
+    /**
+     * Sets the DB into which the triples created by each construction command are flushed through its bulk-loading
+     * path (see IDBWrapper.bulkLoad()), instead of being added to the model triple by triple. The triples are flushed
+     * in batches as set by setSinkBatchSize(), or once when the command ends.
+     * Only models backed by the given DB are updated through it (see IDBWrapper.isDbBasedModel()), any other model
+     * (e.g. an inference model, whose inferences aren't updated by changes that bypass it) is updated directly
+     * @param dbw - The DB backing the updated models (null for adding the triples to the models directly)
+     */
+    public void setBulkLoader(IDBWrapper dbw) {
+        _bulkLoader = dbw;
+    }
+
+    /**
+     * Returns the DB into which the created triples are bulk-loaded
+     * @return - The DB into which the created triples are bulk-loaded (null if they're added to the models directly)
+     */
+    public IDBWrapper getBulkLoader() {
+        return _bulkLoader;
+    }
+
+    /**
+     * Sets the DB backing the updated models, which is synced while a construction command writes into it (according
+     * to the sync interval of the DB, see IDBWrapper.setSyncInterval()) and whenever a construction command ends, so
+     * all of the triples of a finished command are stored
+     * @param dbw - The DB backing the updated models (null for not syncing)
+     */
+    public void setSyncedDB(IDBWrapper dbw) {
+        _syncedDB = dbw;
+    }
+
+    /**
+     * Returns the DB which is synced by the construction commands
+     * @return - The DB which is synced by the construction commands (null if none)
+     */
+    public IDBWrapper getSyncedDB() {
+        return _syncedDB;
+    }
+
+    /**
+     * Sets the DB in which each batch of created triples is recorded before it's stored (see
+     * IDBWrapper.logUncommitted()), so the triples of a command that didn't end can be rolled back. Recording a batch
+     * writes it into the DB folder a second time, so it should be set only if a stopped generation may be resumed
+     * @param dbw - The DB backing the updated models (null for not recording the batches)
+     */
+    public void setJournal(IDBWrapper dbw) {
+        _journal = dbw;
+    }
+
+    /**
+     * Returns the DB in which the batches of created triples are recorded
+     * @return - The DB in which the batches of created triples are recorded (null if they aren't recorded)
+     */
+    public IDBWrapper getJournal() {
+        return _journal;
+    }
+
+    /**
+     * Sets the output into which the triples created by each construction command are written directly (see
+     * FileTripleSink), instead of being stored in the updated models. Only the triples matched by the footprint set by
+     * setKeptFootprint() are added to the models, so they hold only the state needed by the queries of the next
+     * commands. The bulk-loader, synced DB and journal aren't used while an output is set
+     * @param writer - The writer of the output (null for storing the created triples in the models)
+     */
+    public void setOutputWriter(NTriplesWriter writer) {
+        _outputWriter = writer;
+    }
+
+    /**
+     * Returns the output into which the created triples are written directly
+     * @return - The writer of the output (null if the created triples are stored in the models)
+     */
+    public NTriplesWriter getOutputWriter() {
+        return _outputWriter;
+    }
+
+    /**
+     * Sets the footprint of the triples that are added to the updated models while the created triples are written
+     * into an output (see setOutputWriter()). It should match all of the triples that the queries of the next
+     * construction commands might match
+     * @param footprint - The footprint of the kept triples (null for keeping all of the triples)
+     */
+    public void setKeptFootprint(QueryFootprint footprint) {
+        _keptFootprint = footprint;
+    }
+
+    /**
+     * Returns the footprint of the triples that are added to the updated models while writing into an output
+     * @return - The footprint of the kept triples (null if all of the triples are kept)
+     */
+    public QueryFootprint getKeptFootprint() {
+        return _keptFootprint;
+    }
+
+    /**
+     * Returns the number of created triples after which they are flushed into the model
+     * @return - The number of created triples after which they are flushed (BatchedTripleSink.UNBOUNDED if disabled)
+     */
+    public int getSinkBatchSize() {
+        return _sinkBatchSize;
+    }
+
+    /**
+     * Sets the max number of results of the first query of a construction command that are held at once. If set, the
+     * results of a first query that returns all of its results in global-distinct mode are streamed from the
+     * result-set in a randomized order (see StdQuerySamplerStreamingImpl) instead of being read into memory at once.
+     * By default (StdQuerySamplerFactory.NO_STREAMING) all of the results are held.
+     * Since the model can't be updated while its results are streamed, such a command holds all of its triples until
+     * it ends (see setSinkBatchSize())
+     * @param windowSize - The max number of held results (StdQuerySamplerFactory.NO_STREAMING to disable streaming)
+     * @throws IllegalArgumentException - If the given number is negative
+     */
+    public void setStreamingWindowSize(int windowSize) throws IllegalArgumentException {
+        if (windowSize < 0)
+            throw new IllegalArgumentException("Negative window size: " + windowSize + " is not valid");
+        _streamingWindowSize = windowSize;
+    }
+
+    /**
+     * Returns the max number of results of the first query of a construction command that are held at once
+     * @return - The max number of held results (StdQuerySamplerFactory.NO_STREAMING if streaming is disabled)
+     */
+    public int getStreamingWindowSize() {
+        return _streamingWindowSize;
+    }
+
+    /**
+     * Sets the memory budget of the query cache used by each construction command in BOUNDED_CACHE mode (when a
+     * command is split between several workers, the budget is split between their caches)
+     * @param memoryBudget - The max number of bytes (estimated) used by the cached query results
+     * @throws IllegalArgumentException - If the given budget isn't positive
+     */
+    public void setCacheMemoryBudget(long memoryBudget) throws IllegalArgumentException {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+        _cacheMemoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the memory budget of the query cache used by each construction command in BOUNDED_CACHE mode
+     * @return - The max number of bytes (estimated) used by the cached query results
+     */
+    public long getCacheMemoryBudget() {
+        return _cacheMemoryBudget;
+    }
+
+    /**
+     * Sets the number of outer matchings for which a dynamic inner query is executed at once. If set, instead of
+     * executing the dynamic query once per matching of the outer query, the bindings of a batch of matchings are
+     * joined with the query and its results are grouped by the bindings (see IQuerySampler.initBatch()).
+     * By default (NO_DYNAMIC_BATCHING) the dynamic query is executed for each matching separately
+     * @param batchSize - The number of matchings in a batch (NO_DYNAMIC_BATCHING to disable batching)
+     * @throws IllegalArgumentException - If the given number is negative
+     */
+    public void setDynamicBatchSize(int batchSize) throws IllegalArgumentException {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Negative batch size: " + batchSize + " is not valid");
+        _dynamicBatchSize = batchSize;
+    }
+
+    /**
+     * Returns the number of outer matchings for which a dynamic inner query is executed at once
+     * @return - The number of matchings in a batch (NO_DYNAMIC_BATCHING if batching is disabled)
+     */
+    public int getDynamicBatchSize() {
+        return _dynamicBatchSize;
+    }
+
+    /**
+     * Sets the global seed of the generation. All of the samplers created afterwards (including the ones created by the
+     * construction commands) take their random generators from streams split from this seed (see RandomSource), so
+     * applying the same commands with the same seed creates the same graph. When a command is split between several
+     * workers, each worker has its own stream, but the values drawn from the samplers shared by the workers (e.g. the
+     * d-samplers) depend on their scheduling
+     * @param seed - The global seed of the generation
+     */
+    public void setSeed(long seed) {
+        RandomSource.setSeed(seed);
+    }
+
+    /**
+     * Returns the seed from which the generation continues - setting it (see setSeed()) makes the samplers created
+     * afterwards the same as the ones that would be created now (see RandomSource.getSeed())
+     * @return - The seed from which the generation continues
+     */
+    public long getSeed() {
+        return RandomSource.getSeed();
+    }
+
+    /**
+     * Sets whether the models queried by the construction commands are indexed. If set, each queried model is indexed
+     * in memory (see TripleIndex) and the index is updated with every triple added to the model. Queries which are
+     * simple basic graph patterns (see IndexedQuery) are then evaluated on the index instead of being executed by ARQ.
+     * Inference models are never indexed, since their entailed triples aren't part of the model
+     * @param nativeIndexing - True iff the queried models should be indexed
+     */
+    public void setNativeIndexing(boolean nativeIndexing) {
+        _nativeIndexing = nativeIndexing;
+    }
+
+    /**
+     * Returns true iff the models queried by the construction commands are indexed (see setNativeIndexing())
+     * @return - True iff the queried models are indexed
+     */
+    public boolean isNativeIndexing() {
+        return _nativeIndexing;
+    }
+
+    /**
+     * Sets whether the queries of construction commands without dynamic queries are reordered by their estimated
+     * cost (see QueryPlan). The number of results of each query is estimated from the statistics of the queried model,
+     * and the queries are nested in the order that is estimated to execute and draw the fewest results. The queries
+     * are independent, so the same matchings are drawn in any order, but since the random values are drawn in another
+     * order, a reordered command doesn't create the same graph for the same seed (see setSeed())
+     * @param queryReordering - True iff the queries should be reordered
+     */
+    public void setQueryReordering(boolean queryReordering) {
+        _queryReordering = queryReordering;
+    }
+
+    /**
+     * Returns true iff the queries of construction commands are reordered by their estimated cost (see
+     * setQueryReordering())
+     * @return - True iff the queries are reordered
+     */
+    public boolean isQueryReordering() {
+        return _queryReordering;
+    }
+
+    /**
+     * Sets the registry into which the metrics of each construction command are recorded when the command ends (see
+     * ConstructionMetrics). The metrics include the query executions, their time and result cardinality, the cache
+     * hits and misses of each recursion level, the pattern applications and created triples, and the estimated
+     * memory of the query cache. The registry may be exposed through JMX (see GenerationMetrics.register())
+     * @param metrics - The registry of the metrics (null for not recording them)
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        _metrics = metrics;
+    }
+
+    /**
+     * Returns the registry into which the metrics of each construction command are recorded (see setMetrics())
+     * @return - The registry of the metrics (null if they aren't recorded)
+     */
+    public GenerationMetrics getMetrics() {
+        return _metrics;
+    }
+
     // ---------------------------------------------------------------------------------------------------
     // Composite construction commands
     // ---------------------------------------------------------------------------------------------------
@@ -87,35 +538,128 @@ public class RandomGraphAPI {
             QueryOptimizationMode mode,
             ExpLogger expLogger) throws Exception {
 
+        updateTripleIndex(model);
+        // The plan is created before the sink, since the sink depends on the order of the queries
+        QueryPlan plan = createQueryPlan(model, qWrappers);
+
+        // We create a sink that holds all of the changes (otherwise we'll query an updated model that might not match
+        // the original assumptions we had). The changes are flushed earlier only if no query will run after that
+        ITripleSink sink = createTripleSink(model, qWrappers, plan, false);
+        construct(model, sink, qWrappers, plan, nSampler, cPattern, matcher, mode, expLogger);
+
+        // Update the model with the changes that are left in the sink
+        sink.close();
+        return model;
+    }
+
+    /**
+     * Construction Command (without dynamic queries) which writes all of its changes into the given triple-sink
+     * For more information please review the GRR documentation
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which all of the created triples are written. It's flushed (but not closed)
+     * when the command ends. Note that if the sink's target is the queried model, queries executed after a flush will
+     * see the changes made by this command
+     * @param qWrappers - Ordered Array-List of QueryWrapper instances which represent the queries and relevant query
+     * meta-data needed for execution
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param mode - The query optimization mode to be used
+     * @param expLogger - Internal class used for performance monitoring. Users should pass null here
+     * @return - The queried model
+     * @throws Exception - Currently throws a generic exception in any case that the recursive construction failed
+     */
+    public Model construct(
+            Model model,
+            ITripleSink sink,
+            ArrayList<QueryWrapper> qWrappers,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            IMatcher matcher,
+            QueryOptimizationMode mode,
+            ExpLogger expLogger) throws Exception {
+
+        updateTripleIndex(model);
+        return construct(model, sink, qWrappers, createQueryPlan(model, qWrappers), nSampler, cPattern, matcher, mode, expLogger);
+    }
+
+    /**
+     * Construction Command (without dynamic queries) whose queries are nested by the given plan
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which all of the created triples are written
+     * @param qWrappers - Ordered Array-List of QueryWrapper instances which represent the queries and relevant query
+     * meta-data needed for execution
+     * @param plan - The plan of the queries (null for nesting them by their given order, see setQueryReordering())
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param mode - The query optimization mode to be used
+     * @param expLogger - Internal class used for performance monitoring. Users should pass null here
+     * @return - The queried model
+     * @throws Exception - Currently throws a generic exception in any case that the recursive construction failed
+     */
+    private Model construct(
+            Model model,
+            ITripleSink sink,
+            ArrayList<QueryWrapper> qWrappers,
+            QueryPlan plan,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            IMatcher matcher,
+            QueryOptimizationMode mode,
+            ExpLogger expLogger) throws Exception {
+
         // Initial verification of the parameters
         verifyInitialization(nSampler);
 
-        // We create a temp model upon which we'll do all of the changes (otherwise we'll query an updated model that
-        // might not match the original assumptions we had)
-        Model tempModel = ModelFactory.createDefaultModel();
-        tempModel.setNsPrefixes(model.getNsPrefixMap());
         // Create a QueryCache instance
-        QueryCache qCache = new QueryCache(mode);
+        long startTime = System.nanoTime();
+        QueryCache qCache = new QueryCache(mode, null, _cacheMemoryBudget);
+        qCache.setQueryPlan(plan);
 
         // Set some helper variables
         ArrayList<QuerySolution> solutions = new ArrayList<QuerySolution>();
         int index = 1;
+        ArrayList<QueryWrapper> orderedQWrappers = (plan == null) ? qWrappers : plan.getOrderedQueries(qWrappers);
+        boolean streams = streamsFirstQuery(qWrappers, plan, false);
         IQuerySampler[] qSamplers = (qWrappers == null) ? new IQuerySampler[0] : new IQuerySampler[qWrappers.size()];
         for (int i = 0; i < qSamplers.length; i++)
-            qSamplers[i] = StdQuerySamplerFactory.getStdQuerySampler(qWrappers.get(i));
+            qSamplers[i] = createQuerySampler(orderedQWrappers.get(i), i, streams);
 
-        // Run the recursive command
+        // Run the recursive command (pipelined, or split between the workers if possible)
         try {
-            constructRecursive(
-                    model,
-                    tempModel,
-                    qSamplers,
-                    nSampler,
-                    cPattern,
-                    solutions,
-                    matcher,
-                    index,
-                    qCache);
+            if (_pipelineConsumers != NO_PIPELINING && qSamplers.length > 0)
+                constructPipelined(
+                        model,
+                        sink,
+                        qSamplers,
+                        nSampler,
+                        cPattern,
+                        matcher,
+                        qCache);
+            else if (canConstructInParallel(orderedQWrappers))
+                constructParallel(
+                        model,
+                        sink,
+                        qSamplers,
+                        nSampler,
+                        cPattern,
+                        matcher,
+                        mode,
+                        qCache);
+            else
+                constructRecursive(
+                        model,
+                        sink,
+                        qSamplers,
+                        nSampler,
+                        cPattern,
+                        solutions,
+                        matcher,
+                        index,
+                        qCache);
         }
         catch (RdfNodeExistsInModelException e) {
             e.printStackTrace();
@@ -127,9 +671,8 @@ public class RandomGraphAPI {
             expLogger.logCacheSize(qCache);
         }
 
-        // Update the model with the changes we made on tempModel
-        model.add(tempModel);
-        tempModel.close();
+        sink.flush();
+        recordMetrics(qCache, startTime);
         return model;
 
     }
@@ -161,27 +704,66 @@ public class RandomGraphAPI {
             QueryOptimizationMode mode,
             ExpLogger expLogger) throws Exception {
 
+        // We create a sink that holds all of the changes (otherwise we'll query an updated model that might not match
+        // the original assumptions we had). The changes are flushed earlier only if no query will run after that
+        ITripleSink sink = createTripleSink(model, qWrappers, null, true);
+        constructDynamic(model, sink, qWrappers, queryAttributeVariableMap, nSampler, cPattern, matcher, mode, expLogger);
+
+        // Update the model with the changes that are left in the sink
+        sink.close();
+        return model;
+    }
+
+    /**
+     * Construction Command (with dynamic queries) which writes all of its changes into the given triple-sink
+     * For more information please review the GRR documentation
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which all of the created triples are written. It's flushed (but not closed)
+     * when the command ends. Note that if the sink's target is the queried model, queries executed after a flush will
+     * see the changes made by this command
+     * @param qWrappers - Ordered Array-List of QueryWrapper instances which represent the queries and relevant query
+     * meta-data needed for execution
+     * @param queryAttributeVariableMap - A mapping of attributes to query variables to be used in resolving the actual
+     * values of dynamic variables
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param mode - The query optimization mode to be used
+     * @param expLogger - Internal class used for performance monitoring. Users should pass null here
+     * @return - The queried model
+     * @throws Exception - Currently throws a generic exception in any case that the recursive construction failed
+     */
+    public Model constructDynamic(
+            Model model,
+            ITripleSink sink,
+            ArrayList<QueryWrapper> qWrappers,
+            HashMap<String, String> queryAttributeVariableMap,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            IMatcher matcher,
+            QueryOptimizationMode mode,
+            ExpLogger expLogger) throws Exception {
+
         // Initial verification of the parameters
         verifyInitialization(nSampler);
-
-        // We create a temp model upon which we'll do all of the changes (otherwise we'll query an updated model that
-        // might not match the original assumptions we had)
-        Model tempModel = ModelFactory.createDefaultModel();
-        tempModel.setNsPrefixes(model.getNsPrefixMap());
+        updateTripleIndex(model);
+        long startTime = System.nanoTime();
 
         // Set some helper variables
         ArrayList<QuerySolution> solutions = new ArrayList<QuerySolution>();
         int index = 1;
+        boolean streams = streamsFirstQuery(qWrappers, null, true);
         IQuerySampler[] qSamplers = (qWrappers == null) ? new IQuerySampler[0] : new IQuerySampler[qWrappers.size()];
         for (int i = 0; i < qSamplers.length; i++)
-            qSamplers[i] = StdQuerySamplerFactory.getStdQuerySampler(qWrappers.get(i));
+            qSamplers[i] = createQuerySampler(qWrappers.get(i), i, streams);
 
         // Set the caching
         QueryModeParamsWrapper[] modeOutParamsArray = new QueryModeParamsWrapper[qSamplers.length];
         for (int j = 0; j < qSamplers.length; j++)
             modeOutParamsArray[j] = parseQuerySampler(qSamplers[j], j);
 
-        QueryCache qCache = new QueryCache(mode, modeOutParamsArray);
+        QueryCache qCache = new QueryCache(mode, modeOutParamsArray, _cacheMemoryBudget);
 
         HashMap<String, String> queryAttributeResultMap = new HashMap<String, String>();
 
@@ -189,7 +771,7 @@ public class RandomGraphAPI {
         try {
             constructDynamicRecursive(
                     model,
-                    tempModel,
+                    sink,
                     qSamplers,
                     queryAttributeVariableMap,
                     queryAttributeResultMap,
@@ -210,9 +792,8 @@ public class RandomGraphAPI {
             expLogger.logCacheSize(qCache);
         }
 
-        // Update the model with the changes we made on tempModel
-        model.add(tempModel);
-        tempModel.close();
+        sink.flush();
+        recordMetrics(qCache, startTime);
         return model;
     }
 
@@ -244,6 +825,36 @@ public class RandomGraphAPI {
             int index,
             QueryCache qCache) throws RdfNodeExistsInModelException, IOException {
 
+        constructRecursive(model, new ModelTripleSink(tempModel), qSamplers, nSampler, cPattern, solutions, matcher, index, qCache);
+    }
+
+    /**
+     * The recursive version of construct (without dynamic variables)
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which all of the created triples are written
+     * @param qSamplers - An ordered array of query-samplers that will be used
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param solutions - Array-List of QuerySolutions that will be used for mapping the actual model and the pattern
+     * that defines how to create and update the model
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param index - The recursion depth (matches the depth of the query being executed
+     * @param qCache - A wrapper for all of the query-caching operations
+     * @throws RdfNodeExistsInModelException - Thrown in case that we are trying to create a duplicate node
+     * @throws IOException - Thrown in case of an IO failure (e.g. usage of files to load dictionary-samplers)
+     */
+    private void constructRecursive(
+            Model model,
+            ITripleSink sink,
+            IQuerySampler[] qSamplers,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            ArrayList<QuerySolution> solutions,
+            IMatcher matcher,
+            int index,
+            QueryCache qCache) throws RdfNodeExistsInModelException, IOException {
+
         // If we reached the most inner loop - Stop and invoke the simple-construction
         if (index > qSamplers.length) {
 
@@ -252,17 +863,15 @@ public class RandomGraphAPI {
                 matcher.setNodesMapping(solutions, cPattern.getOldNodes());
             // Get the random number of iterations to invoke the pattern
             int n = nSampler.getNextNatural();
+            long addedBefore = sink.getAddedTriples();
             for (int i = 0; i < n; i++) {
-                // Apply the construction pattern on the model
-                cPattern.applyPatternOnModel(tempModel);
+                // Apply the construction pattern on the sink
+                cPattern.applyPatternOnSink(sink);
             }
+            qCache.getMetrics().recordPatternApplications(n, sink.getAddedTriples() - addedBefore);
         } else {
             IQuerySampler outerQSampler = qSamplers[index - 1];
-            // If the qSampler wasn't initialized of if we got a local-distinct we must init/re-init it
-            if (!outerQSampler.isInitialized() || outerQSampler.getMode() == SamplingMode.RANDOM_LOCAL_DISTINCT) {
-                boolean cache = qCache.shouldCache(index);
-                outerQSampler.init(model, qCache, cache);
-            }
+            initQuerySampler(model, outerQSampler, index, qCache);
 
             // For each result (or till it reaches the max defined by the given qWrapper)
             while (outerQSampler.hasNext()) {
@@ -271,7 +880,7 @@ public class RandomGraphAPI {
                 // apply the pattern
                 constructRecursive(
                         model,
-                        tempModel,
+                        sink,
                         qSamplers,
                         nSampler,
                         cPattern,
@@ -320,6 +929,60 @@ public class RandomGraphAPI {
             IMatcher matcher,
             int index,
             QueryCache qCache) throws RdfNodeExistsInModelException, IOException {
+        constructDynamicRecursive(
+                model,
+                new ModelTripleSink(tempModel),
+                qSamplers,
+                queryAttributeVariableMap,
+                queryAttributeResultMap,
+                nSampler,
+                cPattern,
+                solutions,
+                matcher,
+                index,
+                qCache);
+    }
+
+    //###############################################################################################################
+    // Non API Methods
+    //###############################################################################################################
+
+    /**
+     * Private methods
+     */
+
+    /**
+     * 
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which all of the created triples are written
+     * @param qSamplers - An ordered array of query-samplers that will be used
+     * @param queryAttributeVariableMap - A mapping of attributes to query variables to be used in resolving the actual
+     * values of dynamic variables
+     * @param queryAttributeResultMap - A mapping of attributes to actual results returned from queries that will be
+     * used in the next queries (dynamic variables) and in the final creation command
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param solutions - Array-List of QuerySolutions that will be used for mapping the actual model and the pattern
+     * that defines how to create and update the model
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param index - The recursion depth (matches the depth of the query being executed
+     * @param qCache - A wrapper for all of the query-caching operations
+     * @throws RdfNodeExistsInModelException - Thrown in case that we are trying to create a duplicate node
+     * @throws IOException - Thrown in case of an IO failure (e.g. usage of files to load dictionary-samplers)
+     */
+    private void constructDynamicRecursive(
+            Model model,
+            ITripleSink sink,
+            IQuerySampler[] qSamplers,
+            HashMap<String, String> queryAttributeVariableMap,
+            HashMap<String, String> queryAttributeResultMap,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            ArrayList<QuerySolution> solutions,
+            IMatcher matcher,
+            int index,
+            QueryCache qCache) throws RdfNodeExistsInModelException, IOException {
 
         // If we reached the most inner loop - Stop and invoke the simple-construction
         if (index > qSamplers.length) {
@@ -328,10 +991,12 @@ public class RandomGraphAPI {
             matcher.setNodesMapping(solutions, cPattern.getOldNodes());
             // Get the random number of iterations to invoke the pattern
             int n = nSampler.getNextNatural();
+            long addedBefore = sink.getAddedTriples();
             for (int i = 0; i < n; i++) {
-                // Apply the construction pattern on the model
-                cPattern.applyPatternOnModel(tempModel);
+                // Apply the construction pattern on the sink
+                cPattern.applyPatternOnSink(sink);
             }
+            qCache.getMetrics().recordPatternApplications(n, sink.getAddedTriples() - addedBefore);
         } else {
 
             IQuerySampler outerQSampler = qSamplers[index - 1];
@@ -342,54 +1007,474 @@ public class RandomGraphAPI {
                 qCache.updateQueryParams(index - 1, outerQSampler, queryDynamicVars);
             }
             boolean cache = qCache.shouldCache(index - 1);
+            qCache.setLevel(index);
             outerQSampler.init(model, qCache, cache);
 
+            // A dynamic inner query may be executed once for a batch of matchings (see setDynamicBatchSize())
+            IQuerySampler innerQSampler = (index < qSamplers.length) ? qSamplers[index] : null;
+            boolean batchInner = _dynamicBatchSize != NO_DYNAMIC_BATCHING && innerQSampler != null && innerQSampler.isDynamic();
+            int batchSize = batchInner ? _dynamicBatchSize : 1;
+
             // For each result (or till it reaches the max defined by the given qWrapper)
             while (outerQSampler.hasNext()) {
-                QuerySolution qs1 = outerQSampler.getNextMatching();
-                // Update the values to be given to the 2nd query
-                ArrayList<String> addedAttribute = new ArrayList<String>();
-                for (String att : queryAttributeVariableMap.keySet()) {
-                    if (qs1.contains(att)) {
-                        queryAttributeResultMap.put(att, qs1.get(att).toString());
-                        addedAttribute.add(att);
+                // Collect the next batch of matchings (a single matching if the inner query isn't batched)
+                ArrayList<QuerySolution> batch = new ArrayList<QuerySolution>();
+                ArrayList<HashMap<String, String>> batchResultMaps = new ArrayList<HashMap<String, String>>();
+                while (batch.size() < batchSize && outerQSampler.hasNext()) {
+                    QuerySolution qs1 = outerQSampler.getNextMatching();
+                    batch.add(qs1);
+                    if (batchInner) {
+                        HashMap<String, String> resultMap = new HashMap<String, String>(queryAttributeResultMap);
+                        for (String att : queryAttributeVariableMap.keySet())
+                            if (qs1.contains(att))
+                                resultMap.put(att, qs1.get(att).toString());
+                        batchResultMaps.add(resultMap);
                     }
                 }
+                if (batchInner) {
+                    qCache.setLevel(index + 1);
+                    innerQSampler.initBatch(model, queryAttributeVariableMap, batchResultMaps, qCache);
+                }
 
-                solutions.add(qs1);
+                for (QuerySolution qs1 : batch) {
+                    // Update the values to be given to the 2nd query
+                    ArrayList<String> addedAttribute = new ArrayList<String>();
+                    for (String att : queryAttributeVariableMap.keySet()) {
+                        if (qs1.contains(att)) {
+                            queryAttributeResultMap.put(att, qs1.get(att).toString());
+                            addedAttribute.add(att);
+                        }
+                    }
 
-                // apply the pattern
-                constructDynamicRecursive(
-                        model,
-                        tempModel,
-                        qSamplers,
-                        queryAttributeVariableMap,
-                        queryAttributeResultMap,
-                        nSampler,
-                        cPattern,
-                        solutions,
-                        matcher,
-                        index + 1,
-                        qCache);
+                    solutions.add(qs1);
 
-                // remove the last solution
-                solutions.remove(qs1);
-                // remove the last dynamic mapping
-                for (String att : addedAttribute)
-                    queryAttributeResultMap.remove(att);
+                    // apply the pattern
+                    constructDynamicRecursive(
+                            model,
+                            sink,
+                            qSamplers,
+                            queryAttributeVariableMap,
+                            queryAttributeResultMap,
+                            nSampler,
+                            cPattern,
+                            solutions,
+                            matcher,
+                            index + 1,
+                            qCache);
 
+                    // remove the last solution
+                    solutions.remove(qs1);
+                    // remove the last dynamic mapping
+                    for (String att : addedAttribute)
+                        queryAttributeResultMap.remove(att);
+                }
             }
             outerQSampler.resetCounter();
         }
     }
 
-    //###############################################################################################################
-    // Non API Methods
-    //###############################################################################################################
+    /**
+     * Initializes the q-sampler of the given level of a construction command (without dynamic variables) for the
+     * current matching of its outer queries. A q-sampler is initialized once, unless it's in local-distinct mode.
+     * A local-distinct q-sampler was executed before the first triple was created, so executing it again would return
+     * the same results - it's just restarted with them (no execution, cache lookup or copy of the results)
+     * @param model - The model which will be used for querying
+     * @param qSampler - The q-sampler of the given level
+     * @param index - The level of the q-sampler (1 for the outer query)
+     * @param qCache - A wrapper for all of the query-caching operations
+     */
+    private void initQuerySampler(Model model, IQuerySampler qSampler, int index, QueryCache qCache) {
+        if (qSampler.isInitialized() && qSampler.getMode() == SamplingMode.RANDOM_LOCAL_DISTINCT
+                && qSampler.isRestartable()) {
+            qSampler.restart();
+        } else if (!qSampler.isInitialized() || qSampler.getMode() == SamplingMode.RANDOM_LOCAL_DISTINCT) {
+            // A restarted sampler holds its own results, so they aren't cached as well
+            boolean cache = qSampler.getMode() != SamplingMode.RANDOM_LOCAL_DISTINCT && qCache.shouldCache(index);
+            qCache.setLevel(index);
+            qSampler.init(model, qCache, cache);
+        }
+    }
 
     /**
-     * Private methods
+     * Returns true iff the construction command (without dynamic queries) with the given queries is split between
+     * several workers (see setParallelism())
+     * @param qWrappers - The ordered query-wrappers of the construction command (might be null)
+     * @return - True iff the construction command is split between several workers
+     */
+    private boolean canConstructInParallel(ArrayList<QueryWrapper> qWrappers) {
+        if (_parallelism < 2 || _pipelineConsumers != NO_PIPELINING || qWrappers == null || qWrappers.isEmpty())
+            return false;
+        // An inner global-distinct q-sampler shares its results between all of the outer matchings
+        for (int i = 1; i < qWrappers.size(); i++)
+            if (qWrappers.get(i).getMode() == SamplingMode.RANDOM_GLOBAL_DISTINCT)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns true iff the results of the first query of a construction command are streamed (see
+     * setStreamingWindowSize()). They aren't streamed if the first query was moved by the plan of the command, or if
+     * the command is split between workers (all of the matchings of its first query are read before any triple is
+     * created anyway, see constructParallel())
+     * @param qWrappers - The query-wrappers of the construction command by their given order (might be null)
+     * @param plan - The plan of the queries (null if they are nested by their given order)
+     * @param isDynamic - True iff this is a construction command with dynamic queries
+     * @return - True iff the results of the first query are streamed
+     */
+    private boolean streamsFirstQuery(ArrayList<QueryWrapper> qWrappers, QueryPlan plan, boolean isDynamic) {
+        if (qWrappers == null || qWrappers.isEmpty() || _streamingWindowSize == StdQuerySamplerFactory.NO_STREAMING)
+            return false;
+        if (!StdQuerySamplerFactory.canStream(qWrappers.get(0)) || (plan != null && plan.getQueryIndex(1) != 0))
+            return false;
+        return isDynamic || !canConstructInParallel(qWrappers);
+    }
+
+    /**
+     * The parallel version of constructRecursive (without dynamic variables). The matchings of the first query are
+     * split between the workers, each of them runs the rest of the recursion with its own copy of the inner
+     * q-samplers, construction pattern and query cache, and its own partition of the d-samplers and n-sampler.
+     * The inner q-samplers of all of the workers are initialized by this thread before any triple is created, so the
+     * workers only restart them and never query the model - this way the workers don't need any lock, and each of
+     * them flushes its triples into the triple-sink in batches while the others keep running. The batches are flushed
+     * in turns (see ShardTripleSink.createOrdered()), so the model created by the command is reproducible for a seed
+     * and a number of workers.
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which the triples of all of the workers are flushed
+     * @param qSamplers - An ordered array of query-samplers that will be used
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param mode - The query optimization mode used by the workers
+     * @param qCache - The query cache used for the first query (the counters of the workers are merged into it)
+     * @throws RdfNodeExistsInModelException - Thrown in case that we are trying to create a duplicate node
+     * @throws IOException - Thrown in case of an IO failure (e.g. usage of files to load dictionary-samplers)
+     */
+    private void constructParallel(
+            Model model,
+            ITripleSink sink,
+            IQuerySampler[] qSamplers,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            IMatcher matcher,
+            QueryOptimizationMode mode,
+            QueryCache qCache) throws RdfNodeExistsInModelException, IOException {
+
+        // Run the first query and collect all of its matchings
+        IQuerySampler outerQSampler = qSamplers[0];
+        qCache.setLevel(1);
+        outerQSampler.init(model, qCache, qCache.shouldCache(1));
+        ArrayList<QuerySolution> outerSolutions = new ArrayList<QuerySolution>();
+        while (outerQSampler.hasNext())
+            outerSolutions.add(outerQSampler.getNextMatching());
+        outerQSampler.resetCounter();
+
+        if (outerSolutions.isEmpty())
+            return;
+
+        // Split the matchings between the workers, and the values of the shared samplers between them
+        int chunkSize = (outerSolutions.size() + _parallelism - 1) / _parallelism;
+        int workersCount = (outerSolutions.size() + chunkSize - 1) / chunkSize;
+        SamplerFunction[] sFunctions = cPattern.getSamplerFunction().partition(workersCount);
+        PartitionedNumberSampler[] nSamplers = PartitionedNumberSampler.partition(nSampler, workersCount);
+        long workerMemoryBudget = Math.max(1, _cacheMemoryBudget / workersCount);
+        int shardBatchSize = (_sinkBatchSize != BatchedTripleSink.UNBOUNDED) ?
+                _sinkBatchSize : ShardTripleSink.DEFAULT_BATCH_SIZE;
+        ShardTripleSink[] shards = ShardTripleSink.createOrdered(sink, workersCount, shardBatchSize);
+        ArrayList<ConstructionWorker> workers = new ArrayList<ConstructionWorker>();
+        for (int i = 0; i < workersCount; i++) {
+            SplitMixRandom randomStream = RandomSource.newStream();
+            IQuerySampler[] workerQSamplers = new IQuerySampler[qSamplers.length];
+            workerQSamplers[0] = outerQSampler;
+            QueryCache workerQCache = new QueryCache(mode, null, workerMemoryBudget);
+            workerQCache.setQueryPlan(qCache.getQueryPlan());
+            // The inner q-samplers of the worker are initialized with its own random stream
+            RandomSource.setThreadStream(randomStream);
+            try {
+                for (int j = 1; j < qSamplers.length; j++) {
+                    workerQSamplers[j] = StdQuerySamplerFactory.getStdQuerySampler(
+                            qSamplers[j].getQueryWrapper().copy());
+                    initQuerySampler(model, workerQSamplers[j], j + 1, workerQCache);
+                }
+            }
+            finally {
+                RandomSource.setThreadStream(null);
+            }
+            workers.add(new ConstructionWorker(
+                    model,
+                    outerSolutions.subList(i * chunkSize, Math.min((i + 1) * chunkSize, outerSolutions.size())),
+                    workerQSamplers,
+                    nSamplers[i],
+                    cPattern.copy(sFunctions[i]),
+                    matcher,
+                    workerQCache,
+                    shards[i],
+                    randomStream));
+        }
+
+        // Run the workers (each of them flushes its own triples into the sink)
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<Void>> futures = executor.invokeAll(workers);
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).get();
+                qCache.mergeCounters(workers.get(i).getQueryCache());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The construction was interrupted");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException("A construction worker failed", cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        sink.checkpoint();
+    }
+
+    /**
+     * The pipelined version of constructRecursive (without dynamic variables). This thread produces the matchings of
+     * all of the queries into a bounded queue, while the consumers apply the construction pattern on them, each with
+     * its own copy of the pattern and into its own unordered shard of the triple-sink, which is flushed into the
+     * triple-sink in bounded batches (see ShardTripleSink).
+     * @param model - The model which will be used for querying
+     * @param sink - The triple-sink into which the shards of the consumers are flushed
+     * @param qSamplers - An ordered array of query-samplers that will be used
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param cPattern - The actual construction pattern used
+     * @param matcher - The matcher matches the pattern to the different results returned by searching the pattern in
+     * the model (mapping between existing nodes to nodes in the pattern itself
+     * @param qCache - A wrapper for all of the query-caching operations
+     * @throws IOException - Thrown in case of an IO failure (e.g. usage of files to load dictionary-samplers)
+     */
+    private void constructPipelined(
+            Model model,
+            ITripleSink sink,
+            IQuerySampler[] qSamplers,
+            INaturalNumberSampler nSampler,
+            ConstructionPattern cPattern,
+            IMatcher matcher,
+            QueryCache qCache) throws IOException {
+
+        BlockingQueue<PipelinedMatching> queue = new ArrayBlockingQueue<PipelinedMatching>(_pipelineQueueSize);
+        ArrayList<PipelineConsumer> consumers = new ArrayList<PipelineConsumer>();
+        SamplerFunction[] sFunctions = cPattern.getSamplerFunction().partition(_pipelineConsumers);
+        int shardBatchSize = (_sinkBatchSize != BatchedTripleSink.UNBOUNDED) ?
+                _sinkBatchSize : ShardTripleSink.DEFAULT_BATCH_SIZE;
+        for (int i = 0; i < _pipelineConsumers; i++)
+            consumers.add(new PipelineConsumer(
+                    queue,
+                    cPattern.copy(sFunctions[i]),
+                    matcher,
+                    new ShardTripleSink(sink, shardBatchSize),
+                    RandomSource.newStream()));
+
+        // Produce the matchings while the consumers apply the pattern. The shards are flushed into the sink while the
+        // queries run, which is safe since the sink holds its triples if the model is read after the first triple is
+        // created (see createTripleSink())
+        ExecutorService executor = Executors.newFixedThreadPool(consumers.size());
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (PipelineConsumer consumer : consumers)
+                futures.add(executor.submit(consumer));
+            produceMatchings(model, qSamplers, nSampler, new ArrayList<QuerySolution>(), 1, qCache, queue, futures);
+            for (int i = 0; i < consumers.size(); i++)
+                enqueueMatching(queue, PipelinedMatching.END, futures);
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).get();
+                qCache.getMetrics().recordPatternApplications(
+                        consumers.get(i).getPatternApplications(),
+                        consumers.get(i).getCreatedTriples());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The construction was interrupted");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException("A pipeline consumer failed", cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        sink.checkpoint();
+    }
+
+    /**
+     * The producer of a pipelined construction command - the recursion of constructRecursive, which queues each
+     * matching of all of the queries (with the number of times to apply the pattern on it) instead of applying the
+     * construction pattern
+     * @param model - The model which will be used for querying
+     * @param qSamplers - An ordered array of query-samplers that will be used
+     * @param nSampler - The number-sampler used to define how many times to create the pattern
+     * @param solutions - Array-List of the QuerySolutions of the outer queries
+     * @param index - The recursion depth (matches the depth of the query being executed
+     * @param qCache - A wrapper for all of the query-caching operations
+     * @param queue - The queue into which the matchings are produced
+     * @param consumers - The futures of the consumers of the queue
+     * @throws InterruptedException - If this thread was interrupted while waiting on the queue
+     * @throws ExecutionException - If one of the consumers failed
+     */
+    private void produceMatchings(
+            Model model,
+            IQuerySampler[] qSamplers,
+            INaturalNumberSampler nSampler,
+            ArrayList<QuerySolution> solutions,
+            int index,
+            QueryCache qCache,
+            BlockingQueue<PipelinedMatching> queue,
+            List<Future<Void>> consumers) throws InterruptedException, ExecutionException {
+
+        // If we reached the most inner loop - queue the matching (the consumers draw the values of the new nodes)
+        if (index > qSamplers.length) {
+            int n = nSampler.getNextNatural();
+            if (n > 0)
+                enqueueMatching(queue, new PipelinedMatching(new ArrayList<QuerySolution>(solutions), n), consumers);
+        } else {
+            IQuerySampler outerQSampler = qSamplers[index - 1];
+            initQuerySampler(model, outerQSampler, index, qCache);
+
+            // For each result (or till it reaches the max defined by the given qWrapper)
+            while (outerQSampler.hasNext()) {
+                QuerySolution qs1 = outerQSampler.getNextMatching();
+                solutions.add(qs1);
+                produceMatchings(model, qSamplers, nSampler, solutions, index + 1, qCache, queue, consumers);
+                solutions.remove(qs1);
+            }
+            // reset the counter of the outer q-sampler
+            outerQSampler.resetCounter();
+        }
+    }
+
+    /**
+     * Queues the given matching, while waiting for space in the queue. If one of the consumers ends while waiting
+     * (it failed, since the consumers end only after the END matching), its failure is thrown
+     * @param queue - The queue of the pipelined construction command
+     * @param matching - The matching to be queued
+     * @param consumers - The futures of the consumers of the queue
+     * @throws InterruptedException - If this thread was interrupted while waiting on the queue
+     * @throws ExecutionException - If one of the consumers failed
+     */
+    private static void enqueueMatching(
+            BlockingQueue<PipelinedMatching> queue,
+            PipelinedMatching matching,
+            List<Future<Void>> consumers) throws InterruptedException, ExecutionException {
+        while (!queue.offer(matching, PIPELINE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Future<Void> consumer : consumers)
+                if (consumer.isDone()) {
+                    consumer.get();
+                    throw new IllegalStateException("A pipeline consumer ended before the construction ended");
+                }
+        }
+    }
+
+    /**
+     * Creates the triple-sink used by a construction command. The created triples are flushed into the model in
+     * batches (see setSinkBatchSize()) only if none of the command's queries is executed again after the first
+     * triples were created, otherwise they are all held until the command ends. If a bulk-loader is set and the model
+     * is backed by its DB the triples are flushed through it (see setBulkLoader()), and if a synced DB is set it's
+     * synced by the sink (see setSyncedDB()) - then the triples are flushed in batches even if no batch size is set,
+     * as long as the DB has a sync interval. If an output is set, the triples are written into it instead (see
+     * setOutputWriter())
+     * @param model - The model that will be updated by the construction command
+     * @param qWrappers - The query-wrappers of the construction command by their given order (might be null)
+     * @param plan - The plan of the queries (null if they are nested by their given order)
+     * @param isDynamic - True iff this is a construction command with dynamic queries
+     * @return - The triple-sink to be used by the construction command
      */
+    private ITripleSink createTripleSink(
+            Model model,
+            ArrayList<QueryWrapper> qWrappers,
+            QueryPlan plan,
+            boolean isDynamic) {
+
+        // An inner query is initialized again for each matching of its outer queries. Unless it has no dynamic variables
+        // (then it's executed before the first triple is created and later restarted, see IQuerySampler.restart()),
+        // it's executed again
+        boolean innerQueriesRerun = qWrappers != null && qWrappers.size() > 1 && isDynamic;
+        // A streamed result-set of the first query is read while the triples are created
+        boolean firstQueryStreams = streamsFirstQuery(qWrappers, plan, isDynamic);
+        boolean holdsTriples = innerQueriesRerun || firstQueryStreams;
+        int batchSize = holdsTriples ? BatchedTripleSink.UNBOUNDED : _sinkBatchSize;
+        // Triples that reach a synced DB only when the command ends couldn't be synced by its interval
+        if (!holdsTriples && batchSize == BatchedTripleSink.UNBOUNDED && _syncedDB != null && _syncedDB.hasSyncInterval())
+            batchSize = ShardTripleSink.DEFAULT_BATCH_SIZE;
+        if (_outputWriter != null)
+            return new FileTripleSink(_outputWriter, model, _keptFootprint, batchSize);
+        ITripleSink sink;
+        // Bulk-loaded triples are added to the DB of the loader, so they'd be lost for a model that isn't backed by it
+        if (_bulkLoader != null && _bulkLoader.isDbBasedModel(model))
+            sink = new BulkLoadTripleSink(_bulkLoader, model, batchSize, _journal == _bulkLoader);
+        else
+            sink = new BatchedTripleSink(model, batchSize, _journal);
+        return (_syncedDB != null) ? new SyncingTripleSink(sink, _syncedDB) : sink;
+    }
+
+    /**
+     * Creates the plan of the given queries of a construction command without dynamic queries (see QueryPlan). A plan
+     * is needed only if the queries are reordered (see setQueryReordering())
+     * @param model - The model which will be used for querying
+     * @param qWrappers - The ordered query-wrappers of the construction command (might be null)
+     * @return - The plan of the given queries (null if it isn't needed)
+     */
+    private QueryPlan createQueryPlan(Model model, ArrayList<QueryWrapper> qWrappers) {
+        if (qWrappers == null || qWrappers.size() < 2 || !_queryReordering)
+            return null;
+        return QueryPlan.create(model, qWrappers, true);
+    }
+
+    /**
+     * Creates the q-sampler of the given query-wrapper. The results of the first query may be streamed (see
+     * setStreamingWindowSize()), since it's executed only once by the construction command
+     * @param qWrapper - The query-wrapper of the created q-sampler
+     * @param index - The index of the query in the construction command (0 for the first query)
+     * @param streams - True iff the results of the first query are streamed (see streamsFirstQuery())
+     * @return - The q-sampler of the given query-wrapper
+     */
+    private IQuerySampler createQuerySampler(QueryWrapper qWrapper, int index, boolean streams) {
+        if (index == 0 && streams)
+            return StdQuerySamplerFactory.getStdQuerySampler(qWrapper, _streamingWindowSize);
+        return StdQuerySamplerFactory.getStdQuerySampler(qWrapper);
+    }
+
+    /**
+     * Creates the index of the given model if native indexing is set (an existing index is kept up to date by the
+     * model), or releases it otherwise
+     * @param model - The model queried by a construction command
+     */
+    private void updateTripleIndex(Model model) {
+        if (_nativeIndexing)
+            TripleIndex.forModel(model);
+        else
+            TripleIndex.release(model);
+    }
+
+    /**
+     * Completes the metrics of a construction command that ended (see ConstructionMetrics) and records them into the
+     * registry of the metrics if it's set (see setMetrics())
+     * @param qCache - The query cache of the command (holding the metrics of the command)
+     * @param startTime - The value of System.nanoTime() when the command started
+     */
+    private void recordMetrics(QueryCache qCache, long startTime) {
+        ConstructionMetrics metrics = qCache.getMetrics();
+        metrics.setElapsedNanos(System.nanoTime() - startTime);
+        // The caches of the workers (if any) were already merged into the metrics
+        metrics.setEstimatedCacheBytes(metrics.getEstimatedCacheBytes() + qCache.getEstimatedSize());
+        if (_metrics != null)
+            _metrics.record(metrics);
+    }
 
     /**
      * A method that validates that the given n-sampler was initialized
@@ -416,8 +1501,7 @@ public class RandomGraphAPI {
             qInParams = null;
             qOutParams = null;
         } else {
-            String queryStr = qSampler.getQueryWrapper().getQuery();
-            Query query = QueryFactory.create(queryStr);
+            Query query = qSampler.getQuery();
             // Update the out parameters
             qOutParams = (ArrayList<String>) query.getResultVars();
             // Update the in parameters
@@ -435,5 +1519,245 @@ public class RandomGraphAPI {
         return new QueryModeParamsWrapper(mode, qOutParams, qInParams);
     }
 
+    /**
+     * Private classes
+     */
+
+    /**
+     * A worker that applies a construction command on a portion of the matchings of the first query, and flushes
+     * the triples it creates into the shared triple-sink through its own shard (see constructParallel())
+     */
+    private class ConstructionWorker implements Callable<Void> {
+
+        /**
+         * Class Members
+         */
+        private Model _model;
+        private List<QuerySolution> _outerSolutions;
+        private IQuerySampler[] _qSamplers;
+        private INaturalNumberSampler _nSampler;
+        private ConstructionPattern _cPattern;
+        private IMatcher _matcher;
+        private QueryCache _qCache;
+        private ShardTripleSink _sink;
+        private SplitMixRandom _randomStream;
+
+        /**
+         * Constructor
+         * @param model - The queried model (it isn't queried by the worker, since its inner q-samplers are only
+         * restarted)
+         * @param outerSolutions - The matchings of the first query that this worker handles
+         * @param qSamplers - An ordered array of query-samplers owned by this worker (except the first one), the
+         * inner ones must be initialized already
+         * @param nSampler - The number-sampler owned by this worker
+         * @param cPattern - The construction pattern owned by this worker (with its own sampler-function)
+         * @param matcher - The matcher used for mapping between the results and the construction pattern
+         * @param qCache - The query cache owned by this worker
+         * @param sink - The shard through which this worker flushes its triples into the shared triple-sink
+         * @param randomStream - The stream from which the random generators created by this worker are split
+         */
+        ConstructionWorker(
+                Model model,
+                List<QuerySolution> outerSolutions,
+                IQuerySampler[] qSamplers,
+                INaturalNumberSampler nSampler,
+                ConstructionPattern cPattern,
+                IMatcher matcher,
+                QueryCache qCache,
+                ShardTripleSink sink,
+                SplitMixRandom randomStream) {
+            _model = model;
+            _outerSolutions = outerSolutions;
+            _qSamplers = qSamplers;
+            _nSampler = nSampler;
+            _cPattern = cPattern;
+            _matcher = matcher;
+            _qCache = qCache;
+            _sink = sink;
+            _randomStream = randomStream;
+        }
+
+        /**
+         * Applies the construction command on each of the matchings of this worker, and flushes the remaining
+         * triples of its shard
+         * @return - Nothing
+         * @throws Exception - Any failure while applying the construction command
+         */
+        @Override
+        public Void call() throws Exception {
+            ArrayList<QuerySolution> solutions = new ArrayList<QuerySolution>();
+
+            // The samplers created by this worker don't depend on the scheduling of the other workers
+            RandomSource.setThreadStream(_randomStream);
+            try {
+                try {
+                    for (QuerySolution qs1 : _outerSolutions) {
+                        solutions.add(qs1);
+                        constructRecursive(
+                                _model,
+                                _sink,
+                                _qSamplers,
+                                _nSampler,
+                                _cPattern,
+                                solutions,
+                                _matcher,
+                                2,
+                                _qCache);
+                        solutions.remove(qs1);
+                    }
+                }
+                catch (RdfNodeExistsInModelException e) {
+                    e.printStackTrace();
+                }
+                _sink.close();
+            }
+            finally {
+                // The other shards wait for the turn of this one, so it's released even if this worker failed
+                _sink.discard();
+                RandomSource.setThreadStream(null);
+            }
+            return null;
+        }
+
+        /**
+         * Returns the query cache used by this worker
+         * @return - The query cache used by this worker
+         */
+        QueryCache getQueryCache() {
+            return _qCache;
+        }
+    }
+
+    /**
+     * A matching of all of the queries of a pipelined construction command, queued by its producer for its consumers
+     * (see constructPipelined())
+     */
+    private static class PipelinedMatching {
+
+        /**
+         * Consts
+         */
+        // Marks the end of the matchings (queued once for each consumer)
+        static final PipelinedMatching END = new PipelinedMatching(null, 0);
+
+        /**
+         * Class Members
+         */
+        private ArrayList<QuerySolution> _solutions;
+        private int _applications;
+
+        /**
+         * Constructor
+         * @param solutions - The QuerySolutions of all of the queries, by their order
+         * @param applications - The number of times to apply the construction pattern on this matching
+         */
+        PipelinedMatching(ArrayList<QuerySolution> solutions, int applications) {
+            _solutions = solutions;
+            _applications = applications;
+        }
+
+        /**
+         * Returns the QuerySolutions of all of the queries, by their order
+         * @return - The QuerySolutions of all of the queries
+         */
+        ArrayList<QuerySolution> getSolutions() {
+            return _solutions;
+        }
+
+        /**
+         * Returns the number of times to apply the construction pattern on this matching
+         * @return - The number of times to apply the construction pattern on this matching
+         */
+        int getApplications() {
+            return _applications;
+        }
+    }
+
+    /**
+     * A consumer of a pipelined construction command, which applies the construction pattern on the queued matchings
+     * until it takes the END matching. Its triples are written into its own shard of the command's triple-sink, which
+     * flushes them in bounded batches
+     */
+    private static class PipelineConsumer implements Callable<Void> {
+
+        /**
+         * Class Members
+         */
+        private BlockingQueue<PipelinedMatching> _queue;
+        private ConstructionPattern _cPattern;
+        private IMatcher _matcher;
+        private ShardTripleSink _sink;
+        private SplitMixRandom _randomStream;
+        private long _patternApplications;
+        private long _createdTriples;
+
+        /**
+         * Constructor
+         * @param queue - The queue from which the matchings are taken
+         * @param cPattern - The construction pattern owned by this consumer
+         * @param matcher - The matcher used for mapping between the results and the construction pattern
+         * @param sink - The shard of the command's triple-sink owned by this consumer
+         * @param randomStream - The stream from which the random generators created by this consumer are split
+         */
+        PipelineConsumer(
+                BlockingQueue<PipelinedMatching> queue,
+                ConstructionPattern cPattern,
+                IMatcher matcher,
+                ShardTripleSink sink,
+                SplitMixRandom randomStream) {
+            _queue = queue;
+            _cPattern = cPattern;
+            _matcher = matcher;
+            _sink = sink;
+            _randomStream = randomStream;
+        }
+
+        /**
+         * Applies the construction pattern on each of the queued matchings, and flushes the rest of its shard when it
+         * takes the END matching
+         * @return - Nothing
+         * @throws Exception - Any failure while applying the construction pattern
+         */
+        @Override
+        public Void call() throws Exception {
+            // The samplers created by this consumer don't depend on the scheduling of the other threads
+            RandomSource.setThreadStream(_randomStream);
+            try {
+                PipelinedMatching matching = _queue.take();
+                while (matching != PipelinedMatching.END) {
+                    if (_matcher != null)
+                        _matcher.setNodesMapping(matching.getSolutions(), _cPattern.getOldNodes());
+                    for (int i = 0; i < matching.getApplications(); i++)
+                        _cPattern.applyPatternOnSink(_sink);
+                    _patternApplications += matching.getApplications();
+                    matching = _queue.take();
+                }
+                _sink.close();
+            }
+            finally {
+                _createdTriples = _sink.getAddedTriples();
+                _sink.discard();
+                RandomSource.setThreadStream(null);
+            }
+            return null;
+        }
+
+        /**
+         * Returns the number of times this consumer applied the construction pattern
+         * @return - The number of pattern applications
+         */
+        long getPatternApplications() {
+            return _patternApplications;
+        }
+
+        /**
+         * Returns the number of triples created by this consumer
+         * @return - The number of created triples
+         */
+        long getCreatedTriples() {
+            return _createdTriples;
+        }
+    }
+
 
 }
@@ -0,0 +1,130 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.GraphListener;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A listener which counts the triples added to a model as they are added, so a triple-sink can report how many
+ * triples were written into it without computing the size of its model (which isn't cheap for an inference model or
+ * a DB based model). A triple which is added more than once is counted each time, and removed triples aren't
+ * subtracted. The count isn't synchronized - it's updated by the thread (or the lock holder) adding into the model
+ */
+class AddedTriplesCounter implements GraphListener {
+
+    /**
+     * Class Members
+     */
+    private Graph _graph;
+    private long _count;
+
+    /**
+     * Constructor - registers the counter on the graph of the given model
+     * @param model - The model whose added triples are counted
+     */
+    AddedTriplesCounter(Model model) {
+        _graph = model.getGraph();
+        _count = 0;
+        _graph.getEventManager().register(this);
+    }
+
+    /**
+     * Returns the number of triples added to the model since this counter was created
+     * @return - The number of added triples
+     */
+    long getCount() {
+        return _count;
+    }
+
+    /**
+     * Stops counting the triples added to the model
+     */
+    void unregister() {
+        _graph.getEventManager().unregister(this);
+    }
+
+    /**
+     * GraphListener - Interface Implementation
+     */
+
+    @Override
+    public void notifyAddTriple(Graph g, Triple t) {
+        _count++;
+    }
+
+    @Override
+    public void notifyAddArray(Graph g, Triple[] triples) {
+        _count += triples.length;
+    }
+
+    @Override
+    public void notifyAddList(Graph g, List<Triple> triples) {
+        _count += triples.size();
+    }
+
+    @Override
+    public void notifyAddIterator(Graph g, Iterator<Triple> it) {
+        while (it.hasNext()) {
+            it.next();
+            _count++;
+        }
+    }
+
+    @Override
+    public void notifyAddGraph(Graph g, Graph added) {
+        _count += added.size();
+    }
+
+    @Override
+    public void notifyDeleteTriple(Graph g, Triple t) {
+    }
+
+    @Override
+    public void notifyDeleteList(Graph g, List<Triple> triples) {
+    }
+
+    @Override
+    public void notifyDeleteArray(Graph g, Triple[] triples) {
+    }
+
+    @Override
+    public void notifyDeleteIterator(Graph g, Iterator<Triple> it) {
+    }
+
+    @Override
+    public void notifyDeleteGraph(Graph g, Graph removed) {
+    }
+
+    @Override
+    public void notifyEvent(Graph source, Object value) {
+    }
+}
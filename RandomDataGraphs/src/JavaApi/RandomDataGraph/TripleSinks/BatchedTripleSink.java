@@ -0,0 +1,160 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import StorageWrappers.IDBWrapper;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import java.io.IOException;
+
+/**
+ * An implementation of the ITripleSink interface which buffers the triples in an in-memory model and flushes
+ * them into the target model in batches. The buffer is flushed at a checkpoint once it holds at least the given
+ * batch size of triples, so the memory used by the sink is bounded by the batch size (plus the triples written
+ * between two checkpoints).
+ * Using an unbounded batch size means that the triples reach the target only when the sink is flushed.
+ * If the target is backed by a DB, the sink may record each batch in the DB before flushing it (see
+ * IDBWrapper.logUncommitted()), so the triples of an unfinished construction command can be rolled back
+ */
+public class BatchedTripleSink implements ITripleSink {
+
+    /**
+     * Consts
+     */
+    public static final int UNBOUNDED = 0;
+
+    /**
+     * Class Members
+     */
+    private Model _target;
+    private Model _buffer;
+    private AddedTriplesCounter _counter;
+    private int _batchSize;
+    private IDBWrapper _journal;
+
+    /**
+     * Constructor
+     * @param target - The model into which the buffered triples will be flushed
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * (UNBOUNDED means that the triples are only flushed by an explicit flush or close)
+     * @throws IllegalArgumentException - If the given batch size is negative
+     */
+    public BatchedTripleSink(Model target, int batchSize) throws IllegalArgumentException {
+        this(target, batchSize, null);
+    }
+
+    /**
+     * Constructor of a sink which records its batches before they're flushed (see IDBWrapper.logUncommitted())
+     * @param target - The model into which the buffered triples will be flushed
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * (UNBOUNDED means that the triples are only flushed by an explicit flush or close)
+     * @param journal - The DB backing the target, in which the batches are recorded (null for not recording them)
+     * @throws IllegalArgumentException - If the given batch size is negative
+     */
+    public BatchedTripleSink(Model target, int batchSize, IDBWrapper journal) throws IllegalArgumentException {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Negative batch size: " + batchSize + " is not valid");
+        _target = target;
+        _batchSize = batchSize;
+        _journal = journal;
+        _buffer = ModelFactory.createDefaultModel();
+        _counter = new AddedTriplesCounter(_buffer);
+        _buffer.setNsPrefixes(target.getNsPrefixMap());
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the buffer model into which the construction pattern should write its triples
+     * @return - The buffer model into which the construction pattern should write its triples
+     */
+    @Override
+    public Model getModel() {
+        return _buffer;
+    }
+
+    /**
+     * Returns the number of triples written into the buffer model of this sink (see AddedTriplesCounter)
+     * @return - The number of triples written into the buffer model of this sink
+     */
+    @Override
+    public long getAddedTriples() {
+        return _counter.getCount();
+    }
+
+    /**
+     * Flushes the buffered triples if their number reached the batch size
+     */
+    @Override
+    public void checkpoint() {
+        if (_batchSize != UNBOUNDED && _buffer.size() >= _batchSize)
+            flush();
+    }
+
+    /**
+     * Flushes all of the buffered triples into the target model
+     * @throws IllegalStateException - If the triples couldn't be recorded before they're flushed
+     */
+    @Override
+    public void flush() throws IllegalStateException {
+        if (_buffer.isEmpty())
+            return;
+        if (_journal != null) {
+            try {
+                _journal.logUncommitted(_buffer);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Failed to record the created triples", e);
+            }
+        }
+        _target.add(_buffer);
+        _buffer.removeAll();
+    }
+
+    /**
+     * Flushes all of the buffered triples and closes the buffer (the target model is owned by the caller)
+     */
+    @Override
+    public void close() {
+        flush();
+        _buffer.close();
+    }
+
+    /**
+     * Additional Public Methods
+     */
+
+    /**
+     * Returns the batch size of this sink
+     * @return - The batch size of this sink (UNBOUNDED if triples are flushed only explicitly)
+     */
+    public int getBatchSize() {
+        return _batchSize;
+    }
+}
@@ -0,0 +1,137 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import StorageWrappers.IDBWrapper;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import java.io.IOException;
+
+/**
+ * An implementation of the ITripleSink interface which buffers the triples in an in-memory model (like
+ * BatchedTripleSink) and flushes them into a DB through its bulk-loading path (see IDBWrapper.bulkLoad()) instead
+ * of adding them to the target model triple by triple.
+ * The target model must be backed by the given DB - since the bulk-loaded triples bypass it, the listeners of the
+ * target model (e.g. the triple index) are notified about the flushed triples by the sink.
+ * The sink may record each batch in the DB before loading it (see IDBWrapper.logUncommitted()), so the triples of an
+ * unfinished construction command can be rolled back
+ */
+public class BulkLoadTripleSink implements ITripleSink {
+
+    /**
+     * Class Members
+     */
+    private IDBWrapper _dbw;
+    private Model _target;
+    private Model _buffer;
+    private AddedTriplesCounter _counter;
+    private int _batchSize;
+    private boolean _isJournaled;
+
+    /**
+     * Constructor
+     * @param dbw - The DB into which the buffered triples will be bulk-loaded
+     * @param target - The model backed by the given DB (its listeners are notified about the flushed triples)
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * (BatchedTripleSink.UNBOUNDED means that the triples are only flushed by an explicit flush or close)
+     * @param isJournaled - True iff each batch is recorded in the DB before it's loaded
+     * @throws IllegalArgumentException - If the given batch size is negative
+     */
+    public BulkLoadTripleSink(IDBWrapper dbw, Model target, int batchSize, boolean isJournaled) throws IllegalArgumentException {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Negative batch size: " + batchSize + " is not valid");
+        _dbw = dbw;
+        _target = target;
+        _batchSize = batchSize;
+        _isJournaled = isJournaled;
+        _buffer = ModelFactory.createDefaultModel();
+        _counter = new AddedTriplesCounter(_buffer);
+        _buffer.setNsPrefixes(target.getNsPrefixMap());
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the buffer model into which the construction pattern should write its triples
+     * @return - The buffer model into which the construction pattern should write its triples
+     */
+    @Override
+    public Model getModel() {
+        return _buffer;
+    }
+
+    /**
+     * Returns the number of triples written into the buffer model of this sink (see AddedTriplesCounter)
+     * @return - The number of triples written into the buffer model of this sink
+     */
+    @Override
+    public long getAddedTriples() {
+        return _counter.getCount();
+    }
+
+    /**
+     * Flushes the buffered triples if their number reached the batch size
+     */
+    @Override
+    public void checkpoint() {
+        if (_batchSize != BatchedTripleSink.UNBOUNDED && _buffer.size() >= _batchSize)
+            flush();
+    }
+
+    /**
+     * Bulk-loads all of the buffered triples into the DB and notifies the listeners of the target model
+     * @throws IllegalStateException - If the bulk-load failed
+     */
+    @Override
+    public void flush() throws IllegalStateException {
+        if (_buffer.isEmpty())
+            return;
+        try {
+            if (_isJournaled)
+                _dbw.logUncommitted(_buffer);
+            _dbw.bulkLoad(_buffer);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to bulk-load the created triples", e);
+        }
+        Graph targetGraph = _target.getGraph();
+        targetGraph.getEventManager().notifyAddGraph(targetGraph, _buffer.getGraph());
+        _buffer.removeAll();
+    }
+
+    /**
+     * Flushes all of the buffered triples and closes the buffer (the target model is owned by the caller)
+     */
+    @Override
+    public void close() {
+        flush();
+        _buffer.close();
+    }
+}
@@ -0,0 +1,204 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import JavaApi.RandomDataGraph.QueryOptimization.QueryFootprint;
+import StorageWrappers.NTriplesWriter;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.InfModel;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+import java.io.IOException;
+
+/**
+ * An implementation of the ITripleSink interface which writes the created triples directly into an output file
+ * (see NTriplesWriter) instead of storing them. Only the triples that might be matched by the queries of the next
+ * construction commands (see QueryFootprint) are added to the target model, which holds the state needed by these
+ * queries rather than the whole graph.
+ * The triples are written to the output at each checkpoint, while the kept triples are buffered and added to the
+ * target model in batches (like BatchedTripleSink).
+ * A kept triple that is created again (by this command or by an earlier one) isn't written again, since it's found in
+ * the kept triples or in the target model. The triples outside of the footprint aren't held anywhere, so a triple
+ * which is created again while it isn't matched by the footprint of either command is written again
+ */
+public class FileTripleSink implements ITripleSink {
+
+    /**
+     * Class Members
+     */
+    private NTriplesWriter _writer;
+    private Model _target;
+    private QueryFootprint _footprint;
+    private Model _buffer;
+    private AddedTriplesCounter _counter;
+    private Model _kept;
+    private int _batchSize;
+
+    /**
+     * Constructor
+     * @param writer - The writer of the output file (owned by the caller)
+     * @param target - The model into which the kept triples will be added
+     * @param footprint - The footprint of the queries of the next construction commands (null for keeping all of the
+     * triples)
+     * @param batchSize - The number of kept triples that triggers adding them to the target model at the next
+     * checkpoint (BatchedTripleSink.UNBOUNDED means that they are only added by an explicit flush or close)
+     * @throws IllegalArgumentException - If the given batch size is negative
+     */
+    public FileTripleSink(NTriplesWriter writer, Model target, QueryFootprint footprint, int batchSize) throws IllegalArgumentException {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("Negative batch size: " + batchSize + " is not valid");
+        _writer = writer;
+        _target = target;
+        _footprint = footprint;
+        _batchSize = batchSize;
+        _buffer = ModelFactory.createDefaultModel();
+        _counter = new AddedTriplesCounter(_buffer);
+        _buffer.setNsPrefixes(target.getNsPrefixMap());
+        _kept = ModelFactory.createDefaultModel();
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the buffer model into which the construction pattern should write its triples
+     * @return - The buffer model into which the construction pattern should write its triples
+     */
+    @Override
+    public Model getModel() {
+        return _buffer;
+    }
+
+    /**
+     * Returns the number of triples written into the buffer model of this sink (see AddedTriplesCounter)
+     * @return - The number of triples written into the buffer model of this sink
+     */
+    @Override
+    public long getAddedTriples() {
+        return _counter.getCount();
+    }
+
+    /**
+     * Writes the buffered triples to the output, and adds the kept triples to the target model if their number
+     * reached the batch size
+     * @throws IllegalStateException - If writing the triples failed
+     */
+    @Override
+    public void checkpoint() throws IllegalStateException {
+        writeBuffer();
+        if (_batchSize != BatchedTripleSink.UNBOUNDED && _kept.size() >= _batchSize)
+            addKept();
+    }
+
+    /**
+     * Writes all of the buffered triples to the output and adds all of the kept triples to the target model
+     * @throws IllegalStateException - If writing the triples failed
+     */
+    @Override
+    public void flush() throws IllegalStateException {
+        writeBuffer();
+        addKept();
+        try {
+            _writer.flush();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to write the created triples", e);
+        }
+    }
+
+    /**
+     * Flushes all of the triples and closes the buffers (the writer and the target model are owned by the caller)
+     * @throws IllegalStateException - If writing the triples failed
+     */
+    @Override
+    public void close() throws IllegalStateException {
+        flush();
+        _buffer.close();
+        _kept.close();
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Writes the buffered triples to the output, while moving the triples matched by the footprint to the kept ones.
+     * Kept triples that were already written are skipped (see class documentation)
+     * @throws IllegalStateException - If writing the triples failed
+     */
+    private void writeBuffer() throws IllegalStateException {
+        if (_buffer.isEmpty())
+            return;
+        // The entailed triples of an inference model were never written
+        Graph written = (_target instanceof InfModel) ? ((InfModel) _target).getRawModel().getGraph() : _target.getGraph();
+        Graph kept = _kept.getGraph();
+        ExtendedIterator<Triple> iter = _buffer.getGraph().find(null, null, null);
+        try {
+            while (iter.hasNext()) {
+                Triple triple = iter.next();
+                if (_footprint == null || _footprint.matches(triple)) {
+                    if (kept.contains(triple) || (written.contains(triple) && !isClosureTriple(triple)))
+                        continue;
+                    kept.add(triple);
+                }
+                _writer.write(triple);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to write the created triples", e);
+        }
+        finally {
+            iter.close();
+        }
+        _buffer.removeAll();
+    }
+
+    /**
+     * Returns true iff the given triple might be part of a materialized schema closure (see SchemaClosure), which is
+     * held by the target model without being written
+     * @param triple - The triple
+     * @return - True iff the given triple is a subclass or subproperty triple
+     */
+    private static boolean isClosureTriple(Triple triple) {
+        return triple.getPredicate().equals(RDFS.subClassOf.asNode())
+                || triple.getPredicate().equals(RDFS.subPropertyOf.asNode());
+    }
+
+    /**
+     * Adds the kept triples to the target model
+     */
+    private void addKept() {
+        if (_kept.isEmpty())
+            return;
+        _target.add(_kept);
+        _kept.removeAll();
+    }
+}
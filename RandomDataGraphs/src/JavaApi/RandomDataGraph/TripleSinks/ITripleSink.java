@@ -0,0 +1,66 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * Interface for the destination of the triples created by a construction command.
+ * The construction pattern writes its triples into the model returned by the sink, while the sink decides when
+ * (and how) these triples reach their final target. This enables us to keep the memory used by a construction
+ * command bounded, instead of holding all of the triples it creates until the command ends
+ */
+public interface ITripleSink {
+
+    /**
+     * Returns the model into which the construction pattern should write its triples
+     * @return - The model into which the construction pattern should write its triples
+     */
+    public Model getModel();
+
+    /**
+     * Marks that the triples written so far form a complete unit (e.g. a single application of a construction
+     * pattern), which means that the sink may flush them to its target
+     */
+    public void checkpoint();
+
+    /**
+     * Returns the number of triples written into the model of this sink (see getModel()) since the sink was created,
+     * counted as they are written. A triple which is written more than once is counted each time
+     * @return - The number of triples written into the model of this sink
+     */
+    public long getAddedTriples();
+
+    /**
+     * Flushes all of the triples written so far to the target of this sink
+     */
+    public void flush();
+
+    /**
+     * Flushes all of the triples written so far and releases all of the resources held by this sink
+     */
+    public void close();
+}
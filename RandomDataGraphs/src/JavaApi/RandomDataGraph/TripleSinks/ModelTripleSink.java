@@ -0,0 +1,95 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * A simple implementation of the ITripleSink interface which writes the triples directly into the given model
+ * (there is no buffering, so flushing does nothing)
+ */
+public class ModelTripleSink implements ITripleSink {
+
+    /**
+     * Class Members
+     */
+    private Model _model;
+    private AddedTriplesCounter _counter;
+
+    /**
+     * Constructor
+     * @param model - The model into which the triples will be written (it isn't closed by this sink)
+     */
+    public ModelTripleSink(Model model) {
+        _model = model;
+        _counter = new AddedTriplesCounter(model);
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the model into which the construction pattern should write its triples
+     * @return - The model into which the construction pattern should write its triples
+     */
+    @Override
+    public Model getModel() {
+        return _model;
+    }
+
+    /**
+     * Does nothing, since the triples are already in the model
+     */
+    @Override
+    public void checkpoint() {
+    }
+
+    /**
+     * Returns the number of triples written into the model through this sink or by any other writer of the model,
+     * since the sink was created (see AddedTriplesCounter)
+     * @return - The number of triples written into the model since the sink was created
+     */
+    @Override
+    public long getAddedTriples() {
+        return _counter.getCount();
+    }
+
+    /**
+     * Does nothing, since the triples are already in the model
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Stops counting the triples written into the model (the model itself is owned by the caller)
+     */
+    @Override
+    public void close() {
+        _counter.unregister();
+    }
+}
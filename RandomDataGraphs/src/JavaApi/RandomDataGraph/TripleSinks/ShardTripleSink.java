@@ -0,0 +1,267 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * An implementation of the ITripleSink interface for a single worker out of several workers which write into the
+ * same triple-sink concurrently. Each worker writes its triples into its own in-memory buffer, which is flushed into
+ * the shared sink in batches - the shared sink is locked only while a batch is added to it (followed by a checkpoint
+ * of the shared sink), so the memory used by each worker is bounded by the batch size (plus the triples written
+ * between two checkpoints), and the shared sink keeps deciding when the triples reach its own target.
+ * Ordered shards (see createOrdered()) flush their batches in turns, so the order in which the triples reach the
+ * shared sink doesn't depend on the scheduling of the workers
+ */
+public class ShardTripleSink implements ITripleSink {
+
+    /**
+     * Consts
+     */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /**
+     * Class Members
+     */
+    private ITripleSink _target;
+    private Model _buffer;
+    private AddedTriplesCounter _counter;
+    private int _batchSize;
+    // The turns shared by a group of ordered shards (null if this shard isn't ordered), and the index of this shard
+    private Turns _turns;
+    private int _index;
+    private boolean _isClosed;
+
+    /**
+     * Constructor of an unordered shard - its batches are flushed as soon as they are full
+     * @param target - The triple-sink shared by all of the workers (all of its users must synchronize on it)
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * @throws IllegalArgumentException - If the given batch size isn't a positive number
+     */
+    public ShardTripleSink(ITripleSink target, int batchSize) throws IllegalArgumentException {
+        this(target, batchSize, null, 0);
+    }
+
+    /**
+     * Constructor
+     * @param target - The triple-sink shared by all of the workers
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * @param turns - The turns shared by a group of ordered shards (null for an unordered shard)
+     * @param index - The index of this shard in its group
+     * @throws IllegalArgumentException - If the given batch size isn't a positive number
+     */
+    private ShardTripleSink(ITripleSink target, int batchSize, Turns turns, int index)
+            throws IllegalArgumentException {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("Batch size must be a positive number: " + batchSize);
+        _target = target;
+        _batchSize = batchSize;
+        _turns = turns;
+        _index = index;
+        _isClosed = false;
+        _buffer = ModelFactory.createDefaultModel();
+        _counter = new AddedTriplesCounter(_buffer);
+        synchronized (_target) {
+            _buffer.setNsPrefixes(_target.getModel().getNsPrefixMap());
+        }
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Creates a group of ordered shards of the given triple-sink. The shards flush their batches in a round-robin
+     * order (skipping the closed shards), so a shard holding a full batch waits until all of the shards before it
+     * flushed their next batch or were closed. This way the order of the batches depends only on the triples written
+     * into each shard, while the memory used by each shard stays bounded by its batch size
+     * @param target - The triple-sink shared by all of the shards
+     * @param shards - The number of shards
+     * @param batchSize - The number of buffered triples that triggers a flush at the next checkpoint
+     * @return - The ordered shards (each of them must be closed or discarded, otherwise the others wait for it)
+     * @throws IllegalArgumentException - If the given number of shards or batch size isn't a positive number
+     */
+    public static ShardTripleSink[] createOrdered(ITripleSink target, int shards, int batchSize)
+            throws IllegalArgumentException {
+        if (shards <= 0)
+            throw new IllegalArgumentException("The number of shards must be a positive number: " + shards);
+        Turns turns = new Turns(shards);
+        ShardTripleSink[] sinks = new ShardTripleSink[shards];
+        for (int i = 0; i < shards; i++)
+            sinks[i] = new ShardTripleSink(target, batchSize, turns, i);
+        return sinks;
+    }
+
+    /**
+     * Discards the buffered triples and closes this shard (used when its worker failed, so the other shards of its
+     * group don't wait for it). Does nothing if this shard was already closed
+     */
+    public void discard() {
+        if (_isClosed)
+            return;
+        _buffer.removeAll();
+        release();
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the buffer model into which the construction pattern should write its triples
+     * @return - The buffer model into which the construction pattern should write its triples
+     */
+    @Override
+    public Model getModel() {
+        return _buffer;
+    }
+
+    /**
+     * Returns the number of triples written into the buffer model of this sink (see AddedTriplesCounter)
+     * @return - The number of triples written into the buffer model of this sink
+     */
+    @Override
+    public long getAddedTriples() {
+        return _counter.getCount();
+    }
+
+    /**
+     * Flushes the buffered triples if their number reached the batch size
+     */
+    @Override
+    public void checkpoint() {
+        if (_buffer.size() >= _batchSize)
+            flush();
+    }
+
+    /**
+     * Adds all of the buffered triples to the shared sink and marks a checkpoint in it (an ordered shard waits for
+     * its turn first)
+     * @throws IllegalStateException - If the thread was interrupted while waiting for its turn
+     */
+    @Override
+    public void flush() throws IllegalStateException {
+        if (_buffer.isEmpty())
+            return;
+        if (_turns != null)
+            _turns.await(_index);
+        synchronized (_target) {
+            _target.getModel().add(_buffer);
+            _target.checkpoint();
+        }
+        if (_turns != null)
+            _turns.advance(_index, false);
+        _buffer.removeAll();
+    }
+
+    /**
+     * Flushes all of the buffered triples and closes the buffer (the shared sink is owned by the caller)
+     */
+    @Override
+    public void close() {
+        if (_isClosed)
+            return;
+        flush();
+        release();
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Closes the buffer of this shard and removes it from the turns of its group
+     */
+    private void release() {
+        _isClosed = true;
+        _buffer.close();
+        if (_turns != null)
+            _turns.advance(_index, true);
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * The turns of a group of ordered shards
+     */
+    private static class Turns {
+
+        /**
+         * Class Members
+         */
+        private int _turn;
+        private boolean[] _closed;
+
+        /**
+         * Constructor
+         * @param shards - The number of shards in the group
+         */
+        Turns(int shards) {
+            _turn = 0;
+            _closed = new boolean[shards];
+        }
+
+        /**
+         * Waits until it's the turn of the given shard
+         * @param index - The index of the shard
+         * @throws IllegalStateException - If the thread was interrupted while waiting
+         */
+        synchronized void await(int index) throws IllegalStateException {
+            try {
+                while (_turn != index)
+                    wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the turn of shard: " + index);
+            }
+        }
+
+        /**
+         * Passes the turn from the given shard to the next shard which isn't closed (if it's the turn of the given
+         * shard)
+         * @param index - The index of the shard
+         * @param closed - True iff the given shard was closed
+         */
+        synchronized void advance(int index, boolean closed) {
+            if (closed)
+                _closed[index] = true;
+            if (_turn != index)
+                return;
+            for (int i = 1; i <= _closed.length; i++) {
+                int next = (index + i) % _closed.length;
+                if (!_closed[next]) {
+                    _turn = next;
+                    break;
+                }
+            }
+            notifyAll();
+        }
+    }
+}
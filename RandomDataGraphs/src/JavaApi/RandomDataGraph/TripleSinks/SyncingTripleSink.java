@@ -0,0 +1,105 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.RandomDataGraph.TripleSinks;
+
+import StorageWrappers.IDBWrapper;
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * A decorator of an ITripleSink whose target is backed by a DB, which gives the DB a chance to sync the written
+ * triples to its storage after each checkpoint and flush (see IDBWrapper.syncIfDue()), and always syncs them when
+ * the sink is closed. So the triples of a long construction command are synced in batches (by the sync interval
+ * of the DB) and all of the triples of a command are synced once it ends. The synced batches of a command stay
+ * uncommitted until the command's marker is stored (see IDBWrapper.setResumeMarker()), so they're rolled back if
+ * the command doesn't end (see IDBWrapper.rollback())
+ */
+public class SyncingTripleSink implements ITripleSink {
+
+    /**
+     * Class Members
+     */
+    private ITripleSink _sink;
+    private IDBWrapper _dbw;
+
+    /**
+     * Constructor
+     * @param sink - The decorated sink (its target must be backed by the given DB)
+     * @param dbw - The DB backing the target of the decorated sink
+     */
+    public SyncingTripleSink(ITripleSink sink, IDBWrapper dbw) {
+        _sink = sink;
+        _dbw = dbw;
+    }
+
+    /**
+     * ITripleSink - Interface Implementation
+     */
+
+    /**
+     * Returns the model of the decorated sink
+     * @return - The model of the decorated sink
+     */
+    @Override
+    public Model getModel() {
+        return _sink.getModel();
+    }
+
+    /**
+     * Marks a checkpoint in the decorated sink and syncs the DB if a sync is due
+     */
+    @Override
+    public void checkpoint() {
+        _sink.checkpoint();
+        _dbw.syncIfDue();
+    }
+
+    /**
+     * Returns the number of triples written into the decorated sink
+     * @return - The number of triples written into the decorated sink
+     */
+    @Override
+    public long getAddedTriples() {
+        return _sink.getAddedTriples();
+    }
+
+    /**
+     * Flushes the decorated sink and syncs the DB if a sync is due
+     */
+    @Override
+    public void flush() {
+        _sink.flush();
+        _dbw.syncIfDue();
+    }
+
+    /**
+     * Closes the decorated sink and syncs the DB
+     */
+    @Override
+    public void close() {
+        _sink.close();
+        _dbw.sync();
+    }
+}
@@ -45,6 +45,8 @@ public class CounterDictionarySampler implements IDictionarySampler {
     private StdNaturalNumberSampler _nSampler;
     private SamplingMode _samplingMode;
     private String _label;
+    // Holds the base label, the counter value is appended after it for each new label
+    private StringBuilder _labelBuilder;
 
     /**
      * Constructor that initializes the instance with some default values. Most important
@@ -74,6 +76,7 @@ public class CounterDictionarySampler implements IDictionarySampler {
     public void init(String label) throws IOException {
 
         _label = label;
+        _labelBuilder = new StringBuilder(label);
         _isInitialized = true;
     }
 
@@ -112,13 +115,13 @@ public class CounterDictionarySampler implements IDictionarySampler {
         switch (_samplingMode) {
             case RANDOM_GLOBAL_DISTINCT:
                 index = _noRepNSampler.getNextNatural();
-                label = _label + index;
+                label = buildLabel(index);
                 if (!hasNext()) // No more values left in the list, so the instance becomes uninitialized
                     _isInitialized = false;
                 break;
             case RANDOM_REPEATABLE:
                 index = _nSampler.getNextNatural();
-                label = _label + index;
+                label = buildLabel(index);
                 break;
             default:
                 throw new IllegalArgumentException("The current sampling mode isn't supported: " + _samplingMode);
@@ -149,4 +152,19 @@ public class CounterDictionarySampler implements IDictionarySampler {
          return true;
     }
 
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Returns the base label followed by the given index, reusing the same buffer for all labels
+     * @param index - The index that is appended to the base label
+     * @return - The base label followed by the given index
+     */
+    private String buildLabel(int index) {
+        _labelBuilder.setLength(_label.length());
+        _labelBuilder.append(index);
+        return _labelBuilder.toString();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.DictionarySamplers;
+
+import java.io.IOException;
+
+/**
+ * A d-sampler which counts the labels drawn from the d-sampler it wraps. Since the state of a d-sampler depends
+ * only on its own random generator and on the labels drawn from it, a d-sampler created with the same generator can
+ * be brought to the same state by drawing the same number of labels from it (see skip()) - e.g. when a stopped
+ * generation is resumed, so the labels sampled in global-distinct mode by the resumed commands don't repeat the
+ * stored ones
+ */
+public class CountingDictionarySampler implements IDictionarySampler {
+
+    /**
+     * Class Members
+     */
+    private IDictionarySampler _dSampler;
+    private long _drawnLabels;
+
+    /**
+     * Constructor
+     * @param dSampler - The counted d-sampler (it mustn't be used directly while this instance is used)
+     */
+    public CountingDictionarySampler(IDictionarySampler dSampler) {
+        _dSampler = dSampler;
+        _drawnLabels = 0;
+    }
+
+    /**
+     * IDictionarySampler - Interface Implementation
+     */
+
+    /**
+     * Initializes the counted d-sampler with the data found in the given file (the count isn't changed)
+     * @param fileName - A file containing the data that the counted d-sampler will use for returning random values
+     * @throws IOException - In case of IO problems while handling the file
+     */
+    @Override
+    public void init(String fileName) throws IOException {
+        _dSampler.init(fileName);
+    }
+
+    /**
+     * Returns true iff the counted d-sampler was initialized
+     * @return - True iff the counted d-sampler was initialized
+     */
+    @Override
+    public boolean isInitialized() {
+        return _dSampler.isInitialized();
+    }
+
+    /**
+     * Returns a label drawn from the counted d-sampler
+     * @return - A label drawn from the counted d-sampler
+     * @throws IllegalStateException - If the counted d-sampler wasn't initialized
+     */
+    @Override
+    public String getRandomLabel() throws IllegalStateException {
+        String label = _dSampler.getRandomLabel();
+        _drawnLabels++;
+        return label;
+    }
+
+    /**
+     * Additional Public Methods
+     */
+
+    /**
+     * Returns the number of labels drawn from the counted d-sampler through this instance
+     * @return - The number of drawn labels
+     */
+    public long getDrawnLabels() {
+        return _drawnLabels;
+    }
+
+    /**
+     * Draws the given number of labels and drops them
+     * @param labels - The number of labels to draw
+     * @throws IllegalStateException - If the counted d-sampler ran out of labels
+     */
+    public void skip(long labels) throws IllegalStateException {
+        for (long i = 0; i < labels; i++)
+            getRandomLabel();
+    }
+}
@@ -102,6 +102,7 @@ public class CustomDictionarySampler implements IDictionarySampler {
     public CustomDictionarySampler() {
         _isInitialized = false;
         _nSampler = new StdNaturalNumberSampler();
+        _nSampler.setMaxValue(FULL_PRCT - 1);
         _labelValues = new String[FULL_PRCT];
     }
 
@@ -175,6 +176,7 @@ public class CustomDictionarySampler implements IDictionarySampler {
             // Verify if the probabilities add up to 100%
             if (offset != FULL_PRCT)
                 throw new IllegalArgumentException("The total percentage of values in the file doesn't add up to 100%");
+            _isInitialized = true;
         } else
             throw new IllegalArgumentException("File type isn't supported");
 
@@ -196,8 +198,6 @@ public class CustomDictionarySampler implements IDictionarySampler {
      * @throws IllegalStateException - If the instance wasn't initialized by an invocation of init()
      */
     public String getRandomLabel() throws IllegalStateException {
-        _nSampler = new StdNaturalNumberSampler();
-        _nSampler.setMaxValue(FULL_PRCT);
         int randVal = _nSampler.getNextNatural();
         return _labelValues[randVal];
     }
@@ -213,7 +213,7 @@ public class CustomDictionarySampler implements IDictionarySampler {
      * @return A string representation of the file type according to a given full file name
      */
     private String getFileType(String fileName) {
-        String[] fileParts = fileName.split(".");
+        String[] fileParts = fileName.split("\\.");
         return fileParts[fileParts.length-1].toLowerCase();
     }
 
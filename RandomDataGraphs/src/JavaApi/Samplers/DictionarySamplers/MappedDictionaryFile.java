@@ -0,0 +1,254 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.DictionarySamplers;
+
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A read-only dictionary of labels which is backed by a memory-mapped text file (one UTF-8 label per line).
+ * Instead of loading the labels into the heap, only the offset of each line is kept (in a long[] index) and a
+ * label is decoded from the mapped file whenever it's requested - so the heap usage doesn't depend on the length
+ * of the labels and the startup time is a single scan over the file.
+ * The index can be persisted in a sidecar file (<file>.idx) which is reused as long as the text file wasn't
+ * changed (same length and modification time), so later runs skip the scan as well.
+ * Note that unlike loading the labels into a map, duplicated labels aren't detected.
+ */
+public class MappedDictionaryFile {
+
+    /**
+     * Consts
+     */
+    public static final String INDEX_FILE_SUFFIX = ".idx";
+    private static final long INDEX_FILE_MAGIC = 0x4752524944583031L;
+    private static final int INDEX_HEADER_LONGS = 4;
+    // The file is mapped in segments since a single mapping is limited to 2GB
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Class Members
+     */
+    private String _fileName;
+    private long _fileLength;
+    private MappedByteBuffer[] _segments;
+    // _lineStarts[i] is the offset of the i-th line, the last entry is the end of the last line
+    private long[] _lineStarts;
+    private int _size;
+
+    /**
+     * Constructor - maps the given file and builds (or loads) its line index
+     * @param fileName - The text file holding one label per line
+     * @param persistIndex - If true the line index is loaded from/stored in the sidecar file <fileName>.idx
+     * @throws IOException - In case of a failure while mapping the file or reading/writing the index file
+     * @throws IllegalArgumentException - If the file has more lines than Integer.MAX_VALUE
+     */
+    public MappedDictionaryFile(String fileName, boolean persistIndex) throws IOException, IllegalArgumentException {
+        _fileName = fileName;
+        File file = new File(fileName);
+        _fileLength = file.length();
+        _segments = mapFile(file, _fileLength);
+
+        File indexFile = new File(fileName + INDEX_FILE_SUFFIX);
+        _lineStarts = persistIndex ? loadIndex(indexFile, file) : null;
+        if (_lineStarts == null) {
+            _lineStarts = buildIndex();
+            if (persistIndex)
+                storeIndex(indexFile, file);
+        }
+        _size = _lineStarts.length - 1;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the number of labels (lines) in the file
+     * @return - The number of labels in the file
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the label in the given line, decoded from the mapped file (the line terminator isn't included).
+     * The method only uses absolute reads so it may be called concurrently
+     * @param index - The index of the line (zero based)
+     * @return - The label in the given line
+     * @throws IndexOutOfBoundsException - If there's no line with the given index
+     */
+    public String getLabel(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= _size)
+            throw new IndexOutOfBoundsException("No label with index " + index + " in " + _fileName + " (size: " + _size + ")");
+
+        long start = _lineStarts[index];
+        long end = _lineStarts[index + 1];
+        // Remove the line terminator (\n or \r\n)
+        if (end > start && byteAt(end - 1) == '\n')
+            end--;
+        if (end > start && byteAt(end - 1) == '\r')
+            end--;
+
+        byte[] bytes = new byte[(int)(end - start)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = byteAt(start + i);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Returns the name of the mapped file
+     * @return - The name of the mapped file
+     */
+    public String getFileName() {
+        return _fileName;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Maps the given file into read-only segments
+     * @param file - The mapped file
+     * @param length - The length of the file
+     * @return - The mapped segments of the file (each of SEGMENT_SIZE bytes except for the last one)
+     * @throws IOException - In case of a failure while mapping the file
+     */
+    private static MappedByteBuffer[] mapFile(File file, long length) throws IOException {
+        int count = (int)((length + SEGMENT_SIZE - 1) >> SEGMENT_BITS);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            for (int i = 0; i < count; i++) {
+                long position = (long)i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, length - position));
+            }
+        }
+        finally {
+            // The mapping stays valid after the file is closed
+            raf.close();
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the byte in the given offset of the file
+     * @param offset - The offset in the file
+     * @return - The byte in the given offset
+     */
+    private byte byteAt(long offset) {
+        return _segments[(int)(offset >> SEGMENT_BITS)].get((int)(offset & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Scans the mapped file and returns the offsets of all of its lines (followed by the end of the last line)
+     * @return - The offsets of the lines in the file
+     * @throws IllegalArgumentException - If the file has more lines than Integer.MAX_VALUE
+     */
+    private long[] buildIndex() throws IllegalArgumentException {
+        long[] starts = new long[1024];
+        int count = 1;  // starts[0] = 0
+        for (int s = 0; s < _segments.length; s++) {
+            MappedByteBuffer segment = _segments[s];
+            long base = (long)s << SEGMENT_BITS;
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                if (segment.get(i) != '\n')
+                    continue;
+                if (count == starts.length) {
+                    if (count == Integer.MAX_VALUE)
+                        throw new IllegalArgumentException("The file has too many lines: " + _fileName);
+                    long[] newStarts = new long[(int)Math.min(Integer.MAX_VALUE, 2L * count)];
+                    System.arraycopy(starts, 0, newStarts, 0, count);
+                    starts = newStarts;
+                }
+                starts[count++] = base + i + 1;
+            }
+        }
+
+        // The last offset is the end of the last line - if the file ends with a line terminator it's already there
+        int length = (starts[count - 1] == _fileLength) ? count : count + 1;
+        long[] index = new long[length];
+        System.arraycopy(starts, 0, index, 0, count);
+        index[length - 1] = _fileLength;
+        return index;
+    }
+
+    /**
+     * Loads the line index from the given index file, if it exists and it matches the current version of the file
+     * @param indexFile - The index file
+     * @param file - The text file that was indexed
+     * @return - The line index or null if there's no valid index file
+     * @throws IOException - In case of a failure while reading the index file
+     */
+    private static long[] loadIndex(File indexFile, File file) throws IOException {
+        if (!indexFile.exists() || indexFile.length() < INDEX_HEADER_LONGS * 8)
+            return null;
+
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+        try {
+            LongBuffer longs = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexFile.length()).asLongBuffer();
+            if (longs.get() != INDEX_FILE_MAGIC || longs.get() != file.length() || longs.get() != file.lastModified())
+                return null;
+            long length = longs.get();
+            if (length != longs.remaining())
+                return null;
+            long[] index = new long[(int)length];
+            longs.get(index);
+            return index;
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Stores the line index in the given index file, along with the length and modification time of the text file
+     * @param indexFile - The index file
+     * @param file - The text file that was indexed
+     * @throws IOException - In case of a failure while writing the index file
+     */
+    private void storeIndex(File indexFile, File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            out.writeLong(INDEX_FILE_MAGIC);
+            out.writeLong(file.length());
+            out.writeLong(file.lastModified());
+            out.writeLong(_lineStarts.length);
+            for (long start : _lineStarts)
+                out.writeLong(start);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
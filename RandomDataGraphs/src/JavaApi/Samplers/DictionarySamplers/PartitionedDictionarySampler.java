@@ -0,0 +1,109 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.DictionarySamplers;
+
+import JavaApi.Samplers.PartitionedSampleSource;
+
+/**
+ * A d-sampler which returns a partition of the labels of a shared d-sampler (see PartitionedSampleSource), so
+ * several threads can draw labels from the same d-sampler without synchronizing on every draw, while its sampling
+ * mode is kept (e.g. the labels of a global-distinct d-sampler stay distinct across all of the partitions).
+ * A partition is initialized by its shared d-sampler, and should be used by a single thread
+ */
+public class PartitionedDictionarySampler implements IDictionarySampler {
+
+    /**
+     * Class Members
+     */
+    private PartitionedSampleSource.Partition<String> _partition;
+
+    /**
+     * Constructor - Instances should be created by partition()
+     * @param partition - The partition of the labels of the shared d-sampler
+     */
+    private PartitionedDictionarySampler(PartitionedSampleSource.Partition<String> partition) {
+        _partition = partition;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Splits the labels of the given d-sampler into the given number of partitions
+     * @param dSampler - The shared d-sampler (it must be initialized, and mustn't be used directly while the
+     * partitions are used)
+     * @param parts - The number of partitions
+     * @return - The partitions of the given d-sampler
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    public static PartitionedDictionarySampler[] partition(final IDictionarySampler dSampler, int parts)
+            throws IllegalArgumentException {
+        PartitionedSampleSource<String> source = new PartitionedSampleSource<String>(parts) {
+            @Override
+            protected String drawNext() throws IllegalStateException {
+                return dSampler.getRandomLabel();
+            }
+        };
+        PartitionedDictionarySampler[] partitions = new PartitionedDictionarySampler[parts];
+        for (int i = 0; i < parts; i++)
+            partitions[i] = new PartitionedDictionarySampler(source.getPartition(i));
+        return partitions;
+    }
+
+    /**
+     * IDictionarySampler - Interface Implementation
+     */
+
+    /**
+     * A partition can't be initialized - it's initialized by its shared d-sampler
+     * @param fileName - Ignored
+     * @throws IllegalStateException - Always
+     */
+    @Override
+    public void init(String fileName) throws IllegalStateException {
+        throw new IllegalStateException("A partition is initialized by its shared d-sampler");
+    }
+
+    /**
+     * Returns true, since a partition is initialized by its shared d-sampler
+     * @return - True
+     */
+    @Override
+    public boolean isInitialized() {
+        return true;
+    }
+
+    /**
+     * Returns the next label of this partition
+     * @return - The next label of this partition
+     * @throws IllegalStateException - If the shared d-sampler doesn't have any labels left
+     */
+    @Override
+    public String getRandomLabel() throws IllegalStateException {
+        return _partition.next();
+    }
+}
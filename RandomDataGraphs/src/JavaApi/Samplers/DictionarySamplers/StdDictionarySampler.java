@@ -59,6 +59,10 @@ public class StdDictionarySampler implements IDictionarySampler {
     private HashMap<Integer, String> _labelValues;
     private SamplingMode _samplingMode;
     private NoRepetitionMode _nSamplerMode;
+    // When set, the labels are read from a memory-mapped file instead of _labelValues
+    private MappedDictionaryFile _mappedLabels;
+    private boolean _memoryMapped;
+    private boolean _persistIndex;
 
     /**
      * Default constructor that sets the sampling mode to be NoRepetitionMode.HASE_SET_WITH_REMAINING_NUMBERS
@@ -68,6 +72,8 @@ public class StdDictionarySampler implements IDictionarySampler {
         _labelValues = new HashMap<Integer, String>();
         _samplingMode = SamplingMode.RANDOM_GLOBAL_DISTINCT;
         _nSamplerMode = NoRepetitionMode.HASE_SET_WITH_REMAINING_NUMBERS;
+        _memoryMapped = false;
+        _persistIndex = false;
     }
 
     /**
@@ -87,12 +93,19 @@ public class StdDictionarySampler implements IDictionarySampler {
     /**
      * Initializes this instance with the data found in the given file. Invoking this methods will un-initialize any
      * previous invocation of any of the init methods.
+     * If the memory-mapped mode is set (see setMemoryMapped()) the file is mapped and the labels are decoded on
+     * demand, otherwise all labels are loaded into the heap.
      * @param fileName - A file containing the data that this instance will use for returning random values. Currently
      * only .txt file in a specific format is supported (see additional documentation).
      */
     @Override
     public void init(String fileName) throws IOException {
 
+        if (_memoryMapped) {
+            initMapped(fileName);
+            return;
+        }
+
         HashMap<Integer, String> hashMap = new HashMap<Integer, String>();
         HashSet<String> set = new HashSet<String>();
 
@@ -154,13 +167,13 @@ public class StdDictionarySampler implements IDictionarySampler {
         switch (_samplingMode) {
             case RANDOM_GLOBAL_DISTINCT:
                 index = _nSampler.getNextNatural();
-                label = _labelValues.get(index);
+                label = getLabel(index);
                 if (!hasNext()) // No more values left in the list, so the instance becomes uninitialized
                     _isInitialized = false;
                 break;
             case RANDOM_REPEATABLE:
                 index = _nSampler.getNextNatural();
-                label = _labelValues.get(index);
+                label = getLabel(index);
                 break;
             default:
                 throw new IllegalArgumentException("The current sampling mode isn't supported: " + _samplingMode);
@@ -180,6 +193,7 @@ public class StdDictionarySampler implements IDictionarySampler {
      */
     public void init(HashMap<Integer, String> hashMap) {
 
+        _mappedLabels = null;
         _labelValues.clear();
         _labelValues.putAll(hashMap);
         initNSampler();
@@ -200,6 +214,25 @@ public class StdDictionarySampler implements IDictionarySampler {
         init(hashMap);
     }
 
+    /**
+     * Sets whether init(String) maps the given file into memory instead of loading all of its labels into the heap.
+     * In this mode only the offsets of the lines are kept in the heap (see MappedDictionaryFile) and duplicated
+     * labels in the file aren't detected. Affects the following invocations of init(String)
+     * @param memoryMapped - True for mapping the dictionary files, false for loading them into the heap (default)
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        _memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Sets whether the line index of a memory-mapped dictionary file is persisted in a sidecar file
+     * (<file>.idx), so following initializations with the same file don't need to scan it
+     * @param persistIndex - True for loading/storing the line index from/in a sidecar file (default is false)
+     */
+    public void setPersistIndex(boolean persistIndex) {
+        _persistIndex = persistIndex;
+    }
+
     /**
      * Sets the sampling mode that is being used in this instance.
      * (With/Without repetition)
@@ -229,6 +262,40 @@ public class StdDictionarySampler implements IDictionarySampler {
      * Internal Private Methods
      */
 
+    /**
+     * Initializes this instance with a memory-mapped dictionary file
+     * @param fileName - A text file holding one label per line
+     * @throws IOException - In case of a failure while mapping the file or its index
+     */
+    private void initMapped(String fileName) throws IOException {
+        String[] fileParts = fileName.split("\\.");
+        String fileTypeName = fileParts[fileParts.length-1].toLowerCase();
+        if (!fileTypeName.equals(TXT_FILE))
+            throw new IllegalArgumentException("File type isn't supported");
+
+        _mappedLabels = new MappedDictionaryFile(fileName, _persistIndex);
+        _labelValues.clear();
+        initNSampler();
+        _isInitialized = true;
+    }
+
+    /**
+     * Returns the number of labels in the dictionary
+     * @return - The number of labels in the dictionary
+     */
+    private int getDictionarySize() {
+        return (_mappedLabels != null) ? _mappedLabels.size() : _labelValues.size();
+    }
+
+    /**
+     * Returns the label with the given index in the dictionary
+     * @param index - The index of the label
+     * @return - The label with the given index in the dictionary
+     */
+    private String getLabel(int index) {
+        return (_mappedLabels != null) ? _mappedLabels.getLabel(index) : _labelValues.get(index);
+    }
+
     /**
      * Helper method for initializing the instance according to the sampling mode chosen 
      */
@@ -236,13 +303,13 @@ public class StdDictionarySampler implements IDictionarySampler {
         switch (_samplingMode) {
             case RANDOM_GLOBAL_DISTINCT:
                 NumberSamplerNoRep sampler = NumberSamplerNoRepFactory.getNoRepNumberSampler(_nSamplerMode);
-                sampler.setMaxValue(_labelValues.size() - 1);
+                sampler.setMaxValue(getDictionarySize() - 1);
                 sampler.init();
                 _nSampler = sampler;
                 break;
             case RANDOM_REPEATABLE:
                 IStdNaturalNumberSampler samplerWithRep = new StdNaturalNumberSampler();
-                samplerWithRep.setMaxValue(_labelValues.size());
+                samplerWithRep.setMaxValue(getDictionarySize() - 1);
                 _nSampler = samplerWithRep;
                 break;
             default:
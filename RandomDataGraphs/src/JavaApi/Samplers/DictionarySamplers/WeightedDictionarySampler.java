@@ -0,0 +1,265 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.DictionarySamplers;
+
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * A Dictionary-Sampler which returns a label value (with repetitions) according to arbitrary (real) weights that
+ * are given to each of the labels (see init() for the file format).
+ * The sampler uses an alias table (Walker's alias method, as constructed by Vose) so each label is drawn in O(1)
+ * regardless of the number of labels: a uniform column is chosen and a single biased coin decides between the
+ * column's own label and its alias.
+ */
+public class WeightedDictionarySampler implements IDictionarySampler {
+
+    /**
+     * Consts
+     */
+    private static final String TXT_FILE = "txt";
+    private static final String COMMENT_PREFIX = "//";
+    private static final String LINE_SEPARATOR = ";";
+
+    /**
+     * Class Members
+     */
+    private boolean _isInitialized;
+    private Random _random;
+    private String[] _labels;
+    // The probability of returning the column's own label (otherwise the label of the column's alias is returned)
+    private double[] _prob;
+    private int[] _alias;
+
+    /**
+     * Constructor
+     */
+    public WeightedDictionarySampler() {
+        _isInitialized = false;
+        _random = RandomSource.newRandom();
+    }
+
+    /**
+     * IDictionarySampler - Interface Implementation
+     */
+
+    /**
+     * Initializes this instance with the data found in the given file. Invoking this methods will re-initialize any
+     * previous invocation of any of the init methods.
+     * Each line in the file should be in the following format: <LabelName> ; <Weight> for example
+     * Car ; 0.5
+     * Train ; 2
+     * Bus ; 1e-3
+     * The weights are non-negative real numbers which don't have to sum up to any specific value (each label is
+     * returned with the probability of its weight divided by the sum of all weights).
+     * Empty lines and lines starting with // are ignored.
+     * @param fileName - A .txt file containing the labels and their weights
+     * @throws IOException - In case of a failure while reading the file
+     * @throws IllegalArgumentException - If the file isn't a .txt file or isn't in the correct format
+     */
+    @Override
+    public void init(String fileName) throws IOException, IllegalArgumentException {
+
+        // Decide what is the file type
+        String[] fileParts = fileName.split("\\.");
+        String fileTypeName = fileParts[fileParts.length-1].toLowerCase();
+        if (!fileTypeName.equals(TXT_FILE))
+            throw new IllegalArgumentException("File type isn't supported");
+
+        ArrayList<String> labels = new ArrayList<String>();
+        double[] weights = new double[1024];
+        HashSet<String> labelSet = new HashSet<String>();
+
+        BufferedReader br = new BufferedReader(new FileReader(fileName));
+        try {
+            String line;
+            int lineIndex = 0;
+            while ((line = br.readLine()) != null) {
+                lineIndex++;
+                String trimmed = line.trim();
+                // Skip empty and comment lines
+                if (trimmed.length() == 0 || trimmed.startsWith(COMMENT_PREFIX))
+                    continue;
+
+                int sepIndex = trimmed.lastIndexOf(LINE_SEPARATOR);
+                if (sepIndex < 0)
+                    throw new IllegalArgumentException("Failed to parse the file in line: " + lineIndex + " - expecting <label> ; <weight>");
+                String label = trimmed.substring(0, sepIndex).trim();
+                double weight;
+                try {
+                    weight = Double.parseDouble(trimmed.substring(sepIndex + 1).trim());
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Failed to parse the weight in line: " + lineIndex);
+                }
+
+                if (!labelSet.add(label))
+                    throw new IllegalArgumentException("File contains duplicated values! Found [: " + label + "] twice");
+
+                if (labels.size() == weights.length) {
+                    double[] newWeights = new double[weights.length * 2];
+                    System.arraycopy(weights, 0, newWeights, 0, weights.length);
+                    weights = newWeights;
+                }
+                weights[labels.size()] = weight;
+                labels.add(label);
+            }
+        }
+        finally {
+            br.close();
+        }
+
+        init(labels.toArray(new String[labels.size()]), weights);
+    }
+
+    /**
+     * Returns true iff the Dictionary Sampler was initialized by invoking one of the init() methods
+     * @return - True iff the Dictionary Sampler was initialized by invoking one of the init() methods
+     */
+    @Override
+    public boolean isInitialized() {
+        return _isInitialized;
+    }
+
+    /**
+     * Returns a random label value from the dictionary that was supplied in the init() method, where each label is
+     * returned with a probability that is proportional to its weight
+     * @return - A random label value from the dictionary that was supplied in the init() method
+     * @throws IllegalStateException - If the instance wasn't initialized by an invocation of init()
+     */
+    @Override
+    public String getRandomLabel() throws IllegalStateException {
+        if (!_isInitialized)
+            throw new IllegalStateException("Instance wasn't initialized by calling init()");
+
+        int column = _random.nextInt(_labels.length);
+        if (_random.nextDouble() < _prob[column])
+            return _labels[column];
+        return _labels[_alias[column]];
+    }
+
+    /**
+     * Additional Public Methods
+     */
+
+    /**
+     * Initializes this instance with the given labels and weights. Invoking this methods will re-initialize any
+     * previous invocation of any of the init methods.
+     * @param labels - The labels that this instance will return
+     * @param weights - The weight of each of the labels (only the first labels.length values are used). The weights
+     * are non-negative and are normalized by their sum
+     * @throws IllegalArgumentException - If there are no labels, if there are less weights than labels, or if a
+     * weight is negative/not-a-number or if all weights are zero
+     */
+    public void init(String[] labels, double[] weights) throws IllegalArgumentException {
+        int size = labels.length;
+        if (size == 0)
+            throw new IllegalArgumentException("The dictionary must contain at least one label");
+        if (weights.length < size)
+            throw new IllegalArgumentException("Got " + weights.length + " weights for " + size + " labels");
+
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (!(weights[i] >= 0) || Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("Illegal weight: " + weights[i] + " for the label: " + labels[i]);
+            sum += weights[i];
+        }
+        if (sum <= 0)
+            throw new IllegalArgumentException("The sum of the weights must be positive");
+
+        _labels = labels;
+        _prob = new double[size];
+        _alias = new int[size];
+        buildAliasTable(weights, sum);
+        _isInitialized = true;
+    }
+
+    /**
+     * Returns the number of labels in the dictionary
+     * @return - The number of labels in the dictionary
+     */
+    public int size() {
+        return (_labels == null) ? 0 : _labels.length;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Builds the alias table using Vose's method - the weights are scaled so their average is 1, then each column
+     * of a label whose scaled weight is smaller than 1 (small) is filled by the remainder of a label whose
+     * scaled weight is larger than 1 (large), which is then moved to the small list if it dropped below 1.
+     * The two work lists are kept as stacks on a single int array (small from the start, large from the end)
+     * @param weights - The weights of the labels
+     * @param sum - The sum of the weights
+     */
+    private void buildAliasTable(double[] weights, double sum) {
+        int size = _labels.length;
+        double[] scaled = new double[size];
+        int[] work = new int[size];
+        int smallTop = 0;
+        int largeTop = size;
+
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / sum;
+            if (scaled[i] < 1)
+                work[smallTop++] = i;
+            else
+                work[--largeTop] = i;
+        }
+
+        while (smallTop > 0 && largeTop < size) {
+            int small = work[--smallTop];
+            int large = work[largeTop++];
+            _prob[small] = scaled[small];
+            _alias[small] = large;
+            scaled[large] = (scaled[large] + scaled[small]) - 1;
+            if (scaled[large] < 1)
+                work[smallTop++] = large;
+            else
+                work[--largeTop] = large;
+        }
+
+        // Whatever remains is (up to rounding errors) exactly 1
+        while (largeTop < size) {
+            int large = work[largeTop++];
+            _prob[large] = 1;
+            _alias[large] = large;
+        }
+        while (smallTop > 0) {
+            int small = work[--smallTop];
+            _prob[small] = 1;
+            _alias[small] = small;
+        }
+    }
+}
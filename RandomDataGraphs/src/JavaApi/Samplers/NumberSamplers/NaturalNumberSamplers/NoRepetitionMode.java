@@ -32,5 +32,7 @@ public enum NoRepetitionMode {
 
     HASE_SET_WITH_REMAINING_NUMBERS,
     HASH_SET_WITH_REMAINING_NUMBERS_AND_SWAP,
-    HASH_SET_WITH_USED_NUMBERS
+    HASH_SET_WITH_USED_NUMBERS,
+    // Walks a counter through a keyed bijective permutation of the range - no per-number memory
+    LAZY_PERMUTATION
 }
@@ -45,6 +45,8 @@ public class NumberSamplerNoRepFactory {
                 return new NumberSamplerNoRepRemSwapImpl();
             case HASH_SET_WITH_USED_NUMBERS:
                 return new NumberSamplerNoRepUsedImpl();
+            case LAZY_PERMUTATION:
+                return new NumberSamplerNoRepPermImpl();
             default:
                 throw new IllegalArgumentException("The given SamplingMode isn't supported: " + mode);
         }
@@ -0,0 +1,149 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
+
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
+/**
+ * A standard implementation of the INaturalNumberSampler interface which returns numbers without repetitions
+ * while holding no per-number state. The numbers are produced by walking a counter over the range and mapping
+ * it through a keyed bijective permutation (a balanced Feistel network over the smallest power-of-4 domain
+ * that covers the range, using cycle-walking to stay inside the range). The round keys are drawn from the
+ * random generator on init, so each initialization yields a different permutation of the range.
+ * Both the memory and the time per number are O(1) regardless of the size of the range
+ */
+public class NumberSamplerNoRepPermImpl extends NumberSamplerNoRep {
+
+    /**
+     * Class Members
+     */
+    private static final int ROUNDS = 4;
+    private long[] _roundKeys;
+    private long _range;
+    private long _counter;
+    private int _halfBits;
+    private long _halfMask;
+
+    /**
+     * Constructor - Protected since the factory should be used
+     */
+    protected NumberSamplerNoRepPermImpl() {
+        _random = RandomSource.newRandom();
+        _maxVal = Integer.MAX_VALUE;
+        _minVal = 0;
+        _isInitialized = false;
+        _roundKeys = new long[ROUNDS];
+    }
+
+    /**
+     * INaturalNumberSampler - Interface Implementation
+     */
+
+    /**
+     * The method returns a natural number between 0 to max number set by the user.
+     * If no setMaxValue wasn't invoked, the max value will be max-int.
+     * @return - A natural number between 0 to the given number n.
+     */
+    @Override
+    public int getNextNatural() {
+        if (!hasNextNumber())
+            throw new IllegalStateException("No more numbers remaining!");
+
+        // Cycle-walking: the permutation is over a domain which is at most 4 times bigger than the range,
+        // so on average less than 4 rounds are needed until we land inside the range
+        long value = _counter++;
+        do {
+            value = permute(value);
+        }
+        while (value >= _range);
+
+        return (int)(value + _minVal);
+    }
+
+    /**
+     * Additional Public Methods
+     */
+
+    /**
+     * Initializes the instance according to the given values:
+     * - max value:                    Default value is Integer.MAX_VALUE
+     * - min value:                    Default value is 0
+     */
+    public void init() {
+        // The range is kept as long since the default range [0, max-int] doesn't fit in an int
+        _range = (long)_maxVal - _minVal + 1;
+        int bits = 2;
+        while ((1L << bits) < _range)
+            bits += 2;
+        _halfBits = bits / 2;
+        _halfMask = (1L << _halfBits) - 1;
+        for (int i = 0; i < ROUNDS; i++)
+            _roundKeys[i] = _random.nextLong();
+        _counter = 0;
+        _isInitialized = true;
+    }
+
+    /**
+     * Return true iff there are more numbers to be returned from the given range
+     * @return a number from the given range (without repetitions).
+     */
+    public boolean hasNextNumber() {
+        return (_counter < _range);
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Maps the given value to its image under the keyed permutation of the [0, 4^halfBits) domain
+     * @param value - The value to be mapped
+     * @return - The image of the given value (which is also in the domain)
+     */
+    private long permute(long value) {
+        long left = value >>> _halfBits;
+        long right = value & _halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (roundFunction(right, _roundKeys[i]) & _halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << _halfBits) | right;
+    }
+
+    /**
+     * The Feistel round function - a 64-bit mixing of the given half combined with the round key
+     * @param half - The half of the value to be mixed
+     * @param key - The round key
+     * @return - The mixed value (only its low bits are used)
+     */
+    private static long roundFunction(long half, long key) {
+        long z = half + key;
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -25,9 +25,10 @@
 
 package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
 
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Random;
 
 /**
  * A standard implementation of the INaturalNumberSampler interface which uses the Java
@@ -50,7 +51,7 @@ public class NumberSamplerNoRepRemImpl extends NumberSamplerNoRep {
      * Constructor - Protected since the factory should be used
      */
     protected NumberSamplerNoRepRemImpl() {
-        _random = new Random();
+        _random = RandomSource.newRandom();
         _maxVal = Integer.MAX_VALUE;
         _minVal = 0;
         _isInitialized = false;
@@ -25,7 +25,7 @@
 
 package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
 
-import java.util.Random;
+import JavaApi.Samplers.NumberSamplers.RandomSource;
 
 /**
  * A standard implementation of the INaturalNumberSampler interface which uses the Java
@@ -44,7 +44,7 @@ public class NumberSamplerNoRepRemSwapImpl extends NumberSamplerNoRep {
      * Constructor - Protected since the factory should be used
      */
     protected NumberSamplerNoRepRemSwapImpl() {
-        _random = new Random();
+        _random = RandomSource.newRandom();
         _maxVal = Integer.MAX_VALUE;
         _minVal = 0;
         _isInitialized = false;
@@ -25,8 +25,9 @@
 
 package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
 
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
 import java.util.HashSet;
-import java.util.Random;
 
 /**
  * A standard implementation of the INaturalNumberSampler interface which uses the Java
@@ -46,7 +47,7 @@ public class NumberSamplerNoRepUsedImpl extends NumberSamplerNoRep {
      * Constructor - Protected since the factory should be used
      */
     protected NumberSamplerNoRepUsedImpl() {
-        _random = new Random();
+        _random = RandomSource.newRandom();
         _maxVal = Integer.MAX_VALUE;
         _minVal = 0;
         _isInitialized = false;
@@ -98,6 +99,7 @@ public class NumberSamplerNoRepUsedImpl extends NumberSamplerNoRep {
      */
     public void init() {
         _usedNumbers = new HashSet<Integer>();
+        _totalUsed = 0;
         _isInitialized = true;
     }
 
@@ -0,0 +1,99 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
+
+import JavaApi.Samplers.PartitionedSampleSource;
+
+/**
+ * A number sampler which returns a partition of the numbers of a shared number sampler (see
+ * PartitionedSampleSource), so several threads can draw numbers from the same sampler without synchronizing on every
+ * draw, and the numbers drawn by each thread don't depend on the scheduling of the others.
+ * A partition should be used by a single thread
+ */
+public class PartitionedNumberSampler implements INaturalNumberSampler {
+
+    /**
+     * Class Members
+     */
+    private PartitionedSampleSource.Partition<Integer> _partition;
+
+    /**
+     * Constructor - Instances should be created by partition()
+     * @param partition - The partition of the numbers of the shared sampler
+     */
+    private PartitionedNumberSampler(PartitionedSampleSource.Partition<Integer> partition) {
+        _partition = partition;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Splits the numbers of the given sampler into the given number of partitions
+     * @param nSampler - The shared sampler (it must be initialized, and mustn't be used directly while the partitions
+     * are used)
+     * @param parts - The number of partitions
+     * @return - The partitions of the given sampler
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    public static PartitionedNumberSampler[] partition(final INaturalNumberSampler nSampler, int parts)
+            throws IllegalArgumentException {
+        PartitionedSampleSource<Integer> source = new PartitionedSampleSource<Integer>(parts) {
+            @Override
+            protected Integer drawNext() throws IllegalStateException {
+                return nSampler.getNextNatural();
+            }
+        };
+        PartitionedNumberSampler[] partitions = new PartitionedNumberSampler[parts];
+        for (int i = 0; i < parts; i++)
+            partitions[i] = new PartitionedNumberSampler(source.getPartition(i));
+        return partitions;
+    }
+
+    /**
+     * INaturalNumberSampler - Interface Implementation
+     */
+
+    /**
+     * Returns the next number of this partition
+     * @return - The next number of this partition
+     * @throws IllegalStateException - If the shared sampler doesn't have any numbers left
+     */
+    @Override
+    public int getNextNatural() throws IllegalStateException {
+        return _partition.next();
+    }
+
+    /**
+     * Returns true, since a partition is initialized by its shared sampler
+     * @return - True
+     */
+    @Override
+    public boolean isInitialized() {
+        return true;
+    }
+}
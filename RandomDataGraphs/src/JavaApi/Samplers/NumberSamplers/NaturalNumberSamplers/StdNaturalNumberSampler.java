@@ -25,6 +25,8 @@
 
 package JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers;
 
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
 import java.util.Random;
 
 /**
@@ -47,7 +49,7 @@ public class StdNaturalNumberSampler implements IStdNaturalNumberSampler {
      * Constructor
      */
     public StdNaturalNumberSampler() {
-        _random = new Random();
+        _random = RandomSource.newRandom();
         _maxVal = Integer.MAX_VALUE;
         _minVal = 0;
         _isInitialized = true;
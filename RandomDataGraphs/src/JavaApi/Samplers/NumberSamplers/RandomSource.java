@@ -0,0 +1,111 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.NumberSamplers;
+
+import java.util.Random;
+
+/**
+ * The source of the random generators used by all of the samplers. Each sampler takes its own generator, which is
+ * split from a root generator (see SplitMixRandom). Setting the seed of the root (see setSeed()) before the samplers
+ * are created makes the whole generation reproducible, since the samplers are created in the same order on each run.
+ * A thread might use its own stream instead of the root (see setThreadStream()), so the generators it creates don't
+ * depend on the scheduling of the other threads. A parallel construction command splits a stream for each of its
+ * workers from the stream of the calling thread, by the order of the workers, and each worker creates its own inner
+ * query samplers from its stream. The samplers of the command that are shared by its workers (the d-samplers of the
+ * construction pattern and the n-sampler) are partitioned between them instead (see PartitionedSampleSource), so a
+ * seeded parallel generation is reproducible for the same number of workers.
+ * Until a seed is set, the root is seeded by the current time.
+ */
+public class RandomSource {
+
+    /**
+     * Class Members
+     */
+    private static SplitMixRandom _root = new SplitMixRandom(System.nanoTime() ^ System.currentTimeMillis());
+    private static final ThreadLocal<SplitMixRandom> _threadStream = new ThreadLocal<SplitMixRandom>();
+
+    /**
+     * Constructor - Private since this class has static methods only
+     */
+    private RandomSource() {
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Sets the seed of the root generator. The samplers created afterwards (by any thread that doesn't use its own
+     * stream) take reproducible generators
+     * @param seed - The global seed of the generation
+     */
+    public static synchronized void setSeed(long seed) {
+        _root = new SplitMixRandom(seed);
+    }
+
+    /**
+     * Returns the seed from which the root generator continues. Setting it (see setSeed()) makes the generators
+     * created afterwards the same as the ones that the root would create now, so a generation can be repeated from
+     * this point even if its seed wasn't set
+     * @return - The current seed of the root generator
+     */
+    public static synchronized long getSeed() {
+        return _root.getSeed();
+    }
+
+    /**
+     * Returns a new generator, split from the stream of the current thread (if set) or from the root
+     * @return - A new generator
+     */
+    public static Random newRandom() {
+        return newStream();
+    }
+
+    /**
+     * Returns a new splittable generator, split from the stream of the current thread (if set) or from the root.
+     * Used for creating the streams of threads (see setThreadStream())
+     * @return - A new splittable generator
+     */
+    public static SplitMixRandom newStream() {
+        SplitMixRandom stream = _threadStream.get();
+        if (stream != null)
+            return stream.split();
+        synchronized (RandomSource.class) {
+            return _root.split();
+        }
+    }
+
+    /**
+     * Sets the stream from which the generators created by the current thread are split
+     * @param stream - The stream of the current thread (null to split them from the root)
+     */
+    public static void setThreadStream(SplitMixRandom stream) {
+        if (stream == null)
+            _threadStream.remove();
+        else
+            _threadStream.set(stream);
+    }
+}
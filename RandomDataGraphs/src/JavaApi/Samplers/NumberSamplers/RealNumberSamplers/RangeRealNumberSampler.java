@@ -25,6 +25,8 @@
 
 package JavaApi.Samplers.NumberSamplers.RealNumberSamplers;
 
+import JavaApi.Samplers.NumberSamplers.RandomSource;
+
 import java.util.Random;
 
 /**
@@ -46,7 +48,7 @@ public class RangeRealNumberSampler implements IStdRealNumberSampler {
      * Constructor
      */
     public RangeRealNumberSampler() {
-        _random = new Random();
+        _random = RandomSource.newRandom();
         _maxVal = Double.MAX_VALUE;
         _minVal = 0;
         _isInitialized = true;
@@ -0,0 +1,181 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.NumberSamplers;
+
+import java.util.Random;
+
+/**
+ * A fast splittable pseudo-random generator (SplitMix64, as used by java.util.SplittableRandom in later JDKs).
+ * Each generator can be split into a new generator whose stream is statistically independent of its parent, so a
+ * single seed yields reproducible streams for several samplers or workers (see RandomSource).
+ * It extends java.util.Random, so it can be used wherever the samplers expect one. Unlike java.util.Random, an
+ * instance isn't thread-safe.
+ */
+public class SplitMixRandom extends Random {
+
+    /**
+     * Class Members
+     */
+    private static final long serialVersionUID = -2875163021734398156L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long _seed;
+    private long _gamma;
+
+    /**
+     * Constructor
+     * @param seed - The seed of the generator
+     */
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Constructor of a split generator
+     * @param seed - The seed of the generator
+     * @param gamma - The (odd) increment of the seed
+     */
+    private SplitMixRandom(long seed, long gamma) {
+        super(0);
+        _seed = seed;
+        _gamma = gamma;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns a new generator whose stream is independent of the stream of this generator. The new generator is
+     * determined by the state of this generator, so the same sequence of calls always returns the same generators
+     * @return - A new generator
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Returns the current seed of the generator. A generator created with this seed continues the stream of this
+     * generator, unless this generator was split from another one (then it has its own increment)
+     * @return - The current seed of the generator
+     */
+    long getSeed() {
+        return _seed;
+    }
+
+    /**
+     * Resets the generator with the given seed
+     * @param seed - The seed of the generator
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        _seed = seed;
+        _gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("The bound must be positive: " + bound);
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            return r & m;
+        r >>>= 1;
+        // Reject the values of the last partial range, so all of the results are equally likely
+        for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+            ;
+        return r;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextInt() < 0;
+    }
+
+    /**
+     * Protected Methods
+     */
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Private Methods
+     */
+
+    private long nextSeed() {
+        return _seed += _gamma;
+    }
+
+    /**
+     * Returns the output of the given seed (Stafford's variant 13 of the MurmurHash3 finalizer, as by SplittableRandom)
+     * @param z - The seed
+     * @return - The mixed value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Returns an odd gamma with enough bit transitions, so the streams of split generators are well mixed
+     * @param z - The seed of the gamma
+     * @return - The gamma
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
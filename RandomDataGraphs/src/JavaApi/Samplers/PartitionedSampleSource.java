@@ -0,0 +1,188 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Splits the sequence of values drawn from a shared sampler between several partitions (e.g. the workers of a
+ * parallel construction command), so each partition draws its values without synchronizing on every draw, and the
+ * values of a partition don't depend on the scheduling of the other partitions.
+ * The sequence is split into blocks which are dealt to the partitions in turn - the k-th block of partition p is
+ * block k * parts + p of the sequence. The blocks are drawn from the shared sampler by their order (under the lock of
+ * this instance) and kept until their partition takes them, so the values of a partition are determined by the seed,
+ * the number of partitions and the number of values it drew. Since all of the values are drawn from the shared
+ * sampler, its sampling mode is kept across the partitions (e.g. the labels of a global-distinct d-sampler stay
+ * distinct). The blocks grow from a single value up to MAX_BLOCK_SIZE values, so a partition that draws few values
+ * doesn't hold many values drawn ahead for it. Values that were drawn for a partition but weren't taken by it are
+ * discarded - so a global-distinct sampler might run out of values a few blocks earlier than when it's used by a
+ * single thread.
+ * @param <T> - The type of the drawn values
+ */
+public abstract class PartitionedSampleSource<T> {
+
+    /**
+     * Consts
+     */
+    public static final int MAX_BLOCK_SIZE = 256;
+
+    /**
+     * Class Members
+     */
+    private int _parts;
+    // The index of the next block to draw from the shared sampler
+    private int _nextBlock;
+    private boolean _exhausted;
+    // The blocks that were drawn but weren't taken yet by their partitions
+    private HashMap<Integer, ArrayList<T>> _blocks;
+
+    /**
+     * Constructor
+     * @param parts - The number of partitions
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    protected PartitionedSampleSource(int parts) throws IllegalArgumentException {
+        if (parts < 1)
+            throw new IllegalArgumentException("The number of partitions must be a positive number: " + parts);
+        _parts = parts;
+        _nextBlock = 0;
+        _exhausted = false;
+        _blocks = new HashMap<Integer, ArrayList<T>>();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Returns the given partition of the sequence. Each partition should be used by a single thread
+     * @param part - The index of the partition (0 for the first one)
+     * @return - The given partition of the sequence
+     * @throws IllegalArgumentException - If there's no such partition
+     */
+    public Partition<T> getPartition(int part) throws IllegalArgumentException {
+        if (part < 0 || part >= _parts)
+            throw new IllegalArgumentException("There's no partition: " + part + " (partitions: " + _parts + ")");
+        return new Partition<T>(this, part);
+    }
+
+    /**
+     * Returns the number of partitions
+     * @return - The number of partitions
+     */
+    public int getParts() {
+        return _parts;
+    }
+
+    /**
+     * Protected Methods
+     */
+
+    /**
+     * Draws the next value from the shared sampler
+     * @return - The next value of the shared sampler
+     * @throws IllegalStateException - If the shared sampler doesn't have any values left
+     */
+    protected abstract T drawNext() throws IllegalStateException;
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Takes the given block of the given partition, while drawing the blocks that precede it (if they weren't drawn
+     * yet)
+     * @param part - The index of the partition
+     * @param index - The index of the block among the blocks of the partition
+     * @return - The values of the block (fewer than its size, or none, once the shared sampler ran out of values)
+     */
+    private synchronized ArrayList<T> takeBlock(int part, int index) {
+        int block = index * _parts + part;
+        while (_nextBlock <= block) {
+            int size = Math.min(MAX_BLOCK_SIZE, 1 << Math.min(_nextBlock / _parts, 30));
+            ArrayList<T> values = new ArrayList<T>(_exhausted ? 0 : size);
+            try {
+                while (!_exhausted && values.size() < size)
+                    values.add(drawNext());
+            }
+            catch (IllegalStateException e) {
+                _exhausted = true;
+            }
+            _blocks.put(_nextBlock, values);
+            _nextBlock++;
+        }
+        return _blocks.remove(block);
+    }
+
+    /**
+     * Public classes
+     */
+
+    /**
+     * A partition of the sequence, which returns the values of its blocks by their order
+     * @param <T> - The type of the drawn values
+     */
+    public static class Partition<T> {
+
+        /**
+         * Class Members
+         */
+        private PartitionedSampleSource<T> _source;
+        private int _part;
+        private int _nextIndex;
+        private ArrayList<T> _block;
+        private int _position;
+
+        /**
+         * Constructor
+         * @param source - The partitioned sequence
+         * @param part - The index of this partition
+         */
+        private Partition(PartitionedSampleSource<T> source, int part) {
+            _source = source;
+            _part = part;
+            _nextIndex = 0;
+            _block = null;
+            _position = 0;
+        }
+
+        /**
+         * Returns the next value of this partition
+         * @return - The next value of this partition
+         * @throws IllegalStateException - If the shared sampler ran out of values
+         */
+        public T next() throws IllegalStateException {
+            if (_block == null || _position == _block.size()) {
+                _block = _source.takeBlock(_part, _nextIndex++);
+                _position = 0;
+                if (_block.isEmpty())
+                    throw new IllegalStateException("The shared sampler doesn't have any values left");
+            }
+            return _block.get(_position++);
+        }
+    }
+}
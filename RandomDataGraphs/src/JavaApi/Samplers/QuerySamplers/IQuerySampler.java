@@ -27,11 +27,13 @@ package JavaApi.Samplers.QuerySamplers;
 
 import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
 import JavaApi.Samplers.SamplingMode;
+import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * An interface for a Query Result Sampler, called q-sampler for short, which chooses a matching
@@ -68,6 +70,37 @@ public interface IQuerySampler {
              HashMap<String, String> queryAttributeVariableMap,
              HashMap<String, String> queryAttributeResultMap);
 
+    /**
+     * Executes a dynamic query once for a whole batch of bindings of its dynamic variables, instead of once per
+     * binding. The following invocations of init(model, qCache, cache) whose bindings are part of the batch are
+     * served from the results of the batch
+     * @param model - The relevant model upon which query is executed
+     * @param queryAttributeVariableMap - A Mapping of attributes to query variables
+     * @param queryAttributeResultMaps - The batch - a mapping of attributes to actual query results per binding
+     * @param qCache - The query cache of the construction command (used for counting the query executions)
+     * @return - True iff the query was executed for the batch (otherwise each binding is executed separately)
+     */
+    public boolean initBatch(
+            Model model,
+            HashMap<String, String> queryAttributeVariableMap,
+            List<HashMap<String, String>> queryAttributeResultMaps,
+            QueryCache qCache);
+
+    /**
+     * Returns true iff this instance can be restarted (see restart()), which is when it was initialized by a query
+     * without dynamic variables and it holds all of its results
+     * @return - True iff this instance can be restarted
+     */
+    public boolean isRestartable();
+
+    /**
+     * Re-initializes this instance with the results of its last initialization, without executing the query again.
+     * Only the sampling of the results is reset, so it's equivalent to invoking init() again as long as the model
+     * wasn't updated
+     * @throws IllegalStateException - In case that this instance can't be restarted (see isRestartable())
+     */
+    public void restart() throws IllegalStateException;
+
     /**
      * Returns true iff the Query Sampler was initialized by invoking the init() method.
      * @return - True iff the Query Sampler was initialized by invoking the init() method.
@@ -101,6 +134,14 @@ public interface IQuerySampler {
      */
     public QueryWrapper getQueryWrapper();
 
+    /**
+     * Returns the parsed query used by this sampler. For a dynamic query, this is the query template in which the
+     * dynamic variables are SPARQL variables that are bound by updateQueryVariables()
+     * @return - The parsed query used by this sampler
+     * @throws IllegalStateException - If this is a dynamic query whose variables weren't bound yet
+     */
+    public Query getQuery() throws IllegalStateException;
+
     /**
      * Returns true if the QueryWrapper is dynamic (see class documentation), otherwise false
      * @return true if the QueryWrapper is dynamic (see class documentation), otherwise false
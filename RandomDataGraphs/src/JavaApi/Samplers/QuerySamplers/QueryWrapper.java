@@ -26,7 +26,10 @@
 package JavaApi.Samplers.QuerySamplers;
 
 import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.IRealNumberSampler;
+import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.RangeRealNumberSampler;
 import JavaApi.Samplers.SamplingMode;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
 
 /**
  * A wrapper class for query management (execution and sampling results)
@@ -40,6 +43,8 @@ public class QueryWrapper {
     private SamplingMode _mode;
     private IRealNumberSampler _realNumberSampler;
     private boolean _isDynamic;
+    // The parsed query (parsed once, on its first use)
+    private Query _parsedQuery;
 
     
      /**
@@ -85,6 +90,24 @@ public class QueryWrapper {
         return _query;
     }
 
+    /**
+     * Returns the parsed query. The query is parsed only once, and the same instance is returned to all callers
+     * (which must not modify it)
+     * @return - The parsed query
+     * @throws IllegalStateException - If the query is dynamic (its dynamic variables aren't valid SPARQL, see
+     * IQuerySampler.updateQueryVariables())
+     */
+    public synchronized Query getParsedQuery() throws IllegalStateException {
+        if (_isDynamic)
+            throw new IllegalStateException("A dynamic query can't be parsed before binding its dynamic variables");
+        if (_parsedQuery == null) {
+            _parsedQuery = QueryFactory.create(_query);
+            // Resolve the result variables now, so the shared instance isn't modified later on
+            _parsedQuery.getResultVars();
+        }
+        return _parsedQuery;
+    }
+
     /**
      * Returns the sampling-mode used to return the query results
      * @return - The sampling-mode used to return the query results
@@ -109,4 +132,24 @@ public class QueryWrapper {
     public boolean isDynamic() {
         return _isDynamic;
     }
+
+    /**
+     * Returns a copy of this wrapper which can be used by another thread. The copy shares the parsed query with this
+     * instance, while a RangeRealNumberSampler is replaced by a new instance with the same range, whose generator is
+     * split from the random stream of the calling thread (see RandomSource) - so the portions of the results returned
+     * by the copy don't depend on the scheduling of the other threads
+     * @return - A copy of this wrapper with its own real-number sampler
+     */
+    public synchronized QueryWrapper copy() {
+        IRealNumberSampler realNumSampler = _realNumberSampler;
+        if (realNumSampler != null && realNumSampler.getClass() == RangeRealNumberSampler.class) {
+            RangeRealNumberSampler rangeSampler = new RangeRealNumberSampler();
+            rangeSampler.setMaxValue(realNumSampler.getMaxVal());
+            rangeSampler.setMinValue(realNumSampler.getMinVal());
+            realNumSampler = rangeSampler;
+        }
+        QueryWrapper copy = new QueryWrapper(_query, _mode, realNumSampler, _isDynamic);
+        copy._parsedQuery = _parsedQuery;
+        return copy;
+    }
 }
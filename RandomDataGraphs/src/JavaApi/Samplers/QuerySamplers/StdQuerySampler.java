@@ -25,17 +25,33 @@
 
 package JavaApi.Samplers.QuerySamplers;
 
+import JavaApi.RandomDataGraph.QueryOptimization.IndexedQuery;
+import JavaApi.RandomDataGraph.QueryOptimization.NodeDictionary;
 import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryKey;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryResultTable;
+import JavaApi.RandomDataGraph.QueryOptimization.SchemaClosure;
+import JavaApi.RandomDataGraph.QueryOptimization.TripleIndex;
 import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.StdNaturalNumberSampler;
 import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.RangeRealNumberSampler;
 import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.ConstantRealSampler;
 import JavaApi.Samplers.NumberSamplers.RealNumberSamplers.IRealNumberSampler;
 import JavaApi.Samplers.SamplingMode;
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.*;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * An abstract class which implements portions of the IQuerySampler interface which returns a random matching
@@ -47,13 +63,26 @@ public abstract class StdQuerySampler implements IQuerySampler {
      * Class Members
      */
     protected boolean _isInitialized;
-    protected ArrayList<QuerySolution> _results;
+    protected QueryResultTable _results;
     protected QueryWrapper _qWrapper;
     protected StdNaturalNumberSampler _nSampler;
     protected int _maxRetResults;
     protected int _counter;
     protected String _baseQuery;
 
+    // The prefix of the SPARQL variables that replace the dynamic variables in the query template
+    private static final String TEMPLATE_VAR_PREFIX = "grrDynamicVar";
+
+    // Members of dynamic queries only - the query template is parsed once and its variables are bound by
+    // updateQueryVariables()
+    private Query _queryTemplate;
+    private String[] _templateAttributes;
+    private String[] _templateVars;
+    protected QuerySolutionMap _dynamicBinding;
+    protected String[] _dynamicValues;
+    // The results of the current batch of bindings of a dynamic query, grouped by the bound values (see initBatch())
+    private HashMap<QueryKey, QueryResultTable> _batchResults;
+
     /**
      * Public Methods
      */
@@ -70,31 +99,10 @@ public abstract class StdQuerySampler implements IQuerySampler {
         _nSampler = new StdNaturalNumberSampler();
 
         // Get the query and return the results by applying it on the given model
-        Query query = QueryFactory.create(_qWrapper.getQuery());
-        _results = returnQueryResults(model, query);
-
-        _counter = 0;
+        Query query = getQuery();
+        _results = returnQueryResults(model, query, _dynamicBinding, new NodeDictionary());
 
-        // Set the nSampler according to the number of results that we got or that we wish to return
-        IRealNumberSampler realNumSampler = _qWrapper.getRealNumberSampler();
-        int total = _results.size();
-
-        if (realNumSampler == null)
-            _maxRetResults = total;
-        else {
-            double realNum = realNumSampler.getNext();
-            if (realNumSampler.getClass() == ConstantRealSampler.class)
-                _maxRetResults = (int) realNum;
-            else if (realNumSampler.getClass() == RangeRealNumberSampler.class) {
-                _maxRetResults = (int) realNum;
-            } else
-                _maxRetResults = (int) (realNum * (double) total);
-        }
-
-        _nSampler.setMaxValue(total - 1);
-
-        // if we were able to set the results, the object is initialized
-        _isInitialized = true;
+        initSampling();
     }
 
     /**
@@ -109,45 +117,33 @@ public abstract class StdQuerySampler implements IQuerySampler {
         // Set the random number sampler
         _nSampler = new StdNaturalNumberSampler();
 
-        //  Check if the cache has this query
-        Query query = QueryFactory.create(_qWrapper.getQuery());
-        if (qCache.cacheHasQuery(query)) {
-            _results = qCache.getCachedResults(query);
+        //  Check if the results were fetched by the current batch or if the cache has this query
+        QueryKey key = getCacheKey();
+        if (_batchResults != null && _batchResults.containsKey(key)) {
+            _results = _batchResults.get(key);
+            qCache.addToBatchServeCount();
+        } else if (qCache.cacheHasQuery(key)) {
+            _results = qCache.getCachedResults(key);
             qCache.addToHitCount();
         } else {    // Run the query on the model and store the results (in case we should do so)
-            _results = returnQueryResults(model, query);
+            // Cached results share the dictionary of the cache, others are encoded by their own dictionary
+            NodeDictionary dictionary = cache ? qCache.getNodeDictionary() : new NodeDictionary();
+            long startTime = System.nanoTime();
+            _results = returnQueryResults(model, key.getQuery(), _dynamicBinding, dictionary);
+            long elapsedNanos = System.nanoTime() - startTime;
             if (cache) {
-                qCache.addCachedResults(query, _results);
+                qCache.addCachedResults(key, _results, elapsedNanos);
             }
-            qCache.addToQueryCount();
-        }
-
-        _counter = 0;
-
-        // Set the nSampler according to the number of results that we got or that we wish to return
-        IRealNumberSampler realNumSampler = _qWrapper.getRealNumberSampler();
-        int total = _results.size();
-
-        if (realNumSampler == null)
-            _maxRetResults = total;
-        else {
-            double realNum = realNumSampler.getNext();
-            if (realNumSampler.getClass() == ConstantRealSampler.class)
-                _maxRetResults = (int) realNum;
-            else if (realNumSampler.getClass() == RangeRealNumberSampler.class) {
-                _maxRetResults = (int) realNum;
-            } else
-                _maxRetResults = (int) (realNum * (double) total);
+            qCache.addToQueryCount(elapsedNanos, _results.getRowCount());
         }
 
-        _nSampler.setMaxValue(total - 1);
-
-        // if we were able to set the results, the object is initialized
-        _isInitialized = true;
+        initSampling();
     }
 
     /**
      * A method for updating a query based on previous query results that might be used in the given query
+     * On the first invocation the query is parsed into a template, in which each dynamic variable is replaced by a
+     * SPARQL variable. Later invocations only bind these variables to the given results (no re-parsing)
      * @param model - The relevant model upon which query is executed
      * @param queryAttributeVariableMap - A Mapping of attributes to query variables
      * @param queryAttributeResultMap - A mapping of attributes to actual query results
@@ -160,20 +156,135 @@ public abstract class StdQuerySampler implements IQuerySampler {
              HashMap<String, String> queryAttributeVariableMap,
              HashMap<String, String> queryAttributeResultMap) {
 
+        if (_queryTemplate == null)
+            createQueryTemplate(queryAttributeVariableMap);
+
+        // Bind the template variables to the results of the previous queries
         ArrayList<String> dynamicVars = new ArrayList<String>();
+        _dynamicBinding = new QuerySolutionMap();
+        _dynamicValues = new String[_templateAttributes.length];
+        for (int i = 0; i < _templateAttributes.length; i++) {
+            String value = queryAttributeResultMap.get(_templateAttributes[i]);
+            if (value == null)
+                throw new IllegalStateException("No result was found for the dynamic attribute: " + _templateAttributes[i]);
+            _dynamicBinding.add(_templateVars[i], ResourceFactory.createResource(value));
+            _dynamicValues[i] = value;
+            dynamicVars.add(_templateAttributes[i]);
+        }
 
-        String strQuery = _baseQuery;
-        String newStrQuery;
-        for (String key : queryAttributeVariableMap.keySet()) {
-            if (strQuery.contains(queryAttributeVariableMap.get(key))) {
-                newStrQuery = strQuery.replaceAll(queryAttributeVariableMap.get(key), "<" + queryAttributeResultMap.get(key) + ">");
-                strQuery = newStrQuery;
-                dynamicVars.add(key);
+        return dynamicVars;
+    }
+
+    /**
+     * Executes a dynamic query once for a whole batch of bindings of its dynamic variables, instead of once per
+     * binding: the bindings are added to the query as a BINDINGS block (a semi-join) and the results are grouped by
+     * the bound values. The following invocations of init(model, qCache, cache) whose bindings are part of the batch
+     * are served from the grouped results, until the next batch.
+     * A query can be batched only if each of its dynamic variables appears in its graph pattern, and it has no
+     * limit, offset, aggregation or bindings of its own (otherwise each binding is executed separately). Queries that
+     * are evaluated on the index of the model (see TripleIndex) aren't batched
+     * @param model - The relevant model upon which query is executed
+     * @param queryAttributeVariableMap - A Mapping of attributes to query variables
+     * @param queryAttributeResultMaps - The batch - a mapping of attributes to actual query results per binding
+     * @param qCache - The query cache of the construction command (used for counting and measuring the query
+     * executions)
+     * @return - True iff the query was executed for the batch
+     */
+    @Override
+    public boolean initBatch(
+            Model model,
+            HashMap<String, String> queryAttributeVariableMap,
+            List<HashMap<String, String>> queryAttributeResultMaps,
+            QueryCache qCache) {
+
+        _batchResults = null;
+        if (!_qWrapper.isDynamic() || queryAttributeResultMaps.isEmpty())
+            return false;
+        if (_queryTemplate == null)
+            createQueryTemplate(queryAttributeVariableMap);
+        if (!canBatch())
+            return false;
+        // Evaluating each binding on the index of the model is cheaper than executing the batch by ARQ
+        if (TripleIndex.getIndex(model) != null && IndexedQuery.compile(_queryTemplate) != null)
+            return false;
+
+        // Add a row to the BINDINGS block for each distinct binding in the batch
+        List<Var> vars = new ArrayList<Var>();
+        for (String templateVar : _templateVars)
+            vars.add(Var.alloc(templateVar));
+        List<Binding> bindings = new ArrayList<Binding>();
+        HashMap<QueryKey, QueryResultTable> batchResults = new HashMap<QueryKey, QueryResultTable>();
+        NodeDictionary dictionary = new NodeDictionary();
+        List<String> resultVars = _queryTemplate.getResultVars();
+        for (HashMap<String, String> resultMap : queryAttributeResultMaps) {
+            String[] values = new String[_templateAttributes.length];
+            Binding binding = BindingFactory.create();
+            for (int i = 0; i < _templateAttributes.length; i++) {
+                values[i] = resultMap.get(_templateAttributes[i]);
+                if (values[i] == null)
+                    throw new IllegalStateException("No result was found for the dynamic attribute: " + _templateAttributes[i]);
+                binding.add(vars.get(i), Node.createURI(values[i]));
+            }
+            QueryKey key = new QueryKey(_queryTemplate, values);
+            if (!batchResults.containsKey(key)) {
+                batchResults.put(key, new QueryResultTable(resultVars, dictionary));
+                bindings.add(binding);
             }
         }
-        _qWrapper = new QueryWrapper(strQuery, _qWrapper.getMode(), _qWrapper.getRealNumberSampler(), _qWrapper.isDynamic());
 
-        return dynamicVars;
+        // Execute the query once (projecting the dynamic variables as well) and group its results
+        Query batchQuery = SchemaClosure.rewrite(model, _queryTemplate).cloneQuery();
+        if (!batchQuery.isQueryResultStar())
+            for (String templateVar : _templateVars)
+                if (!batchQuery.getResultVars().contains(templateVar))
+                    batchQuery.addResultVar(templateVar);
+        batchQuery.setBindings(vars, bindings);
+        long startTime = System.nanoTime();
+        int rows = 0;
+        QueryExecution qe = QueryExecutionFactory.create(batchQuery, model);
+        ResultSet resultSet = qe.execSelect();
+        while (resultSet.hasNext()) {
+            QuerySolution solution = resultSet.next();
+            String[] values = new String[_templateVars.length];
+            for (int i = 0; i < _templateVars.length; i++)
+                values[i] = solution.get(_templateVars[i]).toString();
+            QueryResultTable table = batchResults.get(new QueryKey(_queryTemplate, values));
+            if (table != null)
+                table.addSolution(solution);
+            rows++;
+        }
+        qe.close();
+        for (QueryResultTable table : batchResults.values())
+            table.trimToSize();
+
+        _batchResults = batchResults;
+        qCache.addToQueryCount(System.nanoTime() - startTime, rows);
+        return true;
+    }
+
+    /**
+     * Returns true iff this instance can be restarted (see restart()), which is when it was initialized by a query
+     * without dynamic variables and it holds all of its results
+     * @return - True iff this instance can be restarted
+     */
+    @Override
+    public boolean isRestartable() {
+        return _isInitialized && _results != null && !_qWrapper.isDynamic();
+    }
+
+    /**
+     * Re-initializes this instance with the results of its last initialization, without executing the query again.
+     * Only the order of the result rows and the number of results to return are reset
+     * @throws IllegalStateException - In case that this instance can't be restarted (see isRestartable())
+     */
+    @Override
+    public void restart() throws IllegalStateException {
+        if (!isRestartable())
+            throw new IllegalStateException("The Query-Sampler can't be restarted");
+
+        // A new nSampler draws the same numbers as the one that init() would have created
+        _nSampler = new StdNaturalNumberSampler();
+        initSampling();
     }
 
     /**
@@ -195,7 +306,7 @@ public abstract class StdQuerySampler implements IQuerySampler {
         if (!_isInitialized)
             throw new IllegalStateException("The object wasn't initialized!");
 
-        return (_results.size() > 0 && _counter < _maxRetResults);
+        return (_results.getRowCount() > 0 && _counter < _maxRetResults);
     }
 
     /**
@@ -215,7 +326,7 @@ public abstract class StdQuerySampler implements IQuerySampler {
     public int getNumberOfSolutions() {
         if (!isInitialized())
             throw new IllegalStateException("The Query-Sampler wasn't initialized");
-        return _results.size();
+        return _results.getRowCount();
     }
 
     /**
@@ -227,6 +338,21 @@ public abstract class StdQuerySampler implements IQuerySampler {
         return _qWrapper;
     }
 
+    /**
+     * Returns the parsed query used by this sampler. For a dynamic query, this is the query template in which the
+     * dynamic variables are SPARQL variables that are bound by updateQueryVariables()
+     * @return - The parsed query used by this sampler
+     * @throws IllegalStateException - If this is a dynamic query whose variables weren't bound yet
+     */
+    @Override
+    public Query getQuery() throws IllegalStateException {
+        if (!_qWrapper.isDynamic())
+            return _qWrapper.getParsedQuery();
+        if (_queryTemplate == null)
+            throw new IllegalStateException("The dynamic variables of the query weren't bound");
+        return _queryTemplate;
+    }
+
     /**
      * Returns true if the QueryWrapper is dynamic (see class documentation), otherwise false
      * @return true if the QueryWrapper is dynamic (see class documentation), otherwise false
@@ -258,29 +384,134 @@ public abstract class StdQuerySampler implements IQuerySampler {
      */
 
     /**
-     * Executes the query on the given model, while returning an array-list of QuerySolution instances holding all of
-     * the results returned in the result-set.
+     * Called whenever new results are set (by the init() methods), before they are sampled. Implementations that keep
+     * their own order of the result rows should reset it here
+     */
+    protected void initResultOrder() {
+    }
+
+    /**
+     * Returns the key of the current query (and the values bound to its dynamic variables) in the query cache
+     * @return - The key of the current query in the query cache
+     */
+    protected QueryKey getCacheKey() {
+        return new QueryKey(getQuery(), _dynamicValues);
+    }
+
+    /**
+     * Executes the query on the given model, while returning a compact table holding all of the results returned in
+     * the result-set (see QueryResultTable).
+     * If the model is indexed (see TripleIndex) and the query is simple enough (see IndexedQuery), the query is
+     * evaluated on the index instead of being executed by ARQ. Otherwise, if the model has a schema closure (see
+     * SchemaClosure), the query is rewritten by it before it's executed
      *
      * @param model - The model upon the given query will be executed for returning results
      * @param query - The query that will be executed on the given model for returning results
-     * @return - An array-list of QuerySolution instances holding all of the results returned in the result-set.
+     * @param binding - The values bound to the variables of the query (null if none)
+     * @param dictionary - The dictionary used for encoding the nodes of the results
+     * @return - A table holding all of the results returned in the result-set.
      */
-    protected ArrayList<QuerySolution> returnQueryResults(Model model, Query query) {
-        QueryExecution qe = QueryExecutionFactory.create(query, model);
+    protected QueryResultTable returnQueryResults(Model model, Query query, QuerySolution binding, NodeDictionary dictionary) {
+        TripleIndex index = TripleIndex.getIndex(model);
+        if (index != null) {
+            IndexedQuery indexedQuery = IndexedQuery.compile(query);
+            if (indexedQuery != null)
+                return indexedQuery.execute(index, model, binding, dictionary, SchemaClosure.getClosure(model));
+        }
+
+        query = SchemaClosure.rewrite(model, query);
+
+        QueryExecution qe = (binding == null)
+                ? QueryExecutionFactory.create(query, model)
+                : QueryExecutionFactory.create(query, model, binding);
         ResultSet resultSet = qe.execSelect();
-        //ResultSetMem rsm = new ResultSetMem(resultSet);
-        //int size = rsm.size();
-        ArrayList<QuerySolution> results = new ArrayList<QuerySolution>();
-        while (resultSet.hasNext())
-            results.add(resultSet.next());
         // --------------------------------------------------------------------------------------------------------------------------
         // Note to myself :)
         // Jena Utils implementation  - less efficient
         //results = (ArrayList<QuerySolution>) ResultSetFormatter.toList(resultSet);
         // --------------------------------------------------------------------------------------------------------------------------
+        QueryResultTable results = QueryResultTable.fromResultSet(resultSet, dictionary);
+        qe.close();
 
         return results;
     }
 
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Resets the sampling of the current results: the counter, the order of the result rows and the number of results
+     * to return (see the real-number sampler of the QueryWrapper)
+     */
+    private void initSampling() {
+        _counter = 0;
+        initResultOrder();
+
+        // Set the nSampler according to the number of results that we got or that we wish to return
+        IRealNumberSampler realNumSampler = _qWrapper.getRealNumberSampler();
+        int total = _results.getRowCount();
+
+        if (realNumSampler == null)
+            _maxRetResults = total;
+        else {
+            double realNum = realNumSampler.getNext();
+            if (realNumSampler.getClass() == ConstantRealSampler.class)
+                _maxRetResults = (int) realNum;
+            else if (realNumSampler.getClass() == RangeRealNumberSampler.class) {
+                _maxRetResults = (int) realNum;
+            } else
+                _maxRetResults = (int) (realNum * (double) total);
+        }
+
+        // A query might have no results at all (e.g. a dynamic query for some of the previous results)
+        if (total > 0)
+            _nSampler.setMaxValue(total - 1);
+
+        // if we were able to set the results, the object is initialized
+        _isInitialized = true;
+    }
+
+    /**
+     * Returns true iff the query template can be executed for a batch of bindings with the same results (see
+     * initBatch())
+     * @return - True iff the query template can be executed for a batch of bindings
+     */
+    private boolean canBatch() {
+        if (_templateVars.length == 0 || _queryTemplate.hasLimit() || _queryTemplate.hasOffset()
+                || _queryTemplate.hasAggregators() || _queryTemplate.hasGroupBy() || _queryTemplate.hasBindings())
+            return false;
+        // A variable that appears only in a filter must be bound before the filter is evaluated
+        Set<Var> patternVars = PatternVars.vars(_queryTemplate.getQueryPattern());
+        for (String templateVar : _templateVars)
+            if (!patternVars.contains(Var.alloc(templateVar)))
+                return false;
+        return true;
+    }
 
+    /**
+     * Parses the dynamic query into a template, in which each dynamic variable that appears in the query is replaced
+     * by a SPARQL variable
+     * @param queryAttributeVariableMap - A Mapping of attributes to query (dynamic) variables
+     */
+    private void createQueryTemplate(HashMap<String, String> queryAttributeVariableMap) {
+        ArrayList<String> attributes = new ArrayList<String>();
+        ArrayList<String> vars = new ArrayList<String>();
+        String strQuery = _baseQuery;
+        for (String key : queryAttributeVariableMap.keySet()) {
+            String dynamicVar = queryAttributeVariableMap.get(key);
+            // Match the whole variable only (e.g. @var1 shouldn't match the prefix of @var12)
+            Matcher matcher = Pattern.compile(Pattern.quote(dynamicVar) + "(?!\\w)").matcher(strQuery);
+            if (matcher.find()) {
+                String templateVar = TEMPLATE_VAR_PREFIX + vars.size();
+                strQuery = matcher.replaceAll(Matcher.quoteReplacement("?" + templateVar));
+                attributes.add(key);
+                vars.add(templateVar);
+            }
+        }
+        _templateAttributes = attributes.toArray(new String[attributes.size()]);
+        _templateVars = vars.toArray(new String[vars.size()]);
+        _queryTemplate = QueryFactory.create(strQuery);
+        _queryTemplate.getResultVars();
+    }
 }
@@ -25,11 +25,19 @@
 
 package JavaApi.Samplers.QuerySamplers;
 
+import JavaApi.Samplers.SamplingMode;
+
 /**
  * A factory for creating IQuerySampler instances according to the smapling-mode set in the given QueryWrapper
  */
 public class StdQuerySamplerFactory {
 
+    /**
+     * Class Members
+     */
+    // A window size that disables the streaming of query results
+    public static final int NO_STREAMING = 0;
+
     /**
      * Query sampler factory method which returns the relevant instance according to the
      * given mode
@@ -49,4 +57,30 @@ public class StdQuerySamplerFactory {
         }
     }
 
+    /**
+     * Query sampler factory method which returns a streaming instance (see StdQuerySamplerStreamingImpl) in case that
+     * the given QueryWrapper returns all of its results in global-distinct mode and isn't dynamic, otherwise the
+     * relevant instance according to the given mode (see getStdQuerySampler(QueryWrapper))
+     * @param qWrapper - The QueryWrapper which will be used by this sampler
+     * @param windowSize - The max number of results held by a streaming sampler (NO_STREAMING to disable streaming)
+     * @return a IQuerySampler instance which uses the given sampling mode
+     */
+    public static IQuerySampler getStdQuerySampler(QueryWrapper qWrapper, int windowSize) {
+        if (windowSize != NO_STREAMING && canStream(qWrapper))
+            return new StdQuerySamplerStreamingImpl(qWrapper, windowSize);
+        return getStdQuerySampler(qWrapper);
+    }
+
+    /**
+     * Returns true iff the results of the given QueryWrapper can be streamed (all of the results are returned in
+     * global-distinct mode by a non-dynamic query)
+     * @param qWrapper - The QueryWrapper to be checked
+     * @return - True iff the results of the given QueryWrapper can be streamed
+     */
+    public static boolean canStream(QueryWrapper qWrapper) {
+        return qWrapper.getMode() == SamplingMode.RANDOM_GLOBAL_DISTINCT
+                && qWrapper.getRealNumberSampler() == null
+                && !qWrapper.isDynamic();
+    }
+
 }
@@ -33,6 +33,12 @@ import com.hp.hpl.jena.query.QuerySolution;
  */
 public class StdQuerySamplerNoRepImpl extends StdQuerySampler {
 
+    /**
+     * Class Members
+     */
+    // The order of the result rows - the rows that were already returned are moved to its end
+    private int[] _rowOrder;
+
     /**
      * The constructor must be protected - Instance should be created via the factory
      * @param qWrapper - The QueryWrapper that will be used by this sampler
@@ -55,23 +61,40 @@ public class StdQuerySamplerNoRepImpl extends StdQuerySampler {
         if (!hasNext())
             throw new IllegalStateException("There are no results left");
 
-        QuerySolution solution;
         int entry;
 
-        // Get the next random entry, remove it from the ArrayList of results and update the nSampler's range
+        // Get the next random entry, remove it from the relevant rows and update the nSampler's range
         entry = _nSampler.getNextNatural();
 
-        // We move this result to the end of the list
+        // We move this row to the end of the relevant rows
         int endOfRelevantList = _nSampler.getMaxValue();
-        solution = _results.remove(entry);
-        _results.add(endOfRelevantList, solution);
+        int row = _rowOrder[entry];
+        _rowOrder[entry] = _rowOrder[endOfRelevantList];
+        _rowOrder[endOfRelevantList] = row;
 
         _counter++;
 
         if (hasNext())
             _nSampler.setMaxValue(endOfRelevantList - 1);
 
-        return solution;
+        // Only the returned row is decoded
+        return _results.getSolution(row);
+    }
+
+    /**
+     * Protected Methods
+     */
+
+    /**
+     * Resets the order of the result rows (all of the rows become relevant). The array is reused when the number of
+     * rows didn't change (e.g. when restarted)
+     */
+    @Override
+    protected void initResultOrder() {
+        if (_rowOrder == null || _rowOrder.length != _results.getRowCount())
+            _rowOrder = new int[_results.getRowCount()];
+        for (int i = 0; i < _rowOrder.length; i++)
+            _rowOrder[i] = i;
     }
 
 }
@@ -0,0 +1,237 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package JavaApi.Samplers.QuerySamplers;
+
+import JavaApi.RandomDataGraph.QueryOptimization.QueryCache;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryKey;
+import JavaApi.Samplers.NumberSamplers.NaturalNumberSamplers.StdNaturalNumberSampler;
+import JavaApi.RandomDataGraph.QueryOptimization.SchemaClosure;
+import com.hp.hpl.jena.query.*;
+import com.hp.hpl.jena.rdf.model.Model;
+
+import java.util.ArrayList;
+
+/**
+ * A specific implementation of the StdQuerySampler abstract class which returns all of the results without
+ * repetitions (global-distinct mode, while selecting all of the results), without holding the whole result-set.
+ * The results are read from the result-set incrementally into a bounded window: each call returns a random result
+ * from the window and replaces it by the next result read from the result-set. This yields a randomized order of all
+ * of the results while holding at most window-size results in memory.
+ * Note that the result-set stays open while results are returned, so the model must not be updated before all of
+ * the results were returned.
+ * The streamed results are never cached, since the first query is executed only once by a construction command (a
+ * cache holding them would hold the whole result list). In case that the results are already cached, this instance
+ * falls back to the behaviour of StdQuerySamplerNoRepImpl.
+ */
+public class StdQuerySamplerStreamingImpl extends StdQuerySamplerNoRepImpl {
+
+    /**
+     * Class Members
+     */
+    private int _windowSize;
+    private boolean _isStreaming;
+    private QueryExecution _qExecution;
+    private ResultSet _resultSet;
+    private int _readCount;
+    // The window of results that were read from the result-set and not returned yet
+    private ArrayList<QuerySolution> _window;
+
+    /**
+     * The constructor must be protected - Instance should be created via the factory
+     * @param qWrapper - The QueryWrapper that will be used by this sampler
+     * @param windowSize - The max number of results held by this sampler
+     */
+    protected StdQuerySamplerStreamingImpl(QueryWrapper qWrapper, int windowSize) {
+        super(qWrapper);
+        if (windowSize < 1)
+            throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+        _windowSize = windowSize;
+    }
+
+    /**
+     * Initializes this instance by executing the query on the given model and reading the first window of results.
+     * Invoking this methods will cause a re-initialization of the object regarding previous invocations
+     * @param model - The model upon the given query will be executed for returning results
+     */
+    @Override
+    public void init(Model model) {
+        initStreaming(model, getQuery());
+    }
+
+    /**
+     * Initializes this instance while using the caching mechanism. If the results are already cached, all of them are
+     * held (see StdQuerySamplerNoRepImpl), otherwise they are streamed without being cached
+     * @param model - The model upon the given query will be executed for returning results
+     * @param qCache - A specific instance for handling the query caching mechanism (see class documentation)
+     * @param cache - Ignored, since the streamed results are never cached
+     */
+    @Override
+    public void init(Model model, QueryCache qCache, boolean cache) {
+        QueryKey key = getCacheKey();
+        if (qCache.cacheHasQuery(key)) {
+            closeResultSet();
+            _isStreaming = false;
+            _window = null;
+            super.init(model, qCache, false);
+        } else {
+            // The results are read lazily, so only the time it took to start the execution is known
+            long startTime = System.nanoTime();
+            initStreaming(model, key.getQuery());
+            qCache.addToQueryCount(System.nanoTime() - startTime, 0);
+        }
+    }
+
+    /**
+     * Returns the next matching (QuerySolution), chosen randomly from the current window of results.
+     * @return - The next matching (QuerySolution)
+     * @throws IllegalStateException - In case that this instance wasn't initialized or if there are no query results
+     * left to return.
+     */
+    @Override
+    public QuerySolution getNextMatching() throws IllegalStateException {
+
+        if (!_isStreaming)
+            return super.getNextMatching();
+
+        if (!_isInitialized)
+            throw new IllegalStateException("The object wasn't initialized!");
+        if (!hasNext())
+            throw new IllegalStateException("There are no results left");
+
+        // Take a random result out of the window and fill its place with the next result (or the last one in the
+        // window once the result-set is exhausted)
+        int entry = _nSampler.getNextNatural();
+        QuerySolution solution = _window.get(entry);
+        if (_resultSet != null && _resultSet.hasNext()) {
+            _window.set(entry, _resultSet.next());
+            _readCount++;
+        } else {
+            int last = _window.size() - 1;
+            _window.set(entry, _window.get(last));
+            _window.remove(last);
+            closeResultSet();
+            if (_window.size() > 0)
+                _nSampler.setMaxValue(_window.size() - 1);
+        }
+
+        _counter++;
+
+        return solution;
+    }
+
+    /**
+     * Returns true iff there are results that could be returned by this instance.
+     * @return - True iff there are results that could be returned by this instance.
+     * @throws IllegalStateException - In case the object wasn't initialized.
+     */
+    @Override
+    public boolean hasNext() throws IllegalStateException {
+        if (!_isStreaming)
+            return super.hasNext();
+        if (!_isInitialized)
+            throw new IllegalStateException("The object wasn't initialized!");
+
+        return (_window.size() > 0 && _counter < _maxRetResults);
+    }
+
+    /**
+     * Returns true iff this instance can be restarted, which is when its results aren't streamed (a result-set can't
+     * be read again)
+     * @return - True iff this instance can be restarted
+     */
+    @Override
+    public boolean isRestartable() {
+        return !_isStreaming && super.isRestartable();
+    }
+
+    /**
+     * Returns the number of solutions that were read so far from the result-set (all of the solutions, in case that
+     * they are not streamed)
+     * @return The number of solutions that were read so far from the result-set
+     */
+    @Override
+    public int getNumberOfSolutions() {
+        if (!_isStreaming)
+            return super.getNumberOfSolutions();
+        if (!isInitialized())
+            throw new IllegalStateException("The Query-Sampler wasn't initialized");
+        return _readCount;
+    }
+
+    /**
+     * Returns the max number of results held by this sampler
+     * @return - The max number of results held by this sampler
+     */
+    public int getWindowSize() {
+        return _windowSize;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Executes the query on the given model and reads the first window of results
+     * @param model - The model upon the given query will be executed for returning results
+     * @param query - The query that will be executed on the given model
+     */
+    private void initStreaming(Model model, Query query) {
+
+        closeResultSet();
+        _isStreaming = true;
+        _nSampler = new StdNaturalNumberSampler();
+
+        _qExecution = QueryExecutionFactory.create(SchemaClosure.rewrite(model, query), model);
+        _resultSet = _qExecution.execSelect();
+        _results = null;
+        _window = new ArrayList<QuerySolution>(_windowSize);
+        _readCount = 0;
+        while (_window.size() < _windowSize && _resultSet.hasNext()) {
+            _window.add(_resultSet.next());
+            _readCount++;
+        }
+        if (!_resultSet.hasNext())
+            closeResultSet();
+
+        // All of the results are returned
+        _counter = 0;
+        _maxRetResults = Integer.MAX_VALUE;
+        if (_window.size() > 0)
+            _nSampler.setMaxValue(_window.size() - 1);
+
+        _isInitialized = true;
+    }
+
+    /**
+     * Closes the query execution of the current result-set (if open)
+     */
+    private void closeResultSet() {
+        if (_qExecution != null)
+            _qExecution.close();
+        _qExecution = null;
+        _resultSet = null;
+    }
+}
@@ -55,14 +55,13 @@ public class StdQuerySamplerWithRepImpl extends StdQuerySampler {
         if (!hasNext())
             throw new IllegalStateException("There are no results left");
 
-        QuerySolution solution;
         int entry;
         entry = _nSampler.getNextNatural();
-        solution = _results.get(entry);
-        
+
         _counter++;
 
-        return solution;
+        // Only the returned row is decoded
+        return _results.getSolution(entry);
     }
 
 }
\ No newline at end of file
@@ -25,9 +25,16 @@
 
 package JavaApi.Samplers.SamplerFunctions;
 
+import JavaApi.Samplers.DictionarySamplers.CountingDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.ExternalConstDictionarySampler;
 import JavaApi.Samplers.DictionarySamplers.IDictionarySampler;
+import JavaApi.Samplers.DictionarySamplers.PartitionedDictionarySampler;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Class that associates each node to a specific d-sampler
@@ -98,5 +105,78 @@ public class SamplerFunction {
         return _samplerMap.get(rdfType);
     }
 
+    /**
+     * Splits this sampler-function into the given number of sampler-functions, each mapping the rdf-types of this
+     * instance to its own partition of the mapped d-sampler (see PartitionedDictionarySampler). Used when several
+     * workers sample labels concurrently - each worker draws from its own sampler-function without synchronizing,
+     * while the sampling mode of each shared d-sampler is kept across all workers.
+     * An ExternalConstDictionarySampler is initialized by its user before each draw, so each sampler-function gets
+     * its own instance of it instead of a partition
+     * @param parts - The number of sampler-functions to create
+     * @return - The sampler-functions, one per part
+     * @throws IllegalArgumentException - If the given number isn't a positive number
+     */
+    public SamplerFunction[] partition(int parts) throws IllegalArgumentException
+    {
+        if (parts < 1)
+            throw new IllegalArgumentException("The number of parts must be a positive number: " + parts);
+
+        SamplerFunction[] functions = new SamplerFunction[parts];
+        for (int i = 0; i < parts; i++)
+            functions[i] = new SamplerFunction();
+
+        // A d-sampler might be mapped by several rdf-types, so it's partitioned once and its partitions are shared
+        IdentityHashMap<IDictionarySampler, IDictionarySampler[]> partitions =
+                new IdentityHashMap<IDictionarySampler, IDictionarySampler[]>();
+        for (Map.Entry<String, IDictionarySampler> entry : _samplerMap.entrySet()) {
+            IDictionarySampler dSampler = entry.getValue();
+            IDictionarySampler[] samplerParts = partitions.get(dSampler);
+            if (samplerParts == null) {
+                if (dSampler.getClass() == ExternalConstDictionarySampler.class) {
+                    samplerParts = new IDictionarySampler[parts];
+                    for (int i = 0; i < parts; i++)
+                        samplerParts[i] = new ExternalConstDictionarySampler();
+                } else
+                    samplerParts = PartitionedDictionarySampler.partition(dSampler, parts);
+                partitions.put(dSampler, samplerParts);
+            }
+            for (int i = 0; i < parts; i++)
+                functions[i].addValue(entry.getKey(), samplerParts[i]);
+        }
+
+        for (SamplerFunction function : functions)
+            function._isInitialised = _isInitialised;
+        return functions;
+    }
+
+    /**
+     * Replaces each mapped d-sampler by a d-sampler that counts the labels drawn from it (see
+     * CountingDictionarySampler). The counting d-samplers are returned by the order of their first rdf-type, so the
+     * same mapping always returns them in the same order. An ExternalConstDictionarySampler isn't counted, since it's
+     * initialized by its user before each draw
+     * @return - The counting d-samplers (a d-sampler mapped by several rdf-types is counted once)
+     */
+    public CountingDictionarySampler[] countDraws()
+    {
+        IdentityHashMap<IDictionarySampler, CountingDictionarySampler> counters =
+                new IdentityHashMap<IDictionarySampler, CountingDictionarySampler>();
+        ArrayList<CountingDictionarySampler> ordered = new ArrayList<CountingDictionarySampler>();
+        for (String rdfType : new TreeSet<String>(_samplerMap.keySet())) {
+            IDictionarySampler dSampler = _samplerMap.get(rdfType);
+            if (dSampler.getClass() == ExternalConstDictionarySampler.class)
+                continue;
+            CountingDictionarySampler counter = counters.get(dSampler);
+            if (counter == null) {
+                // A d-sampler that is already counted keeps its count
+                counter = (dSampler instanceof CountingDictionarySampler) ?
+                        (CountingDictionarySampler) dSampler : new CountingDictionarySampler(dSampler);
+                counters.put(dSampler, counter);
+                ordered.add(counter);
+            }
+            _samplerMap.put(rdfType, counter);
+        }
+        return ordered.toArray(new CountingDictionarySampler[ordered.size()]);
+    }
+
 
 }
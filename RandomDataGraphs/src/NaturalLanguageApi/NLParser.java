@@ -329,6 +329,11 @@ public class NLParser {
             if (lineParts.length != 3)
                 throw new IllegalArgumentException("Sampler-Function input file has an invalid line:" + line);
             return new RdfCustomRdfDictionarySampler(lineParts[1], lineParts[2]);
+        } else if (lineParts[0].equals(RdfGenTypes.RES_RDF_TYPE_WEIGHTED_DIC_SAMPLER)) {
+            // We expect to have 2 more parts - total of 3
+            if (lineParts.length != 3)
+                throw new IllegalArgumentException("Sampler-Function input file has an invalid line:" + line);
+            return new RdfWeightedDictionarySampler(lineParts[1], lineParts[2]);
         } else if (lineParts[0].equals(RdfGenTypes.RES_RDF_TYPE_STD_DIC_SAMPLER)) {
             // We expect to have 3 more parts - total of 4
             if (lineParts.length != 4)
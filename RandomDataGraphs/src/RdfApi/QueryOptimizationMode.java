@@ -32,6 +32,9 @@ public enum QueryOptimizationMode {
 
     NO_CACHE,
     SMART_CACHE,
-    ALWAYS_CACHE
+    ALWAYS_CACHE,
+    // Caches the results of all queries (like ALWAYS_CACHE) within a memory budget - when the budget is exceeded the
+    // cached results with the lowest value (by their hit frequency, execution cost and size) are evicted
+    BOUNDED_CACHE
 
 }
@@ -26,8 +26,12 @@
 package RdfApi;
 
 import Examples.Utils.ExpLogger;
+import JavaApi.RandomDataGraph.Metrics.GenerationMetrics;
 import JavaApi.RandomDataGraph.Patterns.ConstructionPattern;
+import JavaApi.RandomDataGraph.QueryOptimization.QueryFootprint;
+import JavaApi.RandomDataGraph.QueryOptimization.SchemaClosure;
 import JavaApi.RandomDataGraph.RandomGraphAPI;
+import JavaApi.Samplers.DictionarySamplers.CountingDictionarySampler;
 import JavaApi.Samplers.SamplerFunctions.SamplerFunction;
 import JavaApi.Samplers.SamplerFunctions.TypePropertiesFunction;
 import SolutionConfig.Consts;
@@ -38,10 +42,12 @@ import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.util.FileManager;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.regex.Pattern;
 
 /**
  * The RDF Based API that implements the logic and algorithm of the GRR system (see relevant paper and documentation)
@@ -57,6 +63,8 @@ public class RdfBasedRandomGraphAPI {
     private static final String PARSING_SCHEMA_FILE_WEB_BASE = "http://www.cs.huji.ac.il/~danieb12/";
     private static final String PARSING_SCHEMA_FILE_WEB_PATH = PARSING_SCHEMA_FILE_WEB_BASE + PARSING_SCHEMA_FILE;
     private static final String RDF_GEN_NS = PARSING_SCHEMA_FILE_WEB_PATH + "#";
+    private static final String MARKER_SEPARATOR = "|";
+    private static final String DRAWN_LABELS_SEPARATOR = ",";
     
     /**
      * Class Members
@@ -64,6 +72,17 @@ public class RdfBasedRandomGraphAPI {
     private static Model _graphModel;
     private static Model _schema;
     private static InfModel _infModel;
+    // The model queried by the construction commands (the inference model, or the graph model when the schema
+    // closure is used instead of inference)
+    private static Model _queryModel;
+    private static boolean _useSchemaClosure = false;
+    private static boolean _useBulkLoading = false;
+    private static int _syncTripleInterval = IDBWrapper.NO_SYNC_INTERVAL;
+    private static long _syncTimeInterval = IDBWrapper.NO_SYNC_INTERVAL;
+    private static boolean _resume = false;
+    private static RdfFormat _outputFormat = RdfFormat.RDF_XML_FORMAT;
+    private static boolean _directToFile = false;
+    private static String _tdbConfigFile = TDB_CONFIG_PATH;
     private static IDBWrapper _dbw;
     private static RandomGraphAPI _randGraphApi = new RandomGraphAPI();
 
@@ -75,32 +94,97 @@ public class RdfBasedRandomGraphAPI {
     /**
      * The main of this API that parses and executes all of the construction commands located in the given RDF input file
      * @param fileInput - The RDF based input file
-     * @param fileOutput - Optional path to a file that will store the new model in addition to the actual DB
+     * @param fileOutput - Optional path to a file that will store the new model in addition to the actual DB (required
+     * when generating directly into the file, see setDirectToFile())
      * @param mode - The query optimization mode to be used (caching mechanism)
      * @param expLogger - Optional debugging object that enables monitoring of performance (users could pass here null)
      * @param storeToFile - Boolean indicating if the system should store the updated model into the output file at the
-     * end of the execution
+     * end of the execution (ignored when generating directly into the file)
      * @throws Exception - Currently a generic since an Exception might occur in the either the Java layer or in the
      * parsing process of the RDF input file
      */
     public void generateGraph(String fileInput, String fileOutput, QueryOptimizationMode mode, ExpLogger expLogger, boolean storeToFile) throws Exception {
         RdfParser rdfParser = new RdfParser();
-        rdfParser.parseRdfGeneratorFile(fileInput);
-
-        SamplerFunction sFunction = rdfParser.getSamplerFunction();
-        TypePropertiesFunction typePropFunction = rdfParser.getTypePropsFunction();
-        HashMap<String, String> nsMap = rdfParser.getAliasNsMap();
-        ArrayList<ConstructionWrapper> cWrappers = rdfParser.getConstructionWrapperList();
+        SamplerFunction sFunction = null;
+        TypePropertiesFunction typePropFunction = null;
+        HashMap<String, String> nsMap = null;
+        ArrayList<ConstructionWrapper> cWrappers = null;
+        CountingDictionarySampler[] dSamplers = null;
+        long seed = 0;
 
         if (expLogger != null)
             expLogger.startLogging();
 
+        // The resume marker identifies the input file and the last construction command stored for it, followed by
+        // the state of the d-samplers when the command ended (see setResume())
+        File inputFile = new File(fileInput);
+        String markerPrefix = inputFile.getAbsolutePath() + MARKER_SEPARATOR + inputFile.length() + MARKER_SEPARATOR
+                + inputFile.lastModified() + MARKER_SEPARATOR;
+        int firstConstruct = 0;
+        long[] drawnLabels = null;
+        SchemaClosure closure = new SchemaClosure();
+        NTriplesWriter outputWriter = null;
+
+        if (_directToFile) {
+            if (fileOutput == null)
+                throw new IllegalArgumentException("An output file must be given when generating directly into it");
+            if (_outputFormat != RdfFormat.N_TRIPLE_FORMAT && _outputFormat != RdfFormat.N_QUADS_FORMAT)
+                throw new IllegalStateException("Generating directly into the output file requires N-Triples or N-Quads output, not: " + _outputFormat);
+            // The graph is written into the output file while it's created, the in-memory model only holds the
+            // triples needed by the queries of the next construction commands
+            outputWriter = new NTriplesWriter(NTriplesWriter.openOutput(fileOutput), null);
+            _dbw = null;
+            _graphModel = ModelFactory.createDefaultModel();
+            _randGraphApi.setBulkLoader(null);
+            _randGraphApi.setSyncedDB(null);
+            _randGraphApi.setJournal(null);
+            _randGraphApi.setOutputWriter(outputWriter);
+        }
+
         // First we want to create a TDB based model
         try {
-            String configFile = TDB_CONFIG_PATH;
-            _dbw = new TDBWrapper();
-            _dbw.init(configFile);
-            _graphModel = _dbw.getEmptyDbBasedModel();
+            if (outputWriter == null) {
+                String configFile = _tdbConfigFile;
+                _dbw = new TDBWrapper();
+                _dbw.init(configFile);
+                _dbw.setSyncInterval(_syncTripleInterval, _syncTimeInterval);
+
+                String marker = _resume ? _dbw.getResumeMarker() : null;
+                if (marker != null && marker.startsWith(markerPrefix)) {
+                    // Keep the stored graph (which already holds the schemas) and skip the stored construction commands
+                    String[] state = marker.substring(markerPrefix.length()).split(Pattern.quote(MARKER_SEPARATOR), -1);
+                    if (state.length != 3)
+                        throw new IllegalStateException("The resume marker doesn't hold the state of the d-samplers: " + marker);
+                    firstConstruct = Integer.parseInt(state[0]) + 1;
+                    // The d-samplers are created from the seed of the stopped generation (see restoreDrawnLabels())
+                    _randGraphApi.setSeed(Long.parseLong(state[1]));
+                    drawnLabels = parseDrawnLabels(state[2]);
+                    _graphModel = _dbw.getDbBasedModel();
+                    // Remove the triples that the stopped construction command stored before it ended
+                    long removed = _dbw.rollback();
+                    System.out.println("Resuming from construction number: " + firstConstruct
+                            + " (removed " + removed + " triples of the stopped construction)");
+                }
+                else
+                    _graphModel = _dbw.getEmptyDbBasedModel();
+                _randGraphApi.setBulkLoader(_useBulkLoading ? _dbw : null);
+                _randGraphApi.setSyncedDB(_dbw);
+                // The batches are recorded only when a stopped generation may be resumed (see setResume())
+                _randGraphApi.setJournal((_resume || _dbw.hasSyncInterval()) ? _dbw : null);
+                _randGraphApi.setOutputWriter(null);
+            }
+
+            // The d-samplers take their generators while the input file is parsed, so the seed from which they're
+            // created is stored along with their state
+            seed = _randGraphApi.getSeed();
+            rdfParser.parseRdfGeneratorFile(fileInput);
+            sFunction = rdfParser.getSamplerFunction();
+            typePropFunction = rdfParser.getTypePropsFunction();
+            nsMap = rdfParser.getAliasNsMap();
+            cWrappers = rdfParser.getConstructionWrapperList();
+            dSamplers = sFunction.countDraws();
+            if (drawnLabels != null)
+                restoreDrawnLabels(dSamplers, drawnLabels);
 
             if (nsMap.size() < 1)
                 throw new IllegalStateException("No schema was selected for the input generator file!");
@@ -115,39 +199,70 @@ public class RdfBasedRandomGraphAPI {
                 _graphModel.setNsPrefix(alias, fullNs);
                 _schema = FileManager.get().loadModel(ns);
 
-                _infModel = ModelFactory.createRDFSModel(_schema, _graphModel);
-                _infModel.setNsPrefix(alias, fullNs);
+                if (_useSchemaClosure) {
+                    closure.addSchema(_schema);
+                    if (firstConstruct == 0)
+                        storeInitialModel(_schema, outputWriter);
+                }
+                else {
+                    _infModel = ModelFactory.createRDFSModel(_schema, _graphModel);
+                    _infModel.setNsPrefix(alias, fullNs);
+                }
 
 
                 if (!rdfGenAdded) {
                     _graphModel.setNsPrefix("rdfGen", RDF_GEN_NS);
-                    _infModel.setNsPrefix("rdfGen", RDF_GEN_NS);
+                    if (_infModel != null)
+                        _infModel.setNsPrefix("rdfGen", RDF_GEN_NS);
                     rdfGenAdded = true;
                 }
             }
 
-            _dbw.storeModel(_infModel);
+            if (_useSchemaClosure) {
+                // Query the graph model directly, while rewriting the queries by the closure of the schemas
+                closure.applyTo(_graphModel);
+                _queryModel = _graphModel;
+            }
+            else {
+                if (firstConstruct == 0)
+                    storeInitialModel(_infModel, outputWriter);
+                _queryModel = _infModel;
+            }
 
 
         }
         catch (IOException ioe) {
-            System.out.println("Failed to load the configuration file for the TDB");
+            System.out.println("Failed to initialize the TDB: " + ioe.getMessage());
         }
 
         // We run each construction-pattern
-        for (int k = 0; k < cWrappers.size(); k++) {
+        for (int k = firstConstruct; k < cWrappers.size(); k++) {
             System.out.println("In construction number: " + k);
+            if (outputWriter != null)
+                _randGraphApi.setKeptFootprint(createKeptFootprint(cWrappers, k + 1, closure));
+            long constructStart = System.nanoTime();
             applyConstruction(cWrappers.get(k), sFunction, typePropFunction, mode, expLogger);
+            if (expLogger != null)
+                expLogger.logConstruction(System.nanoTime() - constructStart);
+            // Commits the construction command's triples (see RandomGraphAPI.setJournal())
+            if (_dbw != null)
+                _dbw.setResumeMarker(markerPrefix + k + MARKER_SEPARATOR + seed + MARKER_SEPARATOR
+                        + formatDrawnLabels(dSamplers));
         }
 
         if (expLogger != null)
             expLogger.endLogging();
 
+        if (outputWriter != null) {
+            _randGraphApi.setOutputWriter(null);
+            _randGraphApi.setKeptFootprint(null);
+            outputWriter.close();
+        }
         // If saveToFile is true we save the model into a file 
-        if (storeToFile) {
+        else if (storeToFile) {
             IFileWrapper fw = new StdFileWrapper();
             try {
-                fw.storeModel(_graphModel, fileOutput, RdfFormat.RDF_XML_FORMAT);
+                fw.storeModel(_graphModel, fileOutput, _outputFormat);
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
                 throw new IllegalStateException("Output file wasn't found!");
@@ -159,15 +274,208 @@ public class RdfBasedRandomGraphAPI {
         //-----------------------------------------------------------------------------
 
         if (expLogger != null)
-            expLogger.collectData(_infModel, nsMap);
+            expLogger.collectData(_queryModel, nsMap);
 
         // Close all models
+        SchemaClosure.release(_graphModel);
         _graphModel.close();
         _schema.close();
-        _infModel.close();
-        _dbw.close();
+        if (_infModel != null)
+            _infModel.close();
+        _infModel = null;
+        if (_dbw != null)
+            _dbw.close();
+        _dbw = null;
+
+
+    }
+
+    /**
+     * Sets the number of workers used for applying each construction command (see RandomGraphAPI.setParallelism())
+     * @param parallelism - The number of workers (1 means sequential construction)
+     */
+    public void setParallelism(int parallelism) {
+        _randGraphApi.setParallelism(parallelism);
+    }
+
+    /**
+     * Sets the number of consumers used for pipelining each construction command (see
+     * RandomGraphAPI.setPipelineConsumers())
+     * @param consumers - The number of consumers (RandomGraphAPI.NO_PIPELINING for applying the commands without a
+     * pipeline)
+     */
+    public void setPipelineConsumers(int consumers) {
+        _randGraphApi.setPipelineConsumers(consumers);
+    }
+
+    /**
+     * Sets the max number of matchings queued between the producer and the consumers of a pipelined construction
+     * command (see RandomGraphAPI.setPipelineQueueSize())
+     * @param queueSize - The max number of queued matchings
+     */
+    public void setPipelineQueueSize(int queueSize) {
+        _randGraphApi.setPipelineQueueSize(queueSize);
+    }
+
+    /**
+     * Sets the number of created triples after which they are flushed into the model while applying each construction
+     * command (see RandomGraphAPI.setSinkBatchSize())
+     * @param batchSize - The number of triples after which they are flushed (BatchedTripleSink.UNBOUNDED to disable)
+     */
+    public void setSinkBatchSize(int batchSize) {
+        _randGraphApi.setSinkBatchSize(batchSize);
+    }
+
+    /**
+     * Sets the max number of results of the first query of each construction command that are held at once (see
+     * RandomGraphAPI.setStreamingWindowSize())
+     * @param windowSize - The max number of held results (StdQuerySamplerFactory.NO_STREAMING to disable streaming)
+     */
+    public void setStreamingWindowSize(int windowSize) {
+        _randGraphApi.setStreamingWindowSize(windowSize);
+    }
+
+    /**
+     * Sets the memory budget of the query cache used by each construction command in BOUNDED_CACHE mode (see
+     * RandomGraphAPI.setCacheMemoryBudget())
+     * @param memoryBudget - The max number of bytes (estimated) used by the cached query results
+     */
+    public void setCacheMemoryBudget(long memoryBudget) {
+        _randGraphApi.setCacheMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Sets the number of outer matchings for which a dynamic inner query is executed at once (see
+     * RandomGraphAPI.setDynamicBatchSize())
+     * @param batchSize - The number of matchings in a batch (RandomGraphAPI.NO_DYNAMIC_BATCHING to disable batching)
+     */
+    public void setDynamicBatchSize(int batchSize) {
+        _randGraphApi.setDynamicBatchSize(batchSize);
+    }
+
+    /**
+     * Sets the global seed of the generation (see RandomGraphAPI.setSeed()). Must be invoked before generateGraph(),
+     * so the samplers parsed from the input file are seeded as well
+     * @param seed - The global seed of the generation
+     */
+    public void setSeed(long seed) {
+        _randGraphApi.setSeed(seed);
+    }
+
+    /**
+     * Sets whether the queried models are indexed, so simple queries are evaluated on the index instead of by ARQ (see
+     * RandomGraphAPI.setNativeIndexing())
+     * @param nativeIndexing - True iff the queried models should be indexed
+     */
+    public void setNativeIndexing(boolean nativeIndexing) {
+        _randGraphApi.setNativeIndexing(nativeIndexing);
+    }
+
+    /**
+     * Sets whether the queries of construction commands without dynamic queries are reordered by their estimated cost
+     * (see RandomGraphAPI.setQueryReordering())
+     * @param queryReordering - True iff the queries should be reordered
+     */
+    public void setQueryReordering(boolean queryReordering) {
+        _randGraphApi.setQueryReordering(queryReordering);
+    }
+
+    /**
+     * Sets the registry into which the metrics of each construction command are recorded (see
+     * RandomGraphAPI.setMetrics())
+     * @param metrics - The registry of the metrics (null for not recording them)
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        _randGraphApi.setMetrics(metrics);
+    }
+
+    /**
+     * Sets the format of the output file written by generateGraph() (RDF/XML by default). N-Triples and N-Quads are
+     * streamed from the DB (see StdFileWrapper.storeModel()), which is preferable for big models. The output is
+     * compressed with gzip if the name of the output file ends with .gz
+     * @param format - The format of the output file
+     */
+    public void setOutputFormat(RdfFormat format) {
+        _outputFormat = format;
+    }
+
+    /**
+     * Sets whether generateGraph() writes the graph directly into the output file instead of storing it in the DB.
+     * The triples created by each construction command are streamed into the file (see RandomGraphAPI.setOutputWriter()),
+     * and only the triples that the queries of the next commands might match (see QueryFootprint) are kept in an
+     * in-memory model, which is queried instead of the DB (see also setNativeIndexing()). The triples are filtered
+     * only when the schema closure is used (see setUseSchemaClosure()), since RDFS inferences might depend on any
+     * triple - otherwise all of them are kept in memory.
+     * The output format must be N-Triples or N-Quads (see setOutputFormat()), and a generation written directly into
+     * the file can't be resumed (see setResume())
+     * @param directToFile - True for writing the graph directly into the output file
+     */
+    public void setDirectToFile(boolean directToFile) {
+        _directToFile = directToFile;
+    }
+
+    /**
+     * Sets the configuration file of the TDB used by generateGraph() (by default: TDB/tdbConfig.xml under
+     * SolutionConfigFile.BASE_PATH)
+     * @param configFile - The path of the TDB configuration file
+     */
+    public void setTdbConfigFile(String configFile) {
+        _tdbConfigFile = configFile;
+    }
 
+    /**
+     * Sets when the triples written into the DB while a construction command is applied are synced to the disk (see
+     * IDBWrapper.setSyncInterval()) - after the given number of triples, or after the given time since the last sync.
+     * Regardless of these intervals, the DB is synced whenever a construction command ends. When an interval is set,
+     * each batch of triples is also recorded before it's stored, so it can be rolled back (see
+     * RandomGraphAPI.setJournal())
+     * @param tripleInterval - The number of written triples that makes a sync due (IDBWrapper.NO_SYNC_INTERVAL to
+     * disable)
+     * @param timeInterval - The time (in milliseconds) that makes a sync due (IDBWrapper.NO_SYNC_INTERVAL to disable)
+     * @throws IllegalArgumentException - If one of the intervals is negative
+     */
+    public void setSyncInterval(int tripleInterval, long timeInterval) throws IllegalArgumentException {
+        if (tripleInterval < 0 || timeInterval < 0)
+            throw new IllegalArgumentException("Negative sync interval: " + tripleInterval + " triples, " + timeInterval + "ms");
+        _syncTripleInterval = tripleInterval;
+        _syncTimeInterval = timeInterval;
+    }
+
+    /**
+     * Sets whether generateGraph() resumes a previous generation of the same input file. After each construction
+     * command is stored, a marker of the command is stored in the DB - when resuming, the stored graph is kept and
+     * the generation continues from the command after the marked one (otherwise the DB is emptied first).
+     * The marker also holds the seed from which the d-samplers were created and the number of labels drawn from each
+     * of them, so the resumed generation recreates them from the same seed and draws the same number of labels before
+     * the next command - then the labels sampled in global-distinct mode don't repeat the stored ones. The triples
+     * that the stopped command stored before it ended are removed (see IDBWrapper.rollback()) - they're recorded only
+     * if the stopped generation was also set to resume, or had a sync interval (see RandomGraphAPI.setJournal())
+     * @param resume - True for resuming a previous generation of the same input file
+     */
+    public void setResume(boolean resume) {
+        _resume = resume;
+    }
 
+    /**
+     * Sets whether the triples created by each construction command are stored into the DB through its bulk-loading
+     * path (see RandomGraphAPI.setBulkLoader()). Only applies when the schema closure is used (see
+     * setUseSchemaClosure()), since the inference model must be updated directly. The schemas are always stored
+     * through the bulk-loading path
+     * @param useBulkLoading - True iff the created triples should be bulk-loaded into the DB
+     */
+    public void setUseBulkLoading(boolean useBulkLoading) {
+        _useBulkLoading = useBulkLoading;
+    }
+
+    /**
+     * Sets whether the construction commands query the graph model directly instead of an RDFS inference model. If
+     * set, the subclass and subproperty closure of the schemas is added to the graph model once, and each query is
+     * rewritten to match the subclasses (subproperties) of its types (properties) through the closure (see
+     * SchemaClosure). Entailments of rdfs:domain and rdfs:range aren't inferred in this mode
+     * @param useSchemaClosure - True iff the schema closure should be used instead of an inference model
+     */
+    public void setUseSchemaClosure(boolean useSchemaClosure) {
+        _useSchemaClosure = useSchemaClosure;
     }
 
     /**
@@ -192,7 +500,7 @@ public class RdfBasedRandomGraphAPI {
 
         if (queryAttributeVariableMap == null || queryAttributeVariableMap.size() == 0)
             _randGraphApi.construct(
-                    _infModel,
+                    _queryModel,
                     cWrapper.getQWrappers(),
                     cWrapper.getNSampler(),
                     cPattern,
@@ -201,7 +509,7 @@ public class RdfBasedRandomGraphAPI {
                     expLogger);
         else
             _randGraphApi.constructDynamic(
-                    _infModel,
+                    _queryModel,
                     cWrapper.getQWrappers(),
                     queryAttributeVariableMap,
                     cWrapper.getNSampler(),
@@ -211,5 +519,97 @@ public class RdfBasedRandomGraphAPI {
                     expLogger);
 
     }
-}
 
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Brings the given d-samplers to the state stored in the resume marker, by drawing the stored number of labels
+     * from each of them (see CountingDictionarySampler.skip()). The d-samplers must be created from the stored seed
+     * @param dSamplers - The d-samplers of the input file (see SamplerFunction.countDraws())
+     * @param drawnLabels - The number of labels drawn from each d-sampler before the generation stopped
+     * @throws IllegalStateException - If the number of d-samplers doesn't match the stored state
+     */
+    private void restoreDrawnLabels(CountingDictionarySampler[] dSamplers, long[] drawnLabels)
+            throws IllegalStateException {
+        if (dSamplers.length != drawnLabels.length)
+            throw new IllegalStateException("The resume marker holds the state of " + drawnLabels.length
+                    + " d-samplers, while the input file has " + dSamplers.length);
+        for (int i = 0; i < dSamplers.length; i++)
+            dSamplers[i].skip(drawnLabels[i]);
+    }
+
+    /**
+     * Returns the number of labels drawn from each of the given d-samplers, as stored in the resume marker
+     * @param dSamplers - The d-samplers of the input file (see SamplerFunction.countDraws())
+     * @return - The numbers of drawn labels separated by DRAWN_LABELS_SEPARATOR
+     */
+    private String formatDrawnLabels(CountingDictionarySampler[] dSamplers) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < dSamplers.length; i++) {
+            if (i > 0)
+                sb.append(DRAWN_LABELS_SEPARATOR);
+            sb.append(dSamplers[i].getDrawnLabels());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the number of labels drawn from each d-sampler, as stored in the resume marker (see formatDrawnLabels())
+     * @param value - The stored numbers of drawn labels
+     * @return - The number of labels drawn from each d-sampler
+     */
+    private long[] parseDrawnLabels(String value) {
+        if (value.length() == 0)
+            return new long[0];
+        String[] parts = value.split(DRAWN_LABELS_SEPARATOR);
+        long[] drawnLabels = new long[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            drawnLabels[i] = Long.parseLong(parts[i]);
+        return drawnLabels;
+    }
+
+    /**
+     * Stores the given initial model (e.g. a schema) - bulk-loads it into the DB, or writes it into the output file
+     * and adds it to the in-memory graph model when generating directly into the file
+     * @param model - The initial model
+     * @param outputWriter - The writer of the output file (null when the graph is stored in the DB)
+     * @throws IOException - In case of I/O problems while bulk-loading the model into the DB
+     * @throws IllegalStateException - If writing the model into the output file failed
+     */
+    private void storeInitialModel(Model model, NTriplesWriter outputWriter) throws IOException, IllegalStateException {
+        if (outputWriter == null) {
+            _dbw.bulkLoad(model);
+            return;
+        }
+        // A snapshot is taken since the given model might be an inference model over the graph model
+        Model snapshot = ModelFactory.createDefaultModel().add(model);
+        try {
+            outputWriter.writeGraph(snapshot.getGraph());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to write the output file", e);
+        }
+        _graphModel.add(snapshot);
+        snapshot.close();
+    }
+
+    /**
+     * Returns the footprint of the queries of the construction commands starting from the given one, which are the
+     * triples that must be kept in memory when generating directly into the output file
+     * @param cWrappers - The construction commands
+     * @param from - The index of the first command whose queries are included
+     * @param closure - The schema closure by which the queries are rewritten
+     * @return - The footprint of the queries of the commands (which matches all of the triples when an inference model
+     * is queried)
+     */
+    private QueryFootprint createKeptFootprint(ArrayList<ConstructionWrapper> cWrappers, int from, SchemaClosure closure) {
+        QueryFootprint footprint = new QueryFootprint(_useSchemaClosure ? closure : null);
+        if (!_useSchemaClosure)
+            footprint.matchAll();
+        for (int k = from; k < cWrappers.size() && !footprint.matchesAll(); k++)
+            footprint.addQueries(cWrappers.get(k).getQWrappers());
+        return footprint;
+    }
+}
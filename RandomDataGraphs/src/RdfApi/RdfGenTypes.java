@@ -71,6 +71,7 @@ public class RdfGenTypes {
     public static final String RES_RDF_TYPE_CTR_DIC_SAMPLER = "CounterDictionarySampler";
     public static final String RES_RDF_TYPE_EXT_DIC_SAMPLER = "ExternalConstDictionarySampler";
     public static final String RES_RDF_TYPE_CONST_DIC_SAMPLER = "ConstDictionarySampler";
+    public static final String RES_RDF_TYPE_WEIGHTED_DIC_SAMPLER = "WeightedDictionarySampler";
 
     /**
      * Consts - Properties Types
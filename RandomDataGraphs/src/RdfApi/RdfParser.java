@@ -604,6 +604,14 @@ public class RdfParser {
             CustomDictionarySampler customDicSampler = new CustomDictionarySampler();
             customDicSampler.init(dataPath);
             return new TypeDSamplerPair(type, customDicSampler);
+        } else if (dSamplerType.equals(RDF_GEN_NS + RdfGenTypes.RES_RDF_TYPE_WEIGHTED_DIC_SAMPLER)) {
+            Literal typeLit = (Literal) samplerMapping.getProperty(new PropertyImpl(RDF_GEN_NS + RdfGenTypes.PROP_RDF_TYPE_TYPE)).getObject();
+            String type = typeLit.getString();
+            Literal dataPathLit = (Literal) samplerMapping.getProperty(new PropertyImpl(RDF_GEN_NS + RdfGenTypes.PROP_RDF_TYPE_SOURCE)).getObject();
+            String dataPath = dataPathLit.getString();
+            WeightedDictionarySampler weightedDicSampler = new WeightedDictionarySampler();
+            weightedDicSampler.init(dataPath);
+            return new TypeDSamplerPair(type, weightedDicSampler);
         } else if (dSamplerType.equals(RDF_GEN_NS + RdfGenTypes.RES_RDF_TYPE_STD_DIC_SAMPLER)) {
             Literal typeLit = (Literal) samplerMapping.getProperty(new PropertyImpl(RDF_GEN_NS + RdfGenTypes.PROP_RDF_TYPE_TYPE)).getObject();
             String type = typeLit.getString();
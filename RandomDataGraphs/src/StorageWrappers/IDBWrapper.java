@@ -35,6 +35,11 @@ import java.io.IOException;
  */
 public interface IDBWrapper {
 
+    /**
+     * Consts
+     */
+    public static final int NO_SYNC_INTERVAL = 0;
+
     /**
      * Initializes the DB by using a configuration file. This method must take care of all actions needed to be
      * performed, so the DB will be ready and in sync with the system
@@ -55,6 +60,74 @@ public interface IDBWrapper {
      */
     public void storeModel(Model model);
 
+    /**
+     * Stores the given model into the DB through the DB's bulk-loading path, which is meant for adding many triples
+     * at once (e.g. the triples are sorted and the indexes are built in one pass instead of being updated for each
+     * triple). Models backed by the DB don't get notified about the loaded triples
+     * @param model - The model to be stored in the DB
+     * @throws IOException - I/O problems while preparing the triples for loading
+     */
+    public void bulkLoad(Model model) throws IOException;
+
+    /**
+     * Sets when the written triples are synced to the DB's storage by syncIfDue() - after the given number of
+     * triples were written since the last sync, or after the given time passed since the last sync
+     * @param tripleInterval - The number of written triples that makes a sync due (NO_SYNC_INTERVAL to disable)
+     * @param timeInterval - The time (in milliseconds) that makes a sync due (NO_SYNC_INTERVAL to disable)
+     * @throws IllegalArgumentException - If one of the intervals is negative
+     */
+    public void setSyncInterval(int tripleInterval, long timeInterval) throws IllegalArgumentException;
+
+    /**
+     * Returns true iff the written triples are synced by an interval (see setSyncInterval())
+     * @return - True iff the written triples are synced by an interval
+     */
+    public boolean hasSyncInterval();
+
+    /**
+     * Syncs all of the triples written so far to the DB's storage
+     */
+    public void sync();
+
+    /**
+     * Syncs all of the triples written so far to the DB's storage if a sync is due (see setSyncInterval())
+     */
+    public void syncIfDue();
+
+    /**
+     * Syncs the DB and stores the given marker along with it, so a later run can tell which part of the generation
+     * was already stored (e.g. the last construction command that ended). Storing a marker commits the triples
+     * recorded by logUncommitted(). The marker is removed when the DB is emptied
+     * @param marker - The marker to be stored (null for removing the stored marker)
+     * @throws IOException - I/O problems while storing the marker
+     */
+    public void setResumeMarker(String marker) throws IOException;
+
+    /**
+     * Records the triples of the given model which aren't stored in the DB yet, before they're stored in it. The
+     * recorded triples are uncommitted until the next marker is stored (see setResumeMarker()), and are removed by
+     * rollback() if the generation stopped before that (e.g. the triples of a construction command that didn't end,
+     * some of which might have been synced already)
+     * @param model - The triples that are about to be stored in the DB
+     * @throws IOException - I/O problems while recording the triples
+     */
+    public void logUncommitted(Model model) throws IOException;
+
+    /**
+     * Removes the uncommitted triples (see logUncommitted()) from the DB and syncs it, so the DB holds exactly the
+     * triples that were stored when the last marker was stored
+     * @return - The number of removed triples
+     * @throws IOException - I/O problems while reading the recorded triples
+     */
+    public long rollback() throws IOException;
+
+    /**
+     * Returns the marker stored along with the DB (see setResumeMarker())
+     * @return - The stored marker or null if there's none
+     * @throws IOException - I/O problems while reading the marker
+     */
+    public String getResumeMarker() throws IOException;
+
     /**
      * Returns a model backed by the DB
      * @return - A model backed by the DB
@@ -67,6 +140,13 @@ public interface IDBWrapper {
      */
     public Model getEmptyDbBasedModel();
 
+    /**
+     * Returns true iff the given model is backed by the DB, so the triples stored by bulkLoad() are part of it
+     * @param model - The model
+     * @return - True iff the given model is backed by the DB
+     */
+    public boolean isDbBasedModel(Model model);
+
     /**
      * Closes all resources and connections to the DB
      */
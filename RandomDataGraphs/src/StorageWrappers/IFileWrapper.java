@@ -44,6 +44,16 @@ public interface IFileWrapper {
      */
     public Model loadModel(String file) throws IOException;
 
+    /**
+     * Loads the model from the given file path into the given DB through its bulk-loading path (see
+     * IDBWrapper.bulkLoad()), without holding the whole model in memory when possible
+     * @param file - The file that stores the model
+     * @param dbw - The DB into which the model is loaded
+     * @return - The number of loaded triples
+     * @throws IOException - In case of I/O problems while using the given file or loading the DB
+     */
+    public long loadModel(String file, IDBWrapper dbw) throws IOException;
+
     /**
      * Stores the given model into the destination file
      * @param model - The model to be stored
@@ -52,4 +62,17 @@ public interface IFileWrapper {
      * @throws FileNotFoundException - In case that the destination file path isn't valid
      */
     public void storeModel(Model model, String file, RdfFormat format) throws FileNotFoundException;
+
+    /**
+     * Stores the given model into several files (shards) in N-Triples/N-Quads format, where each triple is stored in
+     * the shard chosen by the hash of its subject - so the shards can be loaded in parallel.
+     * Blank node labels are shared between the shards, so they should be loaded into the same graph
+     * @param model - The model to be stored
+     * @param file - The output file location, the index of each shard is added to its name (before the extension)
+     * @param format - Either RdfFormat.N_TRIPLE_FORMAT or RdfFormat.N_QUADS_FORMAT
+     * @param shards - The number of output files
+     * @return - The locations of the created files
+     * @throws IOException - In case of I/O problems while writing the files
+     */
+    public String[] storeModelSharded(Model model, String file, RdfFormat format, int shards) throws IOException;
 }
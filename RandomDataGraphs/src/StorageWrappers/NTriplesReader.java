@@ -0,0 +1,296 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package StorageWrappers;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parser of single N-Triples (or N-Quads) lines, which is the reading counterpart of NTriplesWriter. Unlike the
+ * readers of Jena, lines can be parsed independently (e.g. by several threads parsing different parts of the same
+ * file, see ParallelNTriplesLoader) - blank node labels are resolved through a map which can be shared by all of the
+ * parsers of the same document, so the same label is always parsed into the same blank node.
+ * The graph term of N-Quads lines is parsed but ignored, meaning all of the quads are read into the default graph
+ */
+public class NTriplesReader {
+
+    /**
+     * Class Members
+     */
+    private ConcurrentMap<String, Node> _blankNodes;
+    private StringBuilder _sb;
+    // The parsed line and the position of the next char to be parsed
+    private String _line;
+    private int _pos;
+
+    /**
+     * Constructor of a parser with its own blank node labels
+     */
+    public NTriplesReader() {
+        this(new ConcurrentHashMap<String, Node>());
+    }
+
+    /**
+     * Constructor
+     * @param blankNodes - The map of blank node labels to nodes, shared by all of the parsers of the same document
+     */
+    public NTriplesReader(ConcurrentMap<String, Node> blankNodes) {
+        _blankNodes = blankNodes;
+        _sb = new StringBuilder();
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Parses the given line
+     * @param line - An N-Triples or N-Quads line (without its line terminator)
+     * @return - The triple of the given line, or null if the line is empty or a comment
+     * @throws IllegalArgumentException - If the line isn't a valid N-Triples or N-Quads line
+     */
+    public Triple parseLine(String line) throws IllegalArgumentException {
+        _line = line;
+        _pos = 0;
+        skipWhitespace();
+        if (_pos == _line.length() || _line.charAt(_pos) == '#')
+            return null;
+
+        Node subject = parseNode();
+        if (!subject.isURI() && !subject.isBlank())
+            throw syntaxError("The subject must be a URI or a blank node");
+        Node predicate = parseNode();
+        if (!predicate.isURI())
+            throw syntaxError("The predicate must be a URI");
+        Node object = parseNode();
+
+        // An optional graph term (of N-Quads) which is ignored
+        if (_pos < _line.length() && _line.charAt(_pos) != '.')
+            parseNode();
+        if (_pos == _line.length() || _line.charAt(_pos) != '.')
+            throw syntaxError("Expected '.' at the end of the line");
+        _pos++;
+        skipWhitespace();
+        if (_pos < _line.length() && _line.charAt(_pos) != '#')
+            throw syntaxError("Unexpected text after the end of the line");
+        return new Triple(subject, predicate, object);
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Parses the node starting at the current position, and skips the whitespace after it
+     * @return - The parsed node
+     * @throws IllegalArgumentException - If there's no valid node at the current position
+     */
+    private Node parseNode() throws IllegalArgumentException {
+        if (_pos == _line.length())
+            throw syntaxError("Unexpected end of line");
+        Node node;
+        char c = _line.charAt(_pos);
+        if (c == '<')
+            node = Node.createURI(parseUri());
+        else if (c == '_')
+            node = parseBlankNode();
+        else if (c == '"')
+            node = parseLiteral();
+        else
+            throw syntaxError("Unexpected char: '" + c + "'");
+        skipWhitespace();
+        return node;
+    }
+
+    /**
+     * Parses the URI starting at the current position (including its angle brackets)
+     * @return - The parsed URI
+     * @throws IllegalArgumentException - If the URI isn't closed
+     */
+    private String parseUri() throws IllegalArgumentException {
+        _pos++;
+        int start = _pos;
+        // Most URIs don't have escapes, so they are taken from the line as is
+        while (_pos < _line.length()) {
+            char c = _line.charAt(_pos);
+            if (c == '>') {
+                _pos++;
+                return _line.substring(start, _pos - 1);
+            }
+            if (c == '\\')
+                break;
+            _pos++;
+        }
+        _sb.setLength(0);
+        _sb.append(_line, start, _pos);
+        while (_pos < _line.length()) {
+            char c = _line.charAt(_pos++);
+            if (c == '>')
+                return _sb.toString();
+            if (c == '\\')
+                appendEscape();
+            else
+                _sb.append(c);
+        }
+        throw syntaxError("Unclosed URI");
+    }
+
+    /**
+     * Parses the blank node starting at the current position
+     * @return - The blank node of the parsed label (the same node is returned for all of the occurrences of a label)
+     * @throws IllegalArgumentException - If the label is empty
+     */
+    private Node parseBlankNode() throws IllegalArgumentException {
+        if (_pos + 1 >= _line.length() || _line.charAt(_pos + 1) != ':')
+            throw syntaxError("Expected ':' after '_'");
+        _pos += 2;
+        int start = _pos;
+        while (_pos < _line.length()) {
+            char c = _line.charAt(_pos);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.')
+                break;
+            _pos++;
+        }
+        // A label can't end with '.', which is the end of the line
+        while (_pos > start && _line.charAt(_pos - 1) == '.')
+            _pos--;
+        if (_pos == start)
+            throw syntaxError("Empty blank node label");
+
+        String label = _line.substring(start, _pos);
+        Node node = _blankNodes.get(label);
+        if (node == null) {
+            node = Node.createAnon();
+            Node existing = _blankNodes.putIfAbsent(label, node);
+            if (existing != null)
+                node = existing;
+        }
+        return node;
+    }
+
+    /**
+     * Parses the literal starting at the current position, including its language tag or datatype
+     * @return - The parsed literal
+     * @throws IllegalArgumentException - If the literal isn't closed
+     */
+    private Node parseLiteral() throws IllegalArgumentException {
+        _pos++;
+        _sb.setLength(0);
+        boolean closed = false;
+        while (_pos < _line.length()) {
+            char c = _line.charAt(_pos++);
+            if (c == '"') {
+                closed = true;
+                break;
+            }
+            if (c == '\\')
+                appendEscape();
+            else
+                _sb.append(c);
+        }
+        if (!closed)
+            throw syntaxError("Unclosed literal");
+        String lexicalForm = _sb.toString();
+
+        if (_pos < _line.length() && _line.charAt(_pos) == '@') {
+            int start = ++_pos;
+            while (_pos < _line.length() && (Character.isLetterOrDigit(_line.charAt(_pos)) || _line.charAt(_pos) == '-'))
+                _pos++;
+            if (_pos == start)
+                throw syntaxError("Empty language tag");
+            return Node.createLiteral(lexicalForm, _line.substring(start, _pos), false);
+        }
+        if (_line.startsWith("^^", _pos)) {
+            _pos += 2;
+            if (_pos == _line.length() || _line.charAt(_pos) != '<')
+                throw syntaxError("Expected a datatype URI after '^^'");
+            String datatype = parseUri();
+            return Node.createLiteral(lexicalForm, null, TypeMapper.getInstance().getSafeTypeByName(datatype));
+        }
+        return Node.createLiteral(lexicalForm);
+    }
+
+    /**
+     * Appends the char of the escape sequence starting at the current position (after its backslash)
+     * @throws IllegalArgumentException - If the escape sequence isn't valid
+     */
+    private void appendEscape() throws IllegalArgumentException {
+        if (_pos == _line.length())
+            throw syntaxError("Unexpected end of line after '\\'");
+        char c = _line.charAt(_pos++);
+        switch (c) {
+            case 't': _sb.append('\t'); break;
+            case 'n': _sb.append('\n'); break;
+            case 'r': _sb.append('\r'); break;
+            case '"': _sb.append('"'); break;
+            case '\\': _sb.append('\\'); break;
+            case 'u': _sb.append((char) parseHex(4)); break;
+            case 'U': _sb.appendCodePoint(parseHex(8)); break;
+            default:
+                throw syntaxError("Invalid escape sequence: '\\" + c + "'");
+        }
+    }
+
+    /**
+     * Parses the given number of hex digits starting at the current position
+     * @param digits - The number of hex digits
+     * @return - The parsed value
+     * @throws IllegalArgumentException - If one of the chars isn't a hex digit
+     */
+    private int parseHex(int digits) throws IllegalArgumentException {
+        if (_pos + digits > _line.length())
+            throw syntaxError("Unexpected end of line in a unicode escape");
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int digit = Character.digit(_line.charAt(_pos++), 16);
+            if (digit < 0)
+                throw syntaxError("Invalid hex digit in a unicode escape");
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Skips the spaces and tabs starting at the current position
+     */
+    private void skipWhitespace() {
+        while (_pos < _line.length() && (_line.charAt(_pos) == ' ' || _line.charAt(_pos) == '\t'))
+            _pos++;
+    }
+
+    /**
+     * Returns the exception thrown for a syntax error at the current position
+     * @param message - The description of the error
+     * @return - The exception to be thrown
+     */
+    private IllegalArgumentException syntaxError(String message) {
+        return new IllegalArgumentException("N-Triples syntax error (column " + (_pos + 1) + "): " + message + " in line: " + _line);
+    }
+}
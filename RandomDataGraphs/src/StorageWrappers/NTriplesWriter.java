@@ -0,0 +1,235 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package StorageWrappers;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A streaming writer of N-Triples (or N-Quads) lines. Unlike Model.write(), the triples are written while the graph
+ * is iterated, so nothing but the current line is held in memory and the writer can be used for models of any size
+ * (e.g. TDB based models).
+ * The output is plain ASCII - non-ASCII characters of URIs and literals are written as unicode escapes.
+ * When a graph name is given, each line is written as a quad in that graph (otherwise N-Quads lines are the same as
+ * N-Triples lines, meaning the triples are in the default graph)
+ */
+public class NTriplesWriter {
+
+    /**
+     * Consts
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Class Members
+     */
+    private Writer _out;
+    private String _graphName;
+    private StringBuilder _line;
+    private long _written;
+
+    /**
+     * Constructor
+     * @param out - The writer into which the lines are written (see openOutput())
+     * @param graphName - The URI of the graph of the written quads (null for writing triples, or quads in the default
+     * graph)
+     */
+    public NTriplesWriter(Writer out, String graphName) {
+        _out = out;
+        _graphName = graphName;
+        _line = new StringBuilder();
+        _written = 0;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Opens a buffered writer for the given file, which compresses the written data with gzip if the file name ends
+     * with .gz. An existing file is replaced
+     * @param file - The output file location
+     * @return - A buffered writer for the given file
+     * @throws IOException - In case that the file can't be created
+     */
+    public static Writer openOutput(String file) throws IOException {
+        File f = new File(file);
+        if (f.exists())
+            f.delete();
+        OutputStream out = new FileOutputStream(f);
+        if (file.endsWith(GZIP_SUFFIX))
+            out = new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE);
+        return new BufferedWriter(new OutputStreamWriter(out, "US-ASCII"), OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes all of the triples of the given graph
+     * @param graph - The written graph
+     * @return - The number of written triples
+     * @throws IOException - In case of a failure while writing
+     */
+    public long writeGraph(Graph graph) throws IOException {
+        long count = 0;
+        ExtendedIterator<Triple> iter = graph.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (iter.hasNext()) {
+                write(iter.next());
+                count++;
+            }
+        }
+        finally {
+            iter.close();
+        }
+        return count;
+    }
+
+    /**
+     * Writes a single triple (quad) line
+     * @param triple - The written triple
+     * @throws IOException - In case of a failure while writing
+     */
+    public void write(Triple triple) throws IOException {
+        _line.setLength(0);
+        appendNode(_line, triple.getSubject());
+        _line.append(' ');
+        appendNode(_line, triple.getPredicate());
+        _line.append(' ');
+        appendNode(_line, triple.getObject());
+        if (_graphName != null) {
+            _line.append(" <");
+            appendEscaped(_line, _graphName, true);
+            _line.append('>');
+        }
+        _line.append(" .\n");
+        _out.append(_line);
+        _written++;
+    }
+
+    /**
+     * Returns the number of lines written so far
+     * @return - The number of lines written so far
+     */
+    public long getWrittenCount() {
+        return _written;
+    }
+
+    /**
+     * Flushes the underlying writer
+     * @throws IOException - In case of a failure while flushing
+     */
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    /**
+     * Closes the underlying writer (which also finishes the compressed stream, if any)
+     * @throws IOException - In case of a failure while closing
+     */
+    public void close() throws IOException {
+        _out.close();
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Appends the N-Triples form of the given node
+     * @param sb - The builder of the line
+     * @param node - The appended node
+     */
+    private static void appendNode(StringBuilder sb, Node node) {
+        if (node.isURI()) {
+            sb.append('<');
+            appendEscaped(sb, node.getURI(), true);
+            sb.append('>');
+        }
+        else if (node.isBlank()) {
+            // Blank node labels may only hold letters and digits - any other char is written as x<hex code>
+            sb.append("_:b");
+            String label = node.getBlankNodeLabel();
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if ((c >= 'a' && c <= 'w') || (c >= 'y' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+                    sb.append(c);
+                else
+                    sb.append('x').append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+            }
+        }
+        else if (node.isLiteral()) {
+            sb.append('"');
+            appendEscaped(sb, node.getLiteralLexicalForm(), false);
+            sb.append('"');
+            String lang = node.getLiteralLanguage();
+            RDFDatatype datatype = node.getLiteralDatatype();
+            if (lang != null && lang.length() > 0)
+                sb.append('@').append(lang);
+            else if (datatype != null) {
+                sb.append("^^<");
+                appendEscaped(sb, datatype.getURI(), true);
+                sb.append('>');
+            }
+        }
+        else
+            throw new IllegalArgumentException("Can't write a variable node: " + node);
+    }
+
+    /**
+     * Appends the given string, escaping the chars that can't be written as is in N-Triples
+     * @param sb - The builder of the line
+     * @param str - The appended string
+     * @param isUri - True iff the string is a URI (otherwise it's the lexical form of a literal)
+     */
+    private static void appendEscaped(StringBuilder sb, String str, boolean isUri) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x20 && c < 0x7F && c != '\\' && c != '"' && !(isUri && c == '>')) {
+                sb.append(c);
+                continue;
+            }
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '"': sb.append("\\\""); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    // Chars outside the BMP are written as their two surrogates (readers don't all support \\U)
+                    sb.append("\\u");
+                    for (int shift = 12; shift >= 0; shift -= 4)
+                        sb.append(HEX[(c >> shift) & 0xF]);
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/****************************************************************************************
+ * Copyright (C) 2010,2011 The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering
+ * Project: GRR - Generating Random RDF
+ * Author:	Daniel Blum, The Hebrew University of Jerusalem, 
+ * Department of Computer Science and Engineering, http://www.cs.huji.ac.il/~danieb12/
+ *
+ * This file is part of GRR.
+ * GRR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Please note that no part of this code is officially supported by HUJI
+ * (The Hebrew University of Jerusalem) or any of its developers.
+ *
+ *  GRR is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GRR (COPYRIGHT-gpl.txt).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ****************************************************************************************/
+
+package StorageWrappers;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A loader of N-Triples (or N-Quads) files which parses several parts of the file in parallel. The file is split into
+ * byte ranges, each one holding the lines that start in it, and each range is parsed by a worker thread (see
+ * NTriplesReader). The parsed triples are passed in batches to a single consumer (the calling thread), which adds
+ * them into an in-memory graph or bulk-loads them into a DB.
+ * A compressed file (.gz) can't be split, so it's parsed by a single worker while the triples are consumed.
+ * The blank node labels are shared by all of the workers, so a label is loaded as the same blank node wherever it
+ * appears in the file. The order in which the triples are loaded isn't kept.
+ * If parsing a range or consuming a batch fails, all of the workers stop and no more batches are consumed
+ */
+public class ParallelNTriplesLoader {
+
+    /**
+     * Consts
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+    // Ranges aren't made smaller than this size, even if it leaves some of the workers idle
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    // The number of triples passed at once to the consumer, and the number of such batches queued per worker
+    private static final int BATCH_SIZE = 8192;
+    private static final int QUEUE_CAPACITY_PER_WORKER = 4;
+    // The number of triples bulk-loaded into a DB at once
+    private static final int DB_BATCH_SIZE = 1 << 20;
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+    // The max time (in milliseconds) a worker or the consumer waits on the queue before checking for a failure
+    private static final long QUEUE_TIMEOUT = 100;
+    // The min time (in milliseconds) between two progress notifications
+    private static final long PROGRESS_INTERVAL = 1000;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Class Members
+     */
+    private int _parallelism;
+    private long _chunkSize;
+    private ILoadProgressListener _progressListener;
+
+    /**
+     * Constructor
+     * @param parallelism - The number of worker threads parsing the file
+     * @throws IllegalArgumentException - If the given number isn't positive
+     */
+    public ParallelNTriplesLoader(int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be a positive number: " + parallelism);
+        _parallelism = parallelism;
+        _chunkSize = DEFAULT_CHUNK_SIZE;
+        _progressListener = null;
+    }
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Sets the max size of the byte ranges into which the file is split (the file is split into at least as many
+     * ranges as workers, unless the ranges would be too small)
+     * @param chunkSize - The max size (in bytes) of a range
+     * @throws IllegalArgumentException - If the given size isn't positive
+     */
+    public void setChunkSize(long chunkSize) throws IllegalArgumentException {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("The chunk size must be positive: " + chunkSize);
+        _chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the listener notified about the progress of the loading (at most once a second, and when it ends)
+     * @param listener - The progress listener (null for none)
+     */
+    public void setProgressListener(ILoadProgressListener listener) {
+        _progressListener = listener;
+    }
+
+    /**
+     * Loads the triples of the given file into the given in-memory graph
+     * @param file - An N-Triples or N-Quads file (possibly compressed with gzip, if its name ends with .gz)
+     * @param graph - The graph into which the triples are added
+     * @return - The number of loaded triples
+     * @throws IOException - In case of I/O problems while reading the file
+     * @throws IllegalArgumentException - If the file has a syntax error
+     */
+    public long load(String file, final Graph graph) throws IOException, IllegalArgumentException {
+        return load(file, new BatchConsumer() {
+            @Override
+            void consume(List<Triple> batch) {
+                graph.getBulkUpdateHandler().add(batch);
+            }
+        });
+    }
+
+    /**
+     * Loads the triples of the given file into the given DB through its bulk-loading path (see IDBWrapper.bulkLoad()),
+     * in batches of about a million triples.
+     * The bulk-loader gives new identities to the blank nodes of each batch, so a blank node which appears in several
+     * batches would be loaded as several nodes. Hence the triples with blank nodes are always stored triple by triple
+     * (see IDBWrapper.storeModel()), which keeps the identity of their nodes across all of the batches
+     * @param file - An N-Triples or N-Quads file (possibly compressed with gzip, if its name ends with .gz)
+     * @param dbw - The DB into which the triples are loaded
+     * @return - The number of loaded triples
+     * @throws IOException - In case of I/O problems while reading the file or loading the triples
+     * @throws IllegalArgumentException - If the file has a syntax error
+     */
+    public long load(String file, final IDBWrapper dbw) throws IOException, IllegalArgumentException {
+        final Model buffer = ModelFactory.createDefaultModel();
+        final Model blankBuffer = ModelFactory.createDefaultModel();
+        try {
+            return load(file, new BatchConsumer() {
+                @Override
+                void consume(List<Triple> batch) throws IOException {
+                    Graph graph = buffer.getGraph();
+                    Graph blankGraph = blankBuffer.getGraph();
+                    for (Triple triple : batch) {
+                        if (triple.getSubject().isBlank() || triple.getObject().isBlank())
+                            blankGraph.add(triple);
+                        else
+                            graph.add(triple);
+                    }
+                    if (buffer.size() + blankBuffer.size() >= DB_BATCH_SIZE)
+                        finish();
+                }
+
+                @Override
+                void finish() throws IOException {
+                    if (!buffer.isEmpty()) {
+                        dbw.bulkLoad(buffer);
+                        buffer.removeAll();
+                    }
+                    if (!blankBuffer.isEmpty()) {
+                        dbw.storeModel(blankBuffer);
+                        blankBuffer.removeAll();
+                    }
+                }
+            });
+        }
+        finally {
+            buffer.close();
+            blankBuffer.close();
+        }
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Parses the given file by the workers and passes the parsed triples to the given consumer
+     * @param file - An N-Triples or N-Quads file (possibly compressed with gzip, if its name ends with .gz)
+     * @param consumer - The consumer of the parsed triples
+     * @return - The number of loaded triples
+     * @throws IOException - In case of I/O problems while reading the file or consuming the triples
+     * @throws IllegalArgumentException - If the file has a syntax error
+     */
+    private long load(String file, BatchConsumer consumer) throws IOException, IllegalArgumentException {
+        File f = new File(file);
+        if (!f.exists())
+            throw new IOException("Given file doesn't exist: " + file);
+        long length = f.length();
+
+        // Split the file into ranges (a compressed file is a single range)
+        ArrayList<long[]> ranges = new ArrayList<long[]>();
+        boolean compressed = file.endsWith(NTriplesWriter.GZIP_SUFFIX);
+        if (compressed)
+            ranges.add(new long[] {0, length});
+        else {
+            long rangeSize = Math.max(MIN_CHUNK_SIZE, Math.min(_chunkSize, (length + _parallelism - 1) / _parallelism));
+            for (long start = 0; start < length; start += rangeSize)
+                ranges.add(new long[] {start, Math.min(start + rangeSize, length)});
+        }
+        if (ranges.isEmpty())
+            return 0;
+
+        int workersCount = Math.min(_parallelism, ranges.size());
+        BlockingQueue<List<Triple>> queue = new ArrayBlockingQueue<List<Triple>>(workersCount * QUEUE_CAPACITY_PER_WORKER);
+        ConcurrentMap<String, Node> blankNodes = new ConcurrentHashMap<String, Node>();
+        AtomicLong bytesRead = new AtomicLong();
+        // Set once a range failed or the consumer failed, so all of the workers stop queueing batches
+        AtomicBoolean failed = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workersCount);
+        ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+        long loaded = 0;
+        try {
+            for (long[] range : ranges)
+                futures.add(executor.submit(new ChunkParser(f, range[0], range[1], compressed, queue, blankNodes, bytesRead, failed)));
+
+            // Consume the batches till each of the ranges was ended (an empty batch marks the end of a range), or
+            // till one of them failed
+            int remaining = ranges.size();
+            long lastReport = System.currentTimeMillis();
+            while (remaining > 0 && !failed.get()) {
+                List<Triple> batch = queue.poll(QUEUE_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (batch == null || failed.get())
+                    continue;
+                if (batch.isEmpty()) {
+                    remaining--;
+                    continue;
+                }
+                consumer.consume(batch);
+                loaded += batch.size();
+                if (_progressListener != null && System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL) {
+                    _progressListener.loadProgress(bytesRead.get(), length, loaded);
+                    lastReport = System.currentTimeMillis();
+                }
+            }
+
+            // The failure of a range is thrown by its future (the other workers stop once they see the failure)
+            for (Future<Long> future : futures)
+                future.get();
+            consumer.finish();
+            if (_progressListener != null)
+                _progressListener.loadProgress(length, length, loaded);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading: " + file);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException("A loading worker failed", cause);
+        }
+        finally {
+            // Stops the workers if the consumer failed - a worker waiting on the full queue gives up within the timeout
+            failed.set(true);
+            queue.clear();
+            executor.shutdownNow();
+        }
+        return loaded;
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * A consumer of batches of parsed triples
+     */
+    private static abstract class BatchConsumer {
+
+        /**
+         * Consumes the given batch of triples
+         * @param batch - The batch of triples (which isn't used by the caller afterwards)
+         * @throws IOException - In case of I/O problems while consuming the triples
+         */
+        abstract void consume(List<Triple> batch) throws IOException;
+
+        /**
+         * Consumes any triples left once all of the batches were consumed
+         * @throws IOException - In case of I/O problems while consuming the triples
+         */
+        void finish() throws IOException {
+        }
+    }
+
+    /**
+     * Parses the lines that start in a byte range of the file, and queues the parsed triples in batches. The end of
+     * the range is marked by an empty batch. If the parsing fails the failure flag is set instead, and the worker stops
+     * (without queueing the rest of its batches) once the flag is set by another worker or by the consumer
+     */
+    private static class ChunkParser implements Callable<Long> {
+
+        private File _file;
+        private long _start;
+        private long _end;
+        private boolean _compressed;
+        private BlockingQueue<List<Triple>> _queue;
+        private NTriplesReader _reader;
+        private AtomicLong _bytesRead;
+        private AtomicBoolean _failed;
+
+        // The input buffer and the current line
+        private byte[] _buffer;
+        private int _bufferPos;
+        private int _bufferLength;
+        private byte[] _line;
+        private int _lineLength;
+
+        public ChunkParser(File file, long start, long end, boolean compressed, BlockingQueue<List<Triple>> queue, ConcurrentMap<String, Node> blankNodes, AtomicLong bytesRead, AtomicBoolean failed) {
+            _file = file;
+            _start = start;
+            _end = end;
+            _compressed = compressed;
+            _queue = queue;
+            _reader = new NTriplesReader(blankNodes);
+            _bytesRead = bytesRead;
+            _failed = failed;
+            _buffer = new byte[INPUT_BUFFER_SIZE];
+            _line = new byte[256];
+        }
+
+        @Override
+        public Long call() throws IOException, InterruptedException {
+            FileInputStream fileIn = new FileInputStream(_file);
+            FileChannel channel = fileIn.getChannel();
+            InputStream in = fileIn;
+            long parsed = 0;
+            long reported = _start;
+            boolean completed = false;
+            try {
+                // The line starting right before the range belongs to the previous range
+                long pos = _start;
+                if (_compressed)
+                    in = new GZIPInputStream(fileIn, INPUT_BUFFER_SIZE);
+                else if (_start > 0) {
+                    channel.position(_start - 1);
+                    pos = _start - 1 + readLine(in);
+                }
+
+                ArrayList<Triple> batch = new ArrayList<Triple>(BATCH_SIZE);
+                while (_compressed || pos < _end) {
+                    long lineStart = pos;
+                    int read = readLine(in);
+                    if (read == 0)
+                        break;
+                    pos += read;
+                    Triple triple;
+                    try {
+                        triple = _reader.parseLine(new String(_line, 0, _lineLength, UTF8));
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(e.getMessage() + " (at byte " + lineStart + " of " + _file + ")", e);
+                    }
+                    if (triple == null)
+                        continue;
+                    batch.add(triple);
+                    if (batch.size() == BATCH_SIZE) {
+                        if (!queue(batch))
+                            return parsed;
+                        parsed += batch.size();
+                        batch = new ArrayList<Triple>(BATCH_SIZE);
+                        long current = _compressed ? channel.position() : pos;
+                        _bytesRead.addAndGet(current - reported);
+                        reported = current;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    if (!queue(batch))
+                        return parsed;
+                    parsed += batch.size();
+                }
+                completed = queue(new ArrayList<Triple>());
+                return parsed;
+            }
+            finally {
+                in.close();
+                if (!completed)
+                    _failed.set(true);
+            }
+        }
+
+        /**
+         * Queues the given batch, unless the loading failed before there was room for it in the queue
+         * @param batch - The queued batch
+         * @return - True iff the batch was queued
+         * @throws InterruptedException - If the worker was interrupted while waiting
+         */
+        private boolean queue(List<Triple> batch) throws InterruptedException {
+            while (!_queue.offer(batch, QUEUE_TIMEOUT, TimeUnit.MILLISECONDS))
+                if (_failed.get())
+                    return false;
+            return !_failed.get();
+        }
+
+        /**
+         * Reads the next line into the line buffer (without its line terminator)
+         * @param in - The input stream of the file
+         * @return - The number of bytes read, including the line terminator (0 at the end of the file)
+         * @throws IOException - In case of I/O problems while reading the file
+         */
+        private int readLine(InputStream in) throws IOException {
+            int read = 0;
+            _lineLength = 0;
+            while (true) {
+                if (_bufferPos == _bufferLength) {
+                    _bufferLength = Math.max(0, in.read(_buffer));
+                    _bufferPos = 0;
+                    if (_bufferLength == 0)
+                        break;
+                }
+                byte b = _buffer[_bufferPos++];
+                read++;
+                if (b == '\n')
+                    break;
+                if (_lineLength == _line.length) {
+                    byte[] line = new byte[_line.length * 2];
+                    System.arraycopy(_line, 0, line, 0, _lineLength);
+                    _line = line;
+                }
+                _line[_lineLength++] = b;
+            }
+            if (_lineLength > 0 && _line[_lineLength - 1] == '\r')
+                _lineLength--;
+            return read;
+        }
+    }
+}
@@ -45,6 +45,11 @@ public enum RdfFormat {
             return "N-TRIPLE";
         }
     },
+    N_QUADS_FORMAT {
+        public String toString() {
+            return "N-QUADS";
+        }
+    },
     N3_FORMAT {
         public String toString() {
             return "N3";
@@ -25,10 +25,17 @@
 
 package StorageWrappers;
 
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.shared.WrappedIOException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A simple implementation of the IFileWrapper interface
@@ -36,7 +43,29 @@ import java.io.*;
 public class StdFileWrapper implements IFileWrapper {
 
     /**
-     * Loads the model from the given file and returns a model
+     * Consts
+     */
+    // The number of triples passed at once to the writer of a shard, and the number of such chunks queued per shard
+    private static final int SHARD_CHUNK_SIZE = 4096;
+    private static final int SHARD_QUEUE_CAPACITY = 4;
+    private static final String N_TRIPLES_EXTENSION = ".nt";
+    private static final String N_QUADS_EXTENSION = ".nq";
+
+    /**
+     * Class Members
+     */
+    private String _graphName;
+    private int _loadParallelism = Runtime.getRuntime().availableProcessors();
+    private ILoadProgressListener _loadProgressListener;
+
+    /**
+     * Public Methods
+     */
+
+    /**
+     * Loads the model from the given file and returns a model. N-Triples and N-Quads files (.nt and .nq) are parsed by
+     * several threads (see ParallelNTriplesLoader and setLoadParallelism()), other files are read as RDF/XML by the
+     * model itself. Files whose name ends with .gz are decompressed with gzip
      * @param file - The file that stores the model
      * @return - A model which represents the model that was stored in the given file
      * @throws IOException - In case of I/O problems while reading the input file
@@ -48,32 +77,317 @@ public class StdFileWrapper implements IFileWrapper {
         File f = new File(file);
         if (!f.exists())
             throw new IOException("Give file doesn't exist: " + file);
-        InputStream in = new FileInputStream(f);
 
         // Create a default model
         Model model = ModelFactory.createDefaultModel();
-        model.read(in, null); // null base URI, since model URIs are absolute
+        if (isLineBasedFile(file)) {
+            createLoader().load(file, model.getGraph());
+            return model;
+        }
 
-        in.close();
+        InputStream in = new FileInputStream(f);
+        if (file.endsWith(NTriplesWriter.GZIP_SUFFIX))
+            in = new GZIPInputStream(in);
+        in = new BufferedInputStream(in);
+        try {
+            model.read(in, null); // null base URI, since model URIs are absolute
+        }
+        finally {
+            in.close();
+        }
          
         return model;
     }
 
     /**
-     * Stores the given model into the destination file
+     * Loads the model from the given file into the given DB through its bulk-loading path. N-Triples and N-Quads files
+     * are parsed by several threads and bulk-loaded in batches (see ParallelNTriplesLoader), other files are loaded into
+     * memory first (see loadModel())
+     * @param file - The file that stores the model
+     * @param dbw - The DB into which the model is loaded
+     * @return - The number of loaded triples
+     * @throws IOException - In case of I/O problems while reading the input file or loading the DB
+     */
+    @Override
+    public long loadModel(String file, IDBWrapper dbw) throws IOException {
+        if (isLineBasedFile(file))
+            return createLoader().load(file, dbw);
+        Model model = loadModel(file);
+        try {
+            dbw.bulkLoad(model);
+            return model.size();
+        }
+        finally {
+            model.close();
+        }
+    }
+
+    /**
+     * Stores the given model into the destination file. N-Triples and N-Quads are written while the model is
+     * iterated (see NTriplesWriter), so the model isn't held in memory by the writer. Other formats are written by
+     * the model itself. The output is buffered, and compressed with gzip if the file name ends with .gz
      * @param model - The model to be stored
      * @param file - The output file location
      * @param format - The RdfFormat that will be used for storing the model (see RdfFormat documentation)
      * @throws FileNotFoundException - In case that the destination file path isn't valid
+     * @throws WrappedIOException - In case of I/O problems while writing the file
      */
     @Override
-    public void storeModel(Model model, String file, RdfFormat format) throws FileNotFoundException {
+    public void storeModel(Model model, String file, RdfFormat format) throws FileNotFoundException, WrappedIOException {
 
         File f = new File(file);
         if (f.exists())
             f.delete();
-        FileOutputStream out = new FileOutputStream(f);
+        try {
+            if (isLineBased(format)) {
+                NTriplesWriter writer = new NTriplesWriter(NTriplesWriter.openOutput(file), getGraphName(format));
+                try {
+                    writer.writeGraph(model.getGraph());
+                }
+                finally {
+                    writer.close();
+                }
+            }
+            else {
+                OutputStream out = new FileOutputStream(f);
+                if (file.endsWith(NTriplesWriter.GZIP_SUFFIX))
+                    out = new GZIPOutputStream(out);
+                out = new BufferedOutputStream(out);
+                try {
+                    model.write(out, format.toString());
+                }
+                finally {
+                    out.close();
+                }
+            }
+        }
+        catch (FileNotFoundException e) {
+            throw e;
+        }
+        catch (IOException e) {
+            throw new WrappedIOException(e);
+        }
+    }
+
+    /**
+     * Stores the given model into several N-Triples/N-Quads files (shards), where each triple is stored in the shard
+     * chosen by the hash of its subject. The model is iterated once, while each shard is formatted (and compressed,
+     * if the file name ends with .gz) by its own worker thread
+     * @param model - The model to be stored
+     * @param file - The output file location, the index of each shard is added to its name (before the extension),
+     * e.g. out.nt.gz is stored into out-0.nt.gz, out-1.nt.gz...
+     * @param format - Either RdfFormat.N_TRIPLE_FORMAT or RdfFormat.N_QUADS_FORMAT
+     * @param shards - The number of output files
+     * @return - The locations of the created files
+     * @throws IOException - In case of I/O problems while writing the files
+     * @throws IllegalArgumentException - If the format isn't line based or the number of shards isn't positive
+     */
+    @Override
+    public String[] storeModelSharded(Model model, String file, RdfFormat format, int shards) throws IOException, IllegalArgumentException {
+        if (!isLineBased(format))
+            throw new IllegalArgumentException("Only N-Triples and N-Quads can be sharded: " + format);
+        if (shards < 1)
+            throw new IllegalArgumentException("The number of shards must be a positive number: " + shards);
+
+        String[] files = new String[shards];
+        ShardWriter[] writers = new ShardWriter[shards];
+        ExecutorService executor = Executors.newFixedThreadPool(shards);
+        ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+        try {
+            for (int i = 0; i < shards; i++) {
+                files[i] = getShardFileName(file, i);
+                writers[i] = new ShardWriter(new NTriplesWriter(NTriplesWriter.openOutput(files[i]), getGraphName(format)));
+                futures.add(executor.submit(writers[i]));
+            }
+
+            // Distribute the triples between the shards in chunks
+            ArrayList<ArrayList<Triple>> chunks = new ArrayList<ArrayList<Triple>>();
+            for (int i = 0; i < shards; i++)
+                chunks.add(new ArrayList<Triple>(SHARD_CHUNK_SIZE));
+            ExtendedIterator<Triple> iter = model.getGraph().find(null, null, null);
+            try {
+                while (iter.hasNext()) {
+                    Triple t = iter.next();
+                    int shard = (t.getSubject().hashCode() & Integer.MAX_VALUE) % shards;
+                    ArrayList<Triple> chunk = chunks.get(shard);
+                    chunk.add(t);
+                    if (chunk.size() == SHARD_CHUNK_SIZE) {
+                        writers[shard].put(chunk);
+                        chunks.set(shard, new ArrayList<Triple>(SHARD_CHUNK_SIZE));
+                    }
+                }
+            }
+            finally {
+                iter.close();
+                // An empty chunk marks the end of a shard
+                for (int i = 0; i < shards; i++) {
+                    if (!chunks.get(i).isEmpty())
+                        writers[i].put(chunks.get(i));
+                    writers[i].put(new ArrayList<Triple>());
+                }
+            }
+
+            for (Future<Long> future : futures)
+                future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while storing the shards");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IllegalStateException("A shard writer failed", cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return files;
+    }
+
+    /**
+     * Additional Public Methods
+     */
+
+    /**
+     * Sets the graph of the quads written in N-Quads format
+     * @param graphName - The URI of the graph (null for writing the quads in the default graph)
+     */
+    public void setGraphName(String graphName) {
+        _graphName = graphName;
+    }
+
+    /**
+     * Sets the number of threads parsing N-Triples and N-Quads files while loading them (the number of available
+     * processors by default)
+     * @param parallelism - The number of parsing threads
+     * @throws IllegalArgumentException - If the given number isn't positive
+     */
+    public void setLoadParallelism(int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be a positive number: " + parallelism);
+        _loadParallelism = parallelism;
+    }
+
+    /**
+     * Sets the listener notified about the progress of loading N-Triples and N-Quads files
+     * @param listener - The progress listener (null for none)
+     */
+    public void setLoadProgressListener(ILoadProgressListener listener) {
+        _loadProgressListener = listener;
+    }
+
+    /**
+     * Private Methods
+     */
+
+    /**
+     * Returns true iff the given format is written line by line (see NTriplesWriter)
+     * @param format - The checked format
+     * @return - True iff the given format is N-Triples or N-Quads
+     */
+    private static boolean isLineBased(RdfFormat format) {
+        return format == RdfFormat.N_TRIPLE_FORMAT || format == RdfFormat.N_QUADS_FORMAT;
+    }
+
+    /**
+     * Returns true iff the given file is an N-Triples or N-Quads file (by its extension, which might be followed by
+     * .gz)
+     * @param file - The file location
+     * @return - True iff the given file is an N-Triples or N-Quads file
+     */
+    private static boolean isLineBasedFile(String file) {
+        String name = file.toLowerCase();
+        if (name.endsWith(NTriplesWriter.GZIP_SUFFIX))
+            name = name.substring(0, name.length() - NTriplesWriter.GZIP_SUFFIX.length());
+        return name.endsWith(N_TRIPLES_EXTENSION) || name.endsWith(N_QUADS_EXTENSION);
+    }
+
+    /**
+     * Creates the loader of N-Triples and N-Quads files
+     * @return - A loader which uses the parallelism and progress listener of this instance
+     */
+    private ParallelNTriplesLoader createLoader() {
+        ParallelNTriplesLoader loader = new ParallelNTriplesLoader(_loadParallelism);
+        loader.setProgressListener(_loadProgressListener);
+        return loader;
+    }
+
+    /**
+     * Returns the graph name used for writing lines in the given format
+     * @param format - The format of the written lines
+     * @return - The graph name for N-Quads, otherwise null
+     */
+    private String getGraphName(RdfFormat format) {
+        return (format == RdfFormat.N_QUADS_FORMAT) ? _graphName : null;
+    }
+
+    /**
+     * Returns the name of the given shard's file - the index of the shard is added before the extension of the file
+     * @param file - The output file location
+     * @param shard - The index of the shard
+     * @return - The name of the shard's file
+     */
+    private static String getShardFileName(String file, int shard) {
+        int nameStart = file.lastIndexOf(File.separatorChar) + 1;
+        int extStart = file.indexOf('.', nameStart);
+        if (extStart < 0)
+            return file + "-" + shard;
+        return file.substring(0, extStart) + "-" + shard + file.substring(extStart);
+    }
+
+    /**
+     * Private classes
+     */
+
+    /**
+     * Writes the chunks of triples of a single shard. A failed writer keeps consuming (and dropping) its chunks, so
+     * the thread distributing the triples never blocks on it
+     */
+    private static class ShardWriter implements Callable<Long> {
+
+        private NTriplesWriter _writer;
+        private BlockingQueue<ArrayList<Triple>> _queue;
+
+        public ShardWriter(NTriplesWriter writer) {
+            _writer = writer;
+            _queue = new ArrayBlockingQueue<ArrayList<Triple>>(SHARD_QUEUE_CAPACITY);
+        }
+
+        public void put(ArrayList<Triple> chunk) throws InterruptedException {
+            _queue.put(chunk);
+        }
 
-        model.write(out, format.toString());
+        @Override
+        public Long call() throws IOException, InterruptedException {
+            IOException failure = null;
+            try {
+                ArrayList<Triple> chunk;
+                while (!(chunk = _queue.take()).isEmpty()) {
+                    if (failure != null)
+                        continue;
+                    try {
+                        for (Triple t : chunk)
+                            _writer.write(t);
+                    }
+                    catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+            finally {
+                try {
+                    _writer.close();
+                }
+                catch (IOException e) {
+                    if (failure == null)
+                        failure = e;
+                }
+            }
+            if (failure != null)
+                throw failure;
+            return _writer.getWrittenCount();
+        }
     }
 }
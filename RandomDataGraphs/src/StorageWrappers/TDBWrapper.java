@@ -25,23 +25,45 @@
 
 package StorageWrappers;
 
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
 import com.hp.hpl.jena.tdb.TDB;
 import com.hp.hpl.jena.tdb.TDBFactory;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB;
+import com.hp.hpl.jena.tdb.store.GraphTDB;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The TDB based wrapper which implements the IDBWrapper interface
  */
 public class TDBWrapper implements IDBWrapper {
 
+    /**
+     * Consts
+     */
+    private static final String RESUME_MARKER_FILE = "grr-resume-marker";
+    private static final String UNCOMMITTED_FILE = "grr-uncommitted.nt";
+    // The first line of the uncommitted file holds the marker that was stored when the file was created
+    private static final String MARKER_LINE_PREFIX = "# ";
+
     /**
      * Class members
      */
     private String _tdbPath;
     private boolean _isInitialized;
+    private int _syncTripleInterval = NO_SYNC_INTERVAL;
+    private long _syncTimeInterval = NO_SYNC_INTERVAL;
+    // The number of triples written since the last sync (counted by listeners on the models backed by the DB)
+    private AtomicLong _unsyncedTriples = new AtomicLong();
+    private long _lastSyncTime = System.currentTimeMillis();
 
     /**
      * Public Methods
@@ -82,6 +104,49 @@ public class TDBWrapper implements IDBWrapper {
 
         Model newModel = TDBFactory.createModel(_tdbPath);
         newModel.add(model);
+        _unsyncedTriples.addAndGet(model.size());
+    }
+
+    /**
+     * Stores the given model into the DB by using the TDB bulk-loader: the triples are written into a temporary
+     * N-Triples file which is loaded in one pass (when the DB is empty the loader builds the secondary indexes from
+     * the sorted primary index instead of inserting each triple into each of the indexes).
+     * Since the loader gives new identities to the blank nodes of the file, a model with blank nodes is added
+     * triple by triple (see storeModel()) unless the DB is empty - so loaded blank nodes can't be confused with the
+     * blank nodes that are already stored.
+     * Models backed by the DB don't get notified about the loaded triples
+     * @param model - The model to be stored in the DB
+     * @throws IOException - I/O problems while writing the temporary file
+     */
+    @Override
+    public void bulkLoad(Model model) throws IOException {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+        if (model.isEmpty())
+            return;
+
+        DatasetGraphTDB dsg = TDBFactory.createDatasetGraph(_tdbPath);
+        if (!dsg.getDefaultGraph().isEmpty() && containsBlankNodes(model.getGraph())) {
+            storeModel(model);
+            return;
+        }
+
+        File tempFile = File.createTempFile("grr-bulk", ".nt");
+        try {
+            NTriplesWriter writer = new NTriplesWriter(NTriplesWriter.openOutput(tempFile.getPath()), null);
+            try {
+                writer.writeGraph(model.getGraph());
+            }
+            finally {
+                writer.close();
+            }
+            BulkLoader.loadDefaultGraph(dsg, Arrays.asList(tempFile.getPath()), false);
+            sync();
+        }
+        finally {
+            if (!tempFile.delete())
+                tempFile.deleteOnExit();
+        }
     }
 
     /**
@@ -93,7 +158,7 @@ public class TDBWrapper implements IDBWrapper {
         if (!_isInitialized)
             throw new IllegalStateException("TDBWrapper was not initialized!");
 
-        return TDBFactory.createModel(_tdbPath);
+        return registerSyncListener(TDBFactory.createModel(_tdbPath));
     }
 
     /**
@@ -122,7 +187,226 @@ public class TDBWrapper implements IDBWrapper {
         Model model = TDBFactory.createModel(_tdbPath);
         TDB.sync(model);
         model.removeAll();
-        return model;
+        // The stored marker and uncommitted triples refer to the removed content
+        for (String name : new String[] {RESUME_MARKER_FILE, UNCOMMITTED_FILE}) {
+            File file = new File(_tdbPath, name);
+            if (file.exists() && !file.delete())
+                throw new IllegalStateException("Failed to delete: " + file);
+        }
+        return registerSyncListener(model);
+    }
+
+    /**
+     * Returns true iff the given model is the default graph of this DB (e.g. a model returned by getDbBasedModel()),
+     * so the triples bulk-loaded into the DB are added to it
+     * @param model - The model
+     * @return - True iff the given model is backed by this DB
+     */
+    @Override
+    public boolean isDbBasedModel(Model model) {
+        if (!_isInitialized || !(model.getGraph() instanceof GraphTDB))
+            return false;
+        GraphTDB graph = (GraphTDB) model.getGraph();
+        if (graph.getGraphNode() != null)
+            return false;
+        try {
+            return new File(graph.getLocation().getDirectoryPath()).getCanonicalFile()
+                    .equals(new File(_tdbPath).getCanonicalFile());
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets when the written triples are synced to the disk by syncIfDue() - after the given number of triples were
+     * written since the last sync, or after the given time passed since the last sync. Only triples written through
+     * the models returned by this wrapper (or stored by it) are counted
+     * @param tripleInterval - The number of written triples that makes a sync due (NO_SYNC_INTERVAL to disable)
+     * @param timeInterval - The time (in milliseconds) that makes a sync due (NO_SYNC_INTERVAL to disable)
+     * @throws IllegalArgumentException - If one of the intervals is negative
+     */
+    @Override
+    public void setSyncInterval(int tripleInterval, long timeInterval) throws IllegalArgumentException {
+        if (tripleInterval < 0 || timeInterval < 0)
+            throw new IllegalArgumentException("Negative sync interval: " + tripleInterval + " triples, " + timeInterval + "ms");
+        _syncTripleInterval = tripleInterval;
+        _syncTimeInterval = timeInterval;
+    }
+
+    /**
+     * Returns true iff the written triples are synced by an interval (see setSyncInterval())
+     * @return - True iff the written triples are synced by an interval
+     */
+    @Override
+    public boolean hasSyncInterval() {
+        return _syncTripleInterval != NO_SYNC_INTERVAL || _syncTimeInterval != NO_SYNC_INTERVAL;
+    }
+
+    /**
+     * Syncs all of the triples written so far to the disk (TDB.sync())
+     */
+    @Override
+    public void sync() {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+
+        TDB.sync(TDBFactory.createDatasetGraph(_tdbPath));
+        _unsyncedTriples.set(0);
+        _lastSyncTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Syncs all of the triples written so far to the disk if a sync is due (see setSyncInterval())
+     */
+    @Override
+    public void syncIfDue() {
+        long unsynced = _unsyncedTriples.get();
+        if (unsynced == 0)
+            return;
+        if ((_syncTripleInterval != NO_SYNC_INTERVAL && unsynced >= _syncTripleInterval)
+                || (_syncTimeInterval != NO_SYNC_INTERVAL && System.currentTimeMillis() - _lastSyncTime >= _syncTimeInterval))
+            sync();
+    }
+
+    /**
+     * Syncs the DB and stores the given marker in a file inside the TDB folder, which commits the uncommitted triples
+     * (their file is deleted). The marker file is replaced atomically (written aside and then renamed), so a failure
+     * while storing the marker leaves the previous marker intact. Since the uncommitted file records the marker that
+     * preceded it, a failure before the file is deleted doesn't make rollback() remove the committed triples
+     * @param marker - The marker to be stored (null for removing the stored marker)
+     * @throws IOException - I/O problems while writing the marker file
+     */
+    @Override
+    public synchronized void setResumeMarker(String marker) throws IOException {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+
+        sync();
+        File markerFile = new File(_tdbPath, RESUME_MARKER_FILE);
+        if (marker == null) {
+            if (markerFile.exists() && !markerFile.delete())
+                throw new IOException("Failed to delete the resume marker: " + markerFile);
+        }
+        else
+            writeMarker(markerFile, marker);
+        File uncommittedFile = new File(_tdbPath, UNCOMMITTED_FILE);
+        if (uncommittedFile.exists() && !uncommittedFile.delete())
+            throw new IOException("Failed to delete the uncommitted triples: " + uncommittedFile);
+    }
+
+
+    /**
+     * Returns the marker stored in the TDB folder (see setResumeMarker())
+     * @return - The stored marker or null if there's none
+     * @throws IOException - I/O problems while reading the marker file
+     */
+    @Override
+    public String getResumeMarker() throws IOException {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+
+        File markerFile = new File(_tdbPath, RESUME_MARKER_FILE);
+        if (!markerFile.exists())
+            return null;
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(markerFile), "UTF-8"));
+        try {
+            String marker = in.readLine();
+            return (marker == null) ? "" : marker;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends the triples of the given model that aren't stored in the DB to a file inside the TDB folder, and forces
+     * the file to the disk before returning - so the triples are recorded before any of them can reach the DB.
+     * The created triples never have blank nodes, whose identity in the DB can't be recorded
+     * @param model - The triples that are about to be stored in the DB
+     * @throws IOException - I/O problems while writing the file
+     */
+    @Override
+    public synchronized void logUncommitted(Model model) throws IOException {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+
+        File uncommittedFile = new File(_tdbPath, UNCOMMITTED_FILE);
+        boolean isNew = !uncommittedFile.exists();
+        Graph dbGraph = TDBFactory.createDatasetGraph(_tdbPath).getDefaultGraph();
+        FileOutputStream out = new FileOutputStream(uncommittedFile, true);
+        NTriplesWriter writer = new NTriplesWriter(new BufferedWriter(new OutputStreamWriter(out, "UTF-8")), null);
+        try {
+            if (isNew) {
+                String marker = getResumeMarker();
+                writer.flush();
+                out.write((MARKER_LINE_PREFIX + ((marker == null) ? "" : marker) + "\n").getBytes("UTF-8"));
+            }
+            ExtendedIterator<Triple> iter = model.getGraph().find(null, null, null);
+            try {
+                while (iter.hasNext()) {
+                    Triple triple = iter.next();
+                    if (!dbGraph.contains(triple))
+                        writer.write(triple);
+                }
+            }
+            finally {
+                iter.close();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Removes the triples recorded in the uncommitted file from the DB, unless the file was committed by the stored
+     * marker (see setResumeMarker()), and deletes the file
+     * @return - The number of removed triples
+     * @throws IOException - I/O problems while reading the file
+     */
+    @Override
+    public synchronized long rollback() throws IOException {
+        if (!_isInitialized)
+            throw new IllegalStateException("TDBWrapper was not initialized!");
+
+        File uncommittedFile = new File(_tdbPath, UNCOMMITTED_FILE);
+        if (!uncommittedFile.exists())
+            return 0;
+        String marker = getResumeMarker();
+        long removed = 0;
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(uncommittedFile), "UTF-8"));
+        try {
+            String markerLine = in.readLine();
+            if (markerLine != null && markerLine.equals(MARKER_LINE_PREFIX + ((marker == null) ? "" : marker))) {
+                Graph dbGraph = TDBFactory.createDatasetGraph(_tdbPath).getDefaultGraph();
+                NTriplesReader reader = new NTriplesReader();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    Triple triple;
+                    try {
+                        triple = reader.parseLine(line);
+                    }
+                    catch (IllegalArgumentException e) {
+                        // The last line might be cut if the generation stopped while it was written
+                        break;
+                    }
+                    if (triple != null && dbGraph.contains(triple)) {
+                        dbGraph.delete(triple);
+                        removed++;
+                    }
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+        sync();
+        if (!uncommittedFile.delete())
+            throw new IOException("Failed to delete the uncommitted triples: " + uncommittedFile);
+        return removed;
     }
 
     /**
@@ -133,6 +417,62 @@ public class TDBWrapper implements IDBWrapper {
         TDB.closedown();
     }
 
+    /**
+     * Writes the given marker into the given file, which is replaced atomically
+     * @param markerFile - The marker file
+     * @param marker - The marker to be stored
+     * @throws IOException - I/O problems while writing the marker file
+     */
+    private void writeMarker(File markerFile, String marker) throws IOException {
+        File tempFile = new File(_tdbPath, RESUME_MARKER_FILE + ".tmp");
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(marker.getBytes("UTF-8"));
+            out.getFD().sync();
+        }
+        finally {
+            out.close();
+        }
+        // Renaming over an existing file isn't supported on all platforms
+        if (!tempFile.renameTo(markerFile) && !(markerFile.delete() && tempFile.renameTo(markerFile)))
+            throw new IOException("Failed to store the resume marker: " + markerFile);
+    }
+
+    /**
+     * Registers a listener on the given model which counts the triples added to the DB through it (see syncIfDue())
+     * @param model - A model backed by the DB
+     * @return - The given model
+     */
+    private Model registerSyncListener(Model model) {
+        model.register(new StatementListener() {
+            @Override
+            public void addedStatement(Statement s) {
+                _unsyncedTriples.incrementAndGet();
+            }
+        });
+        return model;
+    }
+
+    /**
+     * Returns true iff one of the triples of the given graph has a blank node
+     * @param graph - The checked graph
+     * @return - True iff one of the triples of the given graph has a blank node
+     */
+    private static boolean containsBlankNodes(Graph graph) {
+        ExtendedIterator<Triple> iter = graph.find(null, null, null);
+        try {
+            while (iter.hasNext()) {
+                Triple t = iter.next();
+                if (t.getSubject().isBlank() || t.getObject().isBlank())
+                    return true;
+            }
+            return false;
+        }
+        finally {
+            iter.close();
+        }
+    }
+
     /**
      * A static (recursive) method for deleting all of the TDB folder
      * @param path - The path to the TDB folder location